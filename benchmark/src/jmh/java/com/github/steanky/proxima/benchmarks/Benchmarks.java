@@ -16,4 +16,11 @@ public class Benchmarks {
     throws ExecutionException, InterruptedException {
         state.pathfinder.pathfind(0, 1, 0, PathTarget.coordinate(100, 1, 100), state.settings).get();
     }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void runParallel(PathfindState state)
+    throws ExecutionException, InterruptedException {
+        state.parallelPathfinder.pathfind(0, 1, 0, PathTarget.coordinate(100, 1, 100), state.settings).get();
+    }
 }
@@ -0,0 +1,68 @@
+package com.github.steanky.proxima.benchmarks;
+
+import com.github.steanky.proxima.Direction;
+import com.github.steanky.proxima.solid.Solid;
+import com.github.steanky.vector.Bounds3D;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@Fork(value = 1, warmups = 1)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CollisionBenchmarks {
+    private static final double EPSILON = 1E-6;
+
+    private static final Solid STAIRS = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1),
+            Bounds3D.immutable(0, 0.5, 0.5, 1, 0.5, 0.5));
+
+    private static final Solid FENCE = Solid.of(Bounds3D.immutable(0.375, 0, 0.375, 0.25, 1, 0.25),
+            Bounds3D.immutable(0.4375, 0.375, 0, 0.125, 0.1875, 0.375),
+            Bounds3D.immutable(0.4375, 0.75, 0, 0.125, 0.1875, 0.375));
+
+    private static final Solid MULTI_BOX = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.25, 1),
+            Bounds3D.immutable(0, 0.25, 0, 0.25, 0.75, 0.25), Bounds3D.immutable(0.75, 0.25, 0, 0.25, 0.75, 0.25),
+            Bounds3D.immutable(0, 0.25, 0.75, 0.25, 0.75, 0.25), Bounds3D.immutable(0.75, 0.25, 0.75, 0.25, 0.75, 0.25),
+            Bounds3D.immutable(0, 0.875, 0, 1, 0.125, 1));
+
+    @Param({"stairs", "fence", "multi"})
+    public String shape;
+
+    private Solid solid;
+
+    @Setup
+    public void setUp() {
+        solid = switch (shape) {
+            case "stairs" -> STAIRS;
+            case "fence" -> FENCE;
+            case "multi" -> MULTI_BOX;
+            default -> throw new IllegalArgumentException(shape);
+        };
+    }
+
+    @Benchmark
+    public long minMaxDirectional() {
+        return solid.minMaxCollision(1, 0, 0, 0.5, 0, 0.5, 0.6, 1.8, 0.6, Direction.EAST, 1, EPSILON);
+    }
+
+    @Benchmark
+    public boolean hasCollisionDirectional() {
+        return solid.hasCollision(1, 0, 0, 0.5, 0.5, 0.5, 0.6, 1.8, 0.6, Direction.EAST, 1, EPSILON);
+    }
+
+    @Benchmark
+    public Bounds3D closestCollision() {
+        return solid.closestCollision(0, 0, 0, 0.5, 1.5, 0.5, 0.6, 1.8, 0.6, Direction.DOWN, 2, EPSILON);
+    }
+
+    @Benchmark
+    public boolean hasCollisionDiagonal() {
+        return solid.hasCollision(1, 0, 1, 0.5, 0.25, 0.5, 0.6, 1.8, 0.6, 1, 0, 1, EPSILON);
+    }
+
+    @Benchmark
+    public long minMaxDiagonal() {
+        return solid.minMaxCollision(1, 0, 1, 0.5, 0, 0.5, 0.6, 1.8, 0.6, 1, 0, 1, EPSILON);
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.steanky.proxima.benchmarks;
+
+import com.github.steanky.proxima.path.PathTarget;
+import com.github.steanky.proxima.solid.Solid;
+import com.github.steanky.proxima.space.ConcurrentCachingSpace;
+import com.github.steanky.proxima.space.SolidBatch;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads reading from the same {@link ConcurrentCachingSpace} at once, as happens when several pathfinder threads
+ * work in the same area.
+ */
+@Fork(value = 1, warmups = 1)
+@Threads(8)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContentionBenchmarks {
+    private static final int SIZE = 256;
+
+    @State(Scope.Benchmark)
+    public static class SharedSpace {
+        public ConcurrentCachingSpace space;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            space = new ConcurrentCachingSpace() {
+                @Override
+                public @NotNull Solid loadSolid(int x, int y, int z) {
+                    return y == 0 ? Solid.FULL : Solid.EMPTY;
+                }
+            };
+
+            //measure reads of cached solids, not loading
+            for (int x = 0; x < SIZE; x++) {
+                for (int y = 0; y < 4; y++) {
+                    for (int z = 0; z < SIZE; z++) {
+                        space.solidAt(x, y, z);
+                    }
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Origin {
+        private final SplittableRandom random = new SplittableRandom();
+        private final SolidBatch batch = new SolidBatch();
+
+        public int x;
+        public int z;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            x = random.nextInt(SIZE - 16);
+            z = random.nextInt(SIZE - 16);
+        }
+    }
+
+    //the access pattern of a snapper: many reads in a small area, mostly within a single chunk
+    @Benchmark
+    public void scan(SharedSpace shared, Origin origin, Blackhole blackhole) {
+        for (int x = origin.x; x < origin.x + 16; x++) {
+            for (int y = 0; y < 4; y++) {
+                for (int z = origin.z; z < origin.z + 16; z++) {
+                    blackhole.consume(shared.space.solidAt(x, y, z));
+                }
+            }
+        }
+    }
+
+    //a writer repeatedly emptying and reloading a distant area, forcing chunks to be removed and created
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(2)
+    public void storm(SharedSpace shared, Origin origin) {
+        int x = origin.x + (SIZE << 2);
+        int z = origin.z + (SIZE << 2);
+
+        shared.space.updateSolid(x, 1, z, null);
+        shared.space.solidAt(x, 1, z);
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(6)
+    public void scanDuringStorm(SharedSpace shared, Origin origin, Blackhole blackhole) {
+        scan(shared, origin, blackhole);
+    }
+
+    //an explosion-sized block change, one position at a time
+    @Benchmark
+    @Threads(1)
+    public void explosion(SharedSpace shared, Origin origin) {
+        for (int x = origin.x; x < origin.x + 8; x++) {
+            for (int y = 0; y < 4; y++) {
+                for (int z = origin.z; z < origin.z + 8; z++) {
+                    shared.space.updateSolid(x, y, z, y == 0 ? Solid.FULL : Solid.EMPTY);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void explosionBatched(SharedSpace shared, Origin origin) {
+        SolidBatch batch = origin.batch;
+        batch.clear();
+
+        for (int x = origin.x; x < origin.x + 8; x++) {
+            for (int y = 0; y < 4; y++) {
+                for (int z = origin.z; z < origin.z + 8; z++) {
+                    batch.add(x, y, z, y == 0 ? Solid.FULL : Solid.EMPTY);
+                }
+            }
+        }
+
+        shared.space.updateSolids(batch);
+    }
+
+    @Benchmark
+    public void pathfind(PathfindState state)
+    throws ExecutionException, InterruptedException {
+        state.pathfinder.pathfind(0, 1, 0, PathTarget.coordinate(100, 1, 100), state.settings).get();
+    }
+}
@@ -8,9 +8,12 @@ import com.github.steanky.proxima.node.Node;
 import com.github.steanky.proxima.node.NodeProcessor;
 import com.github.steanky.proxima.path.BasicAsyncPathfinder;
 import com.github.steanky.proxima.path.BasicPathOperation;
+import com.github.steanky.proxima.path.ParallelPathOperation;
 import com.github.steanky.proxima.path.PathSettings;
 import com.github.steanky.proxima.path.Pathfinder;
 import com.github.steanky.proxima.snapper.BasicNodeSnapper;
+import com.github.steanky.proxima.snapper.FullBlockNodeSnapper;
+import com.github.steanky.proxima.snapper.NodeSnapper;
 import com.github.steanky.proxima.solid.Solid;
 import com.github.steanky.proxima.space.ConcurrentCachingSpace;
 import com.github.steanky.proxima.space.Space;
@@ -27,8 +30,12 @@ import java.util.concurrent.TimeUnit;
 @State(Scope.Benchmark)
 public class PathfindState {
     public Pathfinder pathfinder;
+    public Pathfinder parallelPathfinder;
     public PathSettings settings;
 
+    @Param({"basic", "fullBlock"})
+    public String snapper;
+
     private static Pathfinder pathfinder() {
         int threads = Runtime.getRuntime().availableProcessors();
         ForkJoinPool fjp =
@@ -38,7 +45,18 @@ public class PathfindState {
         return new BasicAsyncPathfinder(fjp, BasicPathOperation::new, 1000000);
     }
 
-    private static PathSettings synchronizedEnvironment() {
+    private static Pathfinder parallelPathfinder() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool fjp =
+                new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false, threads,
+                        threads, threads, forkJoinPool -> true, 2, TimeUnit.MINUTES);
+
+        Bounds3I bounds = Bounds3I.immutable(0, 0, 0, 1000, 4, 1000);
+        return new BasicAsyncPathfinder(fjp, () -> new ParallelPathOperation(ForkJoinPool.commonPool(), threads,
+                () -> new HashVec3I2ObjectMap<>(bounds)), 1000000);
+    }
+
+    private static PathSettings synchronizedEnvironment(String snapper) {
         Bounds3I bounds = Bounds3I.immutable(0, 0, 0, 1000, 4, 1000);
         Space space = new ConcurrentCachingSpace() {
             @Override
@@ -51,10 +69,14 @@ public class PathfindState {
             }
         };
 
-        return settings(1, 1, 1, 1, space, bounds);
+        return settings(1, 1, 1, 1, space, bounds, snapper);
     }
 
-    private static PathSettings settings(int width, int height, int fallTolerance, int jumpHeight, @NotNull Space space, Bounds3I searchArea) {
+    private static PathSettings settings(int width, int height, int fallTolerance, int jumpHeight, @NotNull Space space, Bounds3I searchArea, String snapper) {
+        NodeSnapper nodeSnapper = snapper.equals("fullBlock") ?
+                new FullBlockNodeSnapper(space, width, height, fallTolerance, jumpHeight, 1E-6) :
+                new BasicNodeSnapper(space, width, height, fallTolerance, jumpHeight, 1E-6);
+
         return new PathSettings() {
             private static final Vec3IBiPredicate SUCCESS_PREDICATE =
                     (x1, y1, z1, x2, y2, z2) -> x1 == x2 && y1 == y2 && z1 == z2;
@@ -62,9 +84,7 @@ public class PathfindState {
             private final ThreadLocal<Vec3I2ObjectMap<Node>> THREAD_LOCAL_GRAPH = ThreadLocal.withInitial(
                     () -> new HashVec3I2ObjectMap<>(searchArea.originX(), searchArea.originX(), searchArea.originZ(),
                             searchArea.lengthX(), searchArea.lengthY(), searchArea.lengthZ()));
-            private final Explorer explorer =
-                    new WalkExplorer(new BasicNodeSnapper(space, width, height, fallTolerance, jumpHeight, 1E-6),
-                            PathLimiter.inBounds(searchArea));
+            private final Explorer explorer = new WalkExplorer(nodeSnapper, PathLimiter.inBounds(searchArea));
 
             @Override
             public @NotNull Vec3IBiPredicate successPredicate() {
@@ -96,12 +116,14 @@ public class PathfindState {
     @Setup(Level.Iteration)
     public void setUp() {
         pathfinder = pathfinder();
-        settings = synchronizedEnvironment();
+        parallelPathfinder = parallelPathfinder();
+        settings = synchronizedEnvironment(snapper);
     }
 
     @TearDown(Level.Iteration)
     public void tearDown() {
         pathfinder.shutdown();
+        parallelPathfinder.shutdown();
         settings = null;
     }
 }
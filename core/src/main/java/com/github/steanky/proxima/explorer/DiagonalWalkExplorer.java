@@ -0,0 +1,132 @@
+package com.github.steanky.proxima.explorer;
+
+import com.github.steanky.proxima.Direction;
+import com.github.steanky.proxima.Heuristic;
+import com.github.steanky.proxima.NodeHandler;
+import com.github.steanky.proxima.PathLimiter;
+import com.github.steanky.proxima.node.Node;
+import com.github.steanky.proxima.snapper.NodeSnapper;
+import com.github.steanky.vector.Vec3I2ObjectMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A {@link WalkExplorer} that also explores the four diagonal directions during the search, rather than relying on
+ * post-processing to recover them. Diagonal moves are only taken across flat ground: both adjacent cardinal blocks
+ * must be reachable without a change in height, and the agent must be able to move directly to the diagonal block as
+ * determined by {@link NodeSnapper#checkDiagonal(int, int, int, int, int, float)}.
+ * <p>
+ * Diagonal moves always cost {@code sqrt(2)}, whatever the heuristic of the search; see
+ * {@link DiagonalWalkExplorer#stepCost(Heuristic, int, int, int, int, int, int)}. Paths are only optimal if the
+ * heuristic never overestimates this cost, such as {@link Heuristic#OCTILE}.
+ */
+public class DiagonalWalkExplorer extends WalkExplorer {
+    private static final Direction[] CARDINALS =
+            new Direction[] {Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST};
+
+    //pairs of indices into CARDINALS, z-component first: NE, SE, SW, NW
+    private static final int[][] DIAGONALS = new int[][] {
+            {0, 1},
+            {2, 1},
+            {2, 3},
+            {0, 3}
+    };
+
+    //like NodeSnapper.FAIL, can never be produced by a successful snap; marks cardinal directions we haven't snapped
+    private static final long UNCHECKED = 0xFFC0_0002L;
+
+    private static final float DIAGONAL_COST = (float) Heuristic.SQRT_2;
+
+    //results of cardinal snaps, indexed like CARDINALS; reused between expansions on the same thread
+    private final ThreadLocal<long[]> cardinals;
+
+    public DiagonalWalkExplorer(@NotNull NodeSnapper snapper, @NotNull PathLimiter limiter) {
+        super(snapper, limiter);
+        this.cardinals = ThreadLocal.withInitial(() -> new long[CARDINALS.length]);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Diagonal moves, which change both the x- and z-coordinates, cost {@code sqrt(2)}. Other moves are priced by the
+     * heuristic.
+     */
+    @Override
+    public float stepCost(@NotNull Heuristic heuristic, int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+        if (fromX != toX && fromZ != toZ) {
+            return DIAGONAL_COST;
+        }
+
+        return super.stepCost(heuristic, fromX, fromY, fromZ, toX, toY, toZ);
+    }
+
+    @Override
+    protected void exploreAdditional(@NotNull Node current, @NotNull Direction @NotNull [] directions,
+            long @NotNull [] results, int count, @NotNull NodeHandler handler, @NotNull Vec3I2ObjectMap<Node> graph) {
+        if (current.jumpOffset != 0) {
+            //we're mid-jump, don't try to move diagonally
+            return;
+        }
+
+        int nx = current.x;
+        int ny = current.y;
+        int nz = current.z;
+        float offset = current.blockOffset;
+
+        //reuse the results of cardinal snaps to validate diagonals; the ordinals of CARDINALS are their indices
+        long[] cardinals = this.cardinals.get();
+        Arrays.fill(cardinals, UNCHECKED);
+        for (int i = 0; i < count; i++) {
+            cardinals[directions[i].ordinal()] = results[i];
+        }
+
+        for (int[] diagonal : DIAGONALS) {
+            int zIndex = diagonal[0];
+            int xIndex = diagonal[1];
+
+            Direction zDirection = CARDINALS[zIndex];
+            Direction xDirection = CARDINALS[xIndex];
+
+            int tx = nx + xDirection.x;
+            int tz = nz + zDirection.z;
+
+            Node neighborNode = graph.get(tx, ny, tz);
+            if (!shouldExplore(current, neighborNode, tx, ny, tz, DIAGONAL_COST)) {
+                continue;
+            }
+
+            if (!isFlat(cardinal(cardinals, xIndex, nx, ny, nz, offset), ny, offset) ||
+                    !isFlat(cardinal(cardinals, zIndex, nx, ny, nz, offset), ny, offset)) {
+                continue;
+            }
+
+            //make sure the diagonal block itself can be stood on at the same height
+            if (!isFlat(snapper.snap(zDirection, tx, ny, nz, offset), ny, offset)) {
+                continue;
+            }
+
+            if (!snapper.checkDiagonal(nx, ny, nz, tx, tz, offset)) {
+                continue;
+            }
+
+            handler.handle(current, neighborNode, tx, ny, tz, offset, 0);
+        }
+    }
+
+    private long cardinal(long[] cardinals, int index, int nx, int ny, int nz, float offset) {
+        long value = cardinals[index];
+        if (value != UNCHECKED) {
+            return value;
+        }
+
+        value = snapper.snap(CARDINALS[index], nx, ny, nz, offset);
+        cardinals[index] = value;
+        return value;
+    }
+
+    private static boolean isFlat(long value, int y, float offset) {
+        return value != NodeSnapper.FAIL && !NodeSnapper.intermediateJump(value) &&
+                NodeSnapper.blockHeight(value) == y && NodeSnapper.blockOffset(value) == offset;
+    }
+}
@@ -15,12 +15,16 @@ import java.util.Objects;
 public abstract class DirectionalExplorer implements Explorer {
     protected final NodeSnapper snapper;
     private final Direction[] directions;
-    private final PathLimiter limiter;
+    protected final PathLimiter limiter;
+
+    //explorers are shared between threads, and exploreEach is called once for every node, so don't allocate there
+    private final ThreadLocal<Scratch> scratch;
 
     public DirectionalExplorer(@NotNull Direction[] directions, @NotNull PathLimiter limiter, @NotNull NodeSnapper snapper) {
         this.directions = Arrays.copyOf(directions, directions.length);
         this.limiter = Objects.requireNonNull(limiter);
         this.snapper = Objects.requireNonNull(snapper);
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(this.directions.length));
     }
 
     @Override
@@ -51,6 +55,13 @@ public abstract class DirectionalExplorer implements Explorer {
         if (polarity) offsetIndex--;
         else offsetIndex++;
 
+        //directions we actually need to snap in, along with their neighbor nodes (if any)
+        Scratch scratch = this.scratch.get();
+        Direction[] pending = scratch.pending;
+        Node[] neighbors = scratch.neighbors;
+        long[] results = scratch.results;
+        int count = 0;
+
         for (int i = start; i != limit; i += inc) {
             Direction direction = directions[Math.floorMod(i + offsetIndex, directions.length)];
             int dx = direction.x;
@@ -62,29 +73,85 @@ public abstract class DirectionalExplorer implements Explorer {
             int ty = ny + dy;
             int tz = nz + dz;
 
-            Node parent = current.parent;
-            if (parent != null && isParent(parent, tx, ty, tz)) {
-                //don't re-visit our parent, there's never a reason to do this
+            Node neighborNode = graph.get(tx, ty, tz);
+            if (!shouldExplore(current, neighborNode, tx, ty, tz, 1)) {
                 continue;
             }
 
-            Node neighborNode = graph.get(tx, ty, tz);
-            if (neighborNode != null && current.g + 1 >= neighborNode.g) {
-                /*
-                ignore travel to nodes that
+            pending[count] = direction;
+            neighbors[count++] = neighborNode;
+        }
 
-                a) we already visited
-                b) the path when going from current to this node will be longer than (or equal to) the path to the other
-                node
+        //snap everything at once, so the snapper can share work between directions
+        if (count != 0) {
+            snapper.snapAll(pending, count, nx, ny, nz, current.blockOffset, results);
+        }
 
-                we can add 1 to the current node's g, because it is the MINIMUM additional path length; we may determine
-                that it goes larger after snapping, but it doesn't change this calculation if it does
-                 */
-                continue;
+        for (int i = 0; i < count; i++) {
+            long result = results[i];
+            Node neighborNode = neighbors[i];
+
+            //don't keep nodes reachable from a thread-local
+            neighbors[i] = null;
+
+            if (result != NodeSnapper.FAIL) {
+                handleDirection(pending[i], result, current, neighborNode, handler, graph);
             }
+        }
 
-            handleDirection(direction, current, neighborNode, handler, graph);
+        exploreAdditional(current, pending, results, count, handler, graph);
+    }
+
+    /**
+     * Checks if a node should be explored from the current node, given the minimum cost of moving to it. Nodes are not
+     * explored if they are the parent of the current node, or if they have already been reached by a path that is no
+     * longer than the one through the current node.
+     *
+     * @param current      the node being explored
+     * @param neighborNode the node currently in the graph at the target position, if any
+     * @param tx           the target x-coordinate
+     * @param ty           the target y-coordinate
+     * @param tz           the target z-coordinate
+     * @param cost         the minimum cost of moving from the current node to the target
+     * @return true if the target should be explored, false otherwise
+     */
+    protected final boolean shouldExplore(@NotNull Node current, @Nullable Node neighborNode, int tx, int ty, int tz,
+            float cost) {
+        Node parent = current.parent;
+        if (parent != null && isParent(parent, tx, ty, tz)) {
+            //don't re-visit our parent, there's never a reason to do this
+            return false;
         }
+
+        /*
+        ignore travel to nodes that
+
+        a) we already visited
+        b) the path when going from current to this node will be longer than (or equal to) the path to the other
+        node
+
+        we can use the minimum cost here, because it is the MINIMUM additional path length; we may determine that it
+        goes larger after snapping, but it doesn't change this calculation if it does
+         */
+        return neighborNode == null || current.g + cost < neighborNode.g;
+    }
+
+    /**
+     * Called at the end of {@link DirectionalExplorer#exploreEach(Node, NodeHandler, Vec3I2ObjectMap, int, int, int)},
+     * after every direction has been handled. Subclasses can override this to explore nodes that are not in one of
+     * the explorer's directions, reusing the snap results. Does nothing by default.
+     *
+     * @param current    the node being explored
+     * @param directions the directions that were snapped in; directions that were not explored are absent. Only
+     *                   valid for the duration of the call
+     * @param results    the snap results, at the same indices as their directions. Only valid for the duration of
+     *                   the call
+     * @param count      the number of directions that were snapped in
+     * @param handler    the handler to call
+     * @param graph      the graph
+     */
+    protected void exploreAdditional(@NotNull Node current, @NotNull Direction @NotNull [] directions,
+            long @NotNull [] results, int count, @NotNull NodeHandler handler, @NotNull Vec3I2ObjectMap<Node> graph) {
     }
 
     @Override
@@ -131,5 +198,30 @@ public abstract class DirectionalExplorer implements Explorer {
 
     protected abstract boolean isParent(@NotNull Node parent, int tx, int ty, int tz);
 
-    protected abstract void handleDirection(@NotNull Direction direction, @NotNull Node currentNode, @Nullable Node neighborNode, @NotNull NodeHandler handler, @NotNull Vec3I2ObjectMap<Node> graph);
+    /**
+     * Handles a successful snap in the given direction. Called by
+     * {@link DirectionalExplorer#exploreEach(Node, NodeHandler, Vec3I2ObjectMap, int, int, int)} after every direction
+     * has been snapped at once, so implementations should use the result rather than snapping again.
+     *
+     * @param direction    the direction that was snapped in
+     * @param snapResult   the result of the snap, never {@link NodeSnapper#FAIL}
+     * @param currentNode  the node being explored
+     * @param neighborNode the node currently in the graph at the unadjusted target position, if any
+     * @param handler      the handler to call
+     * @param graph        the graph
+     */
+    protected abstract void handleDirection(@NotNull Direction direction, long snapResult, @NotNull Node currentNode,
+            @Nullable Node neighborNode, @NotNull NodeHandler handler, @NotNull Vec3I2ObjectMap<Node> graph);
+
+    private static final class Scratch {
+        private final Direction[] pending;
+        private final Node[] neighbors;
+        private final long[] results;
+
+        private Scratch(int size) {
+            this.pending = new Direction[size];
+            this.neighbors = new Node[size];
+            this.results = new long[size];
+        }
+    }
 }
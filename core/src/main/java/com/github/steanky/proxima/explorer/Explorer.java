@@ -1,5 +1,6 @@
 package com.github.steanky.proxima.explorer;
 
+import com.github.steanky.proxima.Heuristic;
 import com.github.steanky.proxima.NodeHandler;
 import com.github.steanky.proxima.node.Node;
 import com.github.steanky.vector.Vec3I2ObjectMap;
@@ -10,4 +11,22 @@ public interface Explorer {
             int destinationX, int destinationY, int destinationZ);
 
     void exploreInitial(double startX, double startY, double startZ, @NotNull NodeInitializer initializer);
+
+    /**
+     * The cost of moving from one node to a neighbor produced by this explorer. The default implementation returns the
+     * value of the heuristic between the two nodes, which is exact for straight moves under the built-in heuristics.
+     * Explorers that produce moves the heuristic doesn't price correctly should override this.
+     *
+     * @param heuristic the heuristic of the search
+     * @param fromX     the x-coordinate of the node being moved from
+     * @param fromY     the y-coordinate of the node being moved from
+     * @param fromZ     the z-coordinate of the node being moved from
+     * @param toX       the x-coordinate of the neighbor
+     * @param toY       the y-coordinate of the neighbor
+     * @param toZ       the z-coordinate of the neighbor
+     * @return the cost of the move
+     */
+    default float stepCost(@NotNull Heuristic heuristic, int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+        return heuristic.heuristic(fromX, fromY, fromZ, toX, toY, toZ);
+    }
 }
@@ -9,13 +9,116 @@ import com.github.steanky.vector.Vec3I2ObjectMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * Explores in all six directions, for agents that can fly. Optionally, this explorer can also take long, straight moves
+ * through space that the snapper knows to be empty (see {@link NodeSnapper#freeDistance(Direction, int, int, int,
+ * int)}), so that paths through open air take a few expansions rather than one per block. Long moves never pass the
+ * destination along the axis they move on, and are shortened so that they end at a node the limiter accepts. Only the
+ * end of each move is checked, so a move stays within the limiter's region as long as that region is convex, as it is
+ * for all the limiters in {@link PathLimiter}.
+ */
 public class FlightExplorer extends DirectionalExplorer {
     private static final Direction[] DIRECTIONS =
             new Direction[] {Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST, Direction.UP,
                     Direction.DOWN};
 
-    public FlightExplorer(@NotNull PathLimiter limiter, @NotNull NodeSnapper snapper) {
+    private final int maxStride;
+
+    /**
+     * Creates a new instance that takes long moves of up to {@code maxStride} blocks through empty space.
+     *
+     * @param limiter   the limiter
+     * @param snapper   the snapper
+     * @param maxStride the length of the longest move to take, which must be positive; 1 disables long moves
+     */
+    public FlightExplorer(@NotNull PathLimiter limiter, @NotNull NodeSnapper snapper, int maxStride) {
         super(DIRECTIONS, limiter, snapper);
+
+        if (maxStride < 1) {
+            throw new IllegalArgumentException("Invalid maxStride: " + maxStride);
+        }
+
+        this.maxStride = maxStride;
+    }
+
+    public FlightExplorer(@NotNull PathLimiter limiter, @NotNull NodeSnapper snapper) {
+        this(limiter, snapper, 1);
+    }
+
+    @Override
+    public void exploreEach(@NotNull Node current, @NotNull NodeHandler handler, @NotNull Vec3I2ObjectMap<Node> graph,
+            int destinationX, int destinationY, int destinationZ) {
+        super.exploreEach(current, handler, graph, destinationX, destinationY, destinationZ);
+
+        //long moves are only known to be valid from full-height nodes
+        if (maxStride == 1 || current.blockOffset != 0 || !limiter.inBounds(current)) {
+            return;
+        }
+
+        for (Direction direction : DIRECTIONS) {
+            int limit = maxStride;
+
+            //stop at the destination if it is ahead of us, so we don't fly past it
+            int ahead = direction.x * (destinationX - current.x) + direction.y * (destinationY - current.y) +
+                    direction.z * (destinationZ - current.z);
+            if (ahead > 0) {
+                limit = Math.min(limit, ahead);
+            }
+
+            //moves of length 1 have already been explored
+            if (limit < 2) {
+                continue;
+            }
+
+            int distance = snapper.freeDistance(direction, current.x, current.y, current.z, limit);
+            if (distance < 2) {
+                continue;
+            }
+
+            distance = limitedDistance(current, direction, distance);
+            if (distance < 2) {
+                continue;
+            }
+
+            int tx = current.x + direction.x * distance;
+            int ty = current.y + direction.y * distance;
+            int tz = current.z + direction.z * distance;
+
+            Node neighborNode = graph.get(tx, ty, tz);
+            if (shouldExplore(current, neighborNode, tx, ty, tz, distance)) {
+                handler.handle(current, neighborNode, tx, ty, tz, 0, 0);
+            }
+        }
+    }
+
+    //the longest distance no greater than the given one for which the limiter accepts the end of the move
+    private int limitedDistance(Node current, Direction direction, int distance) {
+        if (inBounds(current, direction, distance)) {
+            return distance;
+        }
+
+        //current is in bounds, so the answer is in [low, high)
+        int low = 1;
+        int high = distance;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (inBounds(current, direction, mid)) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    private boolean inBounds(Node current, Direction direction, int distance) {
+        //limiters only accept nodes, so this allocates, but only once per long move unless it leaves the region
+        Node end = new Node(current.x + direction.x * distance, current.y + direction.y * distance,
+                current.z + direction.z * distance, current.g + distance, 0, 0);
+        end.parent = current;
+        end.length = current.length + 1;
+        return limiter.inBounds(end);
     }
 
     @Override
@@ -29,15 +132,12 @@ public class FlightExplorer extends DirectionalExplorer {
     }
 
     @Override
-    protected void handleDirection(@NotNull Direction direction, @NotNull Node currentNode, @Nullable Node neighborNode, @NotNull NodeHandler handler, @NotNull Vec3I2ObjectMap<Node> graph) {
+    protected void handleDirection(@NotNull Direction direction, long snapResult, @NotNull Node currentNode,
+            @Nullable Node neighborNode, @NotNull NodeHandler handler, @NotNull Vec3I2ObjectMap<Node> graph) {
         int tx = currentNode.x + direction.x;
         int ty = currentNode.y + direction.y;
         int tz = currentNode.z + direction.z;
 
-        long result = snapper.snap(direction, currentNode.x, currentNode.y, currentNode.z, currentNode.blockOffset);
-        if (result != NodeSnapper.FAIL) {
-            float offset = NodeSnapper.blockOffset(result);
-            handler.handle(currentNode, neighborNode, tx, ty, tz, offset, 0);
-        }
+        handler.handle(currentNode, neighborNode, tx, ty, tz, NodeSnapper.blockOffset(snapResult), 0);
     }
 }
@@ -35,17 +35,12 @@ public class WalkExplorer extends DirectionalExplorer {
     }
 
     @Override
-    protected void handleDirection(@NotNull Direction direction, @NotNull Node currentNode, @Nullable Node neighborNode,
-            @NotNull NodeHandler handler, @NotNull Vec3I2ObjectMap<Node> graph) {
+    protected void handleDirection(@NotNull Direction direction, long value, @NotNull Node currentNode,
+            @Nullable Node neighborNode, @NotNull NodeHandler handler, @NotNull Vec3I2ObjectMap<Node> graph) {
         int nx = currentNode.x;
         int ny = currentNode.y;
         int nz = currentNode.z;
 
-        long value = snapper.snap(direction, nx, ny, nz, currentNode.blockOffset);
-        if (value == NodeSnapper.FAIL) {
-            return;
-        }
-
         int height = NodeSnapper.blockHeight(value);
         float blockOffset = NodeSnapper.blockOffset(value);
         float jumpOffset = NodeSnapper.jumpOffset(value);
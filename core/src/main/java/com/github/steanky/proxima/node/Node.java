@@ -119,7 +119,13 @@ public final class Node implements Comparable<Node> {
 
     @Override
     public int compareTo(@NotNull Node o) {
-        return Float.compare(g + h, o.g + o.h);
+        int compare = Float.compare(g + h, o.g + o.h);
+        if (compare != 0) {
+            return compare;
+        }
+
+        //among nodes with equal f, prefer the one closest to the destination
+        return Float.compare(h, o.h);
     }
 
     @Override
@@ -16,6 +16,10 @@ public interface NodeProcessor {
         return new DiagonalProcessor(nodeSnapper);
     }
 
+    static @NotNull NodeProcessor createSmoothing(@NotNull NodeSnapper nodeSnapper) {
+        return new SmoothingProcessor(nodeSnapper);
+    }
+
     static @NotNull NodeProcessor combined(@NotNull NodeProcessor @NotNull ... processors) {
         Objects.requireNonNull(processors);
         if (processors.length == 0) {
@@ -0,0 +1,120 @@
+package com.github.steanky.proxima.node;
+
+import com.github.steanky.proxima.Direction;
+import com.github.steanky.proxima.snapper.NodeSnapper;
+import com.github.steanky.vector.Vec3I2ObjectMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * {@link NodeProcessor} implementation that performs "string pulling" on a path: runs of nodes that can be traversed
+ * in a straight line are collapsed, such that only the turning points remain. Only horizontal lines are considered;
+ * nodes that differ in height or offset, or that require a jump, are always kept.
+ */
+class SmoothingProcessor implements NodeProcessor {
+    private final NodeSnapper nodeSnapper;
+
+    SmoothingProcessor(@NotNull NodeSnapper nodeSnapper) {
+        this.nodeSnapper = Objects.requireNonNull(nodeSnapper);
+    }
+
+    @Override
+    public void processPath(@NotNull Node head, @NotNull Vec3I2ObjectMap<Node> graph) {
+        ObjectArrayList<Node> path = new ObjectArrayList<>();
+        for (Node node = head; node != null; node = node.parent) {
+            path.add(node);
+        }
+
+        Node[] nodes = path.toArray(new Node[0]);
+        int size = nodes.length;
+
+        //the last index of the run starting at each index, within which any two nodes might be connected by a line
+        int[] runEnd = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            runEnd[i] = i + 1 < size && canContinue(nodes[i], nodes[i + 1]) ? runEnd[i + 1] : i;
+        }
+
+        int anchor = 0;
+        while (anchor + 1 < size) {
+            Node from = nodes[anchor];
+
+            /*
+            find the furthest node in the run that can be reached in a straight line from the anchor. visibility is
+            nearly always monotonic along a run, so binary search it instead of checking every node, which would take a
+            quadratic number of snaps; when it isn't, a nearer node is chosen, which is still valid
+             */
+            int low = anchor + 1;
+            int high = runEnd[anchor];
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (canSkip(from, nodes[mid])) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+
+            from.parent = nodes[low];
+            anchor = low;
+        }
+    }
+
+    //whether a line through both nodes could be walked without changing height
+    private static boolean canContinue(Node from, Node to) {
+        return from.y == to.y && from.blockOffset == to.blockOffset && from.jumpOffset == 0 && to.jumpOffset == 0;
+    }
+
+    private boolean canSkip(Node from, Node to) {
+        return hasFloor(from.x, from.y, from.z, to.x, to.z, from.blockOffset) &&
+                nodeSnapper.checkLine(from.x, from.y, from.z, to.x, to.z, from.blockOffset);
+    }
+
+    /*
+    walks every block crossed by the line connecting the centers of the start and end blocks, making sure that each
+    step could have been taken without changing height; checkLine makes sure the rest of the agent stays on the floor
+     */
+    private boolean hasFloor(int x, int y, int z, int tx, int tz, float offset) {
+        int nx = Math.abs(tx - x);
+        int nz = Math.abs(tz - z);
+
+        Direction xDirection = tx > x ? Direction.EAST : Direction.WEST;
+        Direction zDirection = tz > z ? Direction.SOUTH : Direction.NORTH;
+
+        int cx = x;
+        int cz = z;
+
+        int ix = 0;
+        int iz = 0;
+
+        while (ix < nx || iz < nz) {
+            //compare the distances along the line to the next x-boundary and z-boundary
+            long decision = (long) (1 + 2 * ix) * nz - (long) (1 + 2 * iz) * nx;
+
+            if (ix < nx && (iz == nz || decision <= 0)) {
+                if (!sameHeight(nodeSnapper.snap(xDirection, cx, y, cz, offset), y, offset)) {
+                    return false;
+                }
+
+                cx += xDirection.x;
+                ix++;
+            }
+            else {
+                if (!sameHeight(nodeSnapper.snap(zDirection, cx, y, cz, offset), y, offset)) {
+                    return false;
+                }
+
+                cz += zDirection.z;
+                iz++;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean sameHeight(long result, int y, float offset) {
+        return result != NodeSnapper.FAIL && !NodeSnapper.intermediateJump(result) &&
+                NodeSnapper.blockHeight(result) == y && NodeSnapper.blockOffset(result) == offset;
+    }
+}
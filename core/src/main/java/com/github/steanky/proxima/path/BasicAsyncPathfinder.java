@@ -1,33 +1,81 @@
 package com.github.steanky.proxima.path;
 
+import com.github.steanky.proxima.snapper.CountingNodeSnapper;
+import com.github.steanky.proxima.space.PrefetchingSpace;
 import com.github.steanky.vector.Vec3I;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 public class BasicAsyncPathfinder implements Pathfinder {
+    //each prefetched box covers a segment of the route at most this many blocks long
+    private static final int SEGMENT_LENGTH = 8;
+
+    //the most positions prefetched for a single search; nearer segments are prefetched first
+    private static final int MAX_PREFETCH_POSITIONS = 1 << 16;
+
     private final ExecutorService pathExecutor;
     private final ThreadLocal<PathOperation> pathOperationLocal;
     private final int poolCapacity;
     private final AtomicInteger poolSize;
 
-    public BasicAsyncPathfinder(@NotNull ExecutorService pathExecutor, @NotNull Supplier<? extends PathOperation> pathOperationSupplier, int poolCapacity) {
+    private final Executor prefetchExecutor;
+    private final int prefetchRadius;
+
+    private final PathfinderMetrics metrics;
+
+    /**
+     * Creates a new instance that prefetches solids along the expected route of each search, if its settings provide
+     * a {@link PathSettings#prefetchSpace()}. Once the destination is resolved, the positions within
+     * {@code prefetchRadius} blocks of the straight line from the start to the destination are prefetched by a task on
+     * {@code prefetchExecutor}, so that the search mostly reads solids that are already loaded. The task prefetches a
+     * small box around each segment of the line in turn, nearest first, and stops as soon as the search completes. At
+     * most 65536 positions are prefetched for each search.
+     *
+     * @param pathExecutor          the executor that runs searches
+     * @param pathOperationSupplier supplies the operations that perform searches
+     * @param poolCapacity          the most searches that may be queued on the executor at once; further searches run
+     *                              on the calling thread
+     * @param prefetchExecutor      the executor that runs prefetch tasks, or null to never prefetch
+     * @param prefetchRadius        the distance from the line, in blocks, to prefetch; must be non-negative
+     */
+    public BasicAsyncPathfinder(@NotNull ExecutorService pathExecutor,
+            @NotNull Supplier<? extends PathOperation> pathOperationSupplier, int poolCapacity,
+            @Nullable Executor prefetchExecutor, int prefetchRadius) {
         this.pathExecutor = Objects.requireNonNull(pathExecutor);
         this.pathOperationLocal = ThreadLocal.withInitial(pathOperationSupplier);
         if (poolCapacity <= 0) {
             throw new IllegalArgumentException("executorCapacity must be positive");
         }
+
+        if (prefetchRadius < 0) {
+            throw new IllegalArgumentException("Invalid prefetchRadius: " + prefetchRadius);
+        }
+
         this.poolCapacity = poolCapacity;
         this.poolSize = new AtomicInteger();
+        this.prefetchExecutor = prefetchExecutor;
+        this.prefetchRadius = prefetchRadius;
+        this.metrics = new PathfinderMetrics(poolSize::get);
+    }
+
+    public BasicAsyncPathfinder(@NotNull ExecutorService pathExecutor, @NotNull Supplier<? extends PathOperation> pathOperationSupplier, int poolCapacity) {
+        this(pathExecutor, pathOperationSupplier, poolCapacity, null, 0);
     }
 
     @Override
     public @NotNull CompletableFuture<PathResult> pathfind(double x, double y, double z, @NotNull PathTarget destination, @NotNull PathSettings settings) {
         Supplier<PathResult> supplier = () -> {
             PathOperation localOperation = null;
+            AtomicBoolean prefetchCancelled = null;
             try {
                 //resolving a destination might be expensive, so do it on the pathfinder thread
                 Vec3I destinationVector = destination.resolve();
@@ -37,44 +85,223 @@ public class BasicAsyncPathfinder implements Pathfinder {
                     return PathResult.EMPTY;
                 }
 
+                prefetchCancelled = prefetch(x, y, z, List.of(destinationVector), settings);
+
                 localOperation = pathOperationLocal.get();
                 localOperation.init(x, y, z, destinationVector.x(), destinationVector.y(), destinationVector.z(),
                         settings);
 
-                //step the path until the method reports completion by returning false
-                while (!localOperation.step()) {
-                    if (Thread.interrupted()) {
-                        //exit if interrupted, this can occur if the pathfinder is shut down unexpectedly
-                        return PathResult.EMPTY;
+                return complete(localOperation);
+            } finally {
+                cleanup(localOperation, prefetchCancelled);
+            }
+        };
+
+        return submit(measured(supplier, settings));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<PathResult> pathfind(double x, double y, double z,
+            @NotNull List<? extends PathTarget> destinations, @NotNull PathSettings settings) {
+        PathTarget[] targets = destinations.toArray(PathTarget[]::new);
+
+        Supplier<PathResult> supplier = () -> {
+            PathOperation localOperation = null;
+            AtomicBoolean prefetchCancelled = null;
+            try {
+                List<Vec3I> resolved = new ArrayList<>(targets.length);
+
+                //maps indices in resolved to indices in targets, as some targets may not resolve
+                int[] indices = new int[targets.length];
+
+                for (int i = 0; i < targets.length; i++) {
+                    Vec3I destinationVector = targets[i].resolve();
+                    if (destinationVector != null) {
+                        indices[resolved.size()] = i;
+                        resolved.add(destinationVector);
                     }
                 }
 
-                return localOperation.makeResult();
-            } finally {
-                //decrement the poolSize since this operation is finishing
-                poolSize.decrementAndGet();
+                if (resolved.isEmpty()) {
+                    return PathResult.EMPTY;
+                }
+
+                prefetchCancelled = prefetch(x, y, z, resolved, settings);
+
+                localOperation = pathOperationLocal.get();
+                localOperation.init(x, y, z, resolved, settings);
 
-                if (localOperation != null) {
-                    //immediately reduce memory pressure by cleaning up the operation; PathOperation instances hang around
-                    //for a while in ThreadLocals, so we want to make sure they aren't huge
-                    localOperation.cleanup();
+                PathResult result = complete(localOperation);
+
+                int index = result.destinationIndex();
+                if (index == -1 || indices[index] == index) {
+                    return result;
                 }
+
+                return new PathResult(result.head(), result.exploredCount(), result.isSuccessful(), indices[index]);
+            } finally {
+                cleanup(localOperation, prefetchCancelled);
+            }
+        };
+
+        return submit(measured(supplier, settings));
+    }
+
+    private PathResult complete(PathOperation operation) {
+        //step the path until the method reports completion by returning false
+        while (!operation.step()) {
+            if (Thread.interrupted()) {
+                //exit if interrupted, this can occur if the pathfinder is shut down unexpectedly
+                return PathResult.EMPTY;
+            }
+        }
+
+        return operation.makeResult();
+    }
+
+    //starts prefetching the corridors to the destinations, returning a flag that stops the tasks
+    private AtomicBoolean prefetch(double x, double y, double z, List<Vec3I> destinations, PathSettings settings) {
+        Executor executor = prefetchExecutor;
+        if (executor == null) {
+            return null;
+        }
+
+        PrefetchingSpace space = settings.prefetchSpace();
+        if (space == null) {
+            return null;
+        }
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        int budget = MAX_PREFETCH_POSITIONS;
+        for (Vec3I destination : destinations) {
+            IntArrayList boxes = new IntArrayList();
+            budget = corridor(boxes, budget, x, y, z, destination.x() + 0.5, destination.y(),
+                    destination.z() + 0.5);
+            if (boxes.isEmpty()) {
+                break;
+            }
+
+            try {
+                //one task per corridor, which checks for cancellation between its boxes
+                executor.execute(() -> {
+                    for (int i = 0; i < boxes.size(); i += 6) {
+                        if (cancelled.get()) {
+                            return;
+                        }
+
+                        space.prefetch(boxes.getInt(i), boxes.getInt(i + 1), boxes.getInt(i + 2),
+                                boxes.getInt(i + 3), boxes.getInt(i + 4), boxes.getInt(i + 5));
+                    }
+                });
+            } catch (RejectedExecutionException ignored) {
+                //prefetching is only an optimization, so there's no need to try again
+                break;
+            }
+        }
+
+        return cancelled;
+    }
+
+    /*
+    adds a box around each segment of the line between two points, from the first point to the second, to the list as
+    6 ints (the minimum corner, then the lengths); returns the budget that remains after adding them
+     */
+    private int corridor(IntArrayList boxes, int budget, double x, double y, double z, double tx, double ty,
+            double tz) {
+        double dx = tx - x;
+        double dy = ty - y;
+        double dz = tz - z;
+
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        int segments = Math.max(1, (int) Math.ceil(length / SEGMENT_LENGTH));
+        int radius = prefetchRadius;
+
+        for (int i = 0; i < segments; i++) {
+            double start = (double) i / segments;
+            double end = (double) (i + 1) / segments;
+
+            int minX = (int) Math.floor(Math.min(x + dx * start, x + dx * end)) - radius;
+            int minY = (int) Math.floor(Math.min(y + dy * start, y + dy * end)) - radius;
+            int minZ = (int) Math.floor(Math.min(z + dz * start, z + dz * end)) - radius;
+            int maxX = (int) Math.floor(Math.max(x + dx * start, x + dx * end)) + radius;
+            int maxY = (int) Math.floor(Math.max(y + dy * start, y + dy * end)) + radius;
+            int maxZ = (int) Math.floor(Math.max(z + dz * start, z + dz * end)) + radius;
+
+            long volume = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+            if (volume > budget) {
+                break;
             }
+
+            budget -= (int) volume;
+            boxes.add(minX);
+            boxes.add(minY);
+            boxes.add(minZ);
+            boxes.add(maxX - minX + 1);
+            boxes.add(maxY - minY + 1);
+            boxes.add(maxZ - minZ + 1);
+        }
+
+        return budget;
+    }
+
+    private void cleanup(PathOperation operation, AtomicBoolean prefetchCancelled) {
+        if (prefetchCancelled != null) {
+            //prefetching what the search already loaded would only compete with other searches
+            prefetchCancelled.set(true);
+        }
+
+        //decrement the poolSize since this operation is finishing
+        poolSize.decrementAndGet();
+
+        if (operation != null) {
+            //immediately reduce memory pressure by cleaning up the operation; PathOperation instances hang around
+            //for a while in ThreadLocals, so we want to make sure they aren't huge
+            operation.cleanup();
+        }
+    }
+
+    //records the time taken by the search, and the number of nodes explored and snaps made
+    private Supplier<PathResult> measured(Supplier<PathResult> supplier, PathSettings settings) {
+        CountingNodeSnapper snapper = settings.countingSnapper();
+
+        return () -> {
+            long start = System.nanoTime();
+            long snaps = snapper == null ? 0 : snapper.count();
+
+            PathResult result;
+            try {
+                result = supplier.get();
+            } catch (Throwable e) {
+                metrics.recordError(System.nanoTime() - start);
+                throw e;
+            }
+
+            metrics.recordSearch(System.nanoTime() - start, result, snapper == null ? -1 : snapper.count() - snaps);
+            return result;
         };
+    }
 
+    private CompletableFuture<PathResult> submit(Supplier<PathResult> supplier) {
         if (poolSize.get() < poolCapacity) {
             try {
                 poolSize.incrementAndGet();
-                return CompletableFuture.supplyAsync(supplier, pathExecutor);
+
+                long submitted = System.nanoTime();
+                return CompletableFuture.supplyAsync(() -> {
+                    metrics.recordQueued(System.nanoTime() - submitted);
+                    return supplier.get();
+                }, pathExecutor);
             } catch (RejectedExecutionException ignored) {
                 //if execution is rejected, run the callable on the caller thread
                 //decrement the poolSize again because the callable wasn't actually added
                 poolSize.decrementAndGet();
+                metrics.recordRejection();
             }
         }
 
         try {
             poolSize.incrementAndGet();
+            metrics.recordCallerRun();
 
             //if the poolCapacity is exceeded, pathfind on the caller thread
             return CompletableFuture.completedFuture(supplier.get());
@@ -83,6 +310,16 @@ public class BasicAsyncPathfinder implements Pathfinder {
         }
     }
 
+    /**
+     * The metrics recorded by this pathfinder, for every path it has found. Metrics are always recorded; this method
+     * may be called at any time, from any thread.
+     *
+     * @return the metrics of this pathfinder
+     */
+    public @NotNull PathfinderMetrics metrics() {
+        return metrics;
+    }
+
     @Override
     public void shutdown() {
         if (pathExecutor == ForkJoinPool.commonPool()) {
@@ -103,4 +340,4 @@ public class BasicAsyncPathfinder implements Pathfinder {
             //if interrupted, just return immediately
         }
     }
-}
\ No newline at end of file
+}
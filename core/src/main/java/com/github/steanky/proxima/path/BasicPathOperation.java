@@ -5,10 +5,16 @@ import com.github.steanky.proxima.explorer.Explorer;
 import com.github.steanky.proxima.node.Node;
 import com.github.steanky.proxima.node.NodeProcessor;
 import com.github.steanky.proxima.node.NodeQueue;
+import com.github.steanky.proxima.space.LocalCachingSpace;
+import com.github.steanky.proxima.space.SnapshotSpace;
+import com.github.steanky.proxima.space.SpaceSnapshot;
+import com.github.steanky.vector.Vec3I;
 import com.github.steanky.vector.Vec3I2ObjectMap;
 import com.github.steanky.vector.Vec3IBiPredicate;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 public class BasicPathOperation implements PathOperation {
     private final NodeQueue openSet;
 
@@ -29,6 +35,16 @@ public class BasicPathOperation implements PathOperation {
     private int destinationY;
     private int destinationZ;
 
+    //packed x, y, z coordinates of every destination; null when searching for a single destination
+    private int[] destinations;
+    private int destinationIndex;
+
+    //pinned to the thread that initialized this operation, if the settings request snapshots
+    private SpaceSnapshot snapshot;
+
+    //begun on the thread that initialized this operation, if the settings request it
+    private LocalCachingSpace localSpace;
+
     public BasicPathOperation() {
         this.openSet = new NodeQueue();
         this.state = State.UNINITIALIZED;
@@ -36,6 +52,37 @@ public class BasicPathOperation implements PathOperation {
 
     @Override
     public void init(double startX, double startY, double startZ, int destX, int destY, int destZ, @NotNull PathSettings settings) {
+        init(startX, startY, startZ, destX, destY, destZ, settings, null);
+    }
+
+    @Override
+    public void init(double startX, double startY, double startZ, @NotNull List<? extends Vec3I> destinations,
+            @NotNull PathSettings settings) {
+        if (destinations.isEmpty()) {
+            throw new IllegalArgumentException("Must provide at least one destination");
+        }
+
+        Vec3I first = destinations.get(0);
+        if (destinations.size() == 1) {
+            init(startX, startY, startZ, first.x(), first.y(), first.z(), settings);
+            return;
+        }
+
+        int[] packed = new int[destinations.size() * 3];
+        for (int i = 0; i < destinations.size(); i++) {
+            Vec3I destination = destinations.get(i);
+
+            int j = i * 3;
+            packed[j] = destination.x();
+            packed[j + 1] = destination.y();
+            packed[j + 2] = destination.z();
+        }
+
+        init(startX, startY, startZ, first.x(), first.y(), first.z(), settings, packed);
+    }
+
+    private void init(double startX, double startY, double startZ, int destX, int destY, int destZ,
+            PathSettings settings, int[] destinations) {
         this.graph = settings.graph();
 
         this.successPredicate = settings.successPredicate();
@@ -47,6 +94,21 @@ public class BasicPathOperation implements PathOperation {
         this.destinationY = destY;
         this.destinationZ = destZ;
 
+        this.destinations = destinations;
+        this.destinationIndex = -1;
+
+        SnapshotSpace snapshotSpace = settings.snapshotSpace();
+        if (snapshotSpace != null) {
+            this.snapshot = snapshotSpace.snapshot();
+            snapshot.pin();
+        }
+
+        LocalCachingSpace localSpace = settings.localCachingSpace();
+        if (localSpace != null) {
+            localSpace.begin();
+            this.localSpace = localSpace;
+        }
+
         //find the starting node(s)
         //this may populate openSet and graph with a few values to start
         this.explorer.exploreInitial(startX, startY, startZ, this::initialize);
@@ -75,9 +137,11 @@ public class BasicPathOperation implements PathOperation {
 
         //Vec3IBiPredicate to avoid needing to create a Vec3I object
         //predicate returns true = we found our destination and have a path
-        if (successPredicate.test(current.x, current.y, current.z, dx, dy, dz)) {
+        int reached = reachedDestination(current);
+        if (reached != -1) {
             //complete (may throw an exception if already completed)
             best = current;
+            destinationIndex = reached;
             complete(true);
             return true;
         }
@@ -104,7 +168,7 @@ public class BasicPathOperation implements PathOperation {
         }
 
         nodeProcessor.processPath(best, graph);
-        return new PathResult(best == null ? null : best.reverse(), graph.size(), success);
+        return new PathResult(best == null ? null : best.reverse(), graph.size(), success, destinationIndex);
     }
 
     @Override
@@ -130,6 +194,55 @@ public class BasicPathOperation implements PathOperation {
         destinationX = 0;
         destinationY = 0;
         destinationZ = 0;
+
+        destinations = null;
+        destinationIndex = -1;
+
+        if (localSpace != null) {
+            localSpace.end();
+            localSpace = null;
+        }
+
+        if (snapshot != null) {
+            //also unpins
+            snapshot.close();
+            snapshot = null;
+        }
+    }
+
+    private int reachedDestination(Node node) {
+        int[] destinations = this.destinations;
+        if (destinations == null) {
+            return successPredicate.test(node.x, node.y, node.z, destinationX, destinationY, destinationZ) ? 0 : -1;
+        }
+
+        for (int i = 0; i < destinations.length; i += 3) {
+            if (successPredicate.test(node.x, node.y, node.z, destinations[i], destinations[i + 1],
+                    destinations[i + 2])) {
+                return i / 3;
+            }
+        }
+
+        return -1;
+    }
+
+    //when searching for multiple destinations, the heuristic is the smallest one out of all destinations
+    private float h(int x, int y, int z) {
+        int[] destinations = this.destinations;
+        if (destinations == null) {
+            return (float) (heuristic.scale() * heuristic.heuristic(x, y, z, destinationX, destinationY,
+                    destinationZ));
+        }
+
+        float min = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < destinations.length; i += 3) {
+            float value = heuristic.heuristic(x, y, z, destinations[i], destinations[i + 1], destinations[i + 2]);
+            if (value < min) {
+                min = value;
+            }
+        }
+
+        return (float) (heuristic.scale() * min);
     }
 
     private void complete(boolean success) {
@@ -142,22 +255,18 @@ public class BasicPathOperation implements PathOperation {
     }
 
     private void initialize(int x, int y, int z, float blockOffset, float jumpOffset) {
-        Node node = new Node(x, y, z, 0,
-            (float) (heuristic.scale() * heuristic.heuristic(x, y, z, destinationX, destinationY, destinationZ)),
-                blockOffset, jumpOffset);
+        Node node = new Node(x, y, z, 0, h(x, y, z), blockOffset, jumpOffset);
         graph.put(x, y, z, node);
         openSet.enqueue(node);
     }
 
     private void explore(Node current, Node target, int x, int y, int z, float blockOffset, float jumpOffset) {
         if (target == null) {
-            target = new Node(x, y, z, Float.POSITIVE_INFINITY,
-                (float) (heuristic.scale() * heuristic.heuristic(x, y, z, destinationX, destinationY, destinationZ)),
-                    blockOffset, jumpOffset);
+            target = new Node(x, y, z, Float.POSITIVE_INFINITY, h(x, y, z), blockOffset, jumpOffset);
             graph.put(x, y, z, target);
         }
 
-        double g = current.g + heuristic.heuristic(current.x, current.y, current.z, x, y, z);
+        double g = current.g + explorer.stepCost(heuristic, current.x, current.y, current.z, x, y, z);
         if (g < target.g) {
             target.parent = current;
             target.g = (float) g;
@@ -0,0 +1,785 @@
+package com.github.steanky.proxima.path;
+
+import com.github.steanky.proxima.Heuristic;
+import com.github.steanky.proxima.NodeHandler;
+import com.github.steanky.proxima.explorer.Explorer;
+import com.github.steanky.proxima.node.Node;
+import com.github.steanky.proxima.node.NodeProcessor;
+import com.github.steanky.proxima.node.NodeQueue;
+import com.github.steanky.proxima.space.LocalCachingSpace;
+import com.github.steanky.proxima.space.SnapshotSpace;
+import com.github.steanky.proxima.space.SpaceSnapshot;
+import com.github.steanky.vector.Vec3I;
+import com.github.steanky.vector.Vec3I2ObjectMap;
+import com.github.steanky.vector.Vec3IBiPredicate;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * A {@link PathOperation} implementation that performs a single search using multiple threads, based on
+ * hash-distributed A* (HDA*). Nodes are partitioned by the chunk (16x16 column of blocks) they belong to; each
+ * partition keeps its own open set and graph. Neighbors belonging to a different partition are sent to it as messages.
+ * <p>
+ * Partitions are not bound to threads. Any thread participating in the search (the thread calling
+ * {@link ParallelPathOperation#step()}, and up to {@code parallelism - 1} helper threads obtained from the provided
+ * {@link Executor}) services whichever partition it can lock. The calling thread alone is able to complete the search,
+ * so the operation still completes if the executor is saturated, rejects helper tasks, or runs them on the calling
+ * thread; helpers never run on the thread that initialized the operation. Helpers never park: one that has found
+ * nothing to do for a few sweeps in a row returns its thread to the executor, and a new helper is submitted once more
+ * work is sent between partitions, so several searches can share a small executor without idle helpers occupying its
+ * threads. The calling thread parks when it runs out of work, until another thread sends it a message or releases a
+ * partition that still has work. Each call to {@code step()} services every partition at most once, so the search can
+ * be interrupted between steps like any other operation; helpers keep working in the meantime, until the search
+ * completes or the operation is cleaned up.
+ * <p>
+ * This operation always returns a path of optimal cost. It orders and prunes nodes using the unscaled heuristic, and
+ * only terminates once no partition has a node whose f-value is lower than the cost of the best path found so far,
+ * and no messages are in flight. {@link Heuristic#scale()} is therefore ignored: when it is 1, the path has the same
+ * cost as the one found by {@link BasicPathOperation}; when it is greater than 1, {@code BasicPathOperation} trades
+ * optimality for speed and may return a longer path than this operation does.
+ * <p>
+ * Multiple destinations are supported (see {@link PathOperation#init(double, double, double, List, PathSettings)}).
+ * Since the search is optimal, the destination that is reached is always the one with the cheapest path, rather than
+ * merely the first one found.
+ * <p>
+ * The graph passed to {@link NodeProcessor#processPath(Node, Vec3I2ObjectMap)} is the one provided by
+ * {@link PathSettings#graph()}, filled with the nodes of every partition once the search is complete.
+ */
+public class ParallelPathOperation implements PathOperation {
+    //the maximum number of nodes a thread will expand before moving to another partition
+    private static final int BATCH_SIZE = 64;
+
+    //set on Search.helpers once no more helpers may join the search
+    private static final int CLOSED = Integer.MIN_VALUE;
+
+    //the number of sweeps in a row a helper makes without finding work before it leaves the search
+    private static final int HELPER_IDLE_SWEEPS = 4;
+
+    private final Executor executor;
+    private final Partition[] partitions;
+
+    private Vec3IBiPredicate successPredicate;
+    private Explorer explorer;
+    private Heuristic heuristic;
+    private NodeProcessor nodeProcessor;
+    private Vec3I2ObjectMap<Node> graph;
+
+    private State state;
+    private Search search;
+
+    private Node best;
+    private boolean success;
+
+    private int destinationX;
+    private int destinationY;
+    private int destinationZ;
+
+    //packed x, y, z coordinates of every destination; null when searching for a single destination
+    private int[] destinations;
+    private int destinationIndex;
+
+    public ParallelPathOperation(@NotNull Executor executor, int parallelism,
+            @NotNull Supplier<? extends Vec3I2ObjectMap<Node>> graphSupplier) {
+        this.executor = Objects.requireNonNull(executor);
+        Objects.requireNonNull(graphSupplier);
+
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+
+        this.partitions = new Partition[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            partitions[i] = new Partition(i, Objects.requireNonNull(graphSupplier.get(), "graph"));
+        }
+
+        this.state = State.UNINITIALIZED;
+    }
+
+    @Override
+    public void init(double startX, double startY, double startZ, int destX, int destY, int destZ,
+            @NotNull PathSettings settings) {
+        init(startX, startY, startZ, destX, destY, destZ, settings, null);
+    }
+
+    @Override
+    public void init(double startX, double startY, double startZ, @NotNull List<? extends Vec3I> destinations,
+            @NotNull PathSettings settings) {
+        if (destinations.isEmpty()) {
+            throw new IllegalArgumentException("Must provide at least one destination");
+        }
+
+        Vec3I first = destinations.get(0);
+        if (destinations.size() == 1) {
+            init(startX, startY, startZ, first.x(), first.y(), first.z(), settings);
+            return;
+        }
+
+        int[] packed = new int[destinations.size() * 3];
+        for (int i = 0; i < destinations.size(); i++) {
+            Vec3I destination = destinations.get(i);
+
+            int j = i * 3;
+            packed[j] = destination.x();
+            packed[j + 1] = destination.y();
+            packed[j + 2] = destination.z();
+        }
+
+        init(startX, startY, startZ, first.x(), first.y(), first.z(), settings, packed);
+    }
+
+    private void init(double startX, double startY, double startZ, int destX, int destY, int destZ,
+            PathSettings settings, int[] destinations) {
+        this.graph = settings.graph();
+
+        this.successPredicate = settings.successPredicate();
+        this.explorer = settings.explorer();
+        this.heuristic = settings.heuristic();
+        this.nodeProcessor = settings.nodeProcessor();
+
+        this.destinationX = destX;
+        this.destinationY = destY;
+        this.destinationZ = destZ;
+
+        this.destinations = destinations;
+        this.destinationIndex = -1;
+
+        SnapshotSpace snapshotSpace = settings.snapshotSpace();
+        SpaceSnapshot snapshot = snapshotSpace == null ? null : snapshotSpace.snapshot();
+        this.search = new Search(partitions.length, snapshot, settings.localCachingSpace());
+
+        //helpers pin the snapshot and begin on the local space themselves, see help
+        if (snapshot != null) {
+            snapshot.pin();
+        }
+
+        if (search.localSpace != null) {
+            search.localSpace.begin();
+            search.localSpaceBegun = true;
+        }
+
+        //starting nodes are added directly to their partition, no other threads are running yet
+        this.explorer.exploreInitial(startX, startY, startZ, this::initialize);
+
+        state = State.INITIALIZED;
+        success = false;
+    }
+
+    @Override
+    public boolean step() {
+        if (state != State.INITIALIZED) {
+            throw new IllegalStateException("Can't step an operation that isn't initialized");
+        }
+
+        Search search = this.search;
+        if (!search.started) {
+            search.started = true;
+
+            for (int i = 1; i < partitions.length; i++) {
+                requestHelper(search);
+            }
+        }
+
+        try {
+            work(search, 0, 1, false);
+        } catch (Throwable e) {
+            search.fail(e);
+        }
+
+        if (!search.done) {
+            //either there is more work, or we were interrupted and the caller should notice
+            return false;
+        }
+
+        //helpers may still be processing a batch; wait for them before touching any partition
+        search.stop();
+
+        Throwable failure = search.failure;
+        if (failure != null) {
+            if (failure instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+
+            if (failure instanceof Error error) {
+                throw error;
+            }
+
+            throw new IllegalStateException(failure);
+        }
+
+        Node goal = search.goal;
+        if (goal != null) {
+            best = goal;
+            destinationIndex = search.goalIndex;
+            success = true;
+        } else {
+            for (Partition partition : partitions) {
+                Node partitionBest = partition.best;
+                if (partitionBest != null && (best == null || partitionBest.h < best.h)) {
+                    best = partitionBest;
+                }
+            }
+        }
+
+        state = State.COMPLETE;
+        return true;
+    }
+
+    @Override
+    public @NotNull PathResult makeResult() {
+        if (state != State.COMPLETE) {
+            throw new IllegalStateException("Can't compile a result while incomplete");
+        }
+
+        if (best == null) {
+            return PathResult.EMPTY;
+        }
+
+        //the path may pass through every partition, so give processors all of them
+        for (Partition partition : partitions) {
+            for (Node node : partition.nodes) {
+                graph.put(node.x, node.y, node.z, node);
+            }
+        }
+
+        nodeProcessor.processPath(best, graph);
+        return new PathResult(best.reverse(), graph.size(), success, destinationIndex);
+    }
+
+    @Override
+    public void cleanup() {
+        if (search != null) {
+            //the search may have been abandoned part-way, in which case helpers are still running
+            search.stop();
+
+            if (search.localSpaceBegun) {
+                search.localSpace.end();
+            }
+
+            if (search.snapshot != null) {
+                //also unpins
+                search.snapshot.close();
+            }
+        }
+
+        for (Partition partition : partitions) {
+            partition.cleanup();
+        }
+
+        if (graph != null) {
+            graph.clear();
+        }
+
+        successPredicate = null;
+        explorer = null;
+        heuristic = null;
+        nodeProcessor = null;
+        graph = null;
+
+        state = State.UNINITIALIZED;
+        search = null;
+
+        best = null;
+        success = false;
+
+        destinationX = 0;
+        destinationY = 0;
+        destinationZ = 0;
+
+        destinations = null;
+        destinationIndex = -1;
+    }
+
+    //submits another helper, unless the search is done or already has as many as it can use
+    private void requestHelper(Search search) {
+        if (search.done || search.inline) {
+            return;
+        }
+
+        int count;
+        do {
+            count = search.tasks.get();
+            if (count >= partitions.length - 1) {
+                return;
+            }
+        } while (!search.tasks.compareAndSet(count, count + 1));
+
+        try {
+            //spread helpers over the partitions
+            int start = (count + 1) % partitions.length;
+            executor.execute(() -> help(search, start));
+        } catch (RejectedExecutionException ignored) {
+            //we can always complete the search without helpers
+            search.tasks.decrementAndGet();
+        }
+    }
+
+    private void help(Search search, int start) {
+        long seen;
+        try {
+            if (Thread.currentThread() == search.owner) {
+                //the executor ran us on the thread that owns the search, which does the work itself
+                search.inline = true;
+                return;
+            }
+
+            if (!search.enter()) {
+                //the search finished before this task started running
+                return;
+            }
+
+            try {
+                seen = helpPinned(search, start);
+            } catch (Throwable e) {
+                search.fail(e);
+                return;
+            } finally {
+                search.exit();
+            }
+        } finally {
+            search.tasks.decrementAndGet();
+        }
+
+        if (search.signals.get() != seen) {
+            //work was sent after our last sweep, possibly while no more helpers could be submitted
+            requestHelper(search);
+        }
+    }
+
+    private long helpPinned(Search search, int start) {
+        SpaceSnapshot snapshot = search.snapshot;
+        if (snapshot == null) {
+            return helpLocal(search, start);
+        }
+
+        snapshot.pin();
+        try {
+            return helpLocal(search, start);
+        } finally {
+            snapshot.unpin();
+        }
+    }
+
+    private long helpLocal(Search search, int start) {
+        LocalCachingSpace localSpace = search.localSpace;
+        if (localSpace == null) {
+            return work(search, start, Integer.MAX_VALUE, true);
+        }
+
+        localSpace.begin();
+        try {
+            return work(search, start, Integer.MAX_VALUE, true);
+        } finally {
+            localSpace.end();
+        }
+    }
+
+    /*
+    services partitions until the search is done, the thread is interrupted, or enough sweeps have been made; helpers
+    also leave once they have found nothing to do for a few sweeps in a row, rather than parking. returns the signal
+    count read before the last sweep
+     */
+    private long work(Search search, int start, int sweeps, boolean helper) {
+        Thread thread = Thread.currentThread();
+        int i = start;
+        int idleSweeps = 0;
+        long signals = search.signals.get();
+
+        while (!search.done && !thread.isInterrupted()) {
+            //read before sweeping, so we can't miss a signal sent while we do
+            signals = search.signals.get();
+            boolean progress = false;
+
+            for (int j = 0; j < partitions.length; j++) {
+                Partition partition = partitions[i];
+                if (partition.lock.compareAndSet(false, true)) {
+                    boolean remaining;
+                    try {
+                        progress |= partition.process(search);
+                        remaining = partition.hasWork();
+                    } finally {
+                        partition.lock.set(false);
+                    }
+
+                    if (remaining) {
+                        //an idle thread can carry on where we left off
+                        signal(search);
+                    }
+                }
+
+                if (++i == partitions.length) {
+                    i = 0;
+                }
+            }
+
+            if (search.work.get() == 0) {
+                search.finish();
+                break;
+            }
+
+            if (progress) {
+                idleSweeps = 0;
+            } else if (helper) {
+                if (++idleSweeps == HELPER_IDLE_SWEEPS) {
+                    break;
+                }
+
+                Thread.onSpinWait();
+            } else {
+                search.await(signals);
+            }
+
+            if (--sweeps == 0) {
+                break;
+            }
+        }
+
+        return signals;
+    }
+
+    //wakes up an idle thread, or submits a helper if there are fewer than the search can use
+    private void signal(Search search) {
+        search.signal();
+        requestHelper(search);
+    }
+
+    private int owner(int x, int z) {
+        long chunkKey = (((long) (x >> 4)) << 32) | ((z >> 4) & 0xFFFF_FFFFL);
+        return Math.floorMod(HashCommon.mix(Long.hashCode(chunkKey)), partitions.length);
+    }
+
+    private int reachedDestination(Node node) {
+        int[] destinations = this.destinations;
+        if (destinations == null) {
+            return successPredicate.test(node.x, node.y, node.z, destinationX, destinationY, destinationZ) ? 0 : -1;
+        }
+
+        for (int i = 0; i < destinations.length; i += 3) {
+            if (successPredicate.test(node.x, node.y, node.z, destinations[i], destinations[i + 1],
+                    destinations[i + 2])) {
+                return i / 3;
+            }
+        }
+
+        return -1;
+    }
+
+    //unscaled, so that the search can prove the path it finds is optimal
+    //when searching for multiple destinations, the heuristic is the smallest one out of all destinations
+    private float h(int x, int y, int z) {
+        int[] destinations = this.destinations;
+        if (destinations == null) {
+            return heuristic.heuristic(x, y, z, destinationX, destinationY, destinationZ);
+        }
+
+        float min = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < destinations.length; i += 3) {
+            float value = heuristic.heuristic(x, y, z, destinations[i], destinations[i + 1], destinations[i + 2]);
+            if (value < min) {
+                min = value;
+            }
+        }
+
+        return min;
+    }
+
+    private void initialize(int x, int y, int z, float blockOffset, float jumpOffset) {
+        Partition partition = partitions[owner(x, z)];
+
+        Node node = new Node(x, y, z, 0, h(x, y, z), blockOffset, jumpOffset);
+        partition.graph.put(x, y, z, node);
+        partition.nodes.add(node);
+        partition.open.enqueue(node);
+
+        if (partition.best == null || node.h < partition.best.h) {
+            partition.best = node;
+        }
+    }
+
+    private record Message(Node parent, int x, int y, int z, float blockOffset, float jumpOffset, float g,
+            int length) {}
+
+    //state shared by all threads participating in a single search
+    private static final class Search {
+        //messages in flight plus active partitions; the search is complete when this reaches 0
+        private final AtomicLong work;
+
+        //number of helpers currently participating, or'd with CLOSED once no more may join
+        private final AtomicInteger helpers;
+
+        //number of helper tasks submitted to the executor that haven't finished yet, whether or not they joined
+        private final AtomicInteger tasks;
+
+        //the thread that initialized the search, and calls step; helpers never run on it
+        private final Thread owner;
+
+        //incremented whenever there may be new work for an idle thread
+        private final AtomicLong signals;
+        private final Queue<Thread> idle;
+
+        //pinned to every participating thread, may be null
+        private final SpaceSnapshot snapshot;
+
+        //begun on every participating thread, may be null
+        private final LocalCachingSpace localSpace;
+
+        //only accessed by the thread that initialized the search
+        private boolean localSpaceBegun;
+
+        //only accessed by the thread calling step
+        private boolean started;
+
+        //set once the executor has run a helper on the owner, after which no more are submitted
+        private volatile boolean inline;
+
+        private volatile boolean done;
+        private volatile float goalCost;
+        private volatile Node goal;
+        private volatile int goalIndex;
+        private volatile Throwable failure;
+        private volatile Thread stopping;
+
+        private Search(int partitions, SpaceSnapshot snapshot, LocalCachingSpace localSpace) {
+            this.work = new AtomicLong(partitions);
+            this.helpers = new AtomicInteger();
+            this.tasks = new AtomicInteger();
+            this.owner = Thread.currentThread();
+            this.signals = new AtomicLong();
+            this.idle = new ConcurrentLinkedQueue<>();
+            this.snapshot = snapshot;
+            this.localSpace = localSpace;
+            this.goalCost = Float.POSITIVE_INFINITY;
+        }
+
+        private synchronized void offerGoal(Node node, int index) {
+            if (node.g < goalCost) {
+                goal = node;
+                goalIndex = index;
+                goalCost = node.g;
+            }
+        }
+
+        private synchronized void fail(Throwable throwable) {
+            if (failure == null) {
+                failure = throwable;
+            }
+
+            finish();
+        }
+
+        //ends the search, waking up every idle thread so that it can leave
+        private void finish() {
+            done = true;
+
+            for (Thread thread : idle) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private void signal() {
+            signals.incrementAndGet();
+
+            Thread thread = idle.poll();
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        //parks the calling thread until it is signalled, unless it has been signalled since it read the given value
+        private void await(long seen) {
+            Thread thread = Thread.currentThread();
+            idle.add(thread);
+
+            try {
+                if (signals.get() == seen && !done) {
+                    LockSupport.park(this);
+                }
+            } finally {
+                idle.remove(thread);
+            }
+        }
+
+        private boolean enter() {
+            int count;
+            do {
+                count = helpers.get();
+                if (count < 0) {
+                    return false;
+                }
+            } while (!helpers.compareAndSet(count, count + 1));
+
+            return true;
+        }
+
+        private void exit() {
+            if (helpers.decrementAndGet() == CLOSED) {
+                LockSupport.unpark(stopping);
+            }
+        }
+
+        //ends the search, and waits for every helper that joined it to leave; helpers that haven't started never will
+        private void stop() {
+            finish();
+
+            stopping = Thread.currentThread();
+            if (helpers.getAndUpdate(count -> count | CLOSED) == CLOSED) {
+                return;
+            }
+
+            boolean interrupted = false;
+            while (helpers.get() != CLOSED) {
+                LockSupport.park(this);
+
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final class Partition {
+        private final int index;
+        private final AtomicBoolean lock;
+        private final NodeQueue open;
+        private final Vec3I2ObjectMap<Node> graph;
+        private final ObjectArrayList<Node> nodes;
+        private final Queue<Message> inbox;
+        private final NodeHandler handler;
+
+        //only accessed by the thread holding the lock
+        private Search search;
+        private boolean active;
+        private Node best;
+
+        private Partition(int index, Vec3I2ObjectMap<Node> graph) {
+            this.index = index;
+            this.lock = new AtomicBoolean();
+            this.open = new NodeQueue();
+            this.graph = graph;
+            this.nodes = new ObjectArrayList<>();
+            this.inbox = new ConcurrentLinkedQueue<>();
+            this.handler = this::explore;
+            this.active = true;
+        }
+
+        //returns true if any progress was made
+        private boolean process(Search search) {
+            this.search = search;
+            boolean progress = false;
+
+            Message message;
+            while ((message = inbox.poll()) != null) {
+                if (!active) {
+                    //become active before the message stops counting towards the remaining work
+                    active = true;
+                    search.work.incrementAndGet();
+                }
+
+                relax(message.parent, null, message.x, message.y, message.z, message.blockOffset,
+                        message.jumpOffset, message.g, message.length);
+                search.work.decrementAndGet();
+                progress = true;
+            }
+
+            for (int i = 0; i < BATCH_SIZE && !open.isEmpty(); i++) {
+                Node current = open.first();
+                if (current.g + current.h >= search.goalCost) {
+                    //nothing left here can improve on the path we already have
+                    open.clear();
+                    break;
+                }
+
+                open.dequeue();
+                progress = true;
+
+                int reached = reachedDestination(current);
+                if (reached != -1) {
+                    search.offerGoal(current, reached);
+                    continue;
+                }
+
+                explorer.exploreEach(current, handler, graph, destinationX, destinationY, destinationZ);
+                if (best == null || current.h < best.h) {
+                    best = current;
+                }
+            }
+
+            if (active && open.isEmpty() && inbox.isEmpty()) {
+                active = false;
+                search.work.decrementAndGet();
+            }
+
+            return progress;
+        }
+
+        private boolean hasWork() {
+            return !open.isEmpty() || !inbox.isEmpty();
+        }
+
+        private void explore(Node current, Node target, int x, int y, int z, float blockOffset, float jumpOffset) {
+            float g = current.g + explorer.stepCost(heuristic, current.x, current.y, current.z, x, y, z);
+
+            int owner = owner(x, z);
+            if (owner == index) {
+                relax(current, target, x, y, z, blockOffset, jumpOffset, g, current.length + 1);
+                return;
+            }
+
+            //count the message before it becomes visible to its receiver
+            search.work.incrementAndGet();
+            partitions[owner].inbox.offer(new Message(current, x, y, z, blockOffset, jumpOffset, g,
+                    current.length + 1));
+            signal(search);
+        }
+
+        private void relax(Node parent, @Nullable Node target, int x, int y, int z, float blockOffset,
+                float jumpOffset, float g, int length) {
+            if (target == null) {
+                target = graph.get(x, y, z);
+
+                if (target == null) {
+                    target = new Node(x, y, z, Float.POSITIVE_INFINITY, h(x, y, z), blockOffset, jumpOffset);
+                    graph.put(x, y, z, target);
+                    nodes.add(target);
+                }
+            }
+
+            if (g < target.g) {
+                target.parent = parent;
+                target.g = g;
+                target.length = length;
+                open.enqueueOrUpdate(target);
+            }
+        }
+
+        private void cleanup() {
+            open.clear();
+            open.trim(NodeQueue.DEFAULT_INITIAL_CAPACITY);
+            graph.clear();
+            nodes.clear();
+            nodes.trim();
+            inbox.clear();
+
+            search = null;
+            active = true;
+            best = null;
+        }
+    }
+}
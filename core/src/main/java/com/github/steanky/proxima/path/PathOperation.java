@@ -1,10 +1,46 @@
 package com.github.steanky.proxima.path;
 
+import com.github.steanky.vector.Vec3I;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 public interface PathOperation {
     void init(double startX, double startY, double startZ, int destinationX, int destinationY, int destinationZ, @NotNull PathSettings settings);
 
+    /**
+     * Initializes this operation to search for a path to whichever of the given destinations can be reached first. The
+     * index of the destination that was reached is reported by {@link PathResult#destinationIndex()}.
+     * <p>
+     * Operations that can't search for several destinations at once must reject them here, before any searching is
+     * done, rather than silently picking one. The default implementation delegates a single destination to
+     * {@link PathOperation#init(double, double, double, int, int, int, PathSettings)}, and throws an
+     * {@link UnsupportedOperationException} for more than one. Both {@link BasicPathOperation} and
+     * {@link ParallelPathOperation} support any number of destinations.
+     *
+     * @param startX       the starting x-coordinate
+     * @param startY       the starting y-coordinate
+     * @param startZ       the starting z-coordinate
+     * @param destinations the destinations, which must not be empty
+     * @param settings     the settings to use
+     * @throws IllegalArgumentException      if destinations is empty
+     * @throws UnsupportedOperationException if more than one destination is given, and this operation doesn't
+     *                                       support it
+     */
+    default void init(double startX, double startY, double startZ, @NotNull List<? extends Vec3I> destinations,
+            @NotNull PathSettings settings) {
+        if (destinations.isEmpty()) {
+            throw new IllegalArgumentException("Must provide at least one destination");
+        }
+
+        if (destinations.size() != 1) {
+            throw new UnsupportedOperationException("Only a single destination is supported");
+        }
+
+        Vec3I destination = destinations.get(0);
+        init(startX, startY, startZ, destination.x(), destination.y(), destination.z(), settings);
+    }
+
     boolean step();
 
     @NotNull PathResult makeResult();
@@ -6,7 +6,7 @@ import org.jetbrains.annotations.Nullable;
 /**
  * The result of a pathfinding operation, representing a completed (successful or failed) path.
  */
-public record PathResult(@Nullable Node head, int exploredCount, boolean isSuccessful) {
+public record PathResult(@Nullable Node head, int exploredCount, boolean isSuccessful, int destinationIndex) {
     /**
      * The empty, unsuccessful path result.
      */
@@ -15,9 +15,22 @@ public record PathResult(@Nullable Node head, int exploredCount, boolean isSucce
     /**
      * Creates a new PathResult.
      *
+     * @param exploredCount    the number of nodes that were explored for this path, can be used to judge the
+     *                         computational "difficulty" of this path
+     * @param isSuccessful     if the path is successful (reached its destination)
+     * @param destinationIndex the index of the destination that was reached, when searching for multiple destinations
+     *                         at once; -1 if the path is unsuccessful
+     */
+    public PathResult {}
+
+    /**
+     * Creates a new PathResult for a search with a single destination.
+     *
      * @param exploredCount the number of nodes that were explored for this path, can be used to judge the computational
      *                      "difficulty" of this path
      * @param isSuccessful  if the path is successful (reached its destination)
      */
-    public PathResult {}
+    public PathResult(@Nullable Node head, int exploredCount, boolean isSuccessful) {
+        this(head, exploredCount, isSuccessful, isSuccessful ? 0 : -1);
+    }
 }
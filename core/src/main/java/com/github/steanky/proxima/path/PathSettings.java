@@ -4,9 +4,15 @@ import com.github.steanky.proxima.Heuristic;
 import com.github.steanky.proxima.explorer.Explorer;
 import com.github.steanky.proxima.node.Node;
 import com.github.steanky.proxima.node.NodeProcessor;
+import com.github.steanky.proxima.snapper.CountingNodeSnapper;
+import com.github.steanky.proxima.space.LocalCachingSpace;
+import com.github.steanky.proxima.space.PrefetchingSpace;
+import com.github.steanky.proxima.space.SnapshotSpace;
+import com.github.steanky.proxima.space.SpaceSnapshot;
 import com.github.steanky.vector.Vec3I2ObjectMap;
 import com.github.steanky.vector.Vec3IBiPredicate;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public interface PathSettings {
     @NotNull Vec3IBiPredicate successPredicate();
@@ -18,4 +24,57 @@ public interface PathSettings {
     @NotNull Vec3I2ObjectMap<Node> graph();
 
     @NotNull NodeProcessor nodeProcessor();
+
+    /**
+     * The space to take a {@link SpaceSnapshot} of whenever a path is found using these settings. The snapshot is pinned
+     * to every thread that participates in the search, so every position the search reads stays the same for the
+     * whole search, even if the space is changed in the meantime. This should be the space read by
+     * {@link PathSettings#explorer()}.
+     * <p>
+     * The default implementation returns null, so searches read the space as it changes.
+     *
+     * @return the space to take snapshots of, or null to not take snapshots
+     */
+    default @Nullable SnapshotSpace snapshotSpace() {
+        return null;
+    }
+
+    /**
+     * The space to prefetch solids from whenever a path is found using these settings, if the pathfinder supports
+     * prefetching. Solids along the route between the start and the destination are then loaded on other threads,
+     * while the search runs. This should be the space read by {@link PathSettings#explorer()}.
+     * <p>
+     * The default implementation returns null, so nothing is prefetched.
+     *
+     * @return the space to prefetch from, or null to not prefetch
+     */
+    default @Nullable PrefetchingSpace prefetchSpace() {
+        return null;
+    }
+
+    /**
+     * The space whose solids are copied into a buffer local to each thread taking part in a path search using these
+     * settings. A task is begun on the space when the search starts, and ended when it is cleaned up, see
+     * {@link LocalCachingSpace#begin()}. This should be the space read by {@link PathSettings#explorer()}.
+     * <p>
+     * The default implementation returns null, so no buffer is used.
+     *
+     * @return the space to buffer solids in, or null to not buffer solids
+     */
+    default @Nullable LocalCachingSpace localCachingSpace() {
+        return null;
+    }
+
+    /**
+     * The snapper whose snaps are counted for every path found using these settings, and recorded in the metrics of
+     * pathfinders that keep them, see {@link BasicAsyncPathfinder#metrics()}. Only snaps made on the thread running the
+     * search are counted. This should be the snapper used by {@link PathSettings#explorer()}.
+     * <p>
+     * The default implementation returns null, so snaps are not counted.
+     *
+     * @return the snapper to count snaps of, or null to not count snaps
+     */
+    default @Nullable CountingNodeSnapper countingSnapper() {
+        return null;
+    }
 }
@@ -1,8 +1,13 @@
 package com.github.steanky.proxima.path;
 
+import com.github.steanky.proxima.node.Node;
 import com.github.steanky.vector.Vec3D;
+import com.github.steanky.vector.Vec3I;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public interface Pathfinder {
@@ -12,5 +17,99 @@ public interface Pathfinder {
         return pathfind(start.x(), start.y(), start.z(), destination, settings);
     }
 
+    /**
+     * Searches for a path to whichever of the given destinations can be reached first. The index of the destination
+     * that was reached is reported by {@link PathResult#destinationIndex()}. Destinations that fail to resolve are
+     * ignored.
+     * <p>
+     * The default implementation starts a separate search for every destination, and completes with the successful
+     * result whose path is the cheapest (ties going to the lowest index), or the result of the first search if none
+     * succeed. Implementations are encouraged to override this with a single search, which is usually much cheaper.
+     *
+     * @param x            the starting x-coordinate
+     * @param y            the starting y-coordinate
+     * @param z            the starting z-coordinate
+     * @param destinations the destinations
+     * @param settings     the settings to use
+     *
+     * @return a future that will complete with the result of the search
+     */
+    default @NotNull CompletableFuture<PathResult> pathfind(double x, double y, double z,
+            @NotNull List<? extends PathTarget> destinations, @NotNull PathSettings settings) {
+        if (destinations.isEmpty()) {
+            return CompletableFuture.completedFuture(PathResult.EMPTY);
+        }
+
+        List<CompletableFuture<PathResult>> futures = new ArrayList<>(destinations.size());
+        for (PathTarget destination : destinations) {
+            futures.add(pathfind(x, y, z, destination, settings));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            int exploredCount = 0;
+            int bestIndex = -1;
+            float bestCost = Float.POSITIVE_INFINITY;
+
+            for (int i = 0; i < futures.size(); i++) {
+                PathResult result = futures.get(i).join();
+                exploredCount += result.exploredCount();
+
+                if (result.isSuccessful()) {
+                    float cost = cost(result.head());
+                    if (bestIndex == -1 || cost < bestCost) {
+                        bestIndex = i;
+                        bestCost = cost;
+                    }
+                }
+            }
+
+            if (bestIndex == -1) {
+                PathResult first = futures.get(0).join();
+                return new PathResult(first.head(), exploredCount, false, -1);
+            }
+
+            return new PathResult(futures.get(bestIndex).join().head(), exploredCount, true, bestIndex);
+        });
+    }
+
+    /**
+     * Searches for a path to whichever of the given block coordinates can be reached first. This is equivalent to
+     * {@link Pathfinder#pathfind(double, double, double, List, PathSettings)} with a coordinate
+     * {@link PathTarget} for every destination, in the iteration order of the collection.
+     * <p>
+     * {@link PathResult#destinationIndex()} is the position of the reached destination in that iteration order, or -1
+     * if no destination was reached. When the search completes at a node that satisfies more than one destination, the
+     * lowest index is reported; duplicate destinations are therefore always reported at their first position. Which
+     * of several reachable destinations is chosen otherwise depends on the implementation: a single search reports the
+     * first destination it reaches, while the default implementation of the list overload reports the cheapest path.
+     *
+     * @param x            the starting x-coordinate
+     * @param y            the starting y-coordinate
+     * @param z            the starting z-coordinate
+     * @param destinations the destination block coordinates; iteration order determines the reported index
+     * @param settings     the settings to use
+     *
+     * @return a future that will complete with the result of the search
+     */
+    default @NotNull CompletableFuture<PathResult> pathfindToAny(double x, double y, double z,
+            @NotNull Collection<? extends Vec3I> destinations, @NotNull PathSettings settings) {
+        List<PathTarget> targets = new ArrayList<>(destinations.size());
+        for (Vec3I destination : destinations) {
+            targets.add(PathTarget.coordinate(destination.x(), destination.y(), destination.z()));
+        }
+
+        return pathfind(x, y, z, targets, settings);
+    }
+
     void shutdown();
+
+    //the cost of a path is the g-value of its last node
+    private static float cost(Node head) {
+        Node current = head;
+        while (current.parent != null) {
+            current = current.parent;
+        }
+
+        return current.g;
+    }
 }
@@ -0,0 +1,201 @@
+package com.github.steanky.proxima.path;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Metrics recorded by a {@link BasicAsyncPathfinder}, for every path it finds. Recording never blocks: every value is
+ * kept in {@link LongAdder}s, which spread concurrent updates over separate cells. Use
+ * {@link PathfinderMetrics#snapshot()} to read the current values.
+ * <p>
+ * Distributions are recorded in histograms with power-of-two buckets: bucket 0 counts the value 0, and bucket
+ * {@code i} counts values from {@code 2^(i - 1)} up to {@code 2^i - 1}, inclusive.
+ */
+public final class PathfinderMetrics {
+    private final IntSupplier poolSize;
+
+    private final LongAdder successes;
+    private final LongAdder failures;
+    private final LongAdder callerRuns;
+    private final LongAdder rejections;
+
+    private final Histogram queueNanos;
+    private final Histogram searchNanos;
+    private final Histogram explored;
+    private final Histogram snaps;
+
+    PathfinderMetrics(@NotNull IntSupplier poolSize) {
+        this.poolSize = Objects.requireNonNull(poolSize);
+
+        this.successes = new LongAdder();
+        this.failures = new LongAdder();
+        this.callerRuns = new LongAdder();
+        this.rejections = new LongAdder();
+
+        this.queueNanos = new Histogram();
+        this.searchNanos = new Histogram();
+        this.explored = new Histogram();
+        this.snaps = new Histogram();
+    }
+
+    void recordQueued(long nanos) {
+        queueNanos.record(nanos);
+    }
+
+    //snaps is negative if snaps weren't counted
+    void recordSearch(long nanos, @NotNull PathResult result, long snaps) {
+        searchNanos.record(nanos);
+        explored.record(result.exploredCount());
+        if (snaps >= 0) {
+            this.snaps.record(snaps);
+        }
+
+        (result.isSuccessful() ? successes : failures).increment();
+    }
+
+    void recordError(long nanos) {
+        searchNanos.record(nanos);
+        failures.increment();
+    }
+
+    void recordCallerRun() {
+        callerRuns.increment();
+    }
+
+    void recordRejection() {
+        rejections.increment();
+    }
+
+    /**
+     * Reads the current values of these metrics. Values recorded concurrently with this call may or may not be
+     * included, so the counts in a snapshot need not be exactly consistent with each other.
+     *
+     * @return a snapshot of these metrics
+     */
+    public @NotNull Snapshot snapshot() {
+        return new Snapshot(successes.sum(), failures.sum(), callerRuns.sum(), rejections.sum(), poolSize.getAsInt(),
+                queueNanos.snapshot(), searchNanos.snapshot(), explored.snapshot(), snaps.snapshot());
+    }
+
+    /**
+     * A snapshot of {@link PathfinderMetrics}.
+     *
+     * @param successes   the number of searches that found a path
+     * @param failures    the number of searches that didn't find a path, including those that threw an exception
+     * @param callerRuns  the number of searches run on the calling thread, because the pathfinder was at capacity or
+     *                    its executor rejected them
+     * @param rejections  the number of searches rejected by the executor
+     * @param poolSize    the number of searches queued or running when the snapshot was taken
+     * @param queueNanos  the time searches spent waiting for the executor, in nanoseconds; searches run on the calling
+     *                    thread don't wait
+     * @param searchNanos the time spent running searches, in nanoseconds, including resolving their destinations
+     * @param explored    the number of nodes explored by each search, see {@link PathResult#exploredCount()}
+     * @param snaps       the number of snaps made by each search on the thread running it, for settings that provide
+     *                    a {@link PathSettings#countingSnapper()}
+     */
+    public record Snapshot(long successes, long failures, long callerRuns, long rejections, int poolSize,
+            @NotNull HistogramSnapshot queueNanos, @NotNull HistogramSnapshot searchNanos,
+            @NotNull HistogramSnapshot explored, @NotNull HistogramSnapshot snaps) {}
+
+    /**
+     * A snapshot of a histogram with power-of-two buckets.
+     *
+     * @param buckets the number of values recorded in each bucket; must not be modified
+     * @param count   the number of values recorded
+     * @param sum     the sum of the values recorded
+     */
+    public record HistogramSnapshot(long @NotNull [] buckets, long count, long sum) {
+        /**
+         * The mean of the values recorded, or 0 if no values have been recorded.
+         *
+         * @return the mean value
+         */
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * An upper bound for the given quantile of the values recorded: the largest value that could be in the bucket
+         * containing the quantile. Returns 0 if no values have been recorded.
+         *
+         * @param quantile the quantile, between 0 and 1, inclusive
+         * @return an upper bound for the quantile
+         */
+        public long quantile(double quantile) {
+            if (!(quantile >= 0 && quantile <= 1)) {
+                throw new IllegalArgumentException("Invalid quantile: " + quantile);
+            }
+
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    //overflows to Long.MAX_VALUE for the last bucket
+                    return (1L << i) - 1;
+                }
+            }
+
+            return 0;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof HistogramSnapshot other && count == other.count && sum == other.sum &&
+                    Arrays.equals(buckets, other.buckets);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Arrays.hashCode(buckets) + Long.hashCode(count)) + Long.hashCode(sum);
+        }
+
+        @Override
+        public String toString() {
+            return "HistogramSnapshot[buckets=" + Arrays.toString(buckets) + ", count=" + count + ", sum=" + sum + "]";
+        }
+    }
+
+    private static final class Histogram {
+        //non-negative values have at most 63 significant bits
+        private final LongAdder[] buckets;
+        private final LongAdder count;
+        private final LongAdder sum;
+
+        private Histogram() {
+            this.buckets = new LongAdder[Long.SIZE];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+
+            this.count = new LongAdder();
+            this.sum = new LongAdder();
+        }
+
+        private void record(long value) {
+            //no recorded value should be negative, but they would otherwise index out of bounds
+            long clamped = Math.max(0, value);
+            buckets[Long.SIZE - Long.numberOfLeadingZeros(clamped)].increment();
+            count.increment();
+            sum.add(clamped);
+        }
+
+        private HistogramSnapshot snapshot() {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+
+            return new HistogramSnapshot(counts, count.sum(), sum.sum());
+        }
+    }
+}
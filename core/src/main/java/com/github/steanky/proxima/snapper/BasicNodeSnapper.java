@@ -1,6 +1,7 @@
 package com.github.steanky.proxima.snapper;
 
 import com.github.steanky.proxima.Direction;
+import com.github.steanky.proxima.solid.CollisionProfile;
 import com.github.steanky.proxima.solid.Solid;
 import com.github.steanky.proxima.space.Space;
 import com.github.steanky.vector.Bounds3D;
@@ -12,6 +13,7 @@ import java.util.Objects;
 public class BasicNodeSnapper implements NodeSnapper {
     private static final long SOLID_FAIL = 0xFFC0_0001_FFC0_0001L;
     private static final double INITIAL_SEARCH_LIMIT = 2;
+    private static final int MAX_BUFFER_HEIGHT = 16;
 
     private final double fallTolerance;
 
@@ -21,6 +23,7 @@ public class BasicNodeSnapper implements NodeSnapper {
     private final boolean fullWidth;
 
     private final int halfBlockWidth;
+    private final int heightBlocks;
 
     private final double jumpHeight;
     private final Space space;
@@ -32,6 +35,13 @@ public class BasicNodeSnapper implements NodeSnapper {
 
     private final double epsilon;
 
+    //memoized collision results for the sweeps this snapper performs most often
+    private final CollisionProfile horizontalProfile;
+    private final CollisionProfile fallProfile;
+
+    //per-thread scratch buffers used by snapAll
+    private final ThreadLocal<SolidBuffer> buffers;
+
     private BasicNodeSnapper(@NotNull Space space, double width, double height, double fallTolerance, double jumpHeight,
             boolean walk, double epsilon) {
         validate(width, height, fallTolerance, jumpHeight, epsilon);
@@ -48,6 +58,7 @@ public class BasicNodeSnapper implements NodeSnapper {
         this.fallSearchHeight = (int) Math.ceil(fallTolerance) + 1;
 
         this.halfBlockWidth = blockWidth / 2;
+        this.heightBlocks = (int) Math.ceil(height);
         this.jumpHeight = jumpHeight;
         this.space = Objects.requireNonNull(space);
 
@@ -58,6 +69,15 @@ public class BasicNodeSnapper implements NodeSnapper {
         this.walk = walk;
 
         this.epsilon = epsilon;
+
+        this.horizontalProfile = new CollisionProfile(width, height + jumpHeight, 1, epsilon);
+        this.fallProfile = new CollisionProfile(width, height, fallSearchHeight, epsilon);
+
+        //solids outside the buffer are read directly from the space, so these bounds don't need to be exact
+        int radius = halfBlockWidth + 1;
+        int below = Math.max(0, Math.min(fallSearchHeight, MAX_BUFFER_HEIGHT)) + 1;
+        int above = Math.max(0, Math.min(searchHeight, MAX_BUFFER_HEIGHT)) + (int) Math.ceil(height) + 1;
+        this.buffers = ThreadLocal.withInitial(() -> new SolidBuffer(radius, below, above));
     }
 
     public BasicNodeSnapper(@NotNull Space space, double width, double height, double epsilon) {
@@ -109,8 +129,9 @@ public class BasicNodeSnapper implements NodeSnapper {
         return d < 0 ? (int) Math.floor(originCoordinate + d + epsilon) : (int) Math.floor(maxCoordinate + d - epsilon);
     }
 
-    private long snapVertical(Direction direction, int nodeX, int nodeY, int nodeZ, float nodeOffset) {
+    private long snapVertical(Space space, Direction direction, int nodeX, int nodeY, int nodeZ, float nodeOffset) {
         double exactY = nodeY + nodeOffset;
+        boolean tracked = space.tracksOccupancy();
 
         double ax = nodeX + 0.5;
         double az = nodeZ + 0.5;
@@ -123,23 +144,32 @@ public class BasicNodeSnapper implements NodeSnapper {
 
             for (int i = fullHeight ? 0 : -1; i < 1; i++) {
                 int y = i + offset;
+                int classes = occupiedClasses(i == -1);
 
                 for (int dex = -halfBlockWidth; dex <= halfBlockWidth; dex++) {
-                    for (int dez = -halfBlockWidth; dez <= halfBlockWidth; dez++) {
-                        int x = nodeX + dex;
-                        int z = nodeZ + dez;
+                    int x = nodeX + dex;
 
-                        Solid solid = space.solidAt(x, y, z);
-                        if (solid == null) {
-                            return FAIL;
-                        }
+                    for (int sz = nodeZ - halfBlockWidth; sz <= nodeZ + halfBlockWidth; sz += Long.SIZE) {
+                        long column = candidates(space, tracked, x, y, sz,
+                                Math.min(Long.SIZE, nodeZ + halfBlockWidth - sz + 1), classes);
 
-                        if (solid.isEmpty() || (i == -1 && solid.isFull())) {
-                            continue;
-                        }
+                        while (column != 0) {
+                            int z = sz + Long.numberOfTrailingZeros(column);
+                            column &= column - 1;
 
-                        if (solid.hasCollision(x, y, z, ax, exactY, az, width, height, width, Direction.UP, 1, epsilon)) {
-                            return FAIL;
+                            Solid solid = space.solidAt(x, y, z);
+                            if (solid == null) {
+                                return FAIL;
+                            }
+
+                            if (solid.isEmpty() || (i == -1 && solid.isFull())) {
+                                continue;
+                            }
+
+                            if (solid.hasCollision(x, y, z, ax, exactY, az, width, height, width, Direction.UP, 1,
+                                    epsilon)) {
+                                return FAIL;
+                            }
                         }
                     }
                 }
@@ -150,23 +180,32 @@ public class BasicNodeSnapper implements NodeSnapper {
 
         for (int i = nodeOffset == 0 ? 0 : -1; i < 1; i++) {
             int y = nodeY - (i + 1);
+            int classes = occupiedClasses(i == -1);
 
             for (int dex = -halfBlockWidth; dex <= halfBlockWidth; dex++) {
-                for (int dez = -halfBlockWidth; dez <= halfBlockWidth; dez++) {
-                    int x = nodeX + dex;
-                    int z = nodeZ + dez;
+                int x = nodeX + dex;
 
-                    Solid solid = space.solidAt(x, y, z);
-                    if (solid == null) {
-                        return FAIL;
-                    }
+                for (int sz = nodeZ - halfBlockWidth; sz <= nodeZ + halfBlockWidth; sz += Long.SIZE) {
+                    long column = candidates(space, tracked, x, y, sz,
+                            Math.min(Long.SIZE, nodeZ + halfBlockWidth - sz + 1), classes);
 
-                    if (solid.isEmpty() || (i == -1 && solid.isFull())) {
-                        continue;
-                    }
+                    while (column != 0) {
+                        int z = sz + Long.numberOfTrailingZeros(column);
+                        column &= column - 1;
 
-                    if (solid.hasCollision(x, y, z, ax, exactY, az, width, height, width, Direction.DOWN, 1, epsilon)) {
-                        return FAIL;
+                        Solid solid = space.solidAt(x, y, z);
+                        if (solid == null) {
+                            return FAIL;
+                        }
+
+                        if (solid.isEmpty() || (i == -1 && solid.isFull())) {
+                            continue;
+                        }
+
+                        if (solid.hasCollision(x, y, z, ax, exactY, az, width, height, width, Direction.DOWN, 1,
+                                epsilon)) {
+                            return FAIL;
+                        }
                     }
                 }
             }
@@ -177,6 +216,30 @@ public class BasicNodeSnapper implements NodeSnapper {
 
     @Override
     public long snap(@NotNull Direction direction, int nodeX, int nodeY, int nodeZ, float nodeOffset) {
+        return snap(space, direction, nodeX, nodeY, nodeZ, nodeOffset);
+    }
+
+    @Override
+    public void snapAll(@NotNull Direction @NotNull [] directions, int count, int nodeX, int nodeY, int nodeZ,
+            float nodeOffset, long @NotNull [] results) {
+        if (count == 1) {
+            //nothing would be shared
+            results[0] = snap(space, directions[0], nodeX, nodeY, nodeZ, nodeOffset);
+            return;
+        }
+
+        SolidBuffer buffer = buffers.get();
+        buffer.reset(space, nodeX, nodeY, nodeZ);
+        try {
+            for (int i = 0; i < count; i++) {
+                results[i] = snap(buffer, directions[i], nodeX, nodeY, nodeZ, nodeOffset);
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private long snap(Space space, Direction direction, int nodeX, int nodeY, int nodeZ, float nodeOffset) {
         if (direction.ordinal() > 3) {
             //can't pathfind straight up or down while walking
             if (walk) {
@@ -184,7 +247,7 @@ public class BasicNodeSnapper implements NodeSnapper {
             }
 
             //if not walking, we can do vertical snaps
-            return snapVertical(direction, nodeX, nodeY, nodeZ, nodeOffset);
+            return snapVertical(space, direction, nodeX, nodeY, nodeZ, nodeOffset);
         }
 
         int dx = direction.x;
@@ -193,6 +256,11 @@ public class BasicNodeSnapper implements NodeSnapper {
         int nx = nodeX + dx;
         int nz = nodeZ + dz;
 
+        //flying agents at full height can't collide with anything if the volume they sweep is known to be empty
+        if (!walk && nodeOffset == 0 && isSweptEmpty(space, direction, nodeX, nodeY, nodeZ, 1)) {
+            return NodeSnapper.encode(nodeY, false, 0);
+        }
+
         double exactY = nodeY + nodeOffset;
         double newY = Double.NaN;
         double lastTargetY = exactY;
@@ -236,8 +304,7 @@ public class BasicNodeSnapper implements NodeSnapper {
                         break outer;
                     }
 
-                    long res = solid.minMaxCollision(x, y, z, nodeX + 0.5, exactY, nodeZ + 0.5, width,
-                            height + jumpHeight, width, direction, 1, epsilon);
+                    long res = horizontalProfile.minMaxCollision(solid, x, y, z, nodeX, exactY, nodeZ, direction);
 
                     float low = Solid.lowest(res);
                     float high = Solid.highest(res);
@@ -293,7 +360,7 @@ public class BasicNodeSnapper implements NodeSnapper {
             int obz = nodeZ - halfBlockWidth;
             int mbz = nodeZ + halfBlockWidth;
 
-            if (checkJump(obx, mbx, obz, mbz, nodeX + 0.5, exactY, nodeZ + 0.5, newY)) {
+            if (checkJump(space, obx, mbx, obz, mbz, nodeX + 0.5, exactY, nodeZ + 0.5, newY)) {
                 return FAIL;
             }
 
@@ -319,7 +386,7 @@ public class BasicNodeSnapper implements NodeSnapper {
 
         //for walking entities, check blocks below the target
         //for flying entities, check the current block (which is non-full) and use its offset
-        double finalY = checkFall(obx, mbx, obz, mbz, oby, nx + 0.5, newY, nz + 0.5);
+        double finalY = checkFall(space, obx, mbx, obz, mbz, oby, nx + 0.5, newY, nz + 0.5);
         if (Double.isNaN(finalY)) {
             return FAIL;
         }
@@ -350,7 +417,7 @@ public class BasicNodeSnapper implements NodeSnapper {
         int mbx = (int) Math.floor(amx);
         int mbz = (int) Math.floor(amz);
 
-        double exactY = checkFall(obx, mbx, obz, mbz, oby, x, y, z);
+        double exactY = checkFall(space, obx, mbx, obz, mbz, oby, x, y, z);
         if (Double.isNaN(exactY)) {
             //invalid start location
             return FAIL;
@@ -490,7 +557,7 @@ public class BasicNodeSnapper implements NodeSnapper {
 
         //jumping is necessary, so we need to check above us
         if (newY > exactY) {
-            if (checkJump(obx, mbx, obz, mbz, x, exactY, z, newY)) {
+            if (checkJump(space, obx, mbx, obz, mbz, x, exactY, z, newY)) {
                 return FAIL;
             }
 
@@ -515,7 +582,7 @@ public class BasicNodeSnapper implements NodeSnapper {
 
         //for walking entities, check blocks below the target
         //for flying entities, check the current block (which is non-full) and use its offset
-        double finalY = checkFall(nobx, nmbx, nobz, nmbz, newBlockY, x + dx, newY, z + dz);
+        double finalY = checkFall(space, nobx, nmbx, nobz, nmbz, newBlockY, x + dx, newY, z + dz);
         if (Double.isNaN(finalY)) {
             return FAIL;
         }
@@ -601,35 +668,170 @@ public class BasicNodeSnapper implements NodeSnapper {
         return true;
     }
 
+    @Override
+    public boolean checkLine(int x, int y, int z, int tx, int tz, float nodeOffset) {
+        int dx = tx - x;
+        int dz = tz - z;
+
+        double cx = x + 0.5;
+        double cz = z + 0.5;
+
+        double minCx = Math.min(x, tx) + 0.5;
+        double maxCx = Math.max(x, tx) + 0.5;
+
+        double minCz = Math.min(z, tz) + 0.5;
+        double maxCz = Math.max(z, tz) + 0.5;
+
+        double adjustedY = y + nodeOffset;
+
+        int sy = (int) Math.floor(adjustedY + epsilon);
+        int ey = (int) Math.floor(adjustedY + height - epsilon);
+        int floorY = (int) Math.floor(adjustedY - epsilon);
+
+        int sx = (int) Math.floor(minCx - halfWidth + epsilon);
+        int ex = (int) Math.floor(maxCx + halfWidth - epsilon);
+
+        double slope = dx == 0 ? 0 : (double) dz / dx;
+
+        for (int bx = sx; bx <= ex; bx++) {
+            int sz;
+            int ez;
+
+            if (dx == 0) {
+                sz = (int) Math.floor(minCz - halfWidth + epsilon);
+                ez = (int) Math.floor(maxCz + halfWidth - epsilon);
+            } else {
+                //only consider the blocks in this column that can be touched by the agent as it moves along the line
+                double low = Math.max(bx - halfWidth, minCx);
+                double high = Math.min(bx + 1 + halfWidth, maxCx);
+
+                double firstZ = cz + (low - cx) * slope;
+                double secondZ = cz + (high - cx) * slope;
+
+                sz = (int) Math.floor(Math.min(firstZ, secondZ) - halfWidth + epsilon);
+                ez = (int) Math.floor(Math.max(firstZ, secondZ) + halfWidth - epsilon);
+            }
+
+            for (int bz = sz; bz <= ez; bz++) {
+                //every block under the agent must support it, so it can't pass over gaps narrower than itself
+                Solid floor = space.solidAt(bx, floorY, bz);
+                if (floor == null || floor.isEmpty() ||
+                        Math.abs(floorY + floor.bounds().maxY() - adjustedY) > epsilon) {
+                    return false;
+                }
+
+                for (int by = sy; by <= ey; by++) {
+                    Solid solid = space.solidAt(bx, by, bz);
+                    if (solid == null) {
+                        return false;
+                    }
+
+                    if (solid.isEmpty()) {
+                        continue;
+                    }
+
+                    if (solid.hasCollision(bx, by, bz, cx, adjustedY, cz, width, height, width, dx, 0, dz, epsilon)) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int freeDistance(@NotNull Direction direction, int nodeX, int nodeY, int nodeZ, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Invalid limit: " + limit);
+        }
+
+        if (walk) {
+            //walking agents must snap to the ground after every move
+            return 0;
+        }
+
+        //double the distance until the swept volume isn't known to be empty, then search between the last two
+        long empty = 0;
+        long occupied = 1;
+        while (occupied <= limit && isSweptEmpty(space, direction, nodeX, nodeY, nodeZ, (int) occupied)) {
+            empty = occupied;
+            occupied <<= 1;
+        }
+
+        occupied = Math.min(occupied, (long) limit + 1);
+        while (occupied - empty > 1) {
+            long middle = (empty + occupied) >>> 1;
+            if (isSweptEmpty(space, direction, nodeX, nodeY, nodeZ, (int) middle)) {
+                empty = middle;
+            } else {
+                occupied = middle;
+            }
+        }
+
+        return (int) empty;
+    }
+
+    private boolean isSweptEmpty(Space space, Direction direction, int nodeX, int nodeY, int nodeZ, int distance) {
+        int dx = direction.x * distance;
+        int dy = direction.y * distance;
+        int dz = direction.z * distance;
+
+        int blockWidth = (halfBlockWidth << 1) + 1;
+        return space.isEmpty(nodeX - halfBlockWidth + Math.min(0, dx), nodeY + Math.min(0, dy),
+                nodeZ - halfBlockWidth + Math.min(0, dz), blockWidth + Math.abs(dx), heightBlocks + Math.abs(dy),
+                blockWidth + Math.abs(dz));
+    }
+
     @Override
     public @NotNull Space space() {
         return space;
     }
 
-    private boolean checkJump(int obx, int mbx, int obz, int mbz, double x, double y, double z, double targetHeight) {
+    private boolean checkJump(Space space, int obx, int mbx, int obz, int mbz, double x, double y, double z,
+            double targetHeight) {
         double exactStart = y + height;
         int start = (int)Math.floor(exactStart);
         int end = (int)Math.floor(targetHeight + height);
+
+        //nothing to collide with if every position is known to be empty
+        int diameter = mbx - obx;
+        if (diameter == mbz - obz && (diameter & 1) == 0 &&
+                space.clearance(obx + (diameter >> 1), start, obz + (diameter >> 1), diameter >> 1) > end - start) {
+            return false;
+        }
+
+        boolean tracked = space.tracksOccupancy();
         for (int by = start; by <= end; by++) {
+            int classes = occupiedClasses(by == start && start != exactStart);
+
             for (int bx = obx; bx <= mbx; bx++) {
-                for (int bz = obz; bz <= mbz; bz++) {
-                    Solid solid = space.solidAt(bx, by, bz);
-                    if (solid == null) {
-                        return true;
-                    }
+                for (int sz = obz; sz <= mbz; sz += Long.SIZE) {
+                    long column = candidates(space, tracked, bx, by, sz, Math.min(Long.SIZE, mbz - sz + 1),
+                            classes);
 
-                    if (solid.isEmpty() || (by == start && start != exactStart && solid.isFull())) {
-                        continue;
-                    }
+                    while (column != 0) {
+                        int bz = sz + Long.numberOfTrailingZeros(column);
+                        column &= column - 1;
 
-                    if (solid.isFull()) {
-                        return true;
-                    }
+                        Solid solid = space.solidAt(bx, by, bz);
+                        if (solid == null) {
+                            return true;
+                        }
+
+                        if (solid.isEmpty() || (by == start && start != exactStart && solid.isFull())) {
+                            continue;
+                        }
+
+                        if (solid.isFull()) {
+                            return true;
+                        }
 
-                    Bounds3D closest = solid.closestCollision(bx, by, bz, x, y, z, width, height, width,
-                            Direction.UP, jumpHeight, epsilon);
-                    if (closest != null && by + closest.originY() - targetHeight < height - epsilon) {
-                        return true;
+                        Bounds3D closest = solid.closestCollision(bx, by, bz, x, y, z, width, height, width,
+                                Direction.UP, jumpHeight, epsilon);
+                        if (closest != null && by + closest.originY() - targetHeight < height - epsilon) {
+                            return true;
+                        }
                     }
                 }
             }
@@ -638,7 +840,7 @@ public class BasicNodeSnapper implements NodeSnapper {
         return false;
     }
 
-    private double checkFall(int obx, int mbx, int obz, int mbz, int oby, double x, double y, double z) {
+    private double checkFall(Space space, int obx, int mbx, int obz, int mbz, int oby, double x, double y, double z) {
         boolean full = oby == y;
         if (full && !walk) {
             return y;
@@ -647,7 +849,7 @@ public class BasicNodeSnapper implements NodeSnapper {
         for (int i = full ? 0 : -1; i < fallSearchHeight; i++) {
             int by = oby - (i + 1);
 
-            double highestY = checkDownwardLayer(obx, mbx, obz, mbz, by, i, x, y, z);
+            double highestY = checkDownwardLayer(space, obx, mbx, obz, mbz, by, i, x, y, z);
             if (!walk) {
                 //only ever check a single layer if flying
                 //if we find a block: use its offset
@@ -671,35 +873,72 @@ public class BasicNodeSnapper implements NodeSnapper {
         return Double.NaN;
     }
 
-    private double checkDownwardLayer(int startX, int endX, int startZ, int endZ, int by, int i, double x, double y, double z) {
+    //without occupancy tracking, classifying positions would look up each one twice, so all are candidates
+    private static long candidates(Space space, boolean tracked, int x, int y, int z, int length, int classes) {
+        if (!tracked) {
+            return length == Long.SIZE ? -1L : (1L << length) - 1;
+        }
+
+        return space.occupancy(x, y, z, Direction.SOUTH, length, classes);
+    }
+
+    //classes of positions that need to be inspected; full solids can sometimes be skipped, empty ones always can be
+    private static int occupiedClasses(boolean skipFull) {
+        return skipFull ? Space.PARTIAL | Space.UNLOADED : Space.FULL | Space.PARTIAL | Space.UNLOADED;
+    }
+
+    private double checkDownwardLayer(Space space, int startX, int endX, int startZ, int endZ, int by, int i, double x,
+            double y, double z) {
         double highestY = Double.NEGATIVE_INFINITY;
 
+        //cached results can only be used when the agent is centered in its block
+        int nodeX = (int) Math.floor(x);
+        int nodeZ = (int) Math.floor(z);
+        boolean centered = x - nodeX == 0.5 && z - nodeZ == 0.5;
+
+        int classes = occupiedClasses(i == -1);
+        boolean tracked = space.tracksOccupancy();
+
         for (int bx = startX; bx <= endX; bx++) {
-            for (int bz = startZ; bz <= endZ; bz++) {
-                Solid solid = space.solidAt(bx, by, bz);
-                if (solid == null) {
-                    return Double.NEGATIVE_INFINITY;
-                }
+            for (int sz = startZ; sz <= endZ; sz += Long.SIZE) {
+                long column = candidates(space, tracked, bx, by, sz, Math.min(Long.SIZE, endZ - sz + 1),
+                        classes);
 
-                if (solid.isEmpty() || (i == -1 && solid.isFull())) {
-                    continue;
-                }
+                while (column != 0) {
+                    int bz = sz + Long.numberOfTrailingZeros(column);
+                    column &= column - 1;
 
-                if (solid.isFull()) {
-                    return 1;
-                }
+                    Solid solid = space.solidAt(bx, by, bz);
+                    if (solid == null) {
+                        return Double.NEGATIVE_INFINITY;
+                    }
 
-                Bounds3D bounds =
-                        solid.closestCollision(bx, by, bz, x, y, z, width, height, width, Direction.DOWN,
-                                fallSearchHeight, epsilon);
-                if (bounds != null) {
-                    double height = bounds.maxY();
-                    if (height == 1) {
+                    if (solid.isEmpty() || (i == -1 && solid.isFull())) {
+                        continue;
+                    }
+
+                    if (solid.isFull()) {
                         return 1;
                     }
 
-                    if (height > highestY) {
-                        highestY = height;
+                    //the cached result only tells us if there is a collision, the exact bounds are still needed
+                    if (centered && fallProfile.minMaxCollision(solid, bx, by, bz, nodeX, y, nodeZ, Direction.DOWN) ==
+                            Solid.NO_COLLISION) {
+                        continue;
+                    }
+
+                    Bounds3D bounds =
+                            solid.closestCollision(bx, by, bz, x, y, z, width, height, width, Direction.DOWN,
+                                    fallSearchHeight, epsilon);
+                    if (bounds != null) {
+                        double height = bounds.maxY();
+                        if (height == 1) {
+                            return 1;
+                        }
+
+                        if (height > highestY) {
+                            highestY = height;
+                        }
                     }
                 }
             }
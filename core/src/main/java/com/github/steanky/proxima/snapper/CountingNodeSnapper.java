@@ -0,0 +1,70 @@
+package com.github.steanky.proxima.snapper;
+
+import com.github.steanky.proxima.Direction;
+import com.github.steanky.proxima.space.Space;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * A {@link NodeSnapper} that counts the snaps made through it, separately for each thread, and otherwise behaves
+ * exactly like the snapper it wraps. Counting is confined to the calling thread, so it doesn't contend with snaps made
+ * by other threads.
+ */
+public class CountingNodeSnapper implements NodeSnapper {
+    private final NodeSnapper snapper;
+    private final ThreadLocal<long[]> counts;
+
+    public CountingNodeSnapper(@NotNull NodeSnapper snapper) {
+        this.snapper = Objects.requireNonNull(snapper);
+        this.counts = ThreadLocal.withInitial(() -> new long[1]);
+    }
+
+    /**
+     * The number of snaps made through this snapper by the calling thread, over its lifetime. Each direction snapped
+     * in by {@link NodeSnapper#snapAll(Direction[], int, int, int, int, float, long[])} counts separately.
+     *
+     * @return the number of snaps made by the calling thread
+     */
+    public long count() {
+        return counts.get()[0];
+    }
+
+    @Override
+    public long snap(@NotNull Direction direction, int nodeX, int nodeY, int nodeZ, float nodeOffset) {
+        counts.get()[0]++;
+        return snapper.snap(direction, nodeX, nodeY, nodeZ, nodeOffset);
+    }
+
+    @Override
+    public void snapAll(@NotNull Direction @NotNull [] directions, int count, int nodeX, int nodeY, int nodeZ,
+            float nodeOffset, long @NotNull [] results) {
+        counts.get()[0] += count;
+        snapper.snapAll(directions, count, nodeX, nodeY, nodeZ, nodeOffset, results);
+    }
+
+    @Override
+    public long checkInitial(double x, double y, double z, int tx, int ty, int tz) {
+        return snapper.checkInitial(x, y, z, tx, ty, tz);
+    }
+
+    @Override
+    public boolean checkDiagonal(int x, int y, int z, int tx, int tz, float nodeOffset) {
+        return snapper.checkDiagonal(x, y, z, tx, tz, nodeOffset);
+    }
+
+    @Override
+    public boolean checkLine(int x, int y, int z, int tx, int tz, float nodeOffset) {
+        return snapper.checkLine(x, y, z, tx, tz, nodeOffset);
+    }
+
+    @Override
+    public int freeDistance(@NotNull Direction direction, int nodeX, int nodeY, int nodeZ, int limit) {
+        return snapper.freeDistance(direction, nodeX, nodeY, nodeZ, limit);
+    }
+
+    @Override
+    public @NotNull Space space() {
+        return snapper.space();
+    }
+}
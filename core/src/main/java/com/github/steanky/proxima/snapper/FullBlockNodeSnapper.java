@@ -0,0 +1,258 @@
+package com.github.steanky.proxima.snapper;
+
+import com.github.steanky.proxima.Direction;
+import com.github.steanky.proxima.space.Space;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * A walking {@link NodeSnapper} specialized for spaces that consist (mostly) of full and empty solids. Snaps from
+ * nodes with no offset are answered using only the occupancy of the surrounding positions, without inspecting
+ * individual solids or computing collisions. Whenever a partial solid would need to be considered, or the node has a
+ * non-zero offset, the request is handled by a {@link BasicNodeSnapper} with the same parameters instead; results
+ * are always identical to those of that snapper.
+ * <p>
+ * This is most effective when used with a {@link Space} that can answer
+ * {@link Space#occupancyClasses(int, int, int, Direction, int)} without looking up each solid.
+ */
+public class FullBlockNodeSnapper implements NodeSnapper {
+    //returned by the scans below when they encounter a partial solid
+    private static final long PARTIAL = 0xFFC0_0002L;
+
+    //returned by checkJump when the jump is not obstructed
+    private static final long CLEAR = 0;
+
+    //runs must fit in a single occupancyClasses query
+    private static final int MAX_HALF_BLOCK_WIDTH = (Integer.SIZE / 2) - 1;
+
+    private final BasicNodeSnapper fallback;
+    private final Space space;
+
+    private final double height;
+    private final double fallTolerance;
+    private final double jumpHeight;
+    private final double epsilon;
+
+    private final int searchHeight;
+    private final int fallSearchHeight;
+
+    private final boolean fullWidth;
+    private final int halfBlockWidth;
+
+    //agents wider than a single occupancy run are always handled by the fallback
+    private final boolean supported;
+
+    public FullBlockNodeSnapper(@NotNull Space space, double width, double height, double fallTolerance,
+            double jumpHeight, double epsilon) {
+        //validates all parameters
+        this.fallback = new BasicNodeSnapper(space, width, height, fallTolerance, jumpHeight, epsilon);
+        this.space = Objects.requireNonNull(space);
+
+        this.height = height;
+        this.fallTolerance = fallTolerance;
+        this.jumpHeight = jumpHeight;
+        this.epsilon = epsilon;
+
+        this.searchHeight = (int) Math.ceil(height + jumpHeight);
+        this.fallSearchHeight = (int) Math.ceil(fallTolerance) + 1;
+
+        int rWidth = (int) Math.rint(width);
+        this.fullWidth = width == rWidth && (rWidth & 1) != 0;
+        this.halfBlockWidth = (((int) Math.ceil(width)) | 1) / 2;
+
+        this.supported = halfBlockWidth <= MAX_HALF_BLOCK_WIDTH;
+    }
+
+    @Override
+    public long snap(@NotNull Direction direction, int nodeX, int nodeY, int nodeZ, float nodeOffset) {
+        if (direction.ordinal() > 3) {
+            //can't pathfind straight up or down while walking
+            return FAIL;
+        }
+
+        if (nodeOffset != 0 || !supported) {
+            return fallback.snap(direction, nodeX, nodeY, nodeZ, nodeOffset);
+        }
+
+        long result = snapFull(direction, nodeX, nodeY, nodeZ);
+        return result == PARTIAL ? fallback.snap(direction, nodeX, nodeY, nodeZ, nodeOffset) : result;
+    }
+
+    private long snapFull(Direction direction, int nodeX, int nodeY, int nodeZ) {
+        int dx = direction.x;
+        int dz = direction.z;
+
+        int nx = nodeX + dx;
+        int nz = nodeZ + dz;
+
+        //the front row of each layer runs perpendicular to the direction of travel
+        Direction across = dx == 0 ? Direction.EAST : Direction.SOUTH;
+        int length = (halfBlockWidth << 1) + 1;
+
+        double exactY = nodeY;
+        double newY = Double.NaN;
+        double lastTargetY = exactY;
+
+        for (int i = 0; i < searchHeight; i++) {
+            int y = nodeY + i;
+
+            //bit n of each run corresponds to dh == n - halfBlockWidth
+            long unloaded = 0;
+            long full = 0;
+            for (int j = fullWidth ? 1 : 0; j < 2; j++) {
+                int x = dx == 0 ? nx - halfBlockWidth : nodeX + (dx * halfBlockWidth) + (dx * j);
+                int z = dz == 0 ? nz - halfBlockWidth : nodeZ + (dz * halfBlockWidth) + (dz * j);
+
+                long classes = space.occupancyClasses(x, y, z, across, length);
+                long run = Space.occupied(classes);
+                if (run == 0) {
+                    continue;
+                }
+
+                if (Space.partial(classes) != 0) {
+                    return PARTIAL;
+                }
+
+                long runFull = Space.full(classes);
+
+                //unloaded positions fail at either j, full ones only matter in front of the agent
+                unloaded |= run & ~runFull;
+                if (j == 1) {
+                    full = runFull;
+                }
+            }
+
+            //positions are visited in order of dh, then j: an unloaded solid only fails the snap if it comes first
+            if (unloaded != 0 && Long.numberOfTrailingZeros(unloaded) <= Long.numberOfTrailingZeros(full)) {
+                return FAIL;
+            }
+
+            if (full != 0) {
+                if (y - lastTargetY + epsilon > height) {
+                    newY = lastTargetY;
+                    break;
+                }
+
+                lastTargetY = y + 1;
+
+                //too high to make this jump
+                if (lastTargetY - exactY > jumpHeight + epsilon) {
+                    return FAIL;
+                }
+            } else if ((y + 1) - lastTargetY + epsilon >= height) {
+                newY = lastTargetY;
+                break;
+            }
+        }
+
+        //newY was never assigned, so we can't move this direction
+        if (Double.isNaN(newY)) {
+            return FAIL;
+        }
+
+        if (newY > exactY) {
+            long jump = checkJump(nodeX, nodeZ, exactY, newY);
+            return jump == CLEAR ? NodeSnapper.encode(newY, false, 0) : jump;
+        }
+
+        return checkFall(nx, nz, (int) newY);
+    }
+
+    private long checkJump(int nodeX, int nodeZ, double y, double targetHeight) {
+        double exactStart = y + height;
+        int start = (int) Math.floor(exactStart);
+        int end = (int) Math.floor(targetHeight + height);
+
+        //nothing to collide with if every position is known to be empty
+        if (space.clearance(nodeX, start, nodeZ, halfBlockWidth) > end - start) {
+            return CLEAR;
+        }
+
+        int length = (halfBlockWidth << 1) + 1;
+        int obz = nodeZ - halfBlockWidth;
+
+        for (int by = start; by <= end; by++) {
+            //when the agent's head is partway into this layer, the full solids in it are already being overlapped
+            boolean skipFull = by == start && start != exactStart;
+
+            for (int bx = nodeX - halfBlockWidth; bx <= nodeX + halfBlockWidth; bx++) {
+                long classes = space.occupancyClasses(bx, by, obz, Direction.SOUTH, length);
+                long run = Space.occupied(classes);
+                if (run == 0) {
+                    continue;
+                }
+
+                if (Space.partial(classes) != 0) {
+                    return PARTIAL;
+                }
+
+                long runFull = Space.full(classes);
+
+                if (!skipFull || run != runFull) {
+                    return FAIL;
+                }
+            }
+        }
+
+        return CLEAR;
+    }
+
+    private long checkFall(int nx, int nz, int y) {
+        int length = (halfBlockWidth << 1) + 1;
+        int obz = nz - halfBlockWidth;
+
+        layers:
+        for (int i = 0; i < fallSearchHeight; i++) {
+            int by = y - (i + 1);
+
+            for (int bx = nx - halfBlockWidth; bx <= nx + halfBlockWidth; bx++) {
+                long classes = space.occupancyClasses(bx, by, obz, Direction.SOUTH, length);
+                long run = Space.occupied(classes);
+                if (run == 0) {
+                    continue;
+                }
+
+                if (Space.partial(classes) != 0) {
+                    return PARTIAL;
+                }
+
+                long runFull = Space.full(classes);
+
+                //an unloaded solid ends the search of this layer, unless a full one is found first
+                if (Long.numberOfTrailingZeros(run & ~runFull) < Long.numberOfTrailingZeros(runFull)) {
+                    continue layers;
+                }
+
+                int target = by + 1;
+                if (y - target > fallTolerance) {
+                    return FAIL;
+                }
+
+                return NodeSnapper.encode(target, false, 0);
+            }
+        }
+
+        return FAIL;
+    }
+
+    @Override
+    public long checkInitial(double x, double y, double z, int tx, int ty, int tz) {
+        return fallback.checkInitial(x, y, z, tx, ty, tz);
+    }
+
+    @Override
+    public boolean checkDiagonal(int x, int y, int z, int tx, int tz, float nodeOffset) {
+        return fallback.checkDiagonal(x, y, z, tx, tz, nodeOffset);
+    }
+
+    @Override
+    public boolean checkLine(int x, int y, int z, int tx, int tz, float nodeOffset) {
+        return fallback.checkLine(x, y, z, tx, tz, nodeOffset);
+    }
+
+    @Override
+    public @NotNull Space space() {
+        return space;
+    }
+}
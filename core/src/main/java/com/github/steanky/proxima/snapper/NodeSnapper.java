@@ -43,9 +43,64 @@ public interface NodeSnapper {
 
     long snap(@NotNull Direction direction, int nodeX, int nodeY, int nodeZ, float nodeOffset);
 
+    /**
+     * Snaps in several directions from the same node. Equivalent to calling
+     * {@link NodeSnapper#snap(Direction, int, int, int, float)} for each of the first {@code count} directions, and
+     * storing the results at the same indices in {@code results}. Implementations may use this to avoid reading the
+     * same solids more than once.
+     *
+     * @param directions the directions to snap in
+     * @param count      the number of directions to snap in
+     * @param nodeX      the x-coordinate of the node
+     * @param nodeY      the y-coordinate of the node
+     * @param nodeZ      the z-coordinate of the node
+     * @param nodeOffset the offset of the node
+     * @param results    the array to which results are written
+     */
+    default void snapAll(@NotNull Direction @NotNull [] directions, int count, int nodeX, int nodeY, int nodeZ,
+            float nodeOffset, long @NotNull [] results) {
+        for (int i = 0; i < count; i++) {
+            results[i] = snap(directions[i], nodeX, nodeY, nodeZ, nodeOffset);
+        }
+    }
+
     long checkInitial(double x, double y, double z, int tx, int ty, int tz);
 
     boolean checkDiagonal(int x, int y, int z, int tx, int tz, float nodeOffset);
 
+    /**
+     * Checks if an agent can walk in a straight line from the center of one block to the center of another block at
+     * the same height, without colliding with anything and without any part of it leaving the floor. Used to smooth
+     * paths; the default implementation conservatively returns {@code false}, so paths are never smoothed.
+     *
+     * @param x          the starting x-coordinate
+     * @param y          the y-coordinate
+     * @param z          the starting z-coordinate
+     * @param tx         the target x-coordinate
+     * @param tz         the target z-coordinate
+     * @param nodeOffset the offset of the agent's feet above y
+     * @return true if the line can be walked, false otherwise
+     */
+    default boolean checkLine(int x, int y, int z, int tx, int tz, float nodeOffset) {
+        return false;
+    }
+
+    /**
+     * Determines how far a flying agent can move in a straight line from a node at full height, through positions
+     * that are known to be empty. Moving any distance up to the result in the given direction is equivalent to that
+     * many successful snaps, each of which ends at full height. Used to take long moves through open space; the
+     * default implementation conservatively returns 0, so no such moves are taken.
+     *
+     * @param direction the direction to move in
+     * @param nodeX     the x-coordinate of the node
+     * @param nodeY     the y-coordinate of the node
+     * @param nodeZ     the z-coordinate of the node
+     * @param limit     the largest distance to report, which must be non-negative
+     * @return the distance the agent can move, between 0 and {@code limit} (inclusive)
+     */
+    default int freeDistance(@NotNull Direction direction, int nodeX, int nodeY, int nodeZ, int limit) {
+        return 0;
+    }
+
     @NotNull Space space();
 }
@@ -0,0 +1,454 @@
+package com.github.steanky.proxima.snapper;
+
+import com.github.steanky.proxima.Direction;
+import com.github.steanky.proxima.space.MappedSpace;
+import com.github.steanky.vector.Bounds3I;
+import com.github.steanky.vector.Vec3D;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Precomputed snap results for every node reachable from a set of starting positions, within a region of a world that
+ * never changes. Tables are computed once using
+ * {@link SnapTable#compute(NodeSnapper, Direction[], Bounds3I, long, Vec3D...)}, written to disk, and read back at
+ * startup, which is much faster than snapping again. Use {@link TableNodeSnapper} to answer snaps from a table.
+ * <p>
+ * Alongside snap results, each node is assigned a connectivity label. Nodes with different labels are never connected,
+ * in either direction, by any sequence of snaps within the region of the table (see
+ * {@link SnapTable#mayConnect(int, int, int, int, int, int)}).
+ * <p>
+ * Tables are only valid for the world they were computed from, and for the agent the snapper was created for; callers
+ * should keep a separate table per agent profile. To detect when the world has changed, every table stores the checksum
+ * of the world it was computed from, which is supplied by the caller. For worlds stored in a {@link MappedSpace}, use
+ * {@link MappedSpace#checksum()}, and check tables at startup using {@link SnapTable#isCurrent(MappedSpace)}; this
+ * reads only the header of the file, rather than every solid in the world. As snaps read solids near the nodes they
+ * start from, the region should include the entire world, for example the bounds of the {@link MappedSpace}.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public final class SnapTable {
+    //returned by lookup when a snap is not in the table; heights are never NaN
+    static final long UNKNOWN = 0x7FC0_0000_0000_0000L;
+
+    private static final int MAGIC = 0x50584E56;
+    private static final int VERSION = 2;
+
+    private static final int DIRECTIONS = Direction.values().length;
+
+    //positions are packed into 26 bits for x and z, and 12 bits for y
+    private static final int MAX_HORIZONTAL = 1 << 25;
+    private static final int MAX_VERTICAL = 1 << 11;
+
+    private final long checksum;
+    private final Bounds3I region;
+    private final int directionMask;
+
+    private final Long2IntOpenHashMap indices;
+    private final float[] offsets;
+    private final int[] labels;
+    private final long[] results;
+
+    private SnapTable(long checksum, Bounds3I region, int directionMask, Long2IntOpenHashMap indices, float[] offsets,
+            int[] labels, long[] results) {
+        this.checksum = checksum;
+        this.region = region;
+        this.directionMask = directionMask;
+        this.indices = indices;
+        this.offsets = offsets;
+        this.labels = labels;
+        this.results = results;
+    }
+
+    /**
+     * Computes a table by exploring every node reachable from the given starting positions, snapping in each of the
+     * given directions, much like a {@link com.github.steanky.proxima.explorer.DirectionalExplorer} does. As in
+     * {@link com.github.steanky.proxima.explorer.WalkExplorer}, horizontal snaps lead to the node at the height they
+     * snapped to, while vertical snaps lead to the node directly above or below. Only nodes in the region are
+     * explored. Starting positions whose block can't be stood in are ignored.
+     *
+     * @param snapper    the snapper to compute snaps with
+     * @param directions the directions to snap in
+     * @param region     the region to explore
+     * @param checksum   the checksum of the world the snapper reads from, such as {@link MappedSpace#checksum()}
+     * @param starts     the positions to start exploring from
+     * @return a new table
+     */
+    public static @NotNull SnapTable compute(@NotNull NodeSnapper snapper, @NotNull Direction @NotNull [] directions,
+            @NotNull Bounds3I region, long checksum, @NotNull Vec3D @NotNull ... starts) {
+        Objects.requireNonNull(snapper);
+        Objects.requireNonNull(region);
+        validateRegion(region);
+
+        Direction[] snapDirections = Arrays.copyOf(directions, directions.length);
+        int directionMask = 0;
+        for (Direction direction : snapDirections) {
+            directionMask |= 1 << direction.ordinal();
+        }
+
+        if (Integer.bitCount(directionMask) != snapDirections.length) {
+            throw new IllegalArgumentException("Duplicate directions");
+        }
+
+        Long2IntOpenHashMap indices = new Long2IntOpenHashMap();
+        indices.defaultReturnValue(-1);
+
+        IntArrayList xs = new IntArrayList();
+        IntArrayList ys = new IntArrayList();
+        IntArrayList zs = new IntArrayList();
+        FloatArrayList offsets = new FloatArrayList();
+        IntArrayList parents = new IntArrayList();
+        LongArrayList results = new LongArrayList();
+
+        for (Vec3D start : starts) {
+            int x = (int) Math.floor(start.x());
+            int y = (int) Math.floor(start.y());
+            int z = (int) Math.floor(start.z());
+
+            long result = snapper.checkInitial(start.x(), start.y(), start.z(), x, y, z);
+            if (result == NodeSnapper.FAIL) {
+                continue;
+            }
+
+            int height = NodeSnapper.blockHeight(result);
+            if (contains(region, x, height, z) && indices.get(pack(x, height, z)) == -1) {
+                indices.put(pack(x, height, z), xs.size());
+                xs.add(x);
+                ys.add(height);
+                zs.add(z);
+                offsets.add(NodeSnapper.blockOffset(result));
+                parents.add(parents.size());
+            }
+        }
+
+        long[] snapped = new long[snapDirections.length];
+        for (int node = 0; node < xs.size(); node++) {
+            int x = xs.getInt(node);
+            int y = ys.getInt(node);
+            int z = zs.getInt(node);
+
+            snapper.snapAll(snapDirections, snapDirections.length, x, y, z, offsets.getFloat(node), snapped);
+
+            long[] row = new long[DIRECTIONS];
+            Arrays.fill(row, UNKNOWN);
+            for (int i = 0; i < snapDirections.length; i++) {
+                Direction direction = snapDirections[i];
+                long result = snapped[i];
+                row[direction.ordinal()] = result;
+
+                if (result == NodeSnapper.FAIL) {
+                    continue;
+                }
+
+                int tx = x + direction.x;
+                int ty = direction.y == 0 ? NodeSnapper.blockHeight(result) : y + direction.y;
+                int tz = z + direction.z;
+                if (!contains(region, tx, ty, tz)) {
+                    continue;
+                }
+
+                long key = pack(tx, ty, tz);
+                int target = indices.get(key);
+                if (target == -1) {
+                    target = xs.size();
+                    indices.put(key, target);
+                    xs.add(tx);
+                    ys.add(ty);
+                    zs.add(tz);
+                    offsets.add(NodeSnapper.blockOffset(result));
+                    parents.add(target);
+                }
+
+                union(parents, node, target);
+            }
+
+            results.addElements(results.size(), row);
+        }
+
+        //number components densely, in the order they were first reached
+        int size = xs.size();
+        int[] labels = new int[size];
+        Int2IntOpenHashMap roots = new Int2IntOpenHashMap();
+        for (int node = 0; node < size; node++) {
+            int root = find(parents, node);
+            if (!roots.containsKey(root)) {
+                roots.put(root, roots.size());
+            }
+
+            labels[node] = roots.get(root);
+        }
+
+        return new SnapTable(checksum, immutable(region), directionMask, indices,
+                offsets.toFloatArray(), labels, results.toLongArray());
+    }
+
+    private static int find(IntArrayList parents, int node) {
+        int root = node;
+        while (parents.getInt(root) != root) {
+            root = parents.getInt(root);
+        }
+
+        //path compression
+        while (parents.getInt(node) != root) {
+            int next = parents.getInt(node);
+            parents.set(node, root);
+            node = next;
+        }
+
+        return root;
+    }
+
+    private static void union(IntArrayList parents, int first, int second) {
+        int firstRoot = find(parents, first);
+        int secondRoot = find(parents, second);
+        if (firstRoot != secondRoot) {
+            parents.set(Math.max(firstRoot, secondRoot), Math.min(firstRoot, secondRoot));
+        }
+    }
+
+    /**
+     * Checks if this table was computed from the world stored in the given file, by comparing checksums. This reads
+     * only the header of the file.
+     *
+     * @param space the mapped world to compare with
+     * @return true if the space has the same checksum as the world this table was computed from, false otherwise
+     */
+    public boolean isCurrent(@NotNull MappedSpace space) {
+        return isCurrent(space.checksum());
+    }
+
+    /**
+     * Checks if this table was computed from a world with the given checksum.
+     *
+     * @param checksum the checksum of the current world
+     * @return true if the checksum is the same as the one this table was computed with, false otherwise
+     */
+    public boolean isCurrent(long checksum) {
+        return this.checksum == checksum;
+    }
+
+    /**
+     * The checksum of the world this table was computed from.
+     *
+     * @return the checksum
+     */
+    public long checksum() {
+        return checksum;
+    }
+
+    /**
+     * The region this table was computed over.
+     *
+     * @return the region
+     */
+    public @NotNull Bounds3I region() {
+        return region;
+    }
+
+    /**
+     * The number of nodes in this table.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Checks if there may be a path between two nodes. This returns false only if both nodes are in this table, and
+     * have different connectivity labels. Connectivity is computed without regard to the direction of snaps, so a
+     * return value of true does not mean a path exists.
+     *
+     * @param x  the x-coordinate of the first node
+     * @param y  the y-coordinate of the first node
+     * @param z  the z-coordinate of the first node
+     * @param tx the x-coordinate of the second node
+     * @param ty the y-coordinate of the second node
+     * @param tz the z-coordinate of the second node
+     * @return false if there is definitely no path between the nodes, true otherwise
+     */
+    public boolean mayConnect(int x, int y, int z, int tx, int ty, int tz) {
+        int first = index(x, y, z);
+        int second = index(tx, ty, tz);
+        return first == -1 || second == -1 || labels[first] == labels[second];
+    }
+
+    //the stored snap result, or UNKNOWN if the node, direction or offset doesn't match
+    long lookup(Direction direction, int x, int y, int z, float offset) {
+        if ((directionMask & (1 << direction.ordinal())) == 0) {
+            return UNKNOWN;
+        }
+
+        int index = index(x, y, z);
+        if (index == -1 || Float.floatToRawIntBits(offsets[index]) != Float.floatToRawIntBits(offset)) {
+            return UNKNOWN;
+        }
+
+        return results[index * DIRECTIONS + direction.ordinal()];
+    }
+
+    private int index(int x, int y, int z) {
+        return contains(region, x, y, z) ? indices.get(pack(x, y, z)) : -1;
+    }
+
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FF_FFFF) << 38) | ((long) (z & 0x3FF_FFFF) << 12) | (y & 0xFFF);
+    }
+
+    private static boolean contains(Bounds3I region, int x, int y, int z) {
+        return x >= region.originX() && y >= region.originY() && z >= region.originZ() &&
+                x - region.originX() < region.lengthX() && y - region.originY() < region.lengthY() &&
+                z - region.originZ() < region.lengthZ();
+    }
+
+    private static Bounds3I immutable(Bounds3I region) {
+        return Bounds3I.immutable(region.originX(), region.originY(), region.originZ(), region.lengthX(),
+                region.lengthY(), region.lengthZ());
+    }
+
+    private static void validateRegion(Bounds3I region) {
+        if (region.lengthX() < 0 || region.lengthY() < 0 || region.lengthZ() < 0) {
+            throw new IllegalArgumentException("Invalid region");
+        }
+
+        if (region.originX() < -MAX_HORIZONTAL || (long) region.originX() + region.lengthX() > MAX_HORIZONTAL ||
+                region.originZ() < -MAX_HORIZONTAL || (long) region.originZ() + region.lengthZ() > MAX_HORIZONTAL ||
+                region.originY() < -MAX_VERTICAL || (long) region.originY() + region.lengthY() > MAX_VERTICAL) {
+            throw new IllegalArgumentException("Region too large");
+        }
+    }
+
+    /**
+     * Writes this table to a file, replacing any existing file.
+     *
+     * @param file the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public void write(@NotNull Path file) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(checksum);
+            output.writeInt(region.originX());
+            output.writeInt(region.originY());
+            output.writeInt(region.originZ());
+            output.writeInt(region.lengthX());
+            output.writeInt(region.lengthY());
+            output.writeInt(region.lengthZ());
+            output.writeInt(directionMask);
+
+            int size = offsets.length;
+            int[] positions = new int[size * 3];
+            for (Long2IntMap.Entry entry : indices.long2IntEntrySet()) {
+                long key = entry.getLongKey();
+                int index = entry.getIntValue();
+                positions[index * 3] = (int) (key >> 38);
+                positions[index * 3 + 1] = (int) (key << 52 >> 52);
+                positions[index * 3 + 2] = (int) (key << 26 >> 38);
+            }
+
+            output.writeInt(size);
+            for (int node = 0; node < size; node++) {
+                output.writeInt(positions[node * 3]);
+                output.writeInt(positions[node * 3 + 1]);
+                output.writeInt(positions[node * 3 + 2]);
+                output.writeFloat(offsets[node]);
+                output.writeInt(labels[node]);
+
+                for (int direction = 0; direction < DIRECTIONS; direction++) {
+                    if ((directionMask & (1 << direction)) != 0) {
+                        output.writeLong(results[node * DIRECTIONS + direction]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a table previously written using {@link SnapTable#write(Path)}. The caller should check that the table is
+     * still current using {@link SnapTable#isCurrent(MappedSpace)} or {@link SnapTable#isCurrent(long)}.
+     *
+     * @param file the file to read
+     * @return the table
+     * @throws IOException if the file cannot be read, or is not a valid table
+     */
+    public static @NotNull SnapTable read(@NotNull Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a snap table");
+            }
+
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version: " + version);
+            }
+
+            long checksum = input.readLong();
+            Bounds3I region = Bounds3I.immutable(input.readInt(), input.readInt(), input.readInt(), input.readInt(),
+                    input.readInt(), input.readInt());
+            int directionMask = input.readInt();
+
+            try {
+                validateRegion(region);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt region", e);
+            }
+
+            if ((directionMask & ~((1 << DIRECTIONS) - 1)) != 0) {
+                throw new IOException("Corrupt directions");
+            }
+
+            int size = input.readInt();
+            if (size < 0) {
+                throw new IOException("Corrupt size");
+            }
+
+            Long2IntOpenHashMap indices = new Long2IntOpenHashMap();
+            indices.defaultReturnValue(-1);
+
+            //grown as nodes are read, so a corrupt size can't allocate huge arrays up front
+            FloatArrayList offsets = new FloatArrayList();
+            IntArrayList labels = new IntArrayList();
+            LongArrayList results = new LongArrayList();
+            for (int node = 0; node < size; node++) {
+                int x = input.readInt();
+                int y = input.readInt();
+                int z = input.readInt();
+                if (!contains(region, x, y, z) || indices.put(pack(x, y, z), node) != -1) {
+                    throw new IOException("Corrupt node");
+                }
+
+                offsets.add(input.readFloat());
+                labels.add(input.readInt());
+
+                for (int direction = 0; direction < DIRECTIONS; direction++) {
+                    results.add((directionMask & (1 << direction)) != 0 ? input.readLong() : UNKNOWN);
+                }
+            }
+
+            if (input.read() != -1) {
+                throw new IOException("Trailing data");
+            }
+
+            return new SnapTable(checksum, region, directionMask, indices, offsets.toFloatArray(),
+                    labels.toIntArray(), results.toLongArray());
+        } catch (EOFException e) {
+            throw new IOException("Truncated snap table", e);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.steanky.proxima.snapper;
+
+import com.github.steanky.proxima.Direction;
+import com.github.steanky.proxima.solid.Solid;
+import com.github.steanky.proxima.space.Space;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Space} that remembers every solid it reads from another space, within a fixed box around a node. Used to
+ * share reads between the snaps of a single node expansion. Each buffer is reused for many expansions, and must only
+ * be used by one thread at a time.
+ */
+final class SolidBuffer implements Space {
+    private final int radius;
+    private final int below;
+
+    private final int sizeXZ;
+    private final int sizeY;
+
+    private final Solid[] solids;
+
+    //a position has been read during the current expansion iff its stamp equals epoch
+    private final int[] stamps;
+    private int epoch;
+
+    private Space space;
+    private int originX;
+    private int originY;
+    private int originZ;
+
+    SolidBuffer(int radius, int below, int above) {
+        this.radius = radius;
+        this.below = below;
+
+        this.sizeXZ = radius * 2 + 1;
+        this.sizeY = below + above + 1;
+
+        this.solids = new Solid[sizeXZ * sizeXZ * sizeY];
+        this.stamps = new int[solids.length];
+    }
+
+    void reset(@NotNull Space space, int x, int y, int z) {
+        this.space = space;
+        this.originX = x - radius;
+        this.originY = y - below;
+        this.originZ = z - radius;
+
+        if (++epoch == 0) {
+            //stamps wrapped around, make sure no stale entries look current
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+    }
+
+    void release() {
+        //don't keep the space reachable from a thread-local
+        this.space = null;
+    }
+
+    @Override
+    public @Nullable Solid solidAt(int x, int y, int z) {
+        int rx = x - originX;
+        int ry = y - originY;
+        int rz = z - originZ;
+
+        if (Integer.compareUnsigned(rx, sizeXZ) >= 0 || Integer.compareUnsigned(ry, sizeY) >= 0 ||
+                Integer.compareUnsigned(rz, sizeXZ) >= 0) {
+            return space.solidAt(x, y, z);
+        }
+
+        int index = (ry * sizeXZ + rx) * sizeXZ + rz;
+        if (stamps[index] == epoch) {
+            return solids[index];
+        }
+
+        Solid solid = space.solidAt(x, y, z);
+        solids[index] = solid;
+        stamps[index] = epoch;
+        return solid;
+    }
+
+    @Override
+    public long occupancy(int x, int y, int z, @NotNull Direction direction, int length, int classes) {
+        //already cheap in spaces that support it
+        return space.occupancy(x, y, z, direction, length, classes);
+    }
+
+    @Override
+    public boolean tracksOccupancy() {
+        return space.tracksOccupancy();
+    }
+
+    @Override
+    public int clearance(int x, int y, int z, int radius) {
+        //already cheap in spaces that support it
+        return space.clearance(x, y, z, radius);
+    }
+
+    @Override
+    public boolean isEmpty(int x, int y, int z, int lengthX, int lengthY, int lengthZ) {
+        //already cheap in spaces that support it
+        return space.isEmpty(x, y, z, lengthX, lengthY, lengthZ);
+    }
+}
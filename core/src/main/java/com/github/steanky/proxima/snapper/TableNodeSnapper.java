@@ -0,0 +1,53 @@
+package com.github.steanky.proxima.snapper;
+
+import com.github.steanky.proxima.Direction;
+import com.github.steanky.proxima.space.Space;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * A {@link NodeSnapper} that answers snaps from a precomputed {@link SnapTable}, falling back to another snapper for
+ * snaps that aren't in the table. The fallback should be the same kind of snapper, for the same agent and world, that
+ * the table was computed with; this snapper's results are then always identical to those of the fallback.
+ */
+public class TableNodeSnapper implements NodeSnapper {
+    private final SnapTable table;
+    private final NodeSnapper fallback;
+
+    public TableNodeSnapper(@NotNull SnapTable table, @NotNull NodeSnapper fallback) {
+        this.table = Objects.requireNonNull(table);
+        this.fallback = Objects.requireNonNull(fallback);
+    }
+
+    @Override
+    public long snap(@NotNull Direction direction, int nodeX, int nodeY, int nodeZ, float nodeOffset) {
+        long result = table.lookup(direction, nodeX, nodeY, nodeZ, nodeOffset);
+        return result == SnapTable.UNKNOWN ? fallback.snap(direction, nodeX, nodeY, nodeZ, nodeOffset) : result;
+    }
+
+    @Override
+    public long checkInitial(double x, double y, double z, int tx, int ty, int tz) {
+        return fallback.checkInitial(x, y, z, tx, ty, tz);
+    }
+
+    @Override
+    public boolean checkDiagonal(int x, int y, int z, int tx, int tz, float nodeOffset) {
+        return fallback.checkDiagonal(x, y, z, tx, tz, nodeOffset);
+    }
+
+    @Override
+    public boolean checkLine(int x, int y, int z, int tx, int tz, float nodeOffset) {
+        return fallback.checkLine(x, y, z, tx, tz, nodeOffset);
+    }
+
+    @Override
+    public int freeDistance(@NotNull Direction direction, int nodeX, int nodeY, int nodeZ, int limit) {
+        return fallback.freeDistance(direction, nodeX, nodeY, nodeZ, limit);
+    }
+
+    @Override
+    public @NotNull Space space() {
+        return fallback.space();
+    }
+}
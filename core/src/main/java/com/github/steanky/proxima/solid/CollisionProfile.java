@@ -0,0 +1,159 @@
+package com.github.steanky.proxima.solid;
+
+import com.github.steanky.proxima.Direction;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Memoizes the results of directional collision sweeps for a single agent profile (width, height, sweep length and
+ * epsilon). Results are stored per solid ID, direction, and horizontal position of the solid relative to the block
+ * containing the agent's center, and are packed in the same format as {@link Solid#result(float, float)}.
+ * <p>
+ * A sweep can only be answered from the table when its vertical extent does not distinguish between any of the
+ * solid's children, which makes the result independent of the agent's exact height. For horizontal directions, every
+ * child must lie within the vertical extent of the agent; for vertical directions, every child must additionally lie
+ * outside of the agent's starting bounds. All other sweeps are computed directly and are not cached.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class CollisionProfile {
+    private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int DIRECTIONS = Direction.values().length;
+
+    private final double width;
+    private final double height;
+    private final double length;
+    private final double epsilon;
+
+    private final int radius;
+    private final int size;
+    private final int rowLength;
+
+    //indexed by solid ID, rows are created lazily; entries hold the bitwise complement of the result, so 0 is "unknown"
+    private volatile long[][] rows;
+
+    /**
+     * Creates a new profile.
+     *
+     * @param width   the width (x and z length) of the agent
+     * @param height  the height of the agent
+     * @param length  the distance the agent is swept
+     * @param epsilon the epsilon value used for collision checks
+     */
+    public CollisionProfile(double width, double height, double length, double epsilon) {
+        if (width < 0 || !Double.isFinite(width)) {
+            throw new IllegalArgumentException("Invalid width: " + width);
+        }
+
+        if (height < 0 || !Double.isFinite(height)) {
+            throw new IllegalArgumentException("Invalid height: " + height);
+        }
+
+        if (length < 0 || !Double.isFinite(length)) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+
+        if (epsilon < 0 || !Double.isFinite(epsilon)) {
+            throw new IllegalArgumentException("Invalid epsilon: " + epsilon);
+        }
+
+        this.width = width;
+        this.height = height;
+        this.length = length;
+        this.epsilon = epsilon;
+
+        //blocks further away than this are never queried by the snapper
+        this.radius = (int) Math.ceil(width / 2) + 1;
+        this.size = radius * 2 + 1;
+        this.rowLength = DIRECTIONS * size * size;
+
+        this.rows = new long[Math.max(Solid.registeredCount(), 16)][];
+    }
+
+    /**
+     * Equivalent to calling {@link Solid#minMaxCollision(int, int, int, double, double, double, double, double, double,
+     * Direction, double, double)} on the given solid, with an agent centered horizontally in block ({@code nodeX},
+     * {@code nodeZ}) and using this profile's dimensions, length, and epsilon.
+     *
+     * @param solid the solid to check
+     * @param x     the x-coordinate of the solid
+     * @param y     the y-coordinate of the solid
+     * @param z     the z-coordinate of the solid
+     * @param nodeX the x-coordinate of the block containing the agent
+     * @param cy    the exact y-coordinate of the bottom of the agent
+     * @param nodeZ the z-coordinate of the block containing the agent
+     * @param d     the direction of the sweep
+     * @return the packed collision result
+     */
+    public long minMaxCollision(@NotNull Solid solid, int x, int y, int z, int nodeX, double cy, int nodeZ,
+            @NotNull Direction d) {
+        if (solid.isEmpty()) {
+            return Solid.NO_COLLISION;
+        }
+
+        SolidImpl impl = (SolidImpl) solid;
+        int rx = x - nodeX;
+        int rz = z - nodeZ;
+
+        if (Math.abs(rx) > radius || Math.abs(rz) > radius || !heightIndependent(impl, cy - y, d)) {
+            return Util.minMaxCollision(impl, x, y, z, nodeX + 0.5, cy, nodeZ + 0.5, width, height, width, d, length,
+                    epsilon);
+        }
+
+        long[] row = row(impl.id);
+        int index = (d.ordinal() * size + (rx + radius)) * size + (rz + radius);
+
+        long entry = (long) ENTRIES.getOpaque(row, index);
+        if (entry != 0) {
+            return ~entry;
+        }
+
+        //compute relative to the agent's block, so the cached value doesn't depend on which caller computed it first
+        long result = Util.minMaxCollision(impl, rx, 0, rz, 0.5, cy - y, 0.5, width, height, width, d, length,
+                epsilon);
+        ENTRIES.setOpaque(row, index, ~result);
+        return result;
+    }
+
+    private boolean heightIndependent(SolidImpl solid, double r, Direction d) {
+        double dy = d.y * length;
+
+        //the swept bounds must vertically overlap every child
+        if (!(solid.highestBottom < r + Math.max(0, dy) + height - epsilon &&
+                solid.lowestTop > r + Math.min(0, dy) + epsilon)) {
+            return false;
+        }
+
+        if (dy == 0) {
+            return true;
+        }
+
+        //the starting bounds must not vertically overlap any child
+        return solid.highestTop <= r + epsilon || solid.lowestBottom >= r + height - epsilon;
+    }
+
+    private long[] row(int id) {
+        long[][] rows = this.rows;
+        if (id >= rows.length) {
+            synchronized (this) {
+                rows = this.rows;
+                if (id >= rows.length) {
+                    rows = Arrays.copyOf(rows, Math.max(rows.length << 1, id + 1));
+                    this.rows = rows;
+                }
+            }
+        }
+
+        long[] row = rows[id];
+        if (row == null) {
+            //racing threads may each create a row, in which case some cached values are lost and later recomputed
+            row = new long[rowLength];
+            rows[id] = row;
+        }
+
+        return row;
+    }
+}
@@ -16,19 +16,25 @@ import java.util.List;
  * the bounds of the solid may possess an origin vector with a component less than 0, <i>or</i> a bound in which the
  * sum of the origin and lengths vector exceeds 1. Attempting to create such solids will throw a
  * {@link IllegalArgumentException}.
+ * <p>
+ * Solids are interned: any two solids with equal bounds (in the same order) are the same instance. Each distinct
+ * solid has a small, non-negative integer ID (see {@link Solid#id()}) which can be used in place of a reference, and
+ * converted back using {@link Solid#byId(int)}. IDs are assigned sequentially and are never reused. Solids are never
+ * evicted, so at most {@link Short#MAX_VALUE} + 1 distinct solids may exist, and their IDs can always be stored as
+ * shorts; creating a new solid beyond that limit throws an {@link IllegalStateException}.
  */
 public sealed interface Solid permits SolidImpl {
     /**
      * The shared, empty Solid. It is encouraged to call {@link Solid#isEmpty()}, rather than doing a reference
-     * comparison with this field, as it is not guaranteed to be singleton.
+     * comparison with this field. Its ID is always 0.
      */
-    Solid EMPTY = new SolidImpl();
+    Solid EMPTY = SolidRegistry.of();
 
     /**
      * The shared, full Solid. It is encouraged to call {@link Solid#isFull()}, rather than doing a reference comparison
-     * with this field, as it is not guaranteed to be singleton.
+     * with this field. Its ID is always 1.
      */
-    Solid FULL = new SolidImpl(Bounds3D.immutable(0, 0, 0, 1, 1, 1));
+    Solid FULL = SolidRegistry.of(Bounds3D.immutable(0, 0, 0, 1, 1, 1));
 
     /**
      * Returned by {@link Solid#minMaxCollision(int, int, int, double, double, double, double, double, double,
@@ -73,11 +79,11 @@ public sealed interface Solid permits SolidImpl {
             return FULL;
         }
 
-        return new SolidImpl(bounds);
+        return SolidRegistry.of(bounds);
     }
 
     static @NotNull Solid of(@NotNull Bounds3D first, @NotNull Bounds3D second) {
-        return new SolidImpl(first, second);
+        return SolidRegistry.of(first, second);
     }
 
     static @NotNull Solid of(@NotNull Bounds3D @NotNull ... bounds) {
@@ -93,9 +99,36 @@ public sealed interface Solid permits SolidImpl {
             return of(bounds[0], bounds[1]);
         }
 
-        return new SolidImpl(bounds);
+        return SolidRegistry.of(bounds);
+    }
+
+    /**
+     * Returns the canonical solid with the given ID.
+     *
+     * @param id the ID of the solid
+     * @return the solid with the given ID
+     * @throws IllegalArgumentException if no solid has the given ID
+     */
+    static @NotNull Solid byId(int id) {
+        return SolidRegistry.get(id);
+    }
+
+    /**
+     * Returns the number of distinct solids that currently exist. All IDs are less than this value.
+     *
+     * @return the number of distinct solids
+     */
+    static int registeredCount() {
+        return SolidRegistry.size();
     }
 
+    /**
+     * The unique ID of this solid. Two solids are equal if and only if their IDs are equal.
+     *
+     * @return the ID of this solid
+     */
+    int id();
+
     Bounds3D bounds();
 
     boolean isFull();
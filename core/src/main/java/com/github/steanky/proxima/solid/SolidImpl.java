@@ -1,7 +1,6 @@
 package com.github.steanky.proxima.solid;
 
 import com.github.steanky.proxima.Direction;
-import com.github.steanky.toolkit.collection.Containers;
 import com.github.steanky.vector.Bounds3D;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -12,47 +11,74 @@ import java.util.List;
 final class SolidImpl implements Solid {
     private final Bounds3D bounds;
     private final List<Bounds3D> boundsList;
-    private final boolean isFull;
-    private final boolean isEmpty;
 
-    SolidImpl() {
-        this.bounds = null;
-        this.boundsList = List.of();
-        this.isFull = false;
-        this.isEmpty = true;
-    }
+    /*
+    origin and max coordinates of each child, stored contiguously for fast iteration by collision routines:
+    originX, originY, originZ, maxX, maxY, maxZ
+     */
+    final double[] boxes;
 
-    SolidImpl(@NotNull Bounds3D first) {
-        this.bounds = validate(first.immutable());
-        this.boundsList = List.of(this.bounds);
-        this.isFull = this.bounds.volume() == 1;
-        this.isEmpty = false;
-    }
+    //vertical extremes of the children, used to determine when a sweep's vertical extent covers every child
+    final double lowestBottom;
+    final double highestBottom;
+    final double lowestTop;
+    final double highestTop;
 
-    SolidImpl(@NotNull Bounds3D first, @NotNull Bounds3D second) {
-        Bounds3D firstImmutable = first.immutable();
-        Bounds3D secondImmutable = second.immutable();
+    private final boolean isFull;
+    private final boolean isEmpty;
 
-        this.bounds = validate(Bounds3D.enclosingImmutable(firstImmutable, secondImmutable));
-        this.boundsList = List.of(firstImmutable, secondImmutable);
-        this.isFull = false;
-        this.isEmpty = false;
-    }
+    final int id;
+
+    //only called by SolidRegistry, once it knows no solid with the same children exists
+    SolidImpl(@NotNull @Unmodifiable List<Bounds3D> children, int id) {
+        this.boundsList = children;
+        this.id = id;
+
+        if (children.isEmpty()) {
+            this.bounds = null;
+            this.isFull = false;
+            this.isEmpty = true;
+        } else if (children.size() == 1) {
+            this.bounds = validate(children.get(0));
+            this.isFull = this.bounds.volume() == 1;
+            this.isEmpty = false;
+        } else {
+            this.bounds = validate(Bounds3D.enclosingImmutable(children.toArray(Bounds3D[]::new)));
+            this.isFull = false;
+            this.isEmpty = false;
+        }
 
-    SolidImpl(@NotNull Bounds3D @NotNull [] bounds) {
-        if (bounds.length == 0) {
-            throw new IllegalArgumentException("Cannot construct solid with no bounds");
+        this.boxes = flatten(children);
+        this.lowestBottom = extreme(boxes, 1, false);
+        this.highestBottom = extreme(boxes, 1, true);
+        this.lowestTop = extreme(boxes, 4, false);
+        this.highestTop = extreme(boxes, 4, true);
+    }
+
+    private static double[] flatten(List<Bounds3D> boundsList) {
+        double[] boxes = new double[boundsList.size() * Util.BOX_SIZE];
+
+        int i = 0;
+        for (Bounds3D bounds : boundsList) {
+            boxes[i] = bounds.originX();
+            boxes[i + 1] = bounds.originY();
+            boxes[i + 2] = bounds.originZ();
+            boxes[i + 3] = bounds.maxX();
+            boxes[i + 4] = bounds.maxY();
+            boxes[i + 5] = bounds.maxZ();
+            i += Util.BOX_SIZE;
         }
 
-        Bounds3D[] newArray = new Bounds3D[bounds.length];
-        for (int i = 0; i < newArray.length; i++) {
-            newArray[i] = bounds[i].immutable();
+        return boxes;
+    }
+
+    private static double extreme(double[] boxes, int offset, boolean max) {
+        double extreme = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (int i = offset; i < boxes.length; i += Util.BOX_SIZE) {
+            extreme = max ? Math.max(extreme, boxes[i]) : Math.min(extreme, boxes[i]);
         }
 
-        this.bounds = validate(Bounds3D.enclosingImmutable(newArray));
-        this.boundsList = Containers.arrayView(newArray);
-        this.isFull = false;
-        this.isEmpty = false;
+        return extreme;
     }
 
     private static Bounds3D validate(Bounds3D bounds) {
@@ -65,6 +91,11 @@ final class SolidImpl implements Solid {
         return bounds;
     }
 
+    @Override
+    public int id() {
+        return id;
+    }
+
     @Override
     public Bounds3D bounds() {
         return bounds;
@@ -112,7 +143,7 @@ final class SolidImpl implements Solid {
 
     @Override
     public int hashCode() {
-        return boundsList.hashCode();
+        return id;
     }
 
     @Override
@@ -125,8 +156,9 @@ final class SolidImpl implements Solid {
             return false;
         }
 
+        //all instances are interned, so equal solids share an ID
         if (obj instanceof SolidImpl solid) {
-            return solid.boundsList.equals(this.boundsList);
+            return solid.id == id;
         }
 
         return false;
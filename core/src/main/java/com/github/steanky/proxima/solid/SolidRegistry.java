@@ -0,0 +1,93 @@
+package com.github.steanky.proxima.solid;
+
+import com.github.steanky.vector.Bounds3D;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global registry of canonical {@link SolidImpl} instances. Solids are only ever constructed here, after checking that
+ * no solid with the same children exists, and are assigned a small, unique, non-negative integer ID. IDs are assigned
+ * sequentially starting from 0, are never reused, and never exceed {@link SolidRegistry#MAX_ID}. Not part of the public
+ * API.
+ */
+final class SolidRegistry {
+    //solids are never evicted, so the number of IDs is bounded to let them be stored as shorts
+    static final int MAX_ID = Short.MAX_VALUE;
+
+    private static final Object LOCK = new Object();
+    private static final Map<List<Bounds3D>, SolidImpl> SHAPES = new ConcurrentHashMap<>();
+
+    //always re-assigned after writing an element, to publish the element to readers
+    private static volatile SolidImpl[] byId = new SolidImpl[64];
+    private static int size;
+
+    private SolidRegistry() {
+        throw new UnsupportedOperationException();
+    }
+
+    static @NotNull SolidImpl of(@NotNull Bounds3D @NotNull ... bounds) {
+        Bounds3D[] children = new Bounds3D[bounds.length];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = bounds[i].immutable();
+        }
+
+        List<Bounds3D> key = List.of(children);
+
+        //the common case: the solid already exists, so don't construct anything
+        SolidImpl existing = SHAPES.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        synchronized (LOCK) {
+            existing = SHAPES.get(key);
+            if (existing != null) {
+                return existing;
+            }
+
+            int id = size;
+            if (id > MAX_ID) {
+                throw new IllegalStateException("Too many distinct solids; at most " + (MAX_ID + 1) + " may exist");
+            }
+
+            //may throw if the bounds are invalid, in which case nothing is registered
+            SolidImpl solid = new SolidImpl(key, id);
+
+            SolidImpl[] array = byId;
+            if (id == array.length) {
+                array = Arrays.copyOf(array, array.length << 1);
+            }
+
+            array[id] = solid;
+            size = id + 1;
+
+            byId = array;
+            SHAPES.put(key, solid);
+            return solid;
+        }
+    }
+
+    static @NotNull SolidImpl get(int id) {
+        SolidImpl[] array = byId;
+        if (id < 0 || id >= array.length) {
+            throw new IllegalArgumentException("Unknown solid ID " + id);
+        }
+
+        SolidImpl solid = array[id];
+        if (solid == null) {
+            throw new IllegalArgumentException("Unknown solid ID " + id);
+        }
+
+        return solid;
+    }
+
+    static int size() {
+        synchronized (LOCK) {
+            return size;
+        }
+    }
+}
@@ -7,6 +7,11 @@ import com.github.steanky.vector.Bounds3D;
  * Default collision checking utilities. Not part of the public API.
  */
 final class Util {
+    /**
+     * The number of doubles used to represent a single child in {@link SolidImpl#boxes}.
+     */
+    static final int BOX_SIZE = 6;
+
     static Bounds3D closestCollision(Solid solid, int x, int y, int z, double cx, double cy, double cz, double lx, double ly, double lz, Direction d, double l, double e) {
         //fast directional expansion algorithm
         double adx = Math.abs(d.x);
@@ -42,21 +47,22 @@ final class Util {
         double mz = cz - (lz / 2) + lz - e;
 
         double closestDiff = Double.POSITIVE_INFINITY;
-        Bounds3D closest = null;
+        int closest = -1;
 
-        for (Bounds3D child : solid.children()) {
-            if (!overlaps(child, x, y, z, eaox, eaoy, eaoz, amx, amy, amz) || overlaps(child, x, y, z, eox, eoy, eoz, mx, my, mz)) {
+        double[] boxes = boxes(solid);
+        for (int i = 0; i < boxes.length; i += BOX_SIZE) {
+            if (!overlaps(boxes, i, x, y, z, eaox, eaoy, eaoz, amx, amy, amz) || overlaps(boxes, i, x, y, z, eox, eoy, eoz, mx, my, mz)) {
                 continue;
             }
 
-            double diff = computeDiff(d, child, eox, eoy, eoz, mx, my, mz, adx, ady, adz);
+            double diff = computeDiff(d, boxes, i, eox, eoy, eoz, mx, my, mz, adx, ady, adz);
             if (diff < closestDiff) {
                 closestDiff = diff;
-                closest = child;
+                closest = i;
             }
         }
 
-        return closest;
+        return closest == -1 ? null : solid.children().get(closest / BOX_SIZE);
     }
 
     static long minMaxCollision(Solid solid, int x, int y, int z, double cx, double cy, double cz, double lx, double ly, double lz, Direction d, double l, double e) {
@@ -91,13 +97,14 @@ final class Util {
         float lowest = Float.POSITIVE_INFINITY;
         float highest = Float.NEGATIVE_INFINITY;
 
-        for (Bounds3D child : solid.children()) {
-            if (!overlaps(child, x, y, z, eaox, eaoy, eaoz, amx, amy, amz) || overlaps(child, x, y, z, eox, eoy, eoz, mx, my, mz)) {
+        double[] boxes = boxes(solid);
+        for (int i = 0; i < boxes.length; i += BOX_SIZE) {
+            if (!overlaps(boxes, i, x, y, z, eaox, eaoy, eaoz, amx, amy, amz) || overlaps(boxes, i, x, y, z, eox, eoy, eoz, mx, my, mz)) {
                 continue;
             }
 
-            float low = (float) child.originY();
-            float high = (float) child.maxY();
+            float low = (float) boxes[i + 1];
+            float high = (float) boxes[i + 4];
 
             if (low < lowest) {
                 lowest = low;
@@ -140,8 +147,9 @@ final class Util {
         double my = cy + ly - e;
         double mz = cz - (lz / 2) + lz - e;
 
-        for (Bounds3D child : solid.children()) {
-            if (!overlaps(child, x, y, z, eaox, eaoy, eaoz, amx, amy, amz) || overlaps(child, x, y, z, eox, eoy, eoz, mx, my, mz)) {
+        double[] boxes = boxes(solid);
+        for (int i = 0; i < boxes.length; i += BOX_SIZE) {
+            if (!overlaps(boxes, i, x, y, z, eaox, eaoy, eaoz, amx, amy, amz) || overlaps(boxes, i, x, y, z, eox, eoy, eoz, mx, my, mz)) {
                 continue;
             }
 
@@ -180,12 +188,13 @@ final class Util {
         double exmy = Math.min(0, dy) + ady + my;
         double exmz = Math.min(0, dz) + adz + mz;
 
-        for (Bounds3D child : solid.children()) {
-            if (overlaps(child, x, y, z, eox, eoy, eoz, mx, my, mz) || !overlaps(child, x, y, z, exox, exoy, exoz, exmx, exmy, exmz)) {
+        double[] boxes = boxes(solid);
+        for (int i = 0; i < boxes.length; i += BOX_SIZE) {
+            if (overlaps(boxes, i, x, y, z, eox, eoy, eoz, mx, my, mz) || !overlaps(boxes, i, x, y, z, exox, exoy, exoz, exmx, exmy, exmz)) {
                 continue;
             }
 
-            if (checkBounds(x, y, z, child, cx, cy + (ly / 2), cz, adjustedXZ, adjustedXY, adjustedYZ, dx, dy, dz)) {
+            if (checkBounds(x, y, z, boxes, i, cx, cy + (ly / 2), cz, adjustedXZ, adjustedXY, adjustedYZ, dx, dy, dz)) {
                 return true;
             }
         }
@@ -225,17 +234,18 @@ final class Util {
         float lowest = Float.POSITIVE_INFINITY;
         float highest = Float.NEGATIVE_INFINITY;
 
-        for (Bounds3D child : solid.children()) {
-            if (overlaps(child, x, y, z, eox, eoy, eoz, mx, my, mz) || !overlaps(child, x, y, z, exox, exoy, exoz, exmx, exmy, exmz)) {
+        double[] boxes = boxes(solid);
+        for (int i = 0; i < boxes.length; i += BOX_SIZE) {
+            if (overlaps(boxes, i, x, y, z, eox, eoy, eoz, mx, my, mz) || !overlaps(boxes, i, x, y, z, exox, exoy, exoz, exmx, exmy, exmz)) {
                 continue;
             }
 
-            if (!checkBounds(x, y, z, child, cx, cy + (ly / 2), cz, adjustedXZ, adjustedXY, adjustedYZ, dx, dy, dz)) {
+            if (!checkBounds(x, y, z, boxes, i, cx, cy + (ly / 2), cz, adjustedXZ, adjustedXY, adjustedYZ, dx, dy, dz)) {
                 continue;
             }
 
-            float low = (float) child.originY();
-            float high = (float) child.maxY();
+            float low = (float) boxes[i + 1];
+            float high = (float) boxes[i + 4];
 
             if (low < lowest) {
                 lowest = low;
@@ -249,14 +259,14 @@ final class Util {
         return Solid.result(lowest, highest);
     }
 
-    private static boolean checkBounds(int x, int y, int z, Bounds3D component, double cx, double cy, double cz, double adjustedXZ, double adjustedXY, double adjustedYZ, double dX, double dY, double dZ) {
-        double minX = x + component.originX() - cx;
-        double minY = y + component.originY() - cy;
-        double minZ = z + component.originZ() - cz;
+    private static boolean checkBounds(int x, int y, int z, double[] boxes, int i, double cx, double cy, double cz, double adjustedXZ, double adjustedXY, double adjustedYZ, double dX, double dY, double dZ) {
+        double minX = x + boxes[i] - cx;
+        double minY = y + boxes[i + 1] - cy;
+        double minZ = z + boxes[i + 2] - cz;
 
-        double maxX = x + component.maxX() - cx;
-        double maxY = y + component.maxY() - cy;
-        double maxZ = z + component.maxZ() - cz;
+        double maxX = x + boxes[i + 3] - cx;
+        double maxY = y + boxes[i + 4] - cy;
+        double maxZ = z + boxes[i + 5] - cz;
 
         return checkAxis(adjustedXZ, dX, dZ, minX, minZ, maxX, maxZ) &&
                 checkAxis(adjustedXY, dX, dY, minX, minY, maxX, maxY) &&
@@ -286,14 +296,23 @@ final class Util {
         return (maxB * dA) - (maxA * dB) > -size; // ... && !minInSecond
     }
 
-    private static double computeDiff(Direction d, Bounds3D child, double ox, double oy, double oz, double mx, double my, double mz, double adx, double ady, double adz) {
-        return ((d.x < 0 ? ox - child.maxX() : child.maxX() - mx) * adx) +
-                ((d.y < 0 ? oy - child.maxY() : child.maxY() - my) * ady) +
-                ((d.z < 0 ? oz - child.maxZ() : child.maxZ() - mz) * adz);
+    private static double computeDiff(Direction d, double[] boxes, int i, double ox, double oy, double oz, double mx, double my, double mz, double adx, double ady, double adz) {
+        double maxX = boxes[i + 3];
+        double maxY = boxes[i + 4];
+        double maxZ = boxes[i + 5];
+
+        return ((d.x < 0 ? ox - maxX : maxX - mx) * adx) +
+                ((d.y < 0 ? oy - maxY : maxY - my) * ady) +
+                ((d.z < 0 ? oz - maxZ : maxZ - mz) * adz);
+    }
+
+    private static boolean overlaps(double[] boxes, int i, int x, int y, int z, double ox, double oy, double oz, double mx, double my, double mz) {
+        return boxes[i] + x < mx && boxes[i + 1] + y < my && boxes[i + 2] + z < mz && ox < boxes[i + 3] + x &&
+                oy < boxes[i + 4] + y && oz < boxes[i + 5] + z;
     }
 
-    private static boolean overlaps(Bounds3D bounds, int x, int y, int z, double ox, double oy, double oz, double mx, double my, double mz) {
-        return bounds.originX() + x < mx && bounds.originY() + y < my && bounds.originZ() + z < mz && ox < bounds.maxX() + x &&
-                oy < bounds.maxY() + y && oz < bounds.maxZ() + z;
+    private static double[] boxes(Solid solid) {
+        //Solid is sealed, SolidImpl is the only implementation
+        return ((SolidImpl) solid).boxes;
     }
 }
\ No newline at end of file
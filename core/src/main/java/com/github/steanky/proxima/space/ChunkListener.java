@@ -0,0 +1,23 @@
+package com.github.steanky.proxima.space;
+
+/**
+ * Receives notifications when the solids cached by a {@link ConcurrentCachingSpace} change. Listeners are called on
+ * the thread that made the change, after it has been applied, and must be thread-safe.
+ *
+ * @see ConcurrentCachingSpace#addListener(ChunkListener)
+ */
+public interface ChunkListener {
+    /**
+     * Called after solids in a single chunk may have changed. Updates that leave every solid in the chunk as it was
+     * are not reported.
+     *
+     * @param x the x-coordinate (chunk)
+     * @param z the z-coordinate (chunk)
+     */
+    void chunkChanged(int x, int z);
+
+    /**
+     * Called after every chunk may have changed at once, for example when the cache is cleared.
+     */
+    void allChanged();
+}
@@ -1,9 +1,14 @@
 package com.github.steanky.proxima.space;
 
+import com.github.steanky.proxima.Direction;
 import com.github.steanky.proxima.solid.Solid;
 import com.github.steanky.vector.Vec3I;
+import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntRBTreeMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
@@ -11,6 +16,13 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.VisibleForTesting;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.StampedLock;
 
 /**
@@ -23,17 +35,84 @@ import java.util.concurrent.locks.StampedLock;
  * utilize algorithms like this; it may be slow to read from, or the data may be synchronized in such a way that
  * concurrent reads are not possible. Solids returned from this method are cached in a parallelism-friendly data
  * structure that allows as much concurrent access as possible.
+ * <p>
+ * Chunks are found through a directory that is split into independently locked stripes, so that creating or removing a
+ * chunk only blocks access to the chunks that share its stripe.
+ * <p>
+ * Alongside the cached solids, each chunk tracks the occupancy class (see {@link Space#classify(Solid)}) of every
+ * cached position using per-section bitsets. This allows
+ * {@link ConcurrentCachingSpace#occupancy(int, int, int, Direction, int, int)} to classify runs of positions along the
+ * z-axis using a few word operations, only falling back to loading solids for positions that have not been cached.
+ * <p>
+ * Chunks also maintain a headroom map, which is updated incrementally whenever a position becomes empty or stops being
+ * empty, and is shared by agents of every size. It is used to answer
+ * {@link ConcurrentCachingSpace#clearance(int, int, int, int)} without inspecting any solids.
+ * <p>
+ * Optionally, chunks whose solids could not be loaded may be remembered for a short time, so that repeated reads near
+ * the edge of the loaded world do not each call {@link ConcurrentCachingSpace#loadSolid(int, int, int)}. See
+ * {@link ConcurrentCachingSpace#ConcurrentCachingSpace(int, long, TimeUnit)}.
+ * <p>
+ * Every chunk has a version, which increases whenever its solids are changed through this class (but not when solids
+ * are merely loaded into the cache). Consumers that derive data from a chunk can remember its version and compare it
+ * later to find out if their data may be stale, or register a {@link ChunkListener} to be notified of changes.
+ * <p>
+ * Versions also serve as epochs for {@link Snapshot}s, which let long-running readers see cached solids as they were
+ * when the snapshot was taken. While snapshots are open, writers keep the solids they replace (and chunks they remove)
+ * around for as long as any snapshot could need them; they never wait for snapshots to be closed.
  */
-public abstract class ConcurrentCachingSpace implements Space {
-    private final StampedLock lock;
-    private final Long2ObjectOpenHashMap<Chunk> cache;
+public abstract class ConcurrentCachingSpace implements SnapshotSpace, PrefetchingSpace {
+    //number of independently locked parts of the chunk directory, must be a power of 2
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes;
+
+    //the chunk most recently read by each thread, and the snapshot it has pinned, if any
+    private final ThreadLocal<ThreadState> threadState;
 
     private final int minimumY;
 
-    public ConcurrentCachingSpace(int minimumY) {
-        this.lock = new StampedLock();
-        this.cache = new Long2ObjectOpenHashMap<>();
+    //source of chunk versions, so versions never decrease, even across chunk removal
+    private final Epochs epochs;
+
+    private final List<ChunkListener> listeners;
+
+    //how long, in nanoseconds, a chunk is considered unloaded after failing to load; 0 if unloaded chunks aren't cached
+    private final long unloadedLifetime;
+
+    //deadlines of unloaded chunks are relative to this, so they are always positive
+    private final long epoch;
+
+    /**
+     * Creates a new instance which remembers chunks that could not be loaded. After
+     * {@link ConcurrentCachingSpace#loadSolid(int, int, int)} returns null for any position, the entire chunk
+     * containing it is considered unloaded: reads of uncached positions in that chunk will return null without calling
+     * {@code loadSolid}, until the given lifetime elapses or {@link ConcurrentCachingSpace#chunkLoaded(int, int)} is
+     * called for the chunk.
+     *
+     * @param minimumY         the smallest y-coordinate that will be cached
+     * @param unloadedLifetime how long to consider a chunk unloaded; if 0, unloaded chunks are not remembered
+     * @param unit             the unit of unloadedLifetime
+     */
+    public ConcurrentCachingSpace(int minimumY, long unloadedLifetime, @NotNull TimeUnit unit) {
+        if (unloadedLifetime < 0) {
+            throw new IllegalArgumentException("Invalid unloadedLifetime: " + unloadedLifetime);
+        }
+
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        this.threadState = ThreadLocal.withInitial(ThreadState::new);
         this.minimumY = minimumY;
+        this.epochs = new Epochs();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.unloadedLifetime = Objects.requireNonNull(unit).toNanos(unloadedLifetime);
+        this.epoch = System.nanoTime();
+    }
+
+    public ConcurrentCachingSpace(int minimumY) {
+        this(minimumY, 0, TimeUnit.NANOSECONDS);
     }
 
     public ConcurrentCachingSpace() {
@@ -42,28 +121,38 @@ public abstract class ConcurrentCachingSpace implements Space {
 
     @VisibleForTesting
     boolean validCacheState() {
-        long cacheRead = lock.readLock();
-        try {
-            for (Chunk chunk : cache.values()) {
-                long chunkRead = chunk.lock.readLock();
-                try {
-                    if (chunk.removed) {
-                        return false;
+        for (Stripe stripe : stripes) {
+            long cacheRead = stripe.lock.readLock();
+            try {
+                for (Chunk chunk : stripe.cache.values()) {
+                    long chunkRead = chunk.lock.readLock();
+                    try {
+                        if (chunk.removed) {
+                            return false;
+                        }
+                    }
+                    finally {
+                        chunk.lock.unlockRead(chunkRead);
                     }
-                }
-                finally {
-                    chunk.lock.unlockRead(chunkRead);
                 }
             }
-        }
-        finally {
-            lock.unlockRead(cacheRead);
+            finally {
+                stripe.lock.unlockRead(cacheRead);
+            }
         }
 
         return true;
     }
 
+    private Stripe stripe(long chunkKey) {
+        return stripes[(int) HashCommon.mix(chunkKey) & (STRIPES - 1)];
+    }
+
     private Chunk getChunk(long chunkKey) {
+        Stripe stripe = stripe(chunkKey);
+        StampedLock lock = stripe.lock;
+        Long2ObjectOpenHashMap<Chunk> cache = stripe.cache;
+
         long read = lock.tryOptimisticRead();
         if (lock.validate(read)) {
             try {
@@ -84,16 +173,64 @@ public abstract class ConcurrentCachingSpace implements Space {
         }
     }
 
-    private void updateExistingOrNewChunk(Chunk chunk, long chunkKey, int blockKey, Solid solidToWrite, boolean force) {
+    //like getChunk, but remembers the chunk for the calling thread; scans usually read the same chunk many times in a row
+    private Chunk readChunk(ThreadState state, long chunkKey) {
+        //removed chunks are no longer in the cache, and will never be used again
+        Chunk chunk = state.chunk;
+        if (chunk != null && state.key == chunkKey && !chunk.removed) {
+            return chunk;
+        }
+
+        chunk = getChunk(chunkKey);
+        if (chunk != null) {
+            state.key = chunkKey;
+            state.chunk = chunk;
+        }
+
+        return chunk;
+    }
+
+    //the chunk that held the solids of chunkKey at the given epoch, or the current chunk if it wasn't cached then
+    private Chunk chunkAt(long chunkKey, long epoch) {
+        Stripe stripe = stripe(chunkKey);
+        StampedLock lock = stripe.lock;
+
+        long read = lock.tryOptimisticRead();
+        if (lock.validate(read)) {
+            try {
+                Chunk chunk = stripe.at(chunkKey, epoch);
+                if (lock.validate(read)) {
+                    return chunk;
+                }
+            }
+            catch (Throwable ignored) {}
+        }
+
+        read = lock.readLock();
+        try {
+            return stripe.at(chunkKey, epoch);
+        }
+        finally {
+            lock.unlockRead(read);
+        }
+    }
+
+    //change is true if this update comes from outside, rather than from loading a solid
+    private void updateExistingOrNewChunk(Chunk chunk, long chunkKey, int blockKey, Solid solidToWrite, boolean change,
+            boolean force) {
         boolean removing = solidToWrite == null;
 
         if (chunk != null) {
             //write to our suggested chunk
             //may call updateExistingOrNewChunk again, with force set to true and a null chunk, if the update fails
-            ensureUpdate(chunk, chunkKey, blockKey, solidToWrite);
+            ensureUpdate(chunk, chunkKey, blockKey, solidToWrite, change);
             return;
         }
 
+        Stripe stripe = stripe(chunkKey);
+        StampedLock lock = stripe.lock;
+        Long2ObjectOpenHashMap<Chunk> cache = stripe.cache;
+
         long cacheStamp = force ? lock.writeLock() : lock.readLock();
         try {
             //may be non-null
@@ -114,10 +251,13 @@ public abstract class ConcurrentCachingSpace implements Space {
                 if (otherChunk == null) {
                     //create a new chunk, add our solid to it, and put it in the cache
                     //we don't need to write-lock on the newly-created chunk at all this way
-                    chunk = new Chunk();
-                    chunk.map.put(blockKey, solidToWrite);
+                    chunk = new Chunk(epochs, stripe.version(chunkKey));
+                    chunk.put(blockKey, solidToWrite);
+                    if (change) {
+                        chunk.version = epochs.next();
+                    }
 
-                    cache.put(chunkKey, chunk);
+                    stripe.publish(chunkKey, chunk);
                     return;
                 }
 
@@ -137,7 +277,7 @@ public abstract class ConcurrentCachingSpace implements Space {
                         throw new IllegalStateException();
                     }
                 }
-                else if(!chunk.write(blockKey, solidToWrite)) {
+                else if(!chunk.write(blockKey, solidToWrite, change)) {
                     throw new IllegalStateException();
                 }
 
@@ -147,25 +287,29 @@ public abstract class ConcurrentCachingSpace implements Space {
             lock.unlock(cacheStamp);
         }
 
-        ensureUpdate(chunk, chunkKey, blockKey, solidToWrite);
+        ensureUpdate(chunk, chunkKey, blockKey, solidToWrite, change);
     }
 
-    private void ensureUpdate(Chunk chunk, long chunkKey, int blockKey, Solid solidToWrite) {
+    private void ensureUpdate(Chunk chunk, long chunkKey, int blockKey, Solid solidToWrite, boolean change) {
         if (solidToWrite == null) {
             //don't do anything else if case NEITHER
             switch (chunk.remove(blockKey)) {
                 case CHUNK_REMOVED -> //re-update with force this time!
-                        updateExistingOrNewChunk(null, chunkKey, blockKey, null, true);
+                        updateExistingOrNewChunk(null, chunkKey, blockKey, null, change, true);
                 case MAP_EMPTY -> //remove from cache if we're actually empty
                         removeFromCache(chunk, chunkKey, false);
             }
         }
-        else if (!chunk.write(blockKey, solidToWrite)) {
-            updateExistingOrNewChunk(null, chunkKey, blockKey, solidToWrite, true);
+        else if (!chunk.write(blockKey, solidToWrite, change)) {
+            updateExistingOrNewChunk(null, chunkKey, blockKey, solidToWrite, change, true);
         }
     }
 
     private void removeFromCache(Chunk chunk, long chunkKey, boolean force) {
+        Stripe stripe = stripe(chunkKey);
+        StampedLock lock = stripe.lock;
+        Long2ObjectOpenHashMap<Chunk> cache = stripe.cache;
+
         long cacheWrite = lock.writeLock();
         try {
             //will block writes to the chunk while it is undergoing removal
@@ -202,6 +346,10 @@ public abstract class ConcurrentCachingSpace implements Space {
                 }
 
                 chunk.removed = true;
+
+                long version = epochs.next();
+                stripe.bury(chunkKey, version);
+                stripe.retire(chunkKey, chunk, version, epochs.oldest);
             }
             finally {
                 chunk.lock.unlockWrite(chunkWrite);
@@ -224,19 +372,89 @@ public abstract class ConcurrentCachingSpace implements Space {
         return stampedLock.writeLock();
     }
 
+    private long now() {
+        return System.nanoTime() - epoch;
+    }
+
+    //loads a solid that isn't cached, unless its chunk is known to be unloaded
+    private Solid load(int x, int y, int z, long chunkKey) {
+        if (unloadedLifetime == 0) {
+            return loadSolid(x, y, z);
+        }
+
+        Stripe stripe = stripe(chunkKey);
+
+        //read before loading, so we can tell if the chunk was loaded while we were working
+        long loads = stripe.loads.get();
+        if (isUnloaded(stripe, chunkKey)) {
+            return null;
+        }
+
+        Solid solid = loadSolid(x, y, z);
+        if (solid == null) {
+            markUnloaded(stripe, chunkKey, loads);
+        }
+
+        return solid;
+    }
+
+    private boolean isUnloaded(Stripe stripe, long chunkKey) {
+        Long deadline = stripe.unloaded.get(chunkKey);
+        return deadline != null && deadline > now();
+    }
+
+    //records an unloaded chunk without taking the stripe lock, so threads that miss the cache don't serialize here
+    private void markUnloaded(Stripe stripe, long chunkKey, long loads) {
+        //the chunk may have been loaded since loadSolid was called, in which case it shouldn't be marked
+        if (stripe.loads.get() != loads) {
+            return;
+        }
+
+        //very long lifetimes may overflow
+        long now = now();
+        long deadline = now + unloadedLifetime;
+        Long value = deadline < 0 ? Long.MAX_VALUE : deadline;
+
+        ConcurrentHashMap<Long, Long> unloaded = stripe.unloaded;
+        unloaded.put(chunkKey, value);
+
+        //loads is incremented before entries are removed, so a load that raced with the put above is seen here
+        if (stripe.loads.get() != loads) {
+            unloaded.remove(chunkKey, value);
+            return;
+        }
+
+        //chunks that are never loaded again are not otherwise removed; concurrent sweeps are harmless
+        int threshold = stripe.sweepThreshold;
+        if (unloaded.size() >= threshold) {
+            unloaded.values().removeIf(entryDeadline -> entryDeadline <= now);
+            stripe.sweepThreshold = Math.max(Stripe.MIN_SWEEP_THRESHOLD, unloaded.size() << 1);
+        }
+    }
+
     @Override
     public final @Nullable Solid solidAt(int x, int y, int z) {
+        ThreadState state = threadState.get();
+        Snapshot pinned = state.pinned;
+        if (pinned != null) {
+            return pinned.solidAt(x, y, z);
+        }
+
+        return readSolid(state, x, y, z);
+    }
+
+    private Solid readSolid(ThreadState state, int x, int y, int z) {
         long chunkKey = Chunk.key(x, z);
-        Chunk chunk = getChunk(chunkKey);
+        Chunk chunk = readChunk(state, chunkKey);
 
         Solid solid;
         if (chunk == null) {
-            solid = loadSolid(x, y, z);
+            solid = load(x, y, z, chunkKey);
             if (solid == null) {
                 return null;
             }
 
-            updateExistingOrNewChunk(null, chunkKey, Chunk.relative(x, y, z, minimumY), solid, false);
+            updateExistingOrNewChunk(null, chunkKey, Chunk.relative(x, y, z, minimumY), solid, false, false);
             return solid;
         }
 
@@ -246,12 +464,12 @@ public abstract class ConcurrentCachingSpace implements Space {
             return solid;
         }
 
-        solid = loadSolid(x, y, z);
+        solid = load(x, y, z, chunkKey);
         if (solid == null) {
             return null;
         }
 
-        updateExistingOrNewChunk(chunk, chunkKey, blockKey, solid, false);
+        updateExistingOrNewChunk(chunk, chunkKey, blockKey, solid, false, false);
         return solid;
     }
 
@@ -260,6 +478,165 @@ public abstract class ConcurrentCachingSpace implements Space {
         return solidAt(vec.x(), vec.y(), vec.z());
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns false while a {@link Snapshot} is pinned to the calling thread, as runs are then read one position at a
+     * time.
+     */
+    @Override
+    public final boolean tracksOccupancy() {
+        return threadState.get().pinned == null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runs along the positive z-axis ({@link Direction#SOUTH}) are answered from this space's occupancy bitsets.
+     * Positions that have not yet been cached are loaded as if by {@link ConcurrentCachingSpace#solidAt(int, int, int)}.
+     * While a {@link Snapshot} is pinned to the calling thread, runs are read from the snapshot one position at a time.
+     */
+    @Override
+    public final long occupancy(int x, int y, int z, @NotNull Direction direction, int length, int classes) {
+        ThreadState state = threadState.get();
+        if (direction != Direction.SOUTH || state.pinned != null) {
+            return SnapshotSpace.super.occupancy(x, y, z, direction, length, classes);
+        }
+
+        if (length < 0 || length > Long.SIZE) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+
+        long result = 0;
+        int i = 0;
+        while (i < length) {
+            int bz = z + i;
+
+            //never cross a chunk boundary in a single read
+            int count = Math.min(length - i, 16 - (bz & 15));
+
+            Chunk chunk = readChunk(state, Chunk.key(x, bz));
+            long row = chunk == null ? Chunk.mask(count) << Chunk.UNKNOWN_SHIFT :
+                    chunk.row(Chunk.relative(x, y, bz, minimumY), count, classes);
+
+            long matching = row & Chunk.mask(Chunk.UNKNOWN_SHIFT);
+            long unknown = row >>> Chunk.UNKNOWN_SHIFT;
+
+            while (unknown != 0) {
+                int bit = Long.numberOfTrailingZeros(unknown);
+                unknown &= unknown - 1;
+
+                if ((Space.classify(solidAt(x, y, bz + bit)) & classes) != 0) {
+                    matching |= 1L << bit;
+                }
+            }
+
+            result |= matching << i;
+            i += count;
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Like {@link ConcurrentCachingSpace#occupancy(int, int, int, Direction, int, int)}, runs along the positive z-axis
+     * are answered from this space's occupancy bitsets, reading each chunk's bitsets once.
+     */
+    @Override
+    public final long occupancyClasses(int x, int y, int z, @NotNull Direction direction, int length) {
+        ThreadState state = threadState.get();
+        if (direction != Direction.SOUTH || state.pinned != null) {
+            return SnapshotSpace.super.occupancyClasses(x, y, z, direction, length);
+        }
+
+        if (length < 0 || length > Integer.SIZE) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+
+        long fullOrUnloaded = 0;
+        long partialOrUnloaded = 0;
+        int i = 0;
+        while (i < length) {
+            int bz = z + i;
+
+            //never cross a chunk boundary in a single read
+            int count = Math.min(length - i, 16 - (bz & 15));
+
+            Chunk chunk = readChunk(state, Chunk.key(x, bz));
+            long classes = chunk == null ? Chunk.mask(count) << Chunk.UNKNOWN_CLASSES_SHIFT :
+                    chunk.classes(Chunk.relative(x, y, bz, minimumY), count);
+
+            long full = classes & Chunk.mask(Chunk.PARTIAL_SHIFT);
+            long partial = (classes >>> Chunk.PARTIAL_SHIFT) & Chunk.mask(Chunk.PARTIAL_SHIFT);
+            long unknown = classes >>> Chunk.UNKNOWN_CLASSES_SHIFT;
+
+            while (unknown != 0) {
+                int bit = Long.numberOfTrailingZeros(unknown);
+                unknown &= unknown - 1;
+
+                int occupancyClass = Space.classify(solidAt(x, y, bz + bit));
+                if ((occupancyClass & (Space.FULL | Space.UNLOADED)) != 0) {
+                    full |= 1L << bit;
+                }
+
+                if ((occupancyClass & (Space.PARTIAL | Space.UNLOADED)) != 0) {
+                    partial |= 1L << bit;
+                }
+            }
+
+            fullOrUnloaded |= full << i;
+            partialOrUnloaded |= partial << i;
+            i += count;
+        }
+
+        return (partialOrUnloaded << Integer.SIZE) | fullOrUnloaded;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Positions that have not been cached are treated as obstructed. While a {@link Snapshot} is pinned to the calling
+     * thread, chunks that have changed since the snapshot was taken are also treated as obstructed.
+     */
+    @Override
+    public final int clearance(int x, int y, int z, int radius) {
+        ThreadState state = threadState.get();
+        Snapshot pinned = state.pinned;
+        return clearance(state, x, y, z, radius, pinned == null ? Long.MAX_VALUE : pinned.epoch);
+    }
+
+    //headroom is only tracked for the live cache, but it still describes chunks that haven't changed since epoch
+    private int clearance(ThreadState state, int x, int y, int z, int radius, long epoch) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Invalid radius: " + radius);
+        }
+
+        int min = Space.MAX_HEADROOM;
+        for (int bx = x - radius; bx <= x + radius; bx++) {
+            int bz = z - radius;
+            while (bz <= z + radius) {
+                //never cross a chunk boundary in a single read
+                int count = Math.min(z + radius - bz + 1, 16 - (bz & 15));
+
+                Chunk chunk = readChunk(state, Chunk.key(bx, bz));
+                if (chunk == null) {
+                    return 0;
+                }
+
+                min = Math.min(min, chunk.headroom(Chunk.relative(bx, y, bz, minimumY), count, epoch));
+                if (min == 0) {
+                    return 0;
+                }
+
+                bz += count;
+            }
+        }
+
+        return min;
+    }
+
     /**
      * Updates the solid at the given position. If the solid is null, any solid that was cached at that location will be
      * removed, to be re-computed when needed.
@@ -270,31 +647,170 @@ public abstract class ConcurrentCachingSpace implements Space {
      * @param solid the new solid, or null to remove any cached solid (if present)
      */
     public void updateSolid(int x, int y, int z, @Nullable Solid solid) {
-        updateExistingOrNewChunk(null, Chunk.key(x, z), Chunk.relative(x, y, z, minimumY), solid, false);
+        long chunkKey = Chunk.key(x, z);
+        int blockKey = Chunk.relative(x, y, z, minimumY);
+
+        //writing the solid that is already cached changes nothing, so versions and listeners are left alone
+        if (cachedSolid(chunkKey, blockKey) == solid) {
+            return;
+        }
+
+        updateExistingOrNewChunk(null, chunkKey, blockKey, solid, true, false);
+        notifyChanged(chunkKey);
+    }
+
+    //the solid cached at a position, or null if there is none; never loads anything
+    private Solid cachedSolid(long chunkKey, int blockKey) {
+        Chunk chunk = getChunk(chunkKey);
+        if (chunk == null) {
+            return null;
+        }
+
+        //removed is only ever set after reading, so if it is still unset the solid was cached when we read it
+        Solid solid = chunk.read(blockKey);
+        return chunk.removed ? null : solid;
     }
 
     /**
-     * Clears the cache, reducing it to a state similar to when it was first initialized.
+     * Applies many solid updates at once. Updates are grouped by chunk, and each group is applied under a single lock,
+     * so readers see all the changes to a chunk at the same time. This is considerably faster than calling
+     * {@link ConcurrentCachingSpace#updateSolid(int, int, int, Solid)} for each update when many positions change at
+     * once, for example after an explosion.
+     *
+     * @param batch the updates to apply
      */
-    public void clearCache() {
-        long cacheWrite = lock.writeLock();
-        try {
-            ObjectIterator<Long2ObjectMap.Entry<Chunk>> entrySetIterator = cache.long2ObjectEntrySet().fastIterator();
+    public void updateSolids(@NotNull SolidBatch batch) {
+        int size = batch.size();
+        if (size == 0) {
+            return;
+        }
+
+        Long2ObjectOpenHashMap<IntArrayList> groups = new Long2ObjectOpenHashMap<>();
+        for (int i = 0; i < size; i++) {
+            groups.computeIfAbsent(Chunk.key(batch.x(i), batch.z(i)), ignored -> new IntArrayList()).add(i);
+        }
 
-            while (entrySetIterator.hasNext()) {
-                Chunk chunk = entrySetIterator.next().getValue();
+        ObjectIterator<Long2ObjectMap.Entry<IntArrayList>> iterator = groups.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            Long2ObjectMap.Entry<IntArrayList> entry = iterator.next();
+            IntArrayList indices = entry.getValue();
 
-                long chunkWrite = chunk.lock.writeLock();
-                try {
-                    entrySetIterator.remove();
-                    chunk.removed = true;
+            int count = indices.size();
+            int[] keys = new int[count];
+            Solid[] solids = new Solid[count];
+            for (int i = 0; i < count; i++) {
+                int index = indices.getInt(i);
+                keys[i] = Chunk.relative(batch.x(index), batch.y(index), batch.z(index), minimumY);
+                solids[i] = batch.solid(index);
+            }
+
+            long chunkKey = entry.getLongKey();
+            if (updateChunk(chunkKey, keys, solids)) {
+                notifyChanged(chunkKey);
+            }
+        }
+    }
+
+    //returns true if any of the updates changed the chunk
+    private boolean updateChunk(long chunkKey, int[] keys, Solid[] solids) {
+        Chunk chunk = getChunk(chunkKey);
+        if (chunk != null) {
+            switch (chunk.writeAll(keys, solids)) {
+                case UNCHANGED -> {
+                    return false;
+                }
+                case NEITHER -> {
+                    return true;
+                }
+                case MAP_EMPTY -> {
+                    removeFromCache(chunk, chunkKey, false);
+                    return true;
+                }
+            }
+
+            //the chunk was removed before we could write to it, fall through to the slow path
+        }
+
+        Stripe stripe = stripe(chunkKey);
+        long cacheWrite = stripe.lock.writeLock();
+        try {
+            chunk = stripe.cache.get(chunkKey);
+            if (chunk == null) {
+                //create a new chunk, and only publish it once all of our updates have been applied
+                chunk = new Chunk(epochs, stripe.version(chunkKey));
+                for (int i = 0; i < keys.length; i++) {
+                    if (solids[i] == null) {
+                        chunk.delete(keys[i]);
+                    } else {
+                        chunk.put(keys[i], solids[i]);
+                    }
                 }
-                finally {
-                    chunk.lock.unlockWrite(chunkWrite);
+
+                //removing solids that were never cached changes nothing
+                if (chunk.map.isEmpty()) {
+                    return false;
                 }
+
+                chunk.version = epochs.next();
+                stripe.publish(chunkKey, chunk);
+                return true;
+            }
+
+            //chunks are only removed under the write lock of their stripe, which we hold
+            Chunk.RemovalState state = chunk.writeAll(keys, solids);
+            if (state != Chunk.RemovalState.MAP_EMPTY) {
+                return state != Chunk.RemovalState.UNCHANGED;
             }
         } finally {
-            lock.unlockWrite(cacheWrite);
+            stripe.lock.unlockWrite(cacheWrite);
+        }
+
+        removeFromCache(chunk, chunkKey, false);
+        return true;
+    }
+
+    /**
+     * Clears the cache, reducing it to a state similar to when it was first initialized.
+     */
+    public void clearCache() {
+        for (Stripe stripe : stripes) {
+            long cacheWrite = stripe.lock.writeLock();
+            try {
+                stripe.loads.incrementAndGet();
+                stripe.unloaded.clear();
+
+                //every chunk, cached or not, has a new version
+                long version = epochs.next();
+                long oldest = epochs.oldest;
+                stripe.tombstones.clear();
+                stripe.floor = version;
+
+                ObjectIterator<Long2ObjectMap.Entry<Chunk>> entrySetIterator =
+                        stripe.cache.long2ObjectEntrySet().fastIterator();
+
+                while (entrySetIterator.hasNext()) {
+                    //entries from fastIterator are not valid after removal
+                    Long2ObjectMap.Entry<Chunk> entry = entrySetIterator.next();
+                    long key = entry.getLongKey();
+                    Chunk chunk = entry.getValue();
+
+                    long chunkWrite = chunk.lock.writeLock();
+                    try {
+                        entrySetIterator.remove();
+                        chunk.removed = true;
+                        stripe.retire(key, chunk, version, oldest);
+                    }
+                    finally {
+                        chunk.lock.unlockWrite(chunkWrite);
+                    }
+                }
+            } finally {
+                stripe.lock.unlockWrite(cacheWrite);
+            }
+        }
+
+        for (ChunkListener listener : listeners) {
+            listener.allChanged();
         }
     }
 
@@ -315,44 +831,506 @@ public abstract class ConcurrentCachingSpace implements Space {
 
         //force = true to remove the chunk even if it has blocks in it!
         removeFromCache(chunk, key, true);
+        notifyChanged(key);
     }
 
     /**
-     * Loads a solid, which will be cached in this space until it is invalidated. This method is called by
-     * {@link ConcurrentCachingSpace#solidAt(int, int, int)} when it encounters a cache miss.
-     * <p>
-     * This method may be called concurrently by two or more threads. However, this class will cache any solids it
-     * returns. Future requests for solids which have been cached will use a concurrency-friendly data structure that is
-     * designed to minimize lock contention.
+     * Returns the version of a chunk. Versions of the same chunk never decrease, and a chunk's version increases
+     * whenever its solids are changed by {@link ConcurrentCachingSpace#updateSolid(int, int, int, Solid)},
+     * {@link ConcurrentCachingSpace#updateSolids(SolidBatch)}, {@link ConcurrentCachingSpace#clearChunk(int, int)} or
+     * {@link ConcurrentCachingSpace#clearCache()}. It may also increase when the chunk has not changed, but never
+     * because of solids being loaded into the cache, or because of updates that write the solid already cached at a
+     * position (or remove one that isn't cached).
      * <p>
-     * This method may return null to indicate that no solid can be found at the given location, and no solid will be
-     * cached in this case.
-     *
-     * @param x the x-coordinate of the solid to load
-     * @param y the y-coordinate of the solid to load
-     * @param z the z-coordinate of the solid to load
+     * If a chunk's version is read before reading its solids, and is found to be the same at a later time, those
+     * solids have not been changed in the meantime. Versions of different chunks should not be compared.
      *
-     * @return a Solid object, or null to indicate inability to load at this position
+     * @param x the x-coordinate (chunk)
+     * @param z the z-coordinate (chunk)
+     * @return the version of the chunk
      */
-    public abstract @Nullable Solid loadSolid(int x, int y, int z);
-
-    private static final class Chunk {
-        private enum RemovalState {
-            CHUNK_REMOVED,
-            MAP_EMPTY,
-            NEITHER
-        }
+    public long version(int x, int z) {
+        long key = Chunk.keyFromChunk(x, z);
+        Stripe stripe = stripe(key);
+        StampedLock lock = stripe.lock;
 
-        private final Int2ObjectMap<Solid> map;
-        private final StampedLock lock;
+        long read = lock.tryOptimisticRead();
+        if (lock.validate(read)) {
+            try {
+                long version = stripe.version(key);
+                if (lock.validate(read)) {
+                    return version;
+                }
+            }
+            catch (Throwable ignored) {}
+        }
+
+        read = lock.readLock();
+        try {
+            return stripe.version(key);
+        }
+        finally {
+            lock.unlockRead(read);
+        }
+    }
+
+    /**
+     * Registers a listener, which will be notified whenever a chunk's version may have changed.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(@NotNull ChunkListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Removes a listener previously added with {@link ConcurrentCachingSpace#addListener(ChunkListener)}.
+     *
+     * @param listener the listener to remove
+     * @return true if the listener was registered, false otherwise
+     */
+    public boolean removeListener(@NotNull ChunkListener listener) {
+        return listeners.remove(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Takes a snapshot of this space. Until the snapshot is closed, it reads every solid that is currently cached as it
+     * is now, regardless of later changes made through this space. Positions that are not currently cached are read
+     * from this space when first needed, and thereafter also remain the same. Snapshots are therefore only
+     * point-in-time views of the cached positions; see {@link SpaceSnapshot}.
+     * <p>
+     * Snapshots are cheap to take and to read from, and never block writers. However, while any snapshot is open, every
+     * change made to this space must remember what it replaced, so snapshots should be closed as soon as they are no
+     * longer needed.
+     *
+     * @return a new snapshot
+     */
+    @Override
+    public @NotNull Snapshot snapshot() {
+        return new Snapshot(epochs.open());
+    }
+
+    private void notifyChanged(long chunkKey) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+
+        int x = (int) (chunkKey >> 32);
+        int z = (int) chunkKey;
+        for (ChunkListener listener : listeners) {
+            listener.chunkChanged(x, z);
+        }
+    }
+
+    /**
+     * Notifies this space that a chunk has been loaded, so that it is no longer considered unloaded. This should be
+     * called whenever a chunk becomes available to {@link ConcurrentCachingSpace#loadSolid(int, int, int)}, if this
+     * space remembers unloaded chunks. Otherwise, this method does nothing.
+     *
+     * @param x the x-coordinate (chunk)
+     * @param z the z-coordinate (chunk)
+     */
+    public void chunkLoaded(int x, int z) {
+        if (unloadedLifetime == 0) {
+            return;
+        }
+
+        long key = Chunk.keyFromChunk(x, z);
+        Stripe stripe = stripe(key);
+
+        //increment first, so a concurrent markUnloaded either sees the new count or has its entry removed here
+        stripe.loads.incrementAndGet();
+        stripe.unloaded.remove(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Positions are loaded as if by {@link ConcurrentCachingSpace#solidAt(int, int, int)}, ignoring any
+     * {@link Snapshot} pinned to the calling thread, so they are cached for every reader. Positions below the minimum
+     * y-coordinate of this space, or too far above it to be cached, are skipped.
+     */
+    @Override
+    public void prefetch(int x, int y, int z, int lengthX, int lengthY, int lengthZ) {
+        if (lengthX <= 0 || lengthY <= 0 || lengthZ <= 0) {
+            throw new IllegalArgumentException("Invalid box lengths: " + lengthX + ", " + lengthY + ", " + lengthZ);
+        }
+
+        long startY = Math.max(y, minimumY);
+        long endY = Math.min((long) y + lengthY, (long) minimumY + Chunk.HEIGHT);
+        long endX = (long) x + lengthX;
+        long endZ = (long) z + lengthZ;
+
+        ThreadState state = threadState.get();
+        for (long bx = x; bx < endX; bx++) {
+            for (long bz = z; bz < endZ; bz++) {
+                for (long by = startY; by < endY; by++) {
+                    readSolid(state, (int) bx, (int) by, (int) bz);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a solid, which will be cached in this space until it is invalidated. This method is called by
+     * {@link ConcurrentCachingSpace#solidAt(int, int, int)} when it encounters a cache miss.
+     * <p>
+     * This method may be called concurrently by two or more threads. However, this class will cache any solids it
+     * returns. Future requests for solids which have been cached will use a concurrency-friendly data structure that is
+     * designed to minimize lock contention.
+     * <p>
+     * This method may return null to indicate that no solid can be found at the given location, and no solid will be
+     * cached in this case. If this space remembers unloaded chunks, returning null marks the entire chunk containing
+     * the position as unloaded.
+     *
+     * @param x the x-coordinate of the solid to load
+     * @param y the y-coordinate of the solid to load
+     * @param z the z-coordinate of the solid to load
+     *
+     * @return a Solid object, or null to indicate inability to load at this position
+     */
+    public abstract @Nullable Solid loadSolid(int x, int y, int z);
+
+    /**
+     * A view of a {@link ConcurrentCachingSpace}, obtained from {@link ConcurrentCachingSpace#snapshot()}. Solids that
+     * were cached when the snapshot was taken are read as they were at that time. Other positions are read from the
+     * space the first time they are needed, and then stay the same for as long as the snapshot is open. Snapshots can
+     * be read from any number of threads at once, either directly, or through the space they came from by
+     * {@link Snapshot#pin() pinning} them to a thread.
+     * <p>
+     * A snapshot must be closed once it is no longer needed. Reading from a closed snapshot throws an
+     * {@link IllegalStateException}.
+     */
+    public final class Snapshot implements SpaceSnapshot {
+        private final long epoch;
+        private volatile boolean closed;
+
+        //solids read by this snapshot that weren't cached at its epoch; guarded by itself
+        private final Long2ObjectOpenHashMap<Int2ObjectOpenHashMap<Solid>> loaded = new Long2ObjectOpenHashMap<>();
+
+        private Snapshot(long epoch) {
+            this.epoch = epoch;
+        }
+
+        @Override
+        public @Nullable Solid solidAt(int x, int y, int z) {
+            if (closed) {
+                throw new IllegalStateException("Snapshot has been closed");
+            }
+
+            Chunk chunk = chunkAt(Chunk.key(x, z), epoch);
+            if (chunk != null) {
+                Solid solid = chunk.readAt(Chunk.relative(x, y, z, minimumY), epoch);
+                if (solid != null) {
+                    return solid;
+                }
+            }
+
+            //not cached at our epoch: the first read of the position decides what this snapshot sees from then on
+            long chunkKey = Chunk.key(x, z);
+            int blockKey = Chunk.relative(x, y, z, minimumY);
+            synchronized (loaded) {
+                Int2ObjectOpenHashMap<Solid> solids = loaded.get(chunkKey);
+                if (solids != null) {
+                    Solid solid = solids.get(blockKey);
+                    if (solid != null) {
+                        return solid;
+                    }
+                }
+            }
+
+            Solid solid = readSolid(threadState.get(), x, y, z);
+            if (solid == null) {
+                return null;
+            }
+
+            synchronized (loaded) {
+                Solid other = loaded.computeIfAbsent(chunkKey, ignored -> new Int2ObjectOpenHashMap<>())
+                        .putIfAbsent(blockKey, solid);
+                return other == null ? solid : other;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * Like {@link ConcurrentCachingSpace#clearance(int, int, int, int)}, chunks that have changed since this
+         * snapshot was taken are treated as obstructed.
+         */
+        @Override
+        public int clearance(int x, int y, int z, int radius) {
+            if (closed) {
+                throw new IllegalStateException("Snapshot has been closed");
+            }
+
+            return ConcurrentCachingSpace.this.clearance(threadState.get(), x, y, z, radius, epoch);
+        }
+
+        @Override
+        public void pin() {
+            if (closed) {
+                throw new IllegalStateException("Snapshot has been closed");
+            }
+
+            ThreadState state = threadState.get();
+            if (state.pinned != null) {
+                throw new IllegalStateException("Thread already has a pinned snapshot");
+            }
+
+            state.pinned = this;
+        }
+
+        @Override
+        public void unpin() {
+            ThreadState state = threadState.get();
+            if (state.pinned != this) {
+                throw new IllegalStateException("Snapshot is not pinned to this thread");
+            }
+
+            state.pinned = null;
+        }
+
+        @Override
+        public void close() {
+            ThreadState state = threadState.get();
+            if (state.pinned == this) {
+                state.pinned = null;
+            }
+
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+
+                closed = true;
+            }
+
+            epochs.close(epoch);
+        }
+    }
+
+    //the version clock, and the epochs of open snapshots
+    private static final class Epochs {
+        private final AtomicLong clock = new AtomicLong();
+
+        //number of open snapshots at each epoch; guarded by this
+        private final Long2IntRBTreeMap open = new Long2IntRBTreeMap();
+
+        //no open snapshot has an older epoch than this; Long.MAX_VALUE if there are no open snapshots
+        private volatile long oldest = Long.MAX_VALUE;
+
+        private long next() {
+            return clock.incrementAndGet();
+        }
+
+        private synchronized long open() {
+            //announce the snapshot before reading its epoch: a writer that doesn't see it has a version <= epoch
+            oldest = Math.min(oldest, clock.get());
+
+            long epoch = clock.get();
+            open.addTo(epoch, 1);
+            oldest = open.firstLongKey();
+            return epoch;
+        }
+
+        private synchronized void close(long epoch) {
+            if (open.addTo(epoch, -1) == 1) {
+                open.remove(epoch);
+            }
+
+            oldest = open.isEmpty() ? Long.MAX_VALUE : open.firstLongKey();
+        }
+    }
+
+    //one part of the chunk directory; chunks are assigned to stripes by key
+    private static final class Stripe {
+        private static final int MIN_SWEEP_THRESHOLD = 16;
+        private static final int MAX_TOMBSTONES = 1024;
+
+        private final StampedLock lock = new StampedLock();
+        private final Long2ObjectOpenHashMap<Chunk> cache = new Long2ObjectOpenHashMap<>();
+
+        //chunks that failed to load, mapped to the time at which they may be loaded again; not guarded by lock
+        private final ConcurrentHashMap<Long, Long> unloaded = new ConcurrentHashMap<>();
+
+        //number of unloaded entries at which expired ones are removed
+        private volatile int sweepThreshold = MIN_SWEEP_THRESHOLD;
+
+        //incremented whenever chunks in this stripe may have been loaded, before their unloaded entries are removed
+        private final AtomicLong loads = new AtomicLong();
+
+        //versions of removed chunks that are no longer cached; guarded by lock
+        private final Long2LongOpenHashMap tombstones = new Long2LongOpenHashMap();
+
+        //removed chunks that open snapshots may still read from, newest first; guarded by lock
+        private final Long2ObjectOpenHashMap<Chunk> retired = new Long2ObjectOpenHashMap<>();
+        private int retiredSweepThreshold = MIN_SWEEP_THRESHOLD;
+
+        //smallest version of any chunk in this stripe; guarded by lock
+        private long floor;
+
+        //must be called under lock
+        private long version(long key) {
+            Chunk chunk = cache.get(key);
+            return chunk == null ? Math.max(floor, tombstones.get(key)) : chunk.version();
+        }
+
+        //must be called under write lock
+        private void publish(long key, Chunk chunk) {
+            tombstones.remove(key);
+            cache.put(key, chunk);
+        }
+
+        //must be called under lock
+        private Chunk at(long key, long epoch) {
+            for (Chunk chunk = retired.get(key); chunk != null; chunk = chunk.previous) {
+                if (chunk.created <= epoch) {
+                    if (chunk.retiredVersion > epoch) {
+                        return chunk;
+                    }
+
+                    //the chunk wasn't cached at epoch
+                    break;
+                }
+            }
+
+            return cache.get(key);
+        }
+
+        //must be called under write lock, after a chunk has been removed from the cache
+        private void retire(long key, Chunk chunk, long version, long oldest) {
+            if (oldest == Long.MAX_VALUE) {
+                //no snapshots are open, so none can read from any removed chunk
+                if (!retired.isEmpty()) {
+                    retired.clear();
+                }
+
+                return;
+            }
+
+            //chunks removed before the oldest snapshot was taken are no longer needed
+            Chunk previous = retired.get(key);
+            if (previous != null && previous.retiredVersion <= oldest) {
+                previous = null;
+            }
+
+            for (Chunk other = previous; other != null; other = other.previous) {
+                if (other.previous != null && other.previous.retiredVersion <= oldest) {
+                    other.previous = null;
+                    break;
+                }
+            }
+
+            chunk.retiredVersion = version;
+            chunk.previous = previous;
+            retired.put(key, chunk);
+
+            //with snapshots always open, retired chunks that are never removed again would otherwise be kept forever
+            if (retired.size() >= retiredSweepThreshold) {
+                ObjectIterator<Long2ObjectMap.Entry<Chunk>> iterator = retired.long2ObjectEntrySet().fastIterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().getValue().retiredVersion <= oldest) {
+                        iterator.remove();
+                    }
+                }
+
+                retiredSweepThreshold = Math.max(MIN_SWEEP_THRESHOLD, retired.size() << 1);
+            }
+        }
+
+        //must be called under write lock, after a chunk has been removed from the cache
+        private void bury(long key, long version) {
+            if (tombstones.size() >= MAX_TOMBSTONES) {
+                //forget about all removed chunks instead, at the cost of changing all of their versions
+                tombstones.clear();
+                floor = version;
+                return;
+            }
+
+            tombstones.put(key, version);
+        }
+    }
+
+    private static final class ThreadState {
+        private long key;
+        private Chunk chunk;
+
+        private Snapshot pinned;
+    }
+
+    private static final class Chunk {
+        private enum RemovalState {
+            CHUNK_REMOVED,
+            MAP_EMPTY,
+            NEITHER,
+            UNCHANGED
+        }
 
-        //must ONLY be set under write lock of both cache and this chunk
+        //the lower bits of the value returned by row are matching positions, the upper bits are uncached positions
+        private static final int UNKNOWN_SHIFT = 16;
+
+        //the value returned by classes holds full, then partial, then uncached positions
+        private static final int PARTIAL_SHIFT = 16;
+        private static final int UNKNOWN_CLASSES_SHIFT = 32;
+
+        //number of distinct relative y-coordinates
+        private static final int HEIGHT = 2048;
+
+        //sections are 16 blocks tall, covering the entire range of relative y-coordinates
+        private static final int SECTIONS = HEIGHT >> 4;
+
+        //number of longs needed to store a single bit for every position in a section
+        private static final int SECTION_WORDS = 4096 / Long.SIZE;
+
+        private final Int2ObjectMap<Solid> map;
+        private final StampedLock lock;
+
+        /*
+        occupancy bitsets, guarded by lock; each section has three (EMPTY, FULL, then PARTIAL) at section * 3 + class
+        positions are ordered by y, then x, then z, so runs along the z-axis are contiguous
+        a bitset is only allocated once a solid of its class is cached in its section
+         */
+        private final long[][] bitsets;
+
+        /*
+        headroom of each position, guarded by lock; indexed the same way as the occupancy bitsets
+        only allocated once a position in the section has non-zero headroom
+         */
+        private final byte[][] headroom;
+
+        //must ONLY be set under write lock of both this chunk and the stripe of the cache that contains it
         //once set to true, will never be set to 'false' again
         private volatile boolean removed;
 
-        private Chunk() {
+        private final Epochs epochs;
+
+        //guarded by lock, may also be set before this chunk is published
+        private long version;
+
+        //snapshots older than this never read from this chunk
+        private final long created;
+
+        //set when this chunk is removed while snapshots are open; guarded by the lock of the containing stripe
+        private long retiredVersion;
+        private Chunk previous;
+
+        /*
+        solids replaced by updates while snapshots were open, along with the version of the update, in order
+        guarded by lock; null if no snapshots have been open since this chunk was last written to
+         */
+        private int[] historyKeys;
+        private Solid[] historySolids;
+        private long[] historyVersions;
+        private int historySize;
+
+        private Chunk(Epochs epochs, long version) {
+            this.epochs = epochs;
+            this.version = version;
+            this.created = version;
             this.map = new Int2ObjectOpenHashMap<>();
             this.lock = new StampedLock();
+            this.bitsets = new long[SECTIONS * 3][];
+            this.headroom = new byte[SECTIONS][];
         }
 
         private static long key(int x, int z) {
@@ -369,6 +1347,345 @@ public abstract class ConcurrentCachingSpace implements Space {
             return ((x & 15) << 15) | (((y - minY) & 2047) << 4) | (z & 15);
         }
 
+        private static long mask(int count) {
+            return (1L << count) - 1;
+        }
+
+        private static int bitIndex(int key) {
+            int y = (key >>> 4) & 15;
+            int x = (key >>> 15) & 15;
+            int z = key & 15;
+            return (y << 8) | (x << 4) | z;
+        }
+
+        private static int sectionIndex(int key) {
+            return ((key >>> 4) & 2047) >>> 4;
+        }
+
+        private static int bitsetIndex(int key, Solid solid) {
+            int section = sectionIndex(key) * 3;
+            return switch (Space.classify(solid)) {
+                case Space.EMPTY -> section;
+                case Space.FULL -> section + 1;
+                case Space.PARTIAL -> section + 2;
+                default -> throw new IllegalArgumentException("Not a cacheable solid: " + solid);
+            };
+        }
+
+        //must be called under write lock, or before this chunk is published
+        private void put(int key, Solid solid) {
+            Solid old = map.put(key, solid);
+
+            int bit = bitIndex(key);
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+
+            if (old != null) {
+                //allocated when old was put
+                bitsets[bitsetIndex(key, old)][word] &= ~mask;
+            }
+
+            int index = bitsetIndex(key, solid);
+            long[] bitset = bitsets[index];
+            if (bitset == null) {
+                bitset = new long[SECTION_WORDS];
+                bitsets[index] = bitset;
+            }
+
+            bitset[word] |= mask;
+
+            if ((old != null && old.isEmpty()) != solid.isEmpty()) {
+                updateHeadroom(key);
+            }
+        }
+
+        //must be called under write lock
+        private void delete(int key) {
+            Solid old = map.remove(key);
+            if (old == null) {
+                return;
+            }
+
+            int bit = bitIndex(key);
+            bitsets[bitsetIndex(key, old)][bit >>> 6] &= ~(1L << bit);
+
+            if (old.isEmpty()) {
+                updateHeadroom(key);
+            }
+        }
+
+        private boolean isEmpty(int x, int y, int z) {
+            long[] bitset = bitsets[(y >>> 4) * 3];
+            if (bitset == null) {
+                return false;
+            }
+
+            int bit = ((y & 15) << 8) | (x << 4) | z;
+            return (bitset[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        private int headroom(int x, int y, int z) {
+            if (y >= SECTIONS << 4) {
+                return 0;
+            }
+
+            byte[] section = headroom[y >>> 4];
+            return section == null ? 0 : section[((y & 15) << 8) | (x << 4) | z];
+        }
+
+        //must be called under write lock, after the position at key has become empty or stopped being empty
+        private void updateHeadroom(int key) {
+            int x = (key >>> 15) & 15;
+            int y = (key >>> 4) & 2047;
+            int z = key & 15;
+
+            //headroom can only change in this column, at or below the changed position
+            int above = headroom(x, y + 1, z);
+            for (int by = y; by >= 0; by--) {
+                int value = isEmpty(x, by, z) ? Math.min(above + 1, Space.MAX_HEADROOM) : 0;
+                if (value == headroom(x, by, z)) {
+                    break;
+                }
+
+                byte[] section = headroom[by >>> 4];
+                if (section == null) {
+                    //value differs from the implied 0, so isn't 0 itself
+                    section = new byte[SECTION_WORDS * Long.SIZE];
+                    headroom[by >>> 4] = section;
+                }
+
+                section[((by & 15) << 8) | (x << 4) | z] = (byte) value;
+                above = value;
+            }
+        }
+
+        //smallest headroom in a run along the z-axis, which must not cross a chunk boundary
+        //chunks changed after epoch report no headroom, as it may not match what a snapshot with that epoch sees
+        private int headroom(int key, int count, long epoch) {
+            long readLock = lock.tryOptimisticRead();
+            if (lock.validate(readLock)) {
+                int value = version > epoch ? 0 : readHeadroom(key, count);
+                if (lock.validate(readLock)) {
+                    return value;
+                }
+            }
+
+            readLock = lock.readLock();
+            try {
+                return version > epoch ? 0 : readHeadroom(key, count);
+            } finally {
+                lock.unlockRead(readLock);
+            }
+        }
+
+        private int readHeadroom(int key, int count) {
+            byte[] section = headroom[sectionIndex(key)];
+            if (section == null) {
+                return 0;
+            }
+
+            int index = bitIndex(key);
+            int min = Space.MAX_HEADROOM;
+            for (int i = 0; i < count && min != 0; i++) {
+                min = Math.min(min, section[index + i]);
+            }
+
+            return min;
+        }
+
+        private long row(int key, int count, int classes) {
+            long readLock = lock.tryOptimisticRead();
+            if (lock.validate(readLock)) {
+                long row = readRow(key, count, classes);
+                if (lock.validate(readLock)) {
+                    return row;
+                }
+            }
+
+            readLock = lock.readLock();
+            try {
+                return readRow(key, count, classes);
+            } finally {
+                lock.unlockRead(readLock);
+            }
+        }
+
+        private long readRow(int key, int count, int classes) {
+            long all = mask(count);
+
+            //the run never crosses a chunk boundary, so all of its bits are in the same word
+            int section = sectionIndex(key) * 3;
+            int bit = bitIndex(key);
+            int word = bit >>> 6;
+            int shift = bit & 63;
+
+            long empty = bits(bitsets[section], word, shift, all);
+            long full = bits(bitsets[section + 1], word, shift, all);
+            long partial = bits(bitsets[section + 2], word, shift, all);
+
+            long matching = 0;
+            if ((classes & Space.EMPTY) != 0) {
+                matching |= empty;
+            }
+
+            if ((classes & Space.FULL) != 0) {
+                matching |= full;
+            }
+
+            if ((classes & Space.PARTIAL) != 0) {
+                matching |= partial;
+            }
+
+            long unknown = all & ~(empty | full | partial);
+            return (unknown << UNKNOWN_SHIFT) | matching;
+        }
+
+        private long classes(int key, int count) {
+            long readLock = lock.tryOptimisticRead();
+            if (lock.validate(readLock)) {
+                long classes = readClasses(key, count);
+                if (lock.validate(readLock)) {
+                    return classes;
+                }
+            }
+
+            readLock = lock.readLock();
+            try {
+                return readClasses(key, count);
+            } finally {
+                lock.unlockRead(readLock);
+            }
+        }
+
+        private long readClasses(int key, int count) {
+            long all = mask(count);
+
+            int section = sectionIndex(key) * 3;
+            int bit = bitIndex(key);
+            int word = bit >>> 6;
+            int shift = bit & 63;
+
+            long empty = bits(bitsets[section], word, shift, all);
+            long full = bits(bitsets[section + 1], word, shift, all);
+            long partial = bits(bitsets[section + 2], word, shift, all);
+
+            long unknown = all & ~(empty | full | partial);
+            return (unknown << UNKNOWN_CLASSES_SHIFT) | (partial << PARTIAL_SHIFT) | full;
+        }
+
+        private static long bits(long[] bitset, int word, int shift, long all) {
+            return bitset == null ? 0 : (bitset[word] >>> shift) & all;
+        }
+
+        private long version() {
+            long readLock = lock.tryOptimisticRead();
+            if (lock.validate(readLock)) {
+                long version = this.version;
+                if (lock.validate(readLock)) {
+                    return version;
+                }
+            }
+
+            readLock = lock.readLock();
+            try {
+                return version;
+            } finally {
+                lock.unlockRead(readLock);
+            }
+        }
+
+        //must be called under write lock, before the solid at key is replaced by an update with the given version
+        private void remember(int key, long version) {
+            long oldest = epochs.oldest;
+            if (oldest == Long.MAX_VALUE) {
+                //no snapshots are open, so none can read from our history
+                if (historyKeys != null) {
+                    historyKeys = null;
+                    historySolids = null;
+                    historyVersions = null;
+                    historySize = 0;
+                }
+
+                return;
+            }
+
+            //null is remembered too, so snapshots can tell that the position wasn't cached at their epoch
+            Solid old = map.get(key);
+            if (historyKeys == null) {
+                historyKeys = new int[8];
+                historySolids = new Solid[8];
+                historyVersions = new long[8];
+            } else if (historySize == historyKeys.length) {
+                prune(oldest);
+
+                if (historySize > historyKeys.length >> 1) {
+                    int capacity = historyKeys.length << 1;
+                    historyKeys = Arrays.copyOf(historyKeys, capacity);
+                    historySolids = Arrays.copyOf(historySolids, capacity);
+                    historyVersions = Arrays.copyOf(historyVersions, capacity);
+                }
+            }
+
+            historyKeys[historySize] = key;
+            historySolids[historySize] = old;
+            historyVersions[historySize++] = version;
+        }
+
+        //removes history entries that no open snapshot can read; these are always at the start
+        private void prune(long oldest) {
+            int start = 0;
+            while (start < historySize && historyVersions[start] <= oldest) {
+                start++;
+            }
+
+            if (start == 0) {
+                return;
+            }
+
+            int size = historySize - start;
+            System.arraycopy(historyKeys, start, historyKeys, 0, size);
+            System.arraycopy(historySolids, start, historySolids, 0, size);
+            System.arraycopy(historyVersions, start, historyVersions, 0, size);
+            Arrays.fill(historySolids, size, historySize, null);
+            historySize = size;
+        }
+
+        //the solid at key as of the given epoch, or null if it wasn't cached then
+        private Solid readAt(int key, long epoch) {
+            long readLock = lock.tryOptimisticRead();
+            if (lock.validate(readLock)) {
+                try {
+                    Solid solid = readAtUnlocked(key, epoch);
+                    if (lock.validate(readLock)) {
+                        return solid;
+                    }
+                }
+                catch (Throwable ignored) {}
+            }
+
+            readLock = lock.readLock();
+            try {
+                return readAtUnlocked(key, epoch);
+            } finally {
+                lock.unlockRead(readLock);
+            }
+        }
+
+        private Solid readAtUnlocked(int key, long epoch) {
+            if (version > epoch) {
+                //the first solid replaced after epoch is the one that was cached at epoch
+                int[] keys = historyKeys;
+                long[] versions = historyVersions;
+                for (int i = 0; i < historySize; i++) {
+                    if (versions[i] > epoch && keys[i] == key) {
+                        return historySolids[i];
+                    }
+                }
+            }
+
+            return map.get(key);
+        }
+
         @SuppressWarnings("DuplicatedCode")
         private Solid read(int key) {
             long readLock = lock.tryOptimisticRead();
@@ -393,7 +1710,7 @@ public abstract class ConcurrentCachingSpace implements Space {
         //this method returns true when the operation succeeded, false otherwise
         //the operation can only "fail" if this chunk has been removed
         @SuppressWarnings("BooleanMethodIsAlwaysInverted")
-        private boolean write(int key, Solid solid) {
+        private boolean write(int key, Solid solid, boolean change) {
             long chunkStamp = lock.writeLock();
 
             try {
@@ -401,7 +1718,15 @@ public abstract class ConcurrentCachingSpace implements Space {
                     return false;
                 }
 
-                map.put(key, solid);
+                if (change) {
+                    long version = epochs.next();
+                    remember(key, version);
+                    put(key, solid);
+                    this.version = version;
+                } else if (map.get(key) == null) {
+                    //a load never replaces a solid that was written while it was in progress
+                    put(key, solid);
+                }
             } finally {
                 lock.unlockWrite(chunkStamp);
             }
@@ -409,6 +1734,45 @@ public abstract class ConcurrentCachingSpace implements Space {
             return true;
         }
 
+        //applies many updates under a single write lock, null solids are removed
+        //updates that would not change anything are skipped, and if all of them are, the version is left alone
+        private RemovalState writeAll(int[] keys, Solid[] solids) {
+            long chunkWrite = lock.writeLock();
+
+            try {
+                if (this.removed) {
+                    return RemovalState.CHUNK_REMOVED;
+                }
+
+                long version = 0;
+                for (int i = 0; i < keys.length; i++) {
+                    if (map.get(keys[i]) == solids[i]) {
+                        continue;
+                    }
+
+                    if (version == 0) {
+                        version = epochs.next();
+                    }
+
+                    remember(keys[i], version);
+                    if (solids[i] == null) {
+                        delete(keys[i]);
+                    } else {
+                        put(keys[i], solids[i]);
+                    }
+                }
+
+                if (version == 0) {
+                    return RemovalState.UNCHANGED;
+                }
+
+                this.version = version;
+                return map.isEmpty() ? RemovalState.MAP_EMPTY : RemovalState.NEITHER;
+            } finally {
+                lock.unlockWrite(chunkWrite);
+            }
+        }
+
         private RemovalState remove(int key) {
             long chunkWrite = lock.writeLock();
 
@@ -417,7 +1781,10 @@ public abstract class ConcurrentCachingSpace implements Space {
                     return RemovalState.CHUNK_REMOVED;
                 }
 
-                map.remove(key);
+                long version = epochs.next();
+                remember(key, version);
+                delete(key);
+                this.version = version;
                 return map.isEmpty() ? RemovalState.MAP_EMPTY : RemovalState.NEITHER;
             } finally {
                 lock.unlockWrite(chunkWrite);
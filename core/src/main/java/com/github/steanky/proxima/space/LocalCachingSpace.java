@@ -0,0 +1,218 @@
+package com.github.steanky.proxima.space;
+
+import com.github.steanky.proxima.solid.Solid;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A {@link Space} that gives each thread its own copy of the solids it reads from another, shared space, for the
+ * duration of a single task such as a path search. Between calls to {@link LocalCachingSpace#begin()} and
+ * {@link LocalCachingSpace#end()}, every solid the calling thread reads is copied into a dense buffer of 16x16x16
+ * sections the first time it is read, and later reads of it are plain array loads, with no synchronization. Outside of
+ * such a task, reads go directly to the shared space.
+ * <p>
+ * A thread sees the solids it has copied as they were when it first read them, including positions that could not be
+ * loaded, until the task ends. Changes made to the shared space in the meantime are not seen, so tasks should be
+ * short-lived. Each thread buffers a limited number of sections; reads outside of them go to the shared space.
+ * <p>
+ * Occupancy, clearance and empty-box queries are answered by the shared space.
+ */
+public final class LocalCachingSpace implements Space {
+    //marks positions that were read, but could not be loaded
+    private static final Object UNLOADED = new Object();
+
+    //the most section buffers each thread keeps for reuse between tasks
+    private static final int MAX_POOLED_SECTIONS = 64;
+
+    private final Space space;
+    private final int maxSections;
+    private final ThreadLocal<Region> regions;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param space       the shared space
+     * @param maxSections the most sections each thread may buffer during a single task, which must be positive
+     */
+    public LocalCachingSpace(@NotNull Space space, int maxSections) {
+        if (maxSections <= 0) {
+            throw new IllegalArgumentException("Invalid maxSections: " + maxSections);
+        }
+
+        this.space = Objects.requireNonNull(space);
+        this.maxSections = maxSections;
+        this.regions = ThreadLocal.withInitial(Region::new);
+    }
+
+    public LocalCachingSpace(@NotNull Space space) {
+        this(space, 512);
+    }
+
+    /**
+     * Starts a task on the calling thread, so that solids it reads are copied into its buffer. Tasks may be nested,
+     * in which case they share the buffer, and it is only discarded once the outermost task ends.
+     */
+    public void begin() {
+        regions.get().depth++;
+    }
+
+    /**
+     * Ends a task on the calling thread. Once the outermost task ends, the thread's buffer is discarded.
+     *
+     * @throws IllegalStateException if the calling thread has not begun a task
+     */
+    public void end() {
+        Region region = regions.get();
+        if (region.depth == 0) {
+            throw new IllegalStateException("No task has been begun on this thread");
+        }
+
+        if (--region.depth == 0) {
+            region.clear();
+        }
+    }
+
+    /**
+     * The shared space read by this space.
+     *
+     * @return the shared space
+     */
+    public @NotNull Space space() {
+        return space;
+    }
+
+    @Override
+    public @Nullable Solid solidAt(int x, int y, int z) {
+        Region region = regions.get();
+        if (region.depth == 0) {
+            return space.solidAt(x, y, z);
+        }
+
+        return region.solidAt(x, y, z);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns false during a task, as runs are then read from the calling thread's buffer one position at a time.
+     */
+    @Override
+    public boolean tracksOccupancy() {
+        return regions.get().depth == 0 && space.tracksOccupancy();
+    }
+
+    @Override
+    public int clearance(int x, int y, int z, int radius) {
+        //already cheap in spaces that support it
+        return space.clearance(x, y, z, radius);
+    }
+
+    @Override
+    public boolean isEmpty(int x, int y, int z, int lengthX, int lengthY, int lengthZ) {
+        //already cheap in spaces that support it
+        return space.isEmpty(x, y, z, lengthX, lengthY, lengthZ);
+    }
+
+    private static final class Section {
+        private final Object[] solids;
+
+        private int x;
+        private int y;
+        private int z;
+
+        private Section() {
+            this.solids = new Object[4096];
+        }
+    }
+
+    private final class Region {
+        private final Long2ObjectOpenHashMap<Section> sections;
+        private final ObjectArrayList<Section> pool;
+
+        private int depth;
+
+        //the section most recently read, scans usually read the same section many times in a row
+        private Section last;
+
+        private Region() {
+            this.sections = new Long2ObjectOpenHashMap<>();
+            this.pool = new ObjectArrayList<>();
+        }
+
+        /*
+        section coordinates of int block coordinates need 28 bits, so x and z are stored in full; y is stored in 8 bits,
+        so sections only collide if they are at least 4096 blocks apart vertically, which sections store their
+        coordinates to detect
+         */
+        private static long key(int x, int y, int z) {
+            return ((x & 0xFFF_FFFFL) << 36) | ((z & 0xFFF_FFFFL) << 8) | (y & 0xFFL);
+        }
+
+        private Solid solidAt(int x, int y, int z) {
+            int sx = x >> 4;
+            int sy = y >> 4;
+            int sz = z >> 4;
+
+            Section section = last;
+            if (section == null || section.x != sx || section.y != sy || section.z != sz) {
+                section = section(sx, sy, sz);
+                if (section == null) {
+                    return space.solidAt(x, y, z);
+                }
+
+                last = section;
+            }
+
+            int index = ((x & 15) << 8) | ((y & 15) << 4) | (z & 15);
+            Object value = section.solids[index];
+            if (value == null) {
+                Solid solid = space.solidAt(x, y, z);
+                section.solids[index] = solid == null ? UNLOADED : solid;
+                return solid;
+            }
+
+            return value == UNLOADED ? null : (Solid) value;
+        }
+
+        //the buffered section, or null if it can't be buffered
+        private Section section(int x, int y, int z) {
+            long key = key(x, y, z);
+            Section section = sections.get(key);
+            if (section != null) {
+                return section.x == x && section.y == y && section.z == z ? section : null;
+            }
+
+            if (sections.size() == maxSections) {
+                return null;
+            }
+
+            section = pool.isEmpty() ? new Section() : pool.pop();
+            section.x = x;
+            section.y = y;
+            section.z = z;
+
+            sections.put(key, section);
+            return section;
+        }
+
+        private void clear() {
+            for (Section section : sections.values()) {
+                if (pool.size() == MAX_POOLED_SECTIONS) {
+                    break;
+                }
+
+                Arrays.fill(section.solids, null);
+                pool.add(section);
+            }
+
+            sections.clear();
+            sections.trim();
+            last = null;
+        }
+    }
+}
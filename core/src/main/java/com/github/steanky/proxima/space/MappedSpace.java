@@ -0,0 +1,453 @@
+package com.github.steanky.proxima.space;
+
+import com.github.steanky.proxima.solid.Solid;
+import com.github.steanky.vector.Bounds3D;
+import com.github.steanky.vector.Bounds3I;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A read-only {@link Space} backed by a memory-mapped file, for worlds that never change. Files are written once using
+ * {@link MappedSpace#write(Space, Bounds3I, Path)}, and can then be opened by any number of processes using
+ * {@link MappedSpace#open(Path)}. Reads go directly to the mapped file, so processes on the same machine share a
+ * single copy of it through the operating system's page cache, and opening a file does not read any solids up front.
+ * <p>
+ * Positions are stored in 16x16x16 sections. Each section has a palette of the distinct solids it contains, and
+ * stores one palette index per position, packed into as few bits as the palette allows. Sections containing a single
+ * solid store no indices at all, and identical single-solid sections share their storage. Positions outside the bounds
+ * that were written, and positions for which the written space returned {@code null}, read as {@code null}.
+ * <p>
+ * The file format is big-endian:
+ * <ul>
+ *     <li>a header of 11 ints: the magic number, the format version, the block coordinates of the first section,
+ *     the number of sections along each axis, the offsets of the solid table and the section directory, and the
+ *     CRC-32C of everything after the header</li>
+ *     <li>the sections, each consisting of a byte giving the number of bits per index (0 for single-solid sections), a
+ *     short giving the size of the palette, the palette itself as solid table indices (ints), and the packed indices
+ *     (longs; indices never span two longs)</li>
+ *     <li>the solid table: an int count, then, for each solid, an int giving its number of children followed by the
+ *     origin and lengths of each child as 6 doubles; index 0 is reserved for {@code null} and is not stored</li>
+ *     <li>the section directory: one int offset per section, ordered by x, then y, then z</li>
+ * </ul>
+ * The CRC is not verified when a file is opened, as that would read every section; it is only used by
+ * {@link MappedSpace#checksum()}, to identify the contents of a file without reading them.
+ * <p>
+ * Instances are thread-safe. As files are mapped in a single buffer, they may not exceed 2 GiB.
+ */
+public final class MappedSpace implements Space {
+    private static final int MAGIC = 0x50585350;
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 11 * Integer.BYTES;
+    private static final int SECTION_SIZE = 16 * 16 * 16;
+
+    private final ByteBuffer buffer;
+    private final Solid[] solids;
+
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+
+    private final int sectionsX;
+    private final int sectionsY;
+    private final int sectionsZ;
+
+    private final int directoryOffset;
+    private final long checksum;
+
+    private MappedSpace(ByteBuffer buffer, Solid[] solids, int minX, int minY, int minZ, int sectionsX, int sectionsY,
+            int sectionsZ, int directoryOffset, long checksum) {
+        this.buffer = buffer;
+        this.solids = solids;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sectionsX = sectionsX;
+        this.sectionsY = sectionsY;
+        this.sectionsZ = sectionsZ;
+        this.directoryOffset = directoryOffset;
+        this.checksum = checksum;
+    }
+
+    @Override
+    public @Nullable Solid solidAt(int x, int y, int z) {
+        int rx = x - minX;
+        int ry = y - minY;
+        int rz = z - minZ;
+
+        int sx = rx >> 4;
+        int sy = ry >> 4;
+        int sz = rz >> 4;
+
+        //negative relative coordinates are out of bounds too
+        if (Integer.compareUnsigned(sx, sectionsX) >= 0 || Integer.compareUnsigned(sy, sectionsY) >= 0 ||
+                Integer.compareUnsigned(sz, sectionsZ) >= 0) {
+            return null;
+        }
+
+        ByteBuffer buffer = this.buffer;
+        int offset = buffer.getInt(directoryOffset + (((sx * sectionsY) + sy) * sectionsZ + sz) * Integer.BYTES);
+
+        int bits = buffer.get(offset);
+        int palette = offset + 1 + Short.BYTES;
+        if (bits == 0) {
+            return solids[buffer.getInt(palette)];
+        }
+
+        int paletteSize = buffer.getShort(offset + 1);
+        int perLong = Long.SIZE / bits;
+        int index = index(rx & 15, ry & 15, rz & 15);
+
+        long word = buffer.getLong(palette + paletteSize * Integer.BYTES + (index / perLong) * Long.BYTES);
+        int entry = (int) (word >>> ((index % perLong) * bits)) & ((1 << bits) - 1);
+        return solids[buffer.getInt(palette + entry * Integer.BYTES)];
+    }
+
+    /**
+     * The bounds of the region stored in the mapped file, which always consist of whole sections.
+     *
+     * @return the bounds of the stored region
+     */
+    public @NotNull Bounds3I bounds() {
+        return Bounds3I.immutable(minX, minY, minZ, sectionsX << 4, sectionsY << 4, sectionsZ << 4);
+    }
+
+    /**
+     * The distinct solids stored in the mapped file, not including {@code null}.
+     *
+     * @return the distinct solids in the file
+     */
+    public @NotNull List<Solid> solids() {
+        return List.of(Arrays.copyOfRange(solids, 1, solids.length));
+    }
+
+    /**
+     * A checksum of the mapped file, which changes whenever the file is written with different contents. It combines
+     * the CRC stored in the header, which covers the sections, solid table and directory, with a CRC of the header
+     * itself and the length of the file. Computing it reads only the header, so it can be compared against a checksum
+     * saved earlier (such as {@link com.github.steanky.proxima.snapper.SnapTable#checksum()}) to check that a file is
+     * unchanged, without reading any sections. This is meant to detect accidental changes, and is not
+     * cryptographically secure.
+     *
+     * @return the checksum of the mapped file
+     */
+    public long checksum() {
+        return checksum;
+    }
+
+    private static int index(int x, int y, int z) {
+        return (x << 8) | (y << 4) | z;
+    }
+
+    private static int sectionStart(int value) {
+        return value & ~15;
+    }
+
+    private static int sectionCount(int origin, int length) {
+        return ((origin + length - 1) >> 4) - (origin >> 4) + 1;
+    }
+
+    /**
+     * Maps a file previously written by {@link MappedSpace#write(Space, Bounds3I, Path)}. Only the header, solid table
+     * and section directory are read immediately; sections are read on demand, and are not validated. The file must
+     * not be modified while it is mapped.
+     *
+     * @param file the file to map
+     * @return a new MappedSpace
+     * @throws IOException if the file cannot be read, or is not a valid space file
+     */
+    public static @NotNull MappedSpace open(@NotNull Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + size);
+            }
+
+            if (size < HEADER_SIZE) {
+                throw new IOException("File too small: " + size);
+            }
+
+            //the mapping remains valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a space file");
+        }
+
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported version: " + version);
+        }
+
+        int minX = buffer.getInt(8);
+        int minY = buffer.getInt(12);
+        int minZ = buffer.getInt(16);
+        int sectionsX = buffer.getInt(20);
+        int sectionsY = buffer.getInt(24);
+        int sectionsZ = buffer.getInt(28);
+        int solidTableOffset = buffer.getInt(32);
+        int directoryOffset = buffer.getInt(36);
+        int contentCrc = buffer.getInt(40);
+
+        long sections = (long) sectionsX * sectionsY * sectionsZ;
+        if (sectionsX < 0 || sectionsY < 0 || sectionsZ < 0 || directoryOffset < HEADER_SIZE ||
+                directoryOffset + sections * Integer.BYTES > buffer.capacity() || solidTableOffset < HEADER_SIZE ||
+                solidTableOffset > directoryOffset) {
+            throw new IOException("Corrupt header");
+        }
+
+        //section contents are only read when needed, but the directory is small enough to check up front
+        for (int i = 0; i < sections; i++) {
+            int offset = buffer.getInt(directoryOffset + i * Integer.BYTES);
+            if (offset < HEADER_SIZE || offset >= solidTableOffset) {
+                throw new IOException("Corrupt section directory");
+            }
+        }
+
+        Solid[] solids = readSolids(buffer, solidTableOffset);
+
+        CRC32C headerCrc = new CRC32C();
+        headerCrc.update(buffer.slice(0, HEADER_SIZE));
+        headerCrc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, buffer.capacity()));
+        long checksum = ((long) contentCrc << 32) | headerCrc.getValue();
+
+        return new MappedSpace(buffer, solids, minX, minY, minZ, sectionsX, sectionsY, sectionsZ, directoryOffset,
+                checksum);
+    }
+
+    private static Solid[] readSolids(ByteBuffer buffer, int offset) throws IOException {
+        try {
+            int count = buffer.getInt(offset);
+            if (count < 0) {
+                throw new IOException("Corrupt solid table");
+            }
+
+            Solid[] solids = new Solid[count + 1];
+            int position = offset + Integer.BYTES;
+            for (int i = 1; i <= count; i++) {
+                int children = buffer.getInt(position);
+                position += Integer.BYTES;
+                if (children < 0) {
+                    throw new IOException("Corrupt solid table");
+                }
+
+                Bounds3D[] bounds = new Bounds3D[children];
+                for (int j = 0; j < children; j++) {
+                    bounds[j] = Bounds3D.immutable(buffer.getDouble(position), buffer.getDouble(position + 8),
+                            buffer.getDouble(position + 16), buffer.getDouble(position + 24),
+                            buffer.getDouble(position + 32), buffer.getDouble(position + 40));
+                    position += 6 * Double.BYTES;
+                }
+
+                solids[i] = Solid.of(bounds);
+            }
+
+            return solids;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt solid table", e);
+        }
+    }
+
+    /**
+     * Writes the solids in the given region of a space to a file, in the format read by {@link MappedSpace#open(Path)}.
+     * The region is expanded to whole sections. Any existing file is replaced.
+     *
+     * @param space  the space to read from
+     * @param bounds the region to write
+     * @param file   the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(@NotNull Space space, @NotNull Bounds3I bounds, @NotNull Path file) throws IOException {
+        Objects.requireNonNull(space);
+        Objects.requireNonNull(bounds);
+        Objects.requireNonNull(file);
+
+        if (bounds.lengthX() <= 0 || bounds.lengthY() <= 0 || bounds.lengthZ() <= 0) {
+            throw new IllegalArgumentException("Bounds must not be empty");
+        }
+
+        int minX = sectionStart(bounds.originX());
+        int minY = sectionStart(bounds.originY());
+        int minZ = sectionStart(bounds.originZ());
+        int sectionsX = sectionCount(bounds.originX(), bounds.lengthX());
+        int sectionsY = sectionCount(bounds.originY(), bounds.lengthY());
+        int sectionsZ = sectionCount(bounds.originZ(), bounds.lengthZ());
+
+        long sections = (long) sectionsX * sectionsY * sectionsZ;
+        if (sections > Integer.MAX_VALUE / Integer.BYTES) {
+            throw new IllegalArgumentException("Bounds too large");
+        }
+
+        //solid table indices by solid ID; index 0 is null
+        Int2IntOpenHashMap tableIndices = new Int2IntOpenHashMap();
+        ObjectArrayList<Solid> table = new ObjectArrayList<>();
+
+        //offsets of single-solid sections, by solid table index
+        Int2IntOpenHashMap uniformOffsets = new Int2IntOpenHashMap();
+        uniformOffsets.defaultReturnValue(-1);
+
+        int[] directory = new int[(int) sections];
+        int[] indices = new int[SECTION_SIZE];
+        Int2IntOpenHashMap paletteIndices = new Int2IntOpenHashMap();
+        IntArrayList palette = new IntArrayList();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+
+            //everything after the header passes through the CRC, which is written to the header last
+            CRC32C crc = new CRC32C();
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(
+                    Channels.newOutputStream(channel), crc)));
+            long position = HEADER_SIZE;
+
+            int section = 0;
+            for (int sx = 0; sx < sectionsX; sx++) {
+                for (int sy = 0; sy < sectionsY; sy++) {
+                    for (int sz = 0; sz < sectionsZ; sz++) {
+                        paletteIndices.clear();
+                        palette.clear();
+
+                        int bx = minX + (sx << 4);
+                        int by = minY + (sy << 4);
+                        int bz = minZ + (sz << 4);
+                        for (int x = 0; x < 16; x++) {
+                            for (int y = 0; y < 16; y++) {
+                                for (int z = 0; z < 16; z++) {
+                                    Solid solid = space.solidAt(bx + x, by + y, bz + z);
+
+                                    int tableIndex = 0;
+                                    if (solid != null) {
+                                        tableIndex = tableIndices.get(solid.id());
+                                        if (tableIndex == 0) {
+                                            table.add(solid);
+                                            tableIndex = table.size();
+                                            tableIndices.put(solid.id(), tableIndex);
+                                        }
+                                    }
+
+                                    int paletteIndex = paletteIndices.getOrDefault(tableIndex, -1);
+                                    if (paletteIndex == -1) {
+                                        paletteIndex = palette.size();
+                                        palette.add(tableIndex);
+                                        paletteIndices.put(tableIndex, paletteIndex);
+                                    }
+
+                                    indices[index(x, y, z)] = paletteIndex;
+                                }
+                            }
+                        }
+
+                        if (position > Integer.MAX_VALUE) {
+                            throw new IOException("File too large");
+                        }
+
+                        if (palette.size() == 1) {
+                            int uniform = palette.getInt(0);
+                            int existing = uniformOffsets.get(uniform);
+                            if (existing != -1) {
+                                directory[section++] = existing;
+                                continue;
+                            }
+
+                            uniformOffsets.put(uniform, (int) position);
+                        }
+
+                        directory[section++] = (int) position;
+                        position += writeSection(output, palette, indices);
+                    }
+                }
+            }
+
+            int solidTableOffset = (int) position;
+            output.writeInt(table.size());
+            position += Integer.BYTES;
+            for (Solid solid : table) {
+                List<Bounds3D> children = solid.children();
+                output.writeInt(children.size());
+                for (Bounds3D child : children) {
+                    output.writeDouble(child.originX());
+                    output.writeDouble(child.originY());
+                    output.writeDouble(child.originZ());
+                    output.writeDouble(child.lengthX());
+                    output.writeDouble(child.lengthY());
+                    output.writeDouble(child.lengthZ());
+                }
+
+                position += Integer.BYTES + (long) children.size() * 6 * Double.BYTES;
+            }
+
+            if (position + (long) directory.length * Integer.BYTES > Integer.MAX_VALUE) {
+                throw new IOException("File too large");
+            }
+
+            int directoryOffset = (int) position;
+            for (int offset : directory) {
+                output.writeInt(offset);
+            }
+
+            output.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(minX).putInt(minY).putInt(minZ).putInt(sectionsX)
+                    .putInt(sectionsY).putInt(sectionsZ).putInt(solidTableOffset).putInt(directoryOffset)
+                    .putInt((int) crc.getValue()).flip();
+
+            long headerPosition = 0;
+            while (header.hasRemaining()) {
+                headerPosition += channel.write(header, headerPosition);
+            }
+        }
+    }
+
+    //returns the number of bytes written
+    private static int writeSection(DataOutputStream output, IntArrayList palette, int[] indices)
+            throws IOException {
+        int paletteSize = palette.size();
+        int bits = paletteSize == 1 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(paletteSize - 1);
+
+        output.writeByte(bits);
+        output.writeShort(paletteSize);
+        for (int i = 0; i < paletteSize; i++) {
+            output.writeInt(palette.getInt(i));
+        }
+
+        int written = 1 + Short.BYTES + paletteSize * Integer.BYTES;
+        if (bits == 0) {
+            return written;
+        }
+
+        int perLong = Long.SIZE / bits;
+        for (int start = 0; start < SECTION_SIZE; start += perLong) {
+            long word = 0;
+            int end = Math.min(start + perLong, SECTION_SIZE);
+            for (int i = start; i < end; i++) {
+                word |= (long) indices[i] << ((i - start) * bits);
+            }
+
+            output.writeLong(word);
+            written += Long.BYTES;
+        }
+
+        return written;
+    }
+}
@@ -0,0 +1,240 @@
+package com.github.steanky.proxima.space;
+
+import com.github.steanky.proxima.solid.Solid;
+import com.github.steanky.vector.Bounds3I;
+import com.github.steanky.vector.Vec3I;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A sparse {@link Space} for mostly-empty volumes, such as the air above terrain or the void around floating islands.
+ * Solids are stored in an octree whose uniform regions are collapsed into single leaves, so large empty or full
+ * volumes take up almost no memory, and {@link OctreeSpace#isEmpty(int, int, int, int, int, int)} can answer for a
+ * whole box without visiting each position in it.
+ * <p>
+ * Positions that have never been set contain {@link Solid#EMPTY}. Positions outside the bounds given on construction
+ * read as {@code null}. Not thread-safe; may be read concurrently once it is no longer being modified.
+ */
+public final class OctreeSpace implements Space {
+    private static final int MAX_LENGTH = 1 << 30;
+    private static final int INITIAL_NODES = 16;
+
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+
+    private final int lengthX;
+    private final int lengthY;
+    private final int lengthZ;
+
+    //the root covers a cube with sides of 1 << depth
+    private final int depth;
+
+    //non-negative codes are indices of internal nodes, negative codes are leaves holding the complement of a solid ID
+    private int root;
+
+    //the 8 child codes of each internal node, ordered by x, then y, then z
+    private int[] nodes;
+    private int nodeCount;
+    private final IntArrayList freeNodes;
+
+    public OctreeSpace(int x, int y, int z, int lX, int lY, int lZ) {
+        if (lX <= 0 || lY <= 0 || lZ <= 0 || lX > MAX_LENGTH || lY > MAX_LENGTH || lZ > MAX_LENGTH) {
+            throw new IllegalArgumentException("Invalid lengths: " + lX + ", " + lY + ", " + lZ);
+        }
+
+        this.originX = x;
+        this.originY = y;
+        this.originZ = z;
+        this.lengthX = lX;
+        this.lengthY = lY;
+        this.lengthZ = lZ;
+
+        int max = Math.max(lX, Math.max(lY, lZ));
+        this.depth = Integer.SIZE - Integer.numberOfLeadingZeros(max - 1);
+
+        this.root = leaf(Solid.EMPTY);
+        this.nodes = new int[INITIAL_NODES << 3];
+        this.freeNodes = new IntArrayList();
+    }
+
+    public OctreeSpace(@NotNull Bounds3I bounds) {
+        this(bounds.originX(), bounds.originY(), bounds.originZ(), bounds.lengthX(), bounds.lengthY(),
+                bounds.lengthZ());
+    }
+
+    private static int leaf(Solid solid) {
+        return ~solid.id();
+    }
+
+    private static int child(int rx, int ry, int rz, int shift) {
+        return (((rx >> shift) & 1) << 2) | (((ry >> shift) & 1) << 1) | ((rz >> shift) & 1);
+    }
+
+    @Override
+    public @Nullable Solid solidAt(int x, int y, int z) {
+        int rx = x - originX;
+        int ry = y - originY;
+        int rz = z - originZ;
+
+        //negative relative coordinates are out of bounds too
+        if (Integer.compareUnsigned(rx, lengthX) >= 0 || Integer.compareUnsigned(ry, lengthY) >= 0 ||
+                Integer.compareUnsigned(rz, lengthZ) >= 0) {
+            return null;
+        }
+
+        int[] nodes = this.nodes;
+        int code = root;
+        int shift = depth;
+        while (code >= 0) {
+            shift--;
+            code = nodes[(code << 3) | child(rx, ry, rz, shift)];
+        }
+
+        return Solid.byId(~code);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation always answers exactly for boxes within the bounds of this space, visiting only the nodes
+     * that intersect the box. Boxes that extend outside the bounds are never empty.
+     */
+    @Override
+    public boolean isEmpty(int x, int y, int z, int lengthX, int lengthY, int lengthZ) {
+        if (lengthX <= 0 || lengthY <= 0 || lengthZ <= 0) {
+            throw new IllegalArgumentException("Invalid box lengths: " + lengthX + ", " + lengthY + ", " + lengthZ);
+        }
+
+        long rx = (long) x - originX;
+        long ry = (long) y - originY;
+        long rz = (long) z - originZ;
+
+        if (rx < 0 || ry < 0 || rz < 0 || rx + lengthX > this.lengthX || ry + lengthY > this.lengthY ||
+                rz + lengthZ > this.lengthZ) {
+            return false;
+        }
+
+        int minX = (int) rx;
+        int minY = (int) ry;
+        int minZ = (int) rz;
+        return isEmpty(root, depth, 0, 0, 0, minX, minY, minZ, minX + lengthX, minY + lengthY, minZ + lengthZ);
+    }
+
+    private boolean isEmpty(int code, int shift, int nodeX, int nodeY, int nodeZ, int minX, int minY, int minZ,
+            int maxX, int maxY, int maxZ) {
+        if (code < 0) {
+            return code == leaf(Solid.EMPTY);
+        }
+
+        int half = 1 << (shift - 1);
+        int base = code << 3;
+        for (int i = 0; i < 8; i++) {
+            int cx = nodeX + ((i >> 2) & 1) * half;
+            int cy = nodeY + ((i >> 1) & 1) * half;
+            int cz = nodeZ + (i & 1) * half;
+
+            //skip children that don't intersect the box
+            if (cx >= maxX || cx + half <= minX || cy >= maxY || cy + half <= minY || cz >= maxZ ||
+                    cz + half <= minZ) {
+                continue;
+            }
+
+            if (!isEmpty(nodes[base | i], shift - 1, cx, cy, cz, minX, minY, minZ, maxX, maxY, maxZ)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public void put(int x, int y, int z, @NotNull Solid solid) {
+        Objects.requireNonNull(solid);
+
+        int rx = x - originX;
+        int ry = y - originY;
+        int rz = z - originZ;
+
+        if (Integer.compareUnsigned(rx, lengthX) >= 0 || Integer.compareUnsigned(ry, lengthY) >= 0 ||
+                Integer.compareUnsigned(rz, lengthZ) >= 0) {
+            throw new IllegalArgumentException("Position out of bounds: " + x + ", " + y + ", " + z);
+        }
+
+        root = put(root, depth, rx, ry, rz, leaf(solid));
+    }
+
+    public void put(@NotNull Vec3I vec, @NotNull Solid solid) {
+        put(vec.x(), vec.y(), vec.z(), solid);
+    }
+
+    public void remove(int x, int y, int z) {
+        put(x, y, z, Solid.EMPTY);
+    }
+
+    private int put(int code, int shift, int rx, int ry, int rz, int value) {
+        if (code == value || shift == 0) {
+            return value;
+        }
+
+        int node = code < 0 ? allocate(code) : code;
+        int index = (node << 3) | child(rx, ry, rz, shift - 1);
+
+        //may grow the node array, so it must be read again afterwards
+        int result = put(nodes[index], shift - 1, rx, ry, rz, value);
+        int[] nodes = this.nodes;
+        nodes[index] = result;
+
+        //collapse nodes whose children are all the same leaf
+        int base = node << 3;
+        int first = nodes[base];
+        if (first >= 0) {
+            return node;
+        }
+
+        for (int i = 1; i < 8; i++) {
+            if (nodes[base | i] != first) {
+                return node;
+            }
+        }
+
+        freeNodes.add(node);
+        return first;
+    }
+
+    private int allocate(int fill) {
+        int node;
+        if (!freeNodes.isEmpty()) {
+            node = freeNodes.popInt();
+        } else {
+            node = nodeCount++;
+            if ((node << 3) == nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length << 1);
+            }
+        }
+
+        Arrays.fill(nodes, node << 3, (node << 3) + 8, fill);
+        return node;
+    }
+
+    /**
+     * The bounds of this space.
+     *
+     * @return the bounds of this space
+     */
+    public @NotNull Bounds3I bounds() {
+        return Bounds3I.immutable(originX, originY, originZ, lengthX, lengthY, lengthZ);
+    }
+
+    /**
+     * The number of internal nodes currently used to store this space. Uniform regions don't need any.
+     *
+     * @return the number of internal nodes
+     */
+    public int nodeCount() {
+        return nodeCount - freeNodes.size();
+    }
+}
@@ -0,0 +1,22 @@
+package com.github.steanky.proxima.space;
+
+/**
+ * A {@link Space} that can load solids ahead of time, so that later reads of them are cheap. Path searches use this to
+ * warm the space along the route they expect to take, on other threads, before and while they run.
+ *
+ * @see ConcurrentCachingSpace
+ */
+public interface PrefetchingSpace extends Space {
+    /**
+     * Loads every position in a box, so that later reads of those positions don't need to load them. Positions that
+     * are already loaded, or that can't be loaded, are skipped. May be called concurrently by any number of threads.
+     *
+     * @param x       the x-coordinate of the minimum corner of the box
+     * @param y       the y-coordinate of the minimum corner of the box
+     * @param z       the z-coordinate of the minimum corner of the box
+     * @param lengthX the length of the box along the x-axis, which must be positive
+     * @param lengthY the length of the box along the y-axis, which must be positive
+     * @param lengthZ the length of the box along the z-axis, which must be positive
+     */
+    void prefetch(int x, int y, int z, int lengthX, int lengthY, int lengthZ);
+}
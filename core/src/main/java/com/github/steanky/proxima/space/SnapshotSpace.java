@@ -0,0 +1,18 @@
+package com.github.steanky.proxima.space;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link Space} that can take {@link SpaceSnapshot}s of itself, so that long-running readers such as path searches
+ * are not affected by changes made while they run.
+ *
+ * @see ConcurrentCachingSpace
+ */
+public interface SnapshotSpace extends Space {
+    /**
+     * Takes a snapshot of this space. The snapshot must be closed once it is no longer needed.
+     *
+     * @return a new snapshot
+     */
+    @NotNull SpaceSnapshot snapshot();
+}
@@ -0,0 +1,89 @@
+package com.github.steanky.proxima.space;
+
+import com.github.steanky.proxima.solid.Solid;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * A list of solid updates that can be applied all at once, using
+ * {@link ConcurrentCachingSpace#updateSolids(SolidBatch)}. Updates are applied in the order they were added, so if the
+ * same position is updated more than once, the last update wins. Not thread-safe.
+ */
+public final class SolidBatch {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] coordinates;
+    private Solid[] solids;
+    private int size;
+
+    public SolidBatch(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Invalid initialCapacity: " + initialCapacity);
+        }
+
+        this.coordinates = new int[initialCapacity * 3];
+        this.solids = new Solid[initialCapacity];
+    }
+
+    public SolidBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Adds an update to this batch.
+     *
+     * @param x     the x-coordinate of the solid to update
+     * @param y     the y-coordinate of the solid to update
+     * @param z     the z-coordinate of the solid to update
+     * @param solid the new solid, or null to remove any cached solid (if present)
+     * @return this instance, for chaining
+     */
+    public @NotNull SolidBatch add(int x, int y, int z, @Nullable Solid solid) {
+        if (size == solids.length) {
+            int capacity = Math.max(DEFAULT_CAPACITY, size << 1);
+            coordinates = Arrays.copyOf(coordinates, capacity * 3);
+            solids = Arrays.copyOf(solids, capacity);
+        }
+
+        int i = size * 3;
+        coordinates[i] = x;
+        coordinates[i + 1] = y;
+        coordinates[i + 2] = z;
+        solids[size++] = solid;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all updates from this batch, so that it may be reused.
+     */
+    public void clear() {
+        Arrays.fill(solids, 0, size, null);
+        size = 0;
+    }
+
+    int x(int index) {
+        return coordinates[index * 3];
+    }
+
+    int y(int index) {
+        return coordinates[index * 3 + 1];
+    }
+
+    int z(int index) {
+        return coordinates[index * 3 + 2];
+    }
+
+    @Nullable Solid solid(int index) {
+        return solids[index];
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.steanky.proxima.space;
 
+import com.github.steanky.proxima.Direction;
 import com.github.steanky.proxima.solid.Solid;
 import com.github.steanky.vector.Vec3I;
 import org.jetbrains.annotations.NotNull;
@@ -7,9 +8,240 @@ import org.jetbrains.annotations.Nullable;
 
 @FunctionalInterface
 public interface Space {
+    /**
+     * Occupancy class of positions containing an empty solid.
+     */
+    int EMPTY = 1;
+
+    /**
+     * Occupancy class of positions containing a full solid.
+     */
+    int FULL = 1 << 1;
+
+    /**
+     * Occupancy class of positions containing a solid that is neither empty nor full.
+     */
+    int PARTIAL = 1 << 2;
+
+    /**
+     * Occupancy class of positions for which {@link Space#solidAt(int, int, int)} returns {@code null}.
+     */
+    int UNLOADED = 1 << 3;
+
+    /**
+     * The largest headroom that can be reported by {@link Space#clearance(int, int, int, int)}.
+     */
+    int MAX_HEADROOM = 15;
+
     @Nullable Solid solidAt(int x, int y, int z);
 
     default @Nullable Solid solidAt(@NotNull Vec3I vec) {
         return solidAt(vec.x(), vec.y(), vec.z());
     }
+
+    /**
+     * Classifies a run of up to 64 positions, starting at the given coordinates and moving in the given direction. Bit
+     * {@code i} of the result is set if the occupancy class of the {@code i}th position is one of {@code classes}. The
+     * classes are {@link Space#EMPTY}, {@link Space#FULL}, {@link Space#PARTIAL}, and {@link Space#UNLOADED}, and may
+     * be combined using bitwise OR.
+     * <p>
+     * The default implementation calls {@link Space#solidAt(int, int, int)} for each position. Implementations that
+     * track occupancy separately from solids may answer this without inspecting individual solids.
+     *
+     * @param x         the x-coordinate of the first position
+     * @param y         the y-coordinate of the first position
+     * @param z         the z-coordinate of the first position
+     * @param direction the direction of the run
+     * @param length    the number of positions in the run, between 0 and 64 (inclusive)
+     * @param classes   the occupancy classes to test for
+     * @return a bitmask of the positions that match
+     */
+    default long occupancy(int x, int y, int z, @NotNull Direction direction, int length, int classes) {
+        validateLength(length);
+
+        long result = 0;
+        for (int i = 0; i < length; i++) {
+            Solid solid = solidAt(x + direction.x * i, y + direction.y * i, z + direction.z * i);
+            if ((classify(solid) & classes) != 0) {
+                result |= 1L << i;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Classifies a run of up to 32 positions, starting at the given coordinates and moving in the given direction,
+     * distinguishing every occupancy class at once. Bit {@code i} of the lower 32 bits of the result is set if the
+     * {@code i}th position is {@link Space#FULL} or {@link Space#UNLOADED}; bit {@code i} of the upper 32 bits is set
+     * if it is {@link Space#PARTIAL} or {@link Space#UNLOADED}. Positions with neither bit set are
+     * {@link Space#EMPTY}. Use {@link Space#occupied(long)}, {@link Space#full(long)}, {@link Space#partial(long)} and
+     * {@link Space#unloaded(long)} to split the result.
+     * <p>
+     * This answers in a single query what would otherwise take several calls to
+     * {@link Space#occupancy(int, int, int, Direction, int, int)}. The default implementation calls
+     * {@link Space#solidAt(int, int, int)} once for each position.
+     *
+     * @param x         the x-coordinate of the first position
+     * @param y         the y-coordinate of the first position
+     * @param z         the z-coordinate of the first position
+     * @param direction the direction of the run
+     * @param length    the number of positions in the run, between 0 and 32 (inclusive)
+     * @return the classes of the positions in the run
+     */
+    default long occupancyClasses(int x, int y, int z, @NotNull Direction direction, int length) {
+        validateClassesLength(length);
+
+        long fullOrUnloaded = 0;
+        long partialOrUnloaded = 0;
+        for (int i = 0; i < length; i++) {
+            int occupancyClass = classify(solidAt(x + direction.x * i, y + direction.y * i, z + direction.z * i));
+            if ((occupancyClass & (FULL | UNLOADED)) != 0) {
+                fullOrUnloaded |= 1L << i;
+            }
+
+            if ((occupancyClass & (PARTIAL | UNLOADED)) != 0) {
+                partialOrUnloaded |= 1L << i;
+            }
+        }
+
+        return (partialOrUnloaded << Integer.SIZE) | fullOrUnloaded;
+    }
+
+    /**
+     * Whether {@link Space#occupancy(int, int, int, Direction, int, int)} is answered, on the calling thread, without
+     * looking up each solid. Callers that classify positions only to avoid looking up solids should skip doing so when
+     * this returns false, as it would look up every solid twice. The default implementation returns false.
+     *
+     * @return true if occupancy is tracked separately from solids, false otherwise
+     */
+    default boolean tracksOccupancy() {
+        return false;
+    }
+
+    /**
+     * Determines how much free space there is above a square of positions. The headroom of a position is the number
+     * of consecutive positions, starting with it and moving up, that contain empty solids. This method returns the
+     * smallest headroom of any position in the square that is centered on the given position and extends
+     * {@code radius} positions in each horizontal direction, up to {@link Space#MAX_HEADROOM}. An agent whose
+     * footprint fits in the square and that is no taller than the result is guaranteed not to collide with anything.
+     * <p>
+     * Results are lower bounds: implementations need not account for positions they do not know about, and may
+     * report less headroom than is actually available. The default implementation does not track headroom, and always
+     * returns 0.
+     *
+     * @param x      the x-coordinate of the center of the square
+     * @param y      the y-coordinate of the square
+     * @param z      the z-coordinate of the center of the square
+     * @param radius the radius of the square, which must be non-negative
+     * @return the smallest headroom in the square, between 0 and {@link Space#MAX_HEADROOM} (inclusive)
+     */
+    default int clearance(int x, int y, int z, int radius) {
+        validateRadius(radius);
+        return 0;
+    }
+
+    /**
+     * Determines if every position in a box contains an empty solid. The box has its minimum corner at the given
+     * position and extends {@code lengthX}, {@code lengthY} and {@code lengthZ} positions along each axis.
+     * <p>
+     * Results are conservative: implementations that cannot answer this cheaply may return false even if the box is
+     * empty, so callers should only use this to skip work they would otherwise do position by position. The default
+     * implementation always returns false.
+     *
+     * @param x       the x-coordinate of the minimum corner of the box
+     * @param y       the y-coordinate of the minimum corner of the box
+     * @param z       the z-coordinate of the minimum corner of the box
+     * @param lengthX the length of the box along the x-axis, which must be positive
+     * @param lengthY the length of the box along the y-axis, which must be positive
+     * @param lengthZ the length of the box along the z-axis, which must be positive
+     * @return true if the box is known to be empty, false otherwise
+     */
+    default boolean isEmpty(int x, int y, int z, int lengthX, int lengthY, int lengthZ) {
+        validateBox(lengthX, lengthY, lengthZ);
+        return false;
+    }
+
+    /**
+     * Extracts the positions that are not empty from a result of
+     * {@link Space#occupancyClasses(int, int, int, Direction, int)}.
+     *
+     * @param classes the result
+     * @return a bitmask of the positions that are full, partial, or unloaded
+     */
+    static long occupied(long classes) {
+        return (classes | (classes >>> Integer.SIZE)) & 0xFFFF_FFFFL;
+    }
+
+    /**
+     * Extracts the full positions from a result of {@link Space#occupancyClasses(int, int, int, Direction, int)}.
+     *
+     * @param classes the result
+     * @return a bitmask of the positions that are full
+     */
+    static long full(long classes) {
+        return classes & ~(classes >>> Integer.SIZE) & 0xFFFF_FFFFL;
+    }
+
+    /**
+     * Extracts the partial positions from a result of {@link Space#occupancyClasses(int, int, int, Direction, int)}.
+     *
+     * @param classes the result
+     * @return a bitmask of the positions that are partial
+     */
+    static long partial(long classes) {
+        return (classes >>> Integer.SIZE) & ~classes & 0xFFFF_FFFFL;
+    }
+
+    /**
+     * Extracts the unloaded positions from a result of {@link Space#occupancyClasses(int, int, int, Direction, int)}.
+     *
+     * @param classes the result
+     * @return a bitmask of the positions that are unloaded
+     */
+    static long unloaded(long classes) {
+        return classes & (classes >>> Integer.SIZE);
+    }
+
+    /**
+     * Determines the occupancy class of the given solid.
+     *
+     * @param solid the solid, or null if it could not be loaded
+     * @return one of {@link Space#EMPTY}, {@link Space#FULL}, {@link Space#PARTIAL}, or {@link Space#UNLOADED}
+     */
+    static int classify(@Nullable Solid solid) {
+        if (solid == null) {
+            return UNLOADED;
+        }
+
+        if (solid.isEmpty()) {
+            return EMPTY;
+        }
+
+        return solid.isFull() ? FULL : PARTIAL;
+    }
+
+    private static void validateRadius(int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Invalid radius: " + radius);
+        }
+    }
+
+    private static void validateBox(int lengthX, int lengthY, int lengthZ) {
+        if (lengthX <= 0 || lengthY <= 0 || lengthZ <= 0) {
+            throw new IllegalArgumentException("Invalid box lengths: " + lengthX + ", " + lengthY + ", " + lengthZ);
+        }
+    }
+
+    private static void validateLength(int length) {
+        if (length < 0 || length > Long.SIZE) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+    }
+
+    private static void validateClassesLength(int length) {
+        if (length < 0 || length > Integer.SIZE) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+    }
 }
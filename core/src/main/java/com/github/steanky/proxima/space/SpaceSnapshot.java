@@ -0,0 +1,37 @@
+package com.github.steanky.proxima.space;
+
+/**
+ * A read-only view of a {@link SnapshotSpace}, obtained from {@link SnapshotSpace#snapshot()}.
+ * <p>
+ * Snapshots guarantee repeatable reads of each position: once a solid has been read from a position, every later read
+ * of that position through the same snapshot returns the same solid, no matter how the space changes. They are
+ * <i>not</i> required to be point-in-time views. Implementations may read positions they know nothing about from the
+ * live world the first time they are needed, so two positions first read at different times may reflect different
+ * states of the world.
+ * <p>
+ * A snapshot may be pinned to a thread, in which case reads made on that thread through the space it came from are
+ * read from the snapshot instead. Writes are not affected. Snapshots must be closed once they are no longer needed.
+ */
+public interface SpaceSnapshot extends Space, AutoCloseable {
+    /**
+     * Pins this snapshot to the calling thread. Until it is unpinned, all reads made on this thread through the
+     * {@link SnapshotSpace} this snapshot belongs to will read from this snapshot instead.
+     *
+     * @throws IllegalStateException if this snapshot is closed, or the thread already has a pinned snapshot
+     */
+    void pin();
+
+    /**
+     * Unpins this snapshot from the calling thread.
+     *
+     * @throws IllegalStateException if this snapshot is not pinned to the calling thread
+     */
+    void unpin();
+
+    /**
+     * Closes this snapshot, unpinning it from the calling thread if necessary. Snapshots that are already closed are
+     * unaffected.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,74 @@
+package com.github.steanky.proxima.node;
+
+import com.github.steanky.proxima.snapper.BasicNodeSnapper;
+import com.github.steanky.proxima.snapper.CountingNodeSnapper;
+import com.github.steanky.proxima.solid.Solid;
+import com.github.steanky.proxima.space.HashSpace;
+import com.github.steanky.vector.HashVec3I2ObjectMap;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmoothingProcessorTest {
+    private static final int LENGTH = 200;
+
+    private static HashSpace floor() {
+        HashSpace space = new HashSpace(-10, -10, -10, LENGTH + 20, 20, 20);
+        for (int x = -5; x < LENGTH + 5; x++) {
+            for (int z = -5; z <= 5; z++) {
+                space.put(x, 0, z, Solid.FULL);
+            }
+        }
+
+        return space;
+    }
+
+    //a straight path along the x-axis, starting at the returned node
+    private static Node line() {
+        Node head = null;
+        for (int x = LENGTH - 1; x >= 0; x--) {
+            Node node = new Node(x, 1, 0, 0, 0, 0);
+            node.parent = head;
+            head = node;
+        }
+
+        return head;
+    }
+
+    @Test
+    void straightRunsTakeFewSnaps() {
+        CountingNodeSnapper snapper = new CountingNodeSnapper(new BasicNodeSnapper(floor(), 1, 1, 1, 1, 1E-6));
+        NodeProcessor processor = NodeProcessor.createSmoothing(snapper);
+
+        Node head = line();
+        processor.processPath(head, new HashVec3I2ObjectMap<>(0, 0, 0, 1, 1, 1));
+
+        assertNotNull(head.parent);
+        assertEquals(LENGTH - 1, head.parent.x);
+        assertNull(head.parent.parent);
+
+        //checking every node in turn would take about LENGTH^2 / 2 snaps
+        assertTrue(snapper.count() < LENGTH * 16, "took " + snapper.count() + " snaps");
+    }
+
+    @Test
+    void stopsAtGaps() {
+        HashSpace space = floor();
+        space.remove(120, 0, 0);
+        space.remove(120, 0, 1);
+        space.remove(120, 0, -1);
+
+        NodeProcessor processor = NodeProcessor.createSmoothing(new BasicNodeSnapper(space, 1, 1, 1, 1, 1E-6));
+        Node head = line();
+        processor.processPath(head, new HashVec3I2ObjectMap<>(0, 0, 0, 1, 1, 1));
+
+        //the path can't be shortened across the gap, but it is still straightened up to it
+        int count = 0;
+        for (Node node = head; node != null; node = node.parent) {
+            count++;
+        }
+
+        assertTrue(count < 10, "path has " + count + " nodes");
+        assertTrue(head.parent.x < 120);
+    }
+}
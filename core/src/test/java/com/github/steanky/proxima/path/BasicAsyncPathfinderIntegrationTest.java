@@ -2,42 +2,70 @@ package com.github.steanky.proxima.path;
 
 import com.github.steanky.proxima.Direction;
 import com.github.steanky.proxima.Heuristic;
+import com.github.steanky.proxima.NodeHandler;
 import com.github.steanky.proxima.PathLimiter;
+import com.github.steanky.proxima.explorer.DiagonalWalkExplorer;
+import com.github.steanky.proxima.explorer.DirectionalExplorer;
 import com.github.steanky.proxima.explorer.Explorer;
+import com.github.steanky.proxima.explorer.FlightExplorer;
+import com.github.steanky.proxima.explorer.NodeInitializer;
 import com.github.steanky.proxima.explorer.WalkExplorer;
 import com.github.steanky.proxima.node.Node;
 import com.github.steanky.proxima.node.NodeProcessor;
+import com.github.steanky.proxima.resolver.PositionResolver;
 import com.github.steanky.proxima.snapper.BasicNodeSnapper;
+import com.github.steanky.proxima.snapper.CountingNodeSnapper;
 import com.github.steanky.proxima.snapper.NodeSnapper;
 import com.github.steanky.proxima.solid.Solid;
 import com.github.steanky.proxima.space.ConcurrentCachingSpace;
 import com.github.steanky.proxima.space.HashSpace;
+import com.github.steanky.proxima.space.LocalCachingSpace;
+import com.github.steanky.proxima.space.OctreeSpace;
+import com.github.steanky.proxima.space.PrefetchingSpace;
 import com.github.steanky.proxima.space.Space;
 import com.github.steanky.vector.*;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class BasicAsyncPathfinderIntegrationTest {
     private static PathSettings settings(int width, int height, int fallTolerance, int jumpHeight, @NotNull Space space, Bounds3I searchArea, Function<NodeSnapper, NodeProcessor> processorFunction) {
+        return settings(width, height, fallTolerance, jumpHeight, space, searchArea, processorFunction,
+                snapper -> new WalkExplorer(snapper, PathLimiter.inBounds(searchArea)));
+    }
+
+    private static PathSettings settings(int width, int height, int fallTolerance, int jumpHeight, @NotNull Space space, Bounds3I searchArea, Function<NodeSnapper, NodeProcessor> processorFunction, Function<NodeSnapper, Explorer> explorerFunction) {
+        return settings(new BasicNodeSnapper(space, width, height, fallTolerance, jumpHeight, 1E-6), searchArea,
+                Heuristic.OCTILE, processorFunction, explorerFunction);
+    }
+
+    private static PathSettings settings(@NotNull NodeSnapper snapper, Bounds3I searchArea, Heuristic heuristic, Function<NodeSnapper, NodeProcessor> processorFunction, Function<NodeSnapper, Explorer> explorerFunction) {
         return new PathSettings() {
             private static final Vec3IBiPredicate SUCCESS_PREDICATE =
                     (x1, y1, z1, x2, y2, z2) -> x1 == x2 && y1 == y2 && z1 == z2;
             //using a ThreadLocal HashVec3I2ObjectMap is a very significant performance save
             private final ThreadLocal<Vec3I2ObjectMap<Node>> THREAD_LOCAL_GRAPH =
                     ThreadLocal.withInitial(() -> new HashVec3I2ObjectMap<>(searchArea));
-            private final NodeSnapper snapper =
-                    new BasicNodeSnapper(space, width, height, fallTolerance, jumpHeight, 1E-6);
-
-            private final Explorer explorer = new WalkExplorer(snapper, PathLimiter.inBounds(searchArea));
+            private final Explorer explorer = explorerFunction.apply(snapper);
 
             private final NodeProcessor processor = processorFunction.apply(snapper);
 
@@ -53,7 +81,7 @@ class BasicAsyncPathfinderIntegrationTest {
 
             @Override
             public @NotNull Heuristic heuristic() {
-                return Heuristic.OCTILE;
+                return heuristic;
             }
 
             @Override
@@ -77,6 +105,16 @@ class BasicAsyncPathfinderIntegrationTest {
         return new BasicAsyncPathfinder(fjp, BasicPathOperation::new, 1000000);
     }
 
+    private static Pathfinder parallelPathfinder(Bounds3I searchArea) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool fjp =
+                new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false, threads,
+                        threads, threads, forkJoinPool -> true, 2, TimeUnit.MINUTES);
+
+        return new BasicAsyncPathfinder(fjp, () -> new ParallelPathOperation(ForkJoinPool.commonPool(), 4,
+                () -> new HashVec3I2ObjectMap<>(searchArea)), 1000000);
+    }
+
     private static PathSettings simpleEnvironment() {
         HashSpace space = new HashSpace(-50, -50, -50, 100, 100, 100);
 
@@ -151,6 +189,43 @@ class BasicAsyncPathfinderIntegrationTest {
         return settings(1, 1, 1, 1, space, bounds, NodeProcessor::createDiagonals);
     }
 
+    private static PathSettings smoothingEnvironment() {
+        HashSpace space = new HashSpace(-50, -50, -50, 100, 100, 100);
+
+        for (int x = -20; x <= 20; x++) {
+            for (int z = -20; z <= 20; z++) {
+                space.put(x, 0, z, Solid.FULL);
+            }
+        }
+
+        //wall that is too tall to jump over
+        for (int z = -5; z <= 5; z++) {
+            space.put(3, 1, z, Solid.FULL);
+            space.put(3, 2, z, Solid.FULL);
+        }
+
+        return settings(1, 1, 1, 1, space, Bounds3I.immutable(-20, -20, -20, 41, 41, 41),
+                NodeProcessor::createSmoothing);
+    }
+
+    private static PathSettings synchronizedDiagonalExploringEnvironment() {
+        Bounds3I bounds = Bounds3I.immutable(-1000, 0, -1000, 2000, 4, 2000);
+
+        Space space = new ConcurrentCachingSpace() {
+            @Override
+            public @NotNull Solid loadSolid(int x, int y, int z) {
+                if (y == 0) {
+                    return Solid.FULL;
+                }
+
+                return Solid.EMPTY;
+            }
+        };
+
+        return settings(1, 1, 1, 1, space, bounds, (ignored) -> NodeProcessor.NO_CHANGE,
+                snapper -> new DiagonalWalkExplorer(snapper, PathLimiter.inBounds(bounds)));
+    }
+
     @Test
     void smallFailedPath() {
         HashSpace space = new HashSpace(-100, -100, -100, 100, 100, 100);
@@ -222,6 +297,470 @@ class BasicAsyncPathfinderIntegrationTest {
         assertPathEquals(expected, true, result);
     }
 
+    @Test
+    void nearestOfMultipleDestinations() {
+        PathSettings settings = simpleEnvironment();
+        Pathfinder pathfinder = pathfinder();
+
+        //the second target never resolves, and should be ignored
+        PathTarget unresolvable = PathTarget.resolving(() -> null, PositionResolver.FLOORED, (first, second) -> false);
+
+        List<PathTarget> targets = List.of(PathTarget.coordinate(20, 1, 0), unresolvable,
+                PathTarget.coordinate(0, 1, 3), PathTarget.coordinate(-10, 1, -10));
+
+        PathResult result = pathfinder.pathfind(0, 1, 0, targets, settings).join();
+
+        assertEquals(2, result.destinationIndex());
+        assertPathEquals(List.of(Vec3I.immutable(0, 1, 0), Vec3I.immutable(0, 1, 1), Vec3I.immutable(0, 1, 2),
+                Vec3I.immutable(0, 1, 3)), true, result);
+    }
+
+    @Test
+    void nearestOfMultipleVectors() {
+        PathSettings settings = simpleEnvironment();
+        Pathfinder pathfinder = pathfinder();
+
+        PathResult result = pathfinder.pathfindToAny(0, 1, 0, List.of(Vec3I.immutable(-2, 1, 0),
+                Vec3I.immutable(15, 1, 15)), settings).join();
+
+        assertEquals(0, result.destinationIndex());
+        assertPathEquals(List.of(Vec3I.immutable(0, 1, 0), Vec3I.immutable(-1, 1, 0), Vec3I.immutable(-2, 1, 0)),
+                true, result);
+    }
+
+    @Test
+    void defaultFansOutToSingleDestinations() {
+        PathSettings settings = simpleEnvironment();
+        Pathfinder delegate = pathfinder();
+
+        //only implements single-destination searches
+        Pathfinder pathfinder = new Pathfinder() {
+            @Override
+            public @NotNull CompletableFuture<PathResult> pathfind(double x, double y, double z,
+                    @NotNull PathTarget destination, @NotNull PathSettings settings) {
+                return delegate.pathfind(x, y, z, destination, settings);
+            }
+
+            @Override
+            public void shutdown() {
+                delegate.shutdown();
+            }
+        };
+
+        PathTarget unresolvable = PathTarget.resolving(() -> null, PositionResolver.FLOORED, (first, second) -> false);
+        List<PathTarget> targets = List.of(PathTarget.coordinate(20, 1, 0), unresolvable,
+                PathTarget.coordinate(0, 1, 3), PathTarget.coordinate(-10, 1, -10));
+
+        PathResult result = pathfinder.pathfind(0, 1, 0, targets, settings).join();
+
+        assertEquals(2, result.destinationIndex());
+        assertPathEquals(List.of(Vec3I.immutable(0, 1, 0), Vec3I.immutable(0, 1, 1), Vec3I.immutable(0, 1, 2),
+                Vec3I.immutable(0, 1, 3)), true, result);
+
+        assertFalse(pathfinder.pathfind(0, 1, 0, List.of(unresolvable), settings).join().isSuccessful());
+        pathfinder.shutdown();
+    }
+
+    //implements only the abstract methods of DirectionalExplorer
+    private static final class CardinalExplorer extends DirectionalExplorer {
+        private CardinalExplorer(NodeSnapper snapper, PathLimiter limiter) {
+            super(new Direction[] {Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST}, limiter,
+                    snapper);
+        }
+
+        @Override
+        protected int startingDirectionIndex(@NotNull Node current, int destinationX, int destinationY,
+                int destinationZ) {
+            return 0;
+        }
+
+        @Override
+        protected boolean isParent(@NotNull Node parent, int tx, int ty, int tz) {
+            return tx == parent.x && tz == parent.z;
+        }
+
+        @Override
+        protected void handleDirection(@NotNull Direction direction, long snapResult, @NotNull Node currentNode,
+                Node neighborNode, @NotNull NodeHandler handler, @NotNull Vec3I2ObjectMap<Node> graph) {
+            int tx = currentNode.x + direction.x;
+            int ty = NodeSnapper.blockHeight(snapResult);
+            int tz = currentNode.z + direction.z;
+            handler.handle(currentNode, graph.get(tx, ty, tz), tx, ty, tz, NodeSnapper.blockOffset(snapResult),
+                    NodeSnapper.jumpOffset(snapResult));
+        }
+    }
+
+    @Test
+    void customExplorer() {
+        HashSpace space = new HashSpace(-50, -50, -50, 100, 100, 100);
+        for (int x = -20; x <= 20; x++) {
+            for (int z = -20; z <= 20; z++) {
+                space.put(x, 0, z, Solid.FULL);
+            }
+        }
+
+        for (int z = -10; z <= 10; z++) {
+            space.put(5, 1, z, Solid.FULL);
+            space.put(5, 2, z, Solid.FULL);
+        }
+
+        Bounds3I bounds = Bounds3I.immutable(-20, -5, -20, 41, 10, 41);
+        PathSettings custom = settings(1, 1, 1, 1, space, bounds, (ignored) -> NodeProcessor.NO_CHANGE,
+                snapper -> new CardinalExplorer(snapper, PathLimiter.inBounds(bounds)));
+        PathSettings walk = settings(1, 1, 1, 1, space, bounds, (ignored) -> NodeProcessor.NO_CHANGE);
+
+        PathResult expected = run(new BasicPathOperation(), 0, 1, 0, 10, 1, 0, walk);
+        PathResult actual = run(new BasicPathOperation(), 0, 1, 0, 10, 1, 0, custom);
+
+        assertTrue(actual.isSuccessful());
+        assertEquals(cost(expected), cost(actual), 1E-3);
+    }
+
+    private static PathSettings withSnapshots(PathSettings settings, ConcurrentCachingSpace space) {
+        return new PathSettings() {
+            @Override
+            public @NotNull Vec3IBiPredicate successPredicate() {
+                return settings.successPredicate();
+            }
+
+            @Override
+            public @NotNull Explorer explorer() {
+                return settings.explorer();
+            }
+
+            @Override
+            public @NotNull Heuristic heuristic() {
+                return settings.heuristic();
+            }
+
+            @Override
+            public @NotNull Vec3I2ObjectMap<Node> graph() {
+                return settings.graph();
+            }
+
+            @Override
+            public @NotNull NodeProcessor nodeProcessor() {
+                return settings.nodeProcessor();
+            }
+
+            @Override
+            public ConcurrentCachingSpace snapshotSpace() {
+                return space;
+            }
+        };
+    }
+
+    @Test
+    void snapshotIsolatesSearch() {
+        Bounds3I bounds = Bounds3I.immutable(-20, 0, -20, 41, 4, 41);
+
+        for (int i = 0; i < 2; i++) {
+            boolean snapshot = i == 0;
+            ConcurrentCachingSpace space = new ConcurrentCachingSpace() {
+                @Override
+                public @NotNull Solid loadSolid(int x, int y, int z) {
+                    return y == 0 ? Solid.FULL : Solid.EMPTY;
+                }
+            };
+
+            //a previous search would have cached the area
+            for (int x = -20; x <= 20; x++) {
+                for (int y = 0; y < 4; y++) {
+                    for (int z = -20; z <= 20; z++) {
+                        space.solidAt(x, y, z);
+                    }
+                }
+            }
+
+            PathSettings settings = settings(1, 1, 1, 1, space, bounds, ignored -> NodeProcessor.NO_CHANGE);
+            if (snapshot) {
+                settings = withSnapshots(settings, space);
+            }
+
+            BasicPathOperation operation = new BasicPathOperation();
+            operation.init(0, 1, 0, 10, 1, 0, settings);
+
+            //a wall that can't be jumped over goes up halfway through the search
+            for (int z = -20; z <= 20; z++) {
+                space.updateSolid(5, 1, z, Solid.FULL);
+                space.updateSolid(5, 2, z, Solid.FULL);
+            }
+
+            while (!operation.step()) {}
+
+            assertEquals(snapshot, operation.makeResult().isSuccessful());
+            operation.cleanup();
+
+            //the next search sees the wall
+            operation.init(0, 1, 0, 10, 1, 0, settings);
+            while (!operation.step()) {}
+
+            assertFalse(operation.makeResult().isSuccessful());
+            operation.cleanup();
+
+            assertEquals(Solid.FULL, space.solidAt(5, 1, 0));
+        }
+    }
+
+    private static PathSettings withHeuristic(PathSettings settings, Heuristic heuristic) {
+        return new PathSettings() {
+            @Override
+            public @NotNull Vec3IBiPredicate successPredicate() {
+                return settings.successPredicate();
+            }
+
+            @Override
+            public @NotNull Explorer explorer() {
+                return settings.explorer();
+            }
+
+            @Override
+            public @NotNull Heuristic heuristic() {
+                return heuristic;
+            }
+
+            @Override
+            public @NotNull Vec3I2ObjectMap<Node> graph() {
+                return settings.graph();
+            }
+
+            @Override
+            public @NotNull NodeProcessor nodeProcessor() {
+                return settings.nodeProcessor();
+            }
+        };
+    }
+
+    //the same as OCTILE, but admissible
+    private static final Heuristic UNSCALED_OCTILE = new Heuristic() {
+        @Override
+        public float heuristic(int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+            return Heuristic.OCTILE.heuristic(fromX, fromY, fromZ, toX, toY, toZ);
+        }
+
+        @Override
+        public double scale() {
+            return 1;
+        }
+    };
+
+    private static PathSettings obstacleEnvironment() {
+        HashSpace space = new HashSpace(-50, -50, -50, 100, 100, 100);
+        for (int x = -40; x <= 40; x++) {
+            for (int z = -40; z <= 40; z++) {
+                space.put(x, 0, z, Solid.FULL);
+            }
+        }
+
+        //pillars too tall to jump over, and single blocks that must be jumped onto
+        Random random = new Random(0x0B57AC1E);
+        for (int i = 0; i < 900; i++) {
+            int x = random.nextInt(-38, 39);
+            int z = random.nextInt(-38, 39);
+            if (Math.abs(x) + Math.abs(z) < 4) {
+                continue;
+            }
+
+            space.put(x, 1, z, Solid.FULL);
+            if (random.nextBoolean()) {
+                space.put(x, 2, z, Solid.FULL);
+            }
+        }
+
+        return settings(1, 1, 1, 1, space, Bounds3I.immutable(-40, -5, -40, 81, 10, 81),
+                (ignored) -> NodeProcessor.NO_CHANGE);
+    }
+
+    //the sum of the edge costs along the path, the same way operations compute them
+    private static double cost(PathResult result) {
+        Node head = result.head();
+        assertNotNull(head);
+
+        List<Node> nodes = head.toList();
+        double cost = 0;
+        for (int i = 1; i < nodes.size(); i++) {
+            Node previous = nodes.get(i - 1);
+            Node node = nodes.get(i);
+            cost += Heuristic.OCTILE.heuristic(previous.x, previous.y, previous.z, node.x, node.y, node.z);
+        }
+
+        return cost;
+    }
+
+    private static PathResult run(PathOperation operation, int x, int y, int z, int tx, int ty, int tz,
+            PathSettings settings) {
+        operation.init(x, y, z, tx, ty, tz, settings);
+        while (!operation.step()) {}
+
+        PathResult result = operation.makeResult();
+        operation.cleanup();
+        return result;
+    }
+
+    @Nested
+    class Parallel {
+        private static final Bounds3I BOUNDS = Bounds3I.immutable(-40, -5, -40, 81, 10, 81);
+        private static final int[][] ROUTES = {{-35, -35, 35, 35}, {35, -35, -35, 35}, {0, -37, 0, 37},
+                {-37, 5, 37, -5}, {-10, -10, 20, 30}};
+
+        private final ForkJoinPool pool = new ForkJoinPool(3);
+
+        private PathOperation parallel() {
+            return new ParallelPathOperation(pool, 4, () -> new HashVec3I2ObjectMap<>(BOUNDS));
+        }
+
+        @Test
+        void sameCostAsBasicWithAdmissibleHeuristic() {
+            PathSettings settings = withHeuristic(obstacleEnvironment(), UNSCALED_OCTILE);
+            PathOperation serial = new BasicPathOperation();
+            PathOperation parallel = parallel();
+
+            for (int[] route : ROUTES) {
+                PathResult expected = run(serial, route[0], 1, route[1], route[2], 1, route[3], settings);
+                PathResult actual = run(parallel, route[0], 1, route[1], route[2], 1, route[3], settings);
+
+                assertTrue(expected.isSuccessful());
+                assertTrue(actual.isSuccessful());
+                assertEquals(cost(expected), cost(actual), 1E-3);
+            }
+
+            pool.shutdown();
+        }
+
+        @Test
+        void noMoreCostlyThanBasicWithWeightedHeuristic() {
+            PathSettings settings = obstacleEnvironment();
+            PathOperation serial = new BasicPathOperation();
+            PathOperation parallel = parallel();
+
+            for (int[] route : ROUTES) {
+                PathResult weighted = run(serial, route[0], 1, route[1], route[2], 1, route[3], settings);
+                PathResult optimal = run(parallel, route[0], 1, route[1], route[2], 1, route[3],
+                        withHeuristic(settings, UNSCALED_OCTILE));
+                PathResult actual = run(parallel, route[0], 1, route[1], route[2], 1, route[3], settings);
+
+                assertTrue(weighted.isSuccessful());
+                assertTrue(actual.isSuccessful());
+                assertTrue(cost(actual) <= cost(weighted) + 1E-3);
+
+                //the scale is ignored
+                assertEquals(cost(optimal), cost(actual), 1E-3);
+            }
+
+            pool.shutdown();
+        }
+
+        @Test
+        void multipleDestinations() {
+            PathSettings settings = withHeuristic(obstacleEnvironment(), UNSCALED_OCTILE);
+            List<Vec3I> destinations = List.of(Vec3I.immutable(35, 1, 35), Vec3I.immutable(-35, 1, 30),
+                    Vec3I.immutable(20, 1, -36));
+
+            PathOperation serial = new BasicPathOperation();
+            serial.init(0, 1, 0, destinations, settings);
+            while (!serial.step()) {}
+            PathResult expected = serial.makeResult();
+            serial.cleanup();
+
+            PathOperation parallel = parallel();
+            parallel.init(0, 1, 0, destinations, settings);
+            while (!parallel.step()) {}
+            PathResult actual = parallel.makeResult();
+            parallel.cleanup();
+
+            assertTrue(actual.isSuccessful());
+            assertEquals(cost(expected), cost(actual), 1E-3);
+
+            List<Node> nodes = actual.head().toList();
+            Vec3I reached = destinations.get(actual.destinationIndex());
+            assertTrue(nodes.get(nodes.size() - 1).positionEquals(reached.x(), reached.y(), reached.z()));
+
+            pool.shutdown();
+        }
+
+        @Test
+        void hugePathIsOptimal() {
+            PathSettings settings = synchronizedEnvironment();
+            Pathfinder pathfinder = parallelPathfinder(Bounds3I.immutable(0, 0, 0, 1000, 4, 1000));
+
+            PathResult result = pathfinder.pathfind(0, 1, 0, PathTarget.coordinate(900, 1, 900), settings).join();
+            assertTrue(result.isSuccessful());
+
+            //no diagonals, so every optimal path on a flat floor has the manhattan length
+            assertEquals(1800, cost(result), 1E-3);
+            assertEquals(1801, result.head().toList().size());
+
+            pathfinder.shutdown();
+        }
+
+        @Test
+        void inlineExecutorWithSnapshots() {
+            ConcurrentCachingSpace space = new ConcurrentCachingSpace() {
+                @Override
+                public @NotNull Solid loadSolid(int x, int y, int z) {
+                    return y == 0 ? Solid.FULL : Solid.EMPTY;
+                }
+            };
+
+            PathSettings settings = withSnapshots(withHeuristic(settings(1, 1, 1, 1, space, BOUNDS,
+                    (ignored) -> NodeProcessor.NO_CHANGE), UNSCALED_OCTILE), space);
+
+            //helpers submitted to an executor that runs tasks on the calling thread must not pin the snapshot again
+            PathOperation operation = new ParallelPathOperation(Runnable::run, 4,
+                    () -> new HashVec3I2ObjectMap<>(BOUNDS));
+            for (int[] route : ROUTES) {
+                PathResult result = run(operation, route[0], 1, route[1], route[2], 1, route[3], settings);
+                assertTrue(result.isSuccessful());
+                assertEquals(Math.abs(route[2] - route[0]) + Math.abs(route[3] - route[1]), cost(result), 1E-3);
+            }
+
+            pool.shutdown();
+        }
+
+        @Test
+        void searchesShareSmallExecutor() {
+            //searches and their helpers all run on the same two threads
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            Pathfinder pathfinder = new BasicAsyncPathfinder(executor, () -> new ParallelPathOperation(executor, 4,
+                    () -> new HashVec3I2ObjectMap<>(BOUNDS)), 1000);
+
+            PathSettings settings = withHeuristic(obstacleEnvironment(), UNSCALED_OCTILE);
+            List<CompletableFuture<PathResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                for (int[] route : ROUTES) {
+                    futures.add(pathfinder.pathfind(route[0], 1, route[1], PathTarget.coordinate(route[2], 1,
+                            route[3]), settings));
+                }
+            }
+
+            for (CompletableFuture<PathResult> future : futures) {
+                assertTrue(assertDoesNotThrow(() -> future.get(60, TimeUnit.SECONDS)).isSuccessful());
+            }
+
+            executor.shutdown();
+            pool.shutdown();
+        }
+
+        @Test
+        void interruptible() {
+            PathSettings settings = synchronizedEnvironment();
+            PathOperation operation = new ParallelPathOperation(pool, 4,
+                    () -> new HashVec3I2ObjectMap<>(Bounds3I.immutable(0, 0, 0, 1000, 4, 1000)));
+
+            //stepping returns control to the caller long before the search completes
+            operation.init(0, 1, 0, 900, 1, 900, settings);
+            assertFalse(operation.step());
+
+            //helpers are stopped, and the operation can be reused
+            operation.cleanup();
+            PathResult result = run(operation, 0, 1, 0, 5, 1, 5, settings);
+            assertTrue(result.isSuccessful());
+            assertEquals(10, cost(result), 1E-3);
+
+            pool.shutdown();
+        }
+    }
+
     @Test
     void hugePathWithPartialBlocks() {
         PathSettings settings = hugeEnvironmentWithPartialBlocks();
@@ -311,6 +850,700 @@ class BasicAsyncPathfinderIntegrationTest {
             PathResult result = pathfinder.pathfind(-5, 1, -5, PathTarget.coordinate(0, 1, 0), settings).join();
             assertPathEquals(EXPECTED_SE_PATH, true, result);
         }
+
+        @Test
+        void exploredNorthEast() {
+            PathSettings settings = synchronizedDiagonalExploringEnvironment();
+            Pathfinder pathfinder = pathfinder();
+
+            PathResult result = pathfinder.pathfind(-5, 1, 5, PathTarget.coordinate(0, 1, 0), settings).join();
+            assertPathEquals(EXPECTED_NE_PATH, true, result);
+        }
+
+        @Test
+        void exploredSouthWest() {
+            PathSettings settings = synchronizedDiagonalExploringEnvironment();
+            Pathfinder pathfinder = pathfinder();
+
+            PathResult result = pathfinder.pathfind(5, 1, -5, PathTarget.coordinate(0, 1, 0), settings).join();
+            assertPathEquals(EXPECTED_SW_PATH, true, result);
+        }
+
+        private static int countExpansions(Space space, Bounds3I bounds,
+                Function<NodeSnapper, Explorer> explorerFunction) {
+            AtomicInteger expansions = new AtomicInteger();
+            PathSettings settings = settings(1, 1, 1, 1, space, bounds, (ignored) -> NodeProcessor.NO_CHANGE,
+                    snapper -> {
+                        Explorer explorer = explorerFunction.apply(snapper);
+                        return new Explorer() {
+                            @Override
+                            public void exploreEach(@NotNull Node currentNode, @NotNull NodeHandler handler,
+                                    @NotNull Vec3I2ObjectMap<Node> graph, int destinationX, int destinationY,
+                                    int destinationZ) {
+                                expansions.incrementAndGet();
+                                explorer.exploreEach(currentNode, handler, graph, destinationX, destinationY,
+                                        destinationZ);
+                            }
+
+                            @Override
+                            public void exploreInitial(double startX, double startY, double startZ,
+                                    @NotNull NodeInitializer initializer) {
+                                explorer.exploreInitial(startX, startY, startZ, initializer);
+                            }
+
+                            @Override
+                            public float stepCost(@NotNull Heuristic heuristic, int fromX, int fromY, int fromZ,
+                                    int toX, int toY, int toZ) {
+                                return explorer.stepCost(heuristic, fromX, fromY, fromZ, toX, toY, toZ);
+                            }
+                        };
+                    });
+
+            PathResult result = pathfinder().pathfind(-25, 1, -20, PathTarget.coordinate(25, 1, 20), settings).join();
+            assertTrue(result.isSuccessful());
+            return expansions.get();
+        }
+
+        @Test
+        void diagonalsCostTheSameUnderAnyHeuristic() {
+            Heuristic manhattan = new Heuristic() {
+                @Override
+                public float heuristic(int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+                    return Math.abs(toX - fromX) + Math.abs(toY - fromY) + Math.abs(toZ - fromZ);
+                }
+
+                @Override
+                public double scale() {
+                    return 1;
+                }
+            };
+
+            HashSpace space = new HashSpace(-10, -10, -10, 20, 20, 20);
+            for (int x = -8; x <= 8; x++) {
+                for (int z = -8; z <= 8; z++) {
+                    space.put(x, 0, z, Solid.FULL);
+                }
+            }
+
+            Bounds3I bounds = Bounds3I.immutable(-8, -5, -8, 17, 10, 17);
+            PathSettings settings = settings(new BasicNodeSnapper(space, 1, 1, 1, 1, 1E-6), bounds, manhattan,
+                    (ignored) -> NodeProcessor.NO_CHANGE, snapper -> new DiagonalWalkExplorer(snapper,
+                            PathLimiter.inBounds(bounds)));
+
+            PathResult result = run(new BasicPathOperation(), -5, 1, 5, 0, 1, 0, settings);
+            assertPathEquals(EXPECTED_NE_PATH, true, result);
+
+            List<Node> nodes = result.head().toList();
+            assertEquals(5 * Heuristic.SQRT_2, nodes.get(nodes.size() - 1).g, 1E-3);
+        }
+
+        @Test
+        void exploringDiagonalsExpandsFewerNodes() {
+            HashSpace space = new HashSpace(-50, -50, -50, 100, 100, 100);
+            for (int x = -30; x <= 30; x++) {
+                for (int z = -30; z <= 30; z++) {
+                    space.put(x, 0, z, Solid.FULL);
+                }
+            }
+
+            //scattered pillars, too tall to jump over
+            Random random = new Random(0xD1A6);
+            for (int i = 0; i < 150; i++) {
+                int x = random.nextInt(-28, 29);
+                int z = random.nextInt(-28, 29);
+                if (Math.abs(x) < 25 || Math.abs(z) < 20) {
+                    space.put(x, 1, z, Solid.FULL);
+                    space.put(x, 2, z, Solid.FULL);
+                }
+            }
+
+            Bounds3I bounds = Bounds3I.immutable(-30, -5, -30, 61, 10, 61);
+            int walk = countExpansions(space, bounds, snapper -> new WalkExplorer(snapper,
+                    PathLimiter.inBounds(bounds)));
+            int diagonal = countExpansions(space, bounds, snapper -> new DiagonalWalkExplorer(snapper,
+                    PathLimiter.inBounds(bounds)));
+
+            assertTrue(diagonal < walk, "expected fewer expansions with diagonals, was " + diagonal + " vs " + walk);
+        }
+    }
+
+    @Nested
+    class Flight {
+        private static final Bounds3I BOUNDS = Bounds3I.immutable(-40, -40, -40, 80, 80, 80);
+
+        //flying agents only move along one axis at a time
+        private static final Heuristic MANHATTAN = new Heuristic() {
+            @Override
+            public float heuristic(int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+                return Math.abs(toX - fromX) + Math.abs(toY - fromY) + Math.abs(toZ - fromZ);
+            }
+
+            @Override
+            public double scale() {
+                return 1;
+            }
+        };
+
+        //open air, with a wall between the start and the destination
+        private static void wall(OctreeSpace space) {
+            for (int y = -10; y <= 10; y++) {
+                for (int z = -10; z <= 10; z++) {
+                    space.put(0, y, z, Solid.FULL);
+                }
+            }
+        }
+
+        //returns the number of expanded nodes
+        private static int fly(Space space, int maxStride, int tx, int ty, int tz) {
+            AtomicInteger expansions = new AtomicInteger();
+            PathSettings settings = settings(new BasicNodeSnapper(space, 1, 1, 1E-6), BOUNDS, MANHATTAN,
+                    (ignored) -> NodeProcessor.NO_CHANGE, snapper -> {
+                        Explorer explorer = new FlightExplorer(PathLimiter.inBounds(BOUNDS), snapper, maxStride);
+                        return new Explorer() {
+                            @Override
+                            public void exploreEach(@NotNull Node currentNode, @NotNull NodeHandler handler,
+                                    @NotNull Vec3I2ObjectMap<Node> graph, int destinationX, int destinationY,
+                                    int destinationZ) {
+                                expansions.incrementAndGet();
+                                explorer.exploreEach(currentNode, handler, graph, destinationX, destinationY,
+                                        destinationZ);
+                            }
+
+                            @Override
+                            public void exploreInitial(double startX, double startY, double startZ,
+                                    @NotNull NodeInitializer initializer) {
+                                explorer.exploreInitial(startX, startY, startZ, initializer);
+                            }
+
+                            @Override
+                            public float stepCost(@NotNull Heuristic heuristic, int fromX, int fromY, int fromZ,
+                                    int toX, int toY, int toZ) {
+                                return explorer.stepCost(heuristic, fromX, fromY, fromZ, toX, toY, toZ);
+                            }
+                        };
+                    });
+
+            PathResult result = pathfinder().pathfind(-30, 0, 0, PathTarget.coordinate(tx, ty, tz), settings).join();
+            assertTrue(result.isSuccessful());
+
+            //every move is a straight line through empty space
+            List<Node> nodes = result.head().toList();
+            for (int i = 1; i < nodes.size(); i++) {
+                Node from = nodes.get(i - 1);
+                Node to = nodes.get(i);
+
+                int length = Math.abs(to.x - from.x) + Math.abs(to.y - from.y) + Math.abs(to.z - from.z);
+                assertTrue(length == Math.abs(to.x - from.x) || length == Math.abs(to.y - from.y) ||
+                        length == Math.abs(to.z - from.z), "moves must be along a single axis");
+
+                for (int j = 0; j <= length; j++) {
+                    int x = from.x + Integer.signum(to.x - from.x) * j;
+                    int y = from.y + Integer.signum(to.y - from.y) * j;
+                    int z = from.z + Integer.signum(to.z - from.z) * j;
+                    assertSame(Solid.EMPTY, space.solidAt(x, y, z));
+                }
+            }
+
+            assertTrue(nodes.get(nodes.size() - 1).positionEquals(tx, ty, tz));
+            return expansions.get();
+        }
+
+        @Test
+        void longMovesExpandFewerNodes() {
+            OctreeSpace space = new OctreeSpace(-64, -64, -64, 128, 128, 128);
+
+            //a few floating islands, none of which are in the way
+            for (int x = -5; x <= 5; x++) {
+                for (int z = -5; z <= 5; z++) {
+                    space.put(x, -20, z, Solid.FULL);
+                    space.put(x + 20, 30, z - 20, Solid.FULL);
+                }
+            }
+
+            int single = fly(space, 1, 30, 20, 25);
+            int skipping = fly(space, 32, 30, 20, 25);
+
+            assertTrue(skipping * 10 < single, "expected far fewer expansions, was " + skipping + " vs " + single);
+        }
+
+        @Test
+        void aroundWall() {
+            OctreeSpace space = new OctreeSpace(-64, -64, -64, 128, 128, 128);
+            wall(space);
+
+            fly(space, 1, 30, 0, 0);
+            fly(space, 32, 30, 0, 0);
+        }
+
+        @Test
+        void spacesWithoutEmptyRegionsFlyNormally() {
+            HashSpace space = new HashSpace(-64, -64, -64, 128, 128, 128);
+            for (int y = -10; y <= 10; y++) {
+                for (int z = -10; z <= 10; z++) {
+                    space.put(0, y, z, Solid.FULL);
+                }
+            }
+
+            assertEquals(fly(space, 1, 30, 0, 0), fly(space, 32, 30, 0, 0));
+        }
+
+        @Test
+        void longMovesStayInBounds() {
+            OctreeSpace space = new OctreeSpace(-64, -64, -64, 128, 128, 128);
+            Bounds3I limit = Bounds3I.immutable(-5, -5, -5, 11, 11, 11);
+            FlightExplorer explorer = new FlightExplorer(PathLimiter.inBounds(limit),
+                    new BasicNodeSnapper(space, 1, 1, 1E-6), 32);
+
+            List<Vec3I> targets = new ArrayList<>();
+            explorer.exploreEach(new Node(0, 0, 0, 0, 0, 0), (node, target, x, y, z, blockOffset, jumpOffset) ->
+                    targets.add(Vec3I.immutable(x, y, z)), new HashVec3I2ObjectMap<>(0, 0, 0, 1, 1, 1), 40, 40, 40);
+
+            //long moves end at the edge of the limiter's region, rather than at the destination
+            assertTrue(targets.contains(Vec3I.immutable(5, 0, 0)));
+            assertTrue(targets.contains(Vec3I.immutable(0, 5, 0)));
+            assertTrue(targets.contains(Vec3I.immutable(0, 0, 5)));
+            for (Vec3I target : targets) {
+                assertTrue(limit.contains(target.x(), target.y(), target.z()), "left the limiter at " + target);
+            }
+        }
+    }
+
+    @Nested
+    class Prefetching {
+        private static final Bounds3I BOUNDS = Bounds3I.immutable(-50, -5, -50, 100, 10, 100);
+
+        private static PathSettings prefetching(PathSettings settings, PrefetchingSpace space) {
+            return new PathSettings() {
+                @Override
+                public @NotNull Vec3IBiPredicate successPredicate() {
+                    return settings.successPredicate();
+                }
+
+                @Override
+                public @NotNull Explorer explorer() {
+                    return settings.explorer();
+                }
+
+                @Override
+                public @NotNull Heuristic heuristic() {
+                    return settings.heuristic();
+                }
+
+                @Override
+                public @NotNull Vec3I2ObjectMap<Node> graph() {
+                    return settings.graph();
+                }
+
+                @Override
+                public @NotNull NodeProcessor nodeProcessor() {
+                    return settings.nodeProcessor();
+                }
+
+                @Override
+                public @Nullable PrefetchingSpace prefetchSpace() {
+                    return space;
+                }
+            };
+        }
+
+        //flat ground; counts loads made by prefetch tasks and by the search separately
+        private static ConcurrentCachingSpace ground(ThreadLocal<Boolean> prefetching, AtomicInteger prefetched,
+                AtomicInteger searched) {
+            return new ConcurrentCachingSpace() {
+                @Override
+                public @Nullable Solid loadSolid(int x, int y, int z) {
+                    (prefetching.get() ? prefetched : searched).incrementAndGet();
+                    return y == 0 ? Solid.FULL : Solid.EMPTY;
+                }
+            };
+        }
+
+        private static int searchLoads(boolean prefetch) {
+            ThreadLocal<Boolean> prefetching = ThreadLocal.withInitial(() -> false);
+            AtomicInteger prefetched = new AtomicInteger();
+            AtomicInteger searched = new AtomicInteger();
+            ConcurrentCachingSpace space = ground(prefetching, prefetched, searched);
+
+            //runs prefetch tasks immediately, on the search thread, so the test doesn't depend on timing
+            Executor executor = task -> {
+                prefetching.set(true);
+                try {
+                    task.run();
+                } finally {
+                    prefetching.set(false);
+                }
+            };
+
+            PathSettings settings = settings(1, 2, 4, 1, space, BOUNDS, (ignored) -> NodeProcessor.NO_CHANGE);
+            Pathfinder pathfinder = new BasicAsyncPathfinder(ForkJoinPool.commonPool(), BasicPathOperation::new,
+                    1000000, executor, 6);
+
+            PathResult result = pathfinder.pathfind(-40, 1, -3, PathTarget.coordinate(40, 1, 3), prefetch ?
+                    prefetching(settings, space) : settings).join();
+            assertTrue(result.isSuccessful());
+            assertEquals(prefetch, prefetched.get() > 0);
+
+            //a narrow corridor around the route, rather than every section it passes through
+            assertTrue(prefetched.get() < 20000, "prefetched " + prefetched.get() + " positions");
+            return searched.get();
+        }
+
+        @Test
+        void corridorIsPrefetched() {
+            int cold = searchLoads(false);
+            int warm = searchLoads(true);
+
+            assertTrue(warm * 10 < cold, "expected the search to load fewer solids, was " + warm + " vs " + cold);
+        }
+
+        @Test
+        void tasksAreCancelledAfterSearch() {
+            ThreadLocal<Boolean> prefetching = ThreadLocal.withInitial(() -> false);
+            AtomicInteger prefetched = new AtomicInteger();
+            ConcurrentCachingSpace space = ground(prefetching, prefetched, new AtomicInteger());
+
+            //defer every task until the search is done
+            List<Runnable> tasks = new ArrayList<>();
+            Pathfinder pathfinder = new BasicAsyncPathfinder(ForkJoinPool.commonPool(), BasicPathOperation::new,
+                    1000000, tasks::add, 4);
+
+            PathSettings settings = prefetching(settings(1, 2, 4, 1, space, BOUNDS,
+                    (ignored) -> NodeProcessor.NO_CHANGE), space);
+            assertTrue(pathfinder.pathfind(-40, 1, -3, PathTarget.coordinate(40, 1, 3), settings).join()
+                    .isSuccessful());
+
+            assertFalse(tasks.isEmpty());
+            prefetching.set(true);
+            tasks.forEach(Runnable::run);
+            assertEquals(0, prefetched.get());
+
+            assertThrows(IllegalArgumentException.class, () -> new BasicAsyncPathfinder(ForkJoinPool.commonPool(),
+                    BasicPathOperation::new, 1, tasks::add, -1));
+        }
+
+        @Test
+        void runningTasksStopAfterSearch() throws InterruptedException {
+            ConcurrentCachingSpace space = ground(ThreadLocal.withInitial(() -> false), new AtomicInteger(),
+                    new AtomicInteger());
+
+            //the first box blocks until the search is done, and the search waits for it to start
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicInteger boxes = new AtomicInteger();
+            PrefetchingSpace blocking = new PrefetchingSpace() {
+                @Override
+                public @Nullable Solid solidAt(int x, int y, int z) {
+                    return space.solidAt(x, y, z);
+                }
+
+                @Override
+                public void prefetch(int x, int y, int z, int lengthX, int lengthY, int lengthZ) {
+                    boxes.incrementAndGet();
+                    started.countDown();
+                    assertDoesNotThrow(() -> release.await());
+                }
+            };
+
+            List<Thread> threads = new ArrayList<>();
+            Pathfinder pathfinder = new BasicAsyncPathfinder(ForkJoinPool.commonPool(), BasicPathOperation::new,
+                    1000000, task -> {
+                        Thread thread = new Thread(task);
+                        threads.add(thread);
+                        thread.start();
+                        assertDoesNotThrow(() -> started.await());
+                    }, 4);
+
+            PathSettings settings = prefetching(settings(1, 2, 4, 1, space, BOUNDS,
+                    (ignored) -> NodeProcessor.NO_CHANGE), blocking);
+            assertTrue(pathfinder.pathfind(-40, 1, -3, PathTarget.coordinate(40, 1, 3), settings).join()
+                    .isSuccessful());
+
+            release.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(1, threads.size());
+            assertEquals(1, boxes.get());
+        }
+    }
+
+    @Nested
+    class LocalCaching {
+        private static final Bounds3I BOUNDS = Bounds3I.immutable(-40, -5, -40, 81, 10, 81);
+
+        private static PathSettings localCaching(PathSettings settings, LocalCachingSpace space) {
+            return new PathSettings() {
+                @Override
+                public @NotNull Vec3IBiPredicate successPredicate() {
+                    return settings.successPredicate();
+                }
+
+                @Override
+                public @NotNull Explorer explorer() {
+                    return settings.explorer();
+                }
+
+                @Override
+                public @NotNull Heuristic heuristic() {
+                    return settings.heuristic();
+                }
+
+                @Override
+                public @NotNull Vec3I2ObjectMap<Node> graph() {
+                    return settings.graph();
+                }
+
+                @Override
+                public @NotNull NodeProcessor nodeProcessor() {
+                    return settings.nodeProcessor();
+                }
+
+                @Override
+                public @Nullable LocalCachingSpace localCachingSpace() {
+                    return space;
+                }
+            };
+        }
+
+        //identifies the executor task running on each thread; 0 is the thread that runs the search
+        private static final ThreadLocal<Integer> TASK = ThreadLocal.withInitial(() -> 0);
+
+        //flat ground with a wall in the way; counts reads, and records the positions read by each task
+        private static Space ground(AtomicInteger reads, Set<List<Object>> positions) {
+            return (x, y, z) -> {
+                reads.incrementAndGet();
+                positions.add(List.of(TASK.get(), Vec3I.immutable(x, y, z)));
+                if (y == 0 || (x == 0 && y < 4 && z > -30 && z < 30)) {
+                    return Solid.FULL;
+                }
+
+                return Solid.EMPTY;
+            };
+        }
+
+        private static void positionsAreReadOnce(PathOperation operation, boolean singleThreaded) {
+            AtomicInteger reads = new AtomicInteger();
+            Set<List<Object>> positions = ConcurrentHashMap.newKeySet();
+            Space shared = ground(reads, positions);
+            PathResult expected = run(operation, -35, 1, 0, 35, 1, 0, withHeuristic(settings(1, 2, 4, 1, shared,
+                    BOUNDS, (ignored) -> NodeProcessor.NO_CHANGE), UNSCALED_OCTILE));
+            int direct = reads.getAndSet(0);
+            positions.clear();
+
+            LocalCachingSpace space = new LocalCachingSpace(shared);
+            PathResult actual = run(operation, -35, 1, 0, 35, 1, 0, localCaching(withHeuristic(settings(1, 2, 4, 1,
+                    space, BOUNDS, (ignored) -> NodeProcessor.NO_CHANGE), UNSCALED_OCTILE), space));
+
+            assertTrue(expected.isSuccessful());
+            assertTrue(actual.isSuccessful());
+            assertEquals(cost(expected), cost(actual), 1E-3);
+
+            //each task reads a position from the shared space at most once
+            assertEquals(positions.size(), reads.get());
+
+            //each helper task has its own buffer, so it may read positions that other tasks already read
+            if (singleThreaded) {
+                assertTrue(reads.get() < direct, "expected fewer shared reads, was " + reads.get() + " vs " + direct);
+            }
+
+            //the task has ended on this thread
+            assertThrows(IllegalStateException.class, space::end);
+        }
+
+        @Test
+        void basic() {
+            positionsAreReadOnce(new BasicPathOperation(), true);
+        }
+
+        @Test
+        void parallel() {
+            ForkJoinPool pool = new ForkJoinPool(3);
+            AtomicInteger tasks = new AtomicInteger();
+            Executor executor = task -> {
+                int id = tasks.incrementAndGet();
+                pool.execute(() -> {
+                    TASK.set(id);
+                    try {
+                        task.run();
+                    } finally {
+                        TASK.remove();
+                    }
+                });
+            };
+
+            try {
+                positionsAreReadOnce(new ParallelPathOperation(executor, 4, () -> new HashVec3I2ObjectMap<>(BOUNDS)),
+                        false);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Nested
+    class Metrics {
+        private static final Bounds3I BOUNDS = Bounds3I.immutable(-20, -5, -20, 40, 10, 40);
+
+        private static PathSettings counting(CountingNodeSnapper snapper) {
+            PathSettings settings = settings(snapper, BOUNDS, Heuristic.OCTILE, (ignored) -> NodeProcessor.NO_CHANGE,
+                    (ignored) -> new WalkExplorer(snapper, PathLimiter.inBounds(BOUNDS)));
+
+            return new PathSettings() {
+                @Override
+                public @NotNull Vec3IBiPredicate successPredicate() {
+                    return settings.successPredicate();
+                }
+
+                @Override
+                public @NotNull Explorer explorer() {
+                    return settings.explorer();
+                }
+
+                @Override
+                public @NotNull Heuristic heuristic() {
+                    return settings.heuristic();
+                }
+
+                @Override
+                public @NotNull Vec3I2ObjectMap<Node> graph() {
+                    return settings.graph();
+                }
+
+                @Override
+                public @NotNull NodeProcessor nodeProcessor() {
+                    return settings.nodeProcessor();
+                }
+
+                @Override
+                public @Nullable CountingNodeSnapper countingSnapper() {
+                    return snapper;
+                }
+            };
+        }
+
+        private static CountingNodeSnapper ground() {
+            HashSpace space = new HashSpace(BOUNDS);
+            for (int x = -20; x < 20; x++) {
+                for (int z = -20; z < 20; z++) {
+                    space.put(x, 0, z, Solid.FULL);
+                }
+            }
+
+            return new CountingNodeSnapper(new BasicNodeSnapper(space, 1, 2, 4, 1, 1E-6));
+        }
+
+        @Test
+        void searchesAreRecorded() {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                BasicAsyncPathfinder pathfinder = new BasicAsyncPathfinder(executor, BasicPathOperation::new, 100);
+                PathSettings settings = counting(ground());
+
+                long explored = 0;
+                for (int i = 0; i < 3; i++) {
+                    PathResult result = pathfinder.pathfind(-10, 1, i, PathTarget.coordinate(10, 1, -i), settings)
+                            .join();
+                    assertTrue(result.isSuccessful());
+                    explored += result.exploredCount();
+                }
+
+                //can't walk up to the destination
+                PathResult unreachable = pathfinder.pathfind(0, 1, 0, PathTarget.coordinate(5, 4, 5), settings).join();
+                assertFalse(unreachable.isSuccessful());
+                explored += unreachable.exploredCount();
+
+                PathfinderMetrics.Snapshot snapshot = pathfinder.metrics().snapshot();
+                assertEquals(3, snapshot.successes());
+                assertEquals(1, snapshot.failures());
+                assertEquals(0, snapshot.callerRuns());
+                assertEquals(0, snapshot.rejections());
+                assertEquals(0, snapshot.poolSize());
+
+                assertEquals(4, snapshot.queueNanos().count());
+                assertEquals(4, snapshot.searchNanos().count());
+                assertEquals(4, snapshot.explored().count());
+                assertEquals(explored, snapshot.explored().sum());
+
+                //each explored node is snapped from in at least one direction
+                assertEquals(4, snapshot.snaps().count());
+                assertTrue(snapshot.snaps().sum() >= explored);
+                assertTrue(snapshot.searchNanos().quantile(0.5) > 0);
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        @Test
+        void rejectedSearchesRunOnCaller() {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            executor.shutdown();
+
+            BasicAsyncPathfinder pathfinder = new BasicAsyncPathfinder(executor, BasicPathOperation::new, 100);
+            assertTrue(pathfinder.pathfind(-10, 1, 0, PathTarget.coordinate(10, 1, 0), counting(ground())).join()
+                    .isSuccessful());
+
+            PathfinderMetrics.Snapshot snapshot = pathfinder.metrics().snapshot();
+            assertEquals(1, snapshot.successes());
+            assertEquals(1, snapshot.rejections());
+            assertEquals(1, snapshot.callerRuns());
+            assertEquals(0, snapshot.queueNanos().count());
+            assertEquals(1, snapshot.searchNanos().count());
+        }
+
+        @Test
+        void quantiles() {
+            long[] buckets = new long[Long.SIZE];
+            buckets[0] = 1;
+            buckets[3] = 2;
+            buckets[10] = 1;
+
+            //values 0, 4, 7 and 1000
+            PathfinderMetrics.HistogramSnapshot histogram = new PathfinderMetrics.HistogramSnapshot(buckets, 4, 1011);
+            assertEquals(0, histogram.quantile(0));
+            assertEquals(0, histogram.quantile(0.25));
+            assertEquals(7, histogram.quantile(0.5));
+            assertEquals(7, histogram.quantile(0.75));
+            assertEquals(1023, histogram.quantile(1));
+            assertEquals(252.75, histogram.mean());
+            assertThrows(IllegalArgumentException.class, () -> histogram.quantile(1.5));
+
+            PathfinderMetrics.HistogramSnapshot empty = new PathfinderMetrics.HistogramSnapshot(new long[Long.SIZE],
+                    0, 0);
+            assertEquals(0, empty.quantile(0.99));
+            assertEquals(0, empty.mean());
+        }
+    }
+
+    @Nested
+    class Smoothing {
+        @Test
+        void straightLine() {
+            PathSettings settings = smoothingEnvironment();
+            Pathfinder pathfinder = pathfinder();
+
+            PathResult result = pathfinder.pathfind(-10, 1, 7, PathTarget.coordinate(0, 1, 0), settings).join();
+            assertPathEquals(List.of(Vec3I.immutable(-10, 1, 7), Vec3I.immutable(0, 1, 0)), true, result);
+        }
+
+        @Test
+        void aroundWall() {
+            PathSettings settings = smoothingEnvironment();
+            Pathfinder pathfinder = pathfinder();
+
+            PathResult result = pathfinder.pathfind(0, 1, 0, PathTarget.coordinate(6, 1, 0), settings).join();
+            assertTrue(result.isSuccessful());
+
+            Node head = result.head();
+            assertNotNull(head);
+
+            List<Node> nodes = head.toList();
+            assertTrue(nodes.size() > 2, "path should not pass through the wall");
+            assertTrue(nodes.size() <= 4, "path should only contain turning points");
+
+            assertTrue(nodes.get(0).positionEquals(0, 1, 0));
+            assertTrue(nodes.get(nodes.size() - 1).positionEquals(6, 1, 0));
+        }
     }
 
     private void assertPathEquals(List<Vec3I> expected, boolean success, PathResult result) {
@@ -5,19 +5,24 @@ import com.github.steanky.proxima.NodeHandler;
 import com.github.steanky.proxima.node.Node;
 import com.github.steanky.proxima.resolver.PositionResolver;
 import com.github.steanky.proxima.solid.Solid;
+import com.github.steanky.proxima.space.ConcurrentCachingSpace;
 import com.github.steanky.proxima.space.HashSpace;
+import com.github.steanky.proxima.space.OctreeSpace;
+import com.github.steanky.proxima.space.Space;
 import com.github.steanky.vector.Bounds3D;
 import com.github.steanky.vector.Bounds3I;
 import com.github.steanky.vector.Vec3D;
 import com.github.steanky.vector.Vec3I;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.Random;
 import java.util.function.DoubleConsumer;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -352,6 +357,130 @@ class BasicNodeSnapperTest {
         }
     }
 
+    @Nested
+    class SnapAll {
+        private static final Solid[] SOLIDS = new Solid[] {Solid.FULL, LOWER_HALF_BLOCK, UPPER_HALF_BLOCK, STAIRS,
+                FENCE_LOWER, PARTIAL_BLOCK_NORTH, SMALL_CENTRAL_SOLID, NEARLY_FULL_SOLID};
+
+        private static void assertMatchesSnap(BasicNodeSnapper snapper, Direction[] directions, Random random) {
+            long[] results = new long[directions.length];
+
+            for (int i = 0; i < 2000; i++) {
+                int x = random.nextInt(-6, 7);
+                int y = random.nextInt(-2, 4);
+                int z = random.nextInt(-6, 7);
+                float offset = random.nextBoolean() ? 0 : 0.5F;
+
+                snapper.snapAll(directions, directions.length, x, y, z, offset, results);
+                for (int j = 0; j < directions.length; j++) {
+                    assertEquals(snapper.snap(directions[j], x, y, z, offset), results[j],
+                            directions[j] + " from " + x + ", " + y + ", " + z + " (" + offset + ")");
+                }
+            }
+        }
+
+        @Test
+        void matchesIndividualSnaps() {
+            Random random = new Random(0x5A4B);
+            SolidPos[] solids = new SolidPos[600];
+            for (int i = 0; i < solids.length; i++) {
+                solids[i] = solid(SOLIDS[random.nextInt(SOLIDS.length)], random.nextInt(-8, 9), random.nextInt(-4, 6),
+                        random.nextInt(-8, 9));
+            }
+
+            Direction[] walk = new Direction[] {Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST};
+            assertMatchesSnap(make(1, 2, 3, 1, EPSILON, solids), walk, random);
+            assertMatchesSnap(make(0.6, 1.8, 3, 1.25, EPSILON, solids), walk, random);
+            assertMatchesSnap(make(3, 1, 1, 0.5, EPSILON, solids), walk, random);
+
+            BasicNodeSnapper flying = new BasicNodeSnapper(make(1, 1, 0, 0, EPSILON, solids).space(), 0.6, 0.6,
+                    EPSILON);
+            assertMatchesSnap(flying, Direction.values(), random);
+        }
+    }
+
+    @Nested
+    class Untracked {
+        @Test
+        void skipsOccupancy() {
+            Random random = new Random(0x0CC0);
+            SolidPos[] solids = new SolidPos[600];
+            for (int i = 0; i < solids.length; i++) {
+                solids[i] = solid(SnapAll.SOLIDS[random.nextInt(SnapAll.SOLIDS.length)], random.nextInt(-8, 9),
+                        random.nextInt(-4, 6), random.nextInt(-8, 9));
+            }
+
+            Space backing = make(0.6, 1.8, 3, 1.25, EPSILON, solids).space();
+            BasicNodeSnapper tracked = new BasicNodeSnapper(new ConcurrentCachingSpace() {
+                @Override
+                public Solid loadSolid(int x, int y, int z) {
+                    return backing.solidAt(x, y, z);
+                }
+            }, 0.6, 1.8, 3, 1.25, EPSILON);
+
+            Space untracked = new Space() {
+                @Override
+                public Solid solidAt(int x, int y, int z) {
+                    return backing.solidAt(x, y, z);
+                }
+
+                @Override
+                public long occupancy(int x, int y, int z, @NotNull Direction direction, int length, int classes) {
+                    throw new AssertionError("occupancy should not be used by an untracked space");
+                }
+            };
+
+            BasicNodeSnapper snapper = new BasicNodeSnapper(untracked, 0.6, 1.8, 3, 1.25, EPSILON);
+            for (int i = 0; i < 2000; i++) {
+                Direction direction = Direction.values()[random.nextInt(4)];
+                int x = random.nextInt(-6, 7);
+                int y = random.nextInt(-2, 4);
+                int z = random.nextInt(-6, 7);
+                float offset = random.nextBoolean() ? 0 : 0.5F;
+
+                assertEquals(tracked.snap(direction, x, y, z, offset), snapper.snap(direction, x, y, z, offset));
+            }
+        }
+    }
+
+    @Nested
+    class Line {
+        private static SolidPos[] floor(int holeX, int holeZ) {
+            SolidPos[] solids = new SolidPos[10 * 10];
+
+            int i = 0;
+            for (int x = -2; x < 8; x++) {
+                for (int z = -2; z < 8; z++) {
+                    solids[i++] = solid(x == holeX && z == holeZ ? Solid.EMPTY : Solid.FULL, x, 0, z);
+                }
+            }
+
+            return solids;
+        }
+
+        @Test
+        void overFloor() {
+            assertTrue(make(2, 1, 1, 1, EPSILON, floor(-100, -100)).checkLine(0, 1, 0, 6, 3, 0));
+            assertTrue(make(0.6, 1.8, 1, 1, EPSILON, floor(-100, -100)).checkLine(0, 1, 0, 5, 2, 0));
+        }
+
+        @Test
+        void gapNarrowerThanAgent() {
+            BasicNodeSnapper snapper = make(2, 1, 1, 1, EPSILON, floor(3, 0));
+
+            //the agent is wide enough to stand over the gap, but the line passes over it
+            assertNotEquals(NodeSnapper.FAIL, snapper.snap(Direction.EAST, 2, 1, 0, 0));
+            assertFalse(snapper.checkLine(0, 1, 0, 6, 0, 0));
+        }
+
+        @Test
+        void gapBesideLine() {
+            //touched by the agent's side, but not crossed by the line through its center
+            assertFalse(make(2, 1, 1, 1, EPSILON, floor(3, 1)).checkLine(0, 1, 0, 6, 0, 0));
+            assertTrue(make(0.6, 1.8, 1, 1, EPSILON, floor(3, 1)).checkLine(0, 1, 0, 6, 0, 0));
+        }
+    }
+
     @Nested
     class Walk {
         @Nested
@@ -1806,4 +1935,36 @@ class BasicNodeSnapperTest {
             }
         }
     }
+    @Nested
+    class FreeDistance {
+        @Test
+        void stopsBeforeSolids() {
+            OctreeSpace space = new OctreeSpace(-64, -64, -64, 128, 128, 128);
+            space.put(0, 0, 20, Solid.FULL);
+            space.put(0, 40, 0, LOWER_HALF_BLOCK);
+
+            BasicNodeSnapper snapper = new BasicNodeSnapper(space, 1, 2, EPSILON);
+            assertEquals(19, snapper.freeDistance(Direction.SOUTH, 0, 0, 0, 50));
+            assertEquals(19, snapper.freeDistance(Direction.SOUTH, 0, -1, 0, 50));
+            assertEquals(50, snapper.freeDistance(Direction.SOUTH, 0, 1, 0, 50));
+            assertEquals(10, snapper.freeDistance(Direction.SOUTH, 0, 0, 0, 10));
+            assertEquals(0, snapper.freeDistance(Direction.SOUTH, 0, 0, 19, 10));
+            assertEquals(0, snapper.freeDistance(Direction.SOUTH, 0, 0, 0, 0));
+
+            //the agent is two blocks tall
+            assertEquals(38, snapper.freeDistance(Direction.UP, 0, 0, 0, 100));
+            assertEquals(64, snapper.freeDistance(Direction.NORTH, 0, 0, 0, 100));
+
+            //every intermediate snap ends at full height
+            for (int i = 1; i <= 19; i++) {
+                assertEquals(NodeSnapper.encode(0, false, 0), snapper.snap(Direction.SOUTH, 0, 0, i - 1, 0));
+            }
+
+            //walking agents, and spaces that don't track empty regions, never move more than one block at a time
+            assertEquals(0, new BasicNodeSnapper(space, 1, 2, 1, 1, EPSILON).freeDistance(Direction.SOUTH, 0, 0,
+                    0, 50));
+            assertEquals(0, new BasicNodeSnapper(new HashSpace(-64, -64, -64, 128, 128, 128), 1, 2, EPSILON)
+                    .freeDistance(Direction.SOUTH, 0, 0, 0, 50));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.github.steanky.proxima.snapper;
+
+import com.github.steanky.proxima.Direction;
+import com.github.steanky.proxima.solid.Solid;
+import com.github.steanky.proxima.space.ConcurrentCachingSpace;
+import com.github.steanky.proxima.space.Space;
+import com.github.steanky.vector.Bounds3D;
+import com.github.steanky.vector.HashVec3I2ObjectMap;
+import com.github.steanky.vector.Vec3I2ObjectMap;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FullBlockNodeSnapperTest {
+    private static final double EPSILON = 1E-6;
+
+    //marks positions that should not be loaded
+    private static final Solid UNLOADED = Solid.of(Bounds3D.immutable(0, 0, 0, 0.5, 0.5, 0.5));
+
+    //uneven terrain with scattered obstacles, and the occasional unloaded (or partial) position
+    private static Vec3I2ObjectMap<Solid> world(Random random, boolean partial) {
+        Vec3I2ObjectMap<Solid> world = new HashVec3I2ObjectMap<>(-16, -16, -16, 32, 32, 32);
+        for (int x = -10; x <= 10; x++) {
+            for (int z = -10; z <= 10; z++) {
+                int top = random.nextInt(-2, 2);
+                for (int y = -5; y <= top; y++) {
+                    world.put(x, y, z, Solid.FULL);
+                }
+
+                if (random.nextInt(8) == 0) {
+                    world.put(x, top + 2 + random.nextInt(2), z, Solid.FULL);
+                }
+
+                int kind = random.nextInt(40);
+                if (kind == 0) {
+                    world.put(x, top + random.nextInt(4), z, UNLOADED);
+                } else if (kind == 1 && partial) {
+                    world.put(x, top + 1, z, BasicNodeSnapperTest.LOWER_HALF_BLOCK);
+                }
+            }
+        }
+
+        return world;
+    }
+
+    private static @Nullable Solid solidAt(Vec3I2ObjectMap<Solid> world, int x, int y, int z) {
+        Solid solid = world.get(x, y, z);
+        if (solid == null) {
+            return Solid.EMPTY;
+        }
+
+        return solid == UNLOADED ? null : solid;
+    }
+
+    private static void assertMatches(Space space, double width, double height, double fallTolerance,
+            double jumpHeight, Random random) {
+        BasicNodeSnapper expected = new BasicNodeSnapper(space, width, height, fallTolerance, jumpHeight, EPSILON);
+        FullBlockNodeSnapper actual = new FullBlockNodeSnapper(space, width, height, fallTolerance, jumpHeight,
+                EPSILON);
+
+        Direction[] directions = Direction.values();
+        for (int i = 0; i < 4000; i++) {
+            int x = random.nextInt(-7, 8);
+            int y = random.nextInt(-1, 4);
+            int z = random.nextInt(-7, 8);
+            float offset = random.nextInt(4) == 0 ? 0.5F : 0;
+            Direction direction = directions[random.nextInt(directions.length)];
+
+            assertEquals(expected.snap(direction, x, y, z, offset), actual.snap(direction, x, y, z, offset),
+                    direction + " from " + x + ", " + y + ", " + z + " (" + offset + ")");
+        }
+    }
+
+    private static void assertMatchesAll(Space space, Random random) {
+        assertMatches(space, 1, 1, 1, 1, random);
+        assertMatches(space, 1, 2, 3, 1, random);
+        assertMatches(space, 0.6, 1.8, 3, 1.25, random);
+        assertMatches(space, 3, 1, 1, 0.5, random);
+        assertMatches(space, 2, 2, 2, 1, random);
+        assertMatches(space, 1, 1, 0, 0, random);
+    }
+
+    @Test
+    void matchesBasicSnapper() {
+        Random random = new Random(0xF011);
+        for (int i = 0; i < 4; i++) {
+            Vec3I2ObjectMap<Solid> world = world(random, false);
+            assertMatchesAll((x, y, z) -> solidAt(world, x, y, z), random);
+        }
+    }
+
+    @Test
+    void matchesBasicSnapperWithPartialSolids() {
+        Random random = new Random(0x9A27);
+        for (int i = 0; i < 4; i++) {
+            Vec3I2ObjectMap<Solid> world = world(random, true);
+            assertMatchesAll((x, y, z) -> solidAt(world, x, y, z), random);
+        }
+    }
+
+    @Test
+    void matchesBasicSnapperWithCachingSpace() {
+        Random random = new Random(0xCAC4);
+        for (int i = 0; i < 4; i++) {
+            Vec3I2ObjectMap<Solid> world = world(random, true);
+            assertMatchesAll(new ConcurrentCachingSpace() {
+                @Override
+                public @Nullable Solid loadSolid(int x, int y, int z) {
+                    return FullBlockNodeSnapperTest.solidAt(world, x, y, z);
+                }
+            }, random);
+        }
+    }
+
+    @Test
+    void walkOnFlatGround() {
+        Space space = (x, y, z) -> y == 0 ? Solid.FULL : Solid.EMPTY;
+        FullBlockNodeSnapper snapper = new FullBlockNodeSnapper(space, 1, 2, 3, 1, EPSILON);
+
+        long result = snapper.snap(Direction.NORTH, 0, 1, 0, 0);
+        assertEquals(1, NodeSnapper.height(result));
+        assertEquals(NodeSnapper.FAIL, snapper.snap(Direction.UP, 0, 1, 0, 0));
+    }
+
+    @Test
+    void jumpOntoBlock() {
+        Space space = (x, y, z) -> y == 0 || (y == 1 && z == -1) ? Solid.FULL : Solid.EMPTY;
+        FullBlockNodeSnapper snapper = new FullBlockNodeSnapper(space, 1, 2, 3, 1, EPSILON);
+
+        long result = snapper.snap(Direction.NORTH, 0, 1, 0, 0);
+        assertEquals(2, NodeSnapper.height(result));
+    }
+}
@@ -0,0 +1,169 @@
+package com.github.steanky.proxima.snapper;
+
+import com.github.steanky.proxima.Direction;
+import com.github.steanky.proxima.solid.Solid;
+import com.github.steanky.proxima.space.HashSpace;
+import com.github.steanky.proxima.space.MappedSpace;
+import com.github.steanky.proxima.space.Space;
+import com.github.steanky.vector.Bounds3D;
+import com.github.steanky.vector.Bounds3I;
+import com.github.steanky.vector.Vec3D;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapTableTest {
+    private static final double EPSILON = 1E-6;
+
+    private static final Direction[] WALK = new Direction[] {Direction.NORTH, Direction.EAST, Direction.SOUTH,
+            Direction.WEST};
+
+    private static final Bounds3I REGION = Bounds3I.immutable(-16, -8, -16, 32, 16, 32);
+
+    //two islands of uneven terrain, separated by a gap that can't be crossed
+    private static HashSpace world(Random random) {
+        HashSpace space = new HashSpace(REGION);
+        for (int x = -12; x <= 12; x++) {
+            if (x == 0 || x == 1 || x == 2) {
+                continue;
+            }
+
+            for (int z = -12; z <= 12; z++) {
+                int top = random.nextInt(-1, 1);
+                for (int y = -4; y <= top; y++) {
+                    space.put(x, y, z, Solid.FULL);
+                }
+
+                if (random.nextInt(10) == 0) {
+                    space.put(x, top + 1, z, Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1)));
+                }
+            }
+        }
+
+        return space;
+    }
+
+    @Test
+    void matchesSnapper() {
+        Random random = new Random(0x5A9);
+        HashSpace space = world(random);
+        BasicNodeSnapper snapper = new BasicNodeSnapper(space, 0.6, 1.8, 3, 1, EPSILON);
+
+        SnapTable table = SnapTable.compute(snapper, WALK, REGION, 0x5A9, Vec3D.immutable(-5.5, 2, 0.5));
+        assertTrue(table.size() > 100);
+        assertTrue(table.isCurrent(0x5A9));
+        assertFalse(table.isCurrent(0));
+
+        TableNodeSnapper tableSnapper = new TableNodeSnapper(table, snapper);
+        Direction[] directions = Direction.values();
+        for (int i = 0; i < 20000; i++) {
+            int x = random.nextInt(-14, 15);
+            int y = random.nextInt(-1, 3);
+            int z = random.nextInt(-14, 15);
+            float offset = random.nextInt(4) == 0 ? 0.5F : 0;
+            Direction direction = directions[random.nextInt(directions.length)];
+
+            assertEquals(snapper.snap(direction, x, y, z, offset), tableSnapper.snap(direction, x, y, z, offset));
+        }
+    }
+
+    @Test
+    void connectivity() {
+        HashSpace space = world(new Random(0xC0));
+        BasicNodeSnapper snapper = new BasicNodeSnapper(space, 0.6, 1.8, 3, 1, EPSILON);
+
+        SnapTable table = SnapTable.compute(snapper, WALK, REGION, 0, Vec3D.immutable(-5.5, 2, 0.5),
+                Vec3D.immutable(6.5, 2, 0.5));
+
+        int west = findNode(table, -6);
+        int east = findNode(table, 6);
+        int otherWest = findNode(table, -10);
+
+        assertFalse(table.mayConnect(-6, west, 0, 6, east, 0));
+        assertTrue(table.mayConnect(-6, west, 0, -10, otherWest, 0));
+
+        //nodes that aren't in the table may always be connected
+        assertTrue(table.mayConnect(-6, west, 0, 100, 0, 100));
+    }
+
+    //the height of the node in the table at the given x, and z = 0
+    private static int findNode(SnapTable table, int x) {
+        for (int y = -8; y < 8; y++) {
+            if (table.lookup(Direction.NORTH, x, y, 0, 0) != SnapTable.UNKNOWN ||
+                    table.lookup(Direction.NORTH, x, y, 0, 0.5F) != SnapTable.UNKNOWN) {
+                return y;
+            }
+        }
+
+        fail("no node at " + x);
+        return 0;
+    }
+
+    @Test
+    void persisted(@TempDir Path directory) throws IOException {
+        Random random = new Random(0x9E5);
+        HashSpace space = world(random);
+        Path worldFile = directory.resolve("world.bin");
+        MappedSpace.write(space, REGION, worldFile);
+        MappedSpace world = MappedSpace.open(worldFile);
+
+        BasicNodeSnapper snapper = new BasicNodeSnapper(world, 1, 2, 3, 1, EPSILON);
+        SnapTable table = SnapTable.compute(snapper, WALK, world.bounds(), world.checksum(),
+                Vec3D.immutable(-5.5, 2, 0.5));
+
+        Path file = directory.resolve("table.bin");
+        table.write(file);
+
+        SnapTable read = SnapTable.read(file);
+        assertEquals(table.checksum(), read.checksum());
+        assertEquals(table.size(), read.size());
+        assertTrue(read.isCurrent(world));
+
+        for (int x = -14; x <= 14; x++) {
+            for (int y = -2; y <= 3; y++) {
+                for (int z = -14; z <= 14; z++) {
+                    for (Direction direction : Direction.values()) {
+                        assertEquals(table.lookup(direction, x, y, z, 0), read.lookup(direction, x, y, z, 0));
+                        assertEquals(table.lookup(direction, x, y, z, 0.5F), read.lookup(direction, x, y, z,
+                                0.5F));
+                    }
+                }
+            }
+        }
+
+        //rewriting the same world keeps the table current, any change to it makes the table stale
+        Path same = directory.resolve("same.bin");
+        MappedSpace.write(space, REGION, same);
+        assertTrue(read.isCurrent(MappedSpace.open(same)));
+
+        space.put(3, 5, 3, Solid.FULL);
+        Path changed = directory.resolve("changed.bin");
+        MappedSpace.write(space, REGION, changed);
+        assertFalse(read.isCurrent(MappedSpace.open(changed)));
+
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> SnapTable.read(file));
+
+        bytes[0] = 0;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> SnapTable.read(file));
+    }
+
+    @Test
+    void invalidArguments() {
+        Space space = (x, y, z) -> y == 0 ? Solid.FULL : Solid.EMPTY;
+
+        assertThrows(IllegalArgumentException.class, () -> SnapTable.compute(new BasicNodeSnapper(space, 1, 1, 1, 1,
+                EPSILON), new Direction[] {Direction.NORTH, Direction.NORTH}, REGION, 0));
+        assertThrows(IllegalArgumentException.class, () -> SnapTable.compute(new BasicNodeSnapper(space, 1, 1, 1, 1,
+                EPSILON), WALK, Bounds3I.immutable(0, 0, 0, 1, 4096, 1), 0));
+    }
+}
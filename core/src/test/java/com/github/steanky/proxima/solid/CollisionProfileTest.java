@@ -0,0 +1,67 @@
+package com.github.steanky.proxima.solid;
+
+import com.github.steanky.proxima.Direction;
+import com.github.steanky.vector.Bounds3D;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CollisionProfileTest {
+    private static final double EPSILON = 1E-6;
+
+    private static final List<Solid> SOLIDS = List.of(Solid.FULL,
+            Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1)),
+            Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1), Bounds3D.immutable(0, 0.5, 0.5, 1, 0.5, 0.5)),
+            Solid.of(Bounds3D.immutable(0.375, 0, 0.375, 0.25, 1, 0.25),
+                    Bounds3D.immutable(0.4375, 0.375, 0, 0.125, 0.1875, 0.375)),
+            Solid.of(Bounds3D.immutable(0, 0.9, 0, 1, 0.1, 1)));
+
+    private static final double[] OFFSETS = new double[] {-2.5, -1, -0.5, 0, 0.25, 0.5, 0.9375, 1, 1.5, 3};
+
+    private static void assertMatches(CollisionProfile profile, double width, double height, double length) {
+        //query twice, so both the computed and the cached paths are exercised
+        for (int pass = 0; pass < 2; pass++) {
+            for (Solid solid : SOLIDS) {
+                for (Direction direction : Direction.values()) {
+                    for (int dx = -2; dx <= 2; dx++) {
+                        for (int dz = -2; dz <= 2; dz++) {
+                            for (double offset : OFFSETS) {
+                                int nodeX = 100;
+                                int nodeZ = -50;
+                                int y = 10;
+
+                                int x = nodeX + dx;
+                                int z = nodeZ + dz;
+                                double cy = y + offset;
+
+                                long expected = solid.minMaxCollision(x, y, z, nodeX + 0.5, cy, nodeZ + 0.5, width,
+                                        height, width, direction, length, EPSILON);
+                                long actual = profile.minMaxCollision(solid, x, y, z, nodeX, cy, nodeZ, direction);
+
+                                assertEquals(expected, actual, "solid " + solid.children() + ", direction " +
+                                        direction + ", dx " + dx + ", dz " + dz + ", offset " + offset);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesDirectHorizontal() {
+        assertMatches(new CollisionProfile(1, 2, 1, EPSILON), 1, 2, 1);
+    }
+
+    @Test
+    void matchesDirectSmallAgent() {
+        assertMatches(new CollisionProfile(0.6, 1.8, 1, EPSILON), 0.6, 1.8, 1);
+    }
+
+    @Test
+    void matchesDirectLongSweep() {
+        assertMatches(new CollisionProfile(0.6, 1.8, 4, EPSILON), 0.6, 1.8, 4);
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.steanky.proxima.solid;
+
+import com.github.steanky.vector.Bounds3D;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolidTest {
+    @Test
+    void emptyAndFullIds() {
+        assertEquals(0, Solid.EMPTY.id());
+        assertEquals(1, Solid.FULL.id());
+
+        assertSame(Solid.EMPTY, Solid.byId(0));
+        assertSame(Solid.FULL, Solid.byId(1));
+    }
+
+    @Test
+    void equalSolidsAreInterned() {
+        Solid first = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1), Bounds3D.immutable(0, 0.5, 0.5, 1, 0.5, 0.5));
+        Solid second = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1), Bounds3D.immutable(0, 0.5, 0.5, 1, 0.5, 0.5));
+
+        assertSame(first, second);
+        assertEquals(first.id(), second.id());
+        assertSame(first, Solid.byId(first.id()));
+        assertTrue(first.id() < Solid.registeredCount());
+    }
+
+    @Test
+    void differentSolidsHaveDifferentIds() {
+        Solid first = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.25, 1));
+        Solid second = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.75, 1));
+
+        assertNotEquals(first, second);
+        assertNotEquals(first.id(), second.id());
+    }
+
+    @Test
+    void varargsAndFixedArityAgree() {
+        Bounds3D first = Bounds3D.immutable(0, 0, 0, 1, 0.125, 1);
+        Bounds3D second = Bounds3D.immutable(0, 0.125, 0, 0.5, 0.125, 1);
+        Bounds3D third = Bounds3D.immutable(0, 0.25, 0, 0.25, 0.125, 1);
+
+        assertSame(Solid.of(first, second), Solid.of(new Bounds3D[] {first, second}));
+        assertSame(Solid.of(first, second, third), Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.125, 1), second, third));
+    }
+
+    @Test
+    void invalidSolidsAreNotRegistered() {
+        int count = Solid.registeredCount();
+        assertThrows(IllegalArgumentException.class, () -> Solid.of(Bounds3D.immutable(0.5, 0, 0, 1, 1, 1)));
+        assertEquals(count, Solid.registeredCount());
+    }
+
+    @Test
+    void unknownId() {
+        assertThrows(IllegalArgumentException.class, () -> Solid.byId(-1));
+        assertThrows(IllegalArgumentException.class, () -> Solid.byId(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void idsFitInShorts() throws Exception {
+        //the registry is global, so fill a copy of it loaded in a separate class loader
+        URL[] urls = new URL[] {Solid.class.getProtectionDomain().getCodeSource().getLocation(),
+                Bounds3D.class.getProtectionDomain().getCodeSource().getLocation()};
+
+        try (URLClassLoader loader = new URLClassLoader(urls, ClassLoader.getPlatformClassLoader())) {
+            Class<?> bounds = loader.loadClass(Bounds3D.class.getName());
+            Class<?> solid = loader.loadClass(Solid.class.getName());
+
+            Method immutable = bounds.getMethod("immutable", double.class, double.class, double.class, double.class,
+                    double.class, double.class);
+            Method of = solid.getMethod("of", bounds);
+            Method count = solid.getMethod("registeredCount");
+
+            int limit = Short.MAX_VALUE + 1;
+            for (int i = (int) count.invoke(null); i < limit; i++) {
+                of.invoke(null, immutable.invoke(null, 0, 0, 0, 1, 1, (double) i / limit));
+            }
+
+            assertEquals(limit, count.invoke(null));
+
+            Object last = immutable.invoke(null, 0, 0, 0, 1, 1, 0.999);
+            InvocationTargetException thrown = assertThrows(InvocationTargetException.class,
+                    () -> of.invoke(null, last));
+            assertInstanceOf(IllegalStateException.class, thrown.getCause());
+            assertEquals(limit, count.invoke(null));
+        }
+    }
+}
@@ -1,13 +1,23 @@
 package com.github.steanky.proxima.space;
 
+import com.github.steanky.proxima.Direction;
 import com.github.steanky.proxima.solid.Solid;
+import com.github.steanky.vector.Bounds3D;
 import com.github.steanky.vector.Bounds3I;
+import com.github.steanky.vector.Vec3I;
 import org.jetbrains.annotations.Nullable;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -58,6 +68,703 @@ class ConcurrentCachingSpaceTest {
             assertEquals(Solid.EMPTY, space.solidAt(0, 0, 0));
             assertTrue(space.validCacheState());
         }
+
+        @Test
+        void readsAfterClear() {
+            HashSpace backing = new HashSpace(Bounds3I.immutable(0, 0, 0, 32, 32, 32));
+            backing.put(1, 1, 1, Solid.FULL);
+
+            ConcurrentCachingSpace space = backed(backing);
+            assertEquals(Solid.FULL, space.solidAt(1, 1, 1));
+            assertEquals(Solid.FULL, space.solidAt(1, 1, 1));
+
+            //the chunk this thread read last must not be used once it has been removed
+            backing.remove(1, 1, 1);
+            space.clearChunk(0, 0);
+            assertEquals(Solid.EMPTY, space.solidAt(1, 1, 1));
+
+            backing.put(1, 1, 1, Solid.FULL);
+            space.clearCache();
+            assertEquals(Solid.FULL, space.solidAt(1, 1, 1));
+            assertEquals(Solid.FULL, space.solidAt(1, 1, 1));
+
+            //reading another chunk in between
+            assertEquals(Solid.EMPTY, space.solidAt(17, 1, 1));
+            assertEquals(Solid.FULL, space.solidAt(1, 1, 1));
+            assertTrue(space.validCacheState());
+        }
+
+        @Test
+        void batchedUpdates() {
+            Solid partial = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1));
+            ConcurrentCachingSpace space = same(Solid.EMPTY);
+
+            space.updateSolid(40, 0, 40, Solid.FULL);
+            space.updateSolid(0, 0, 0, Solid.FULL);
+
+            SolidBatch batch = new SolidBatch(1);
+            for (int x = -20; x < 20; x++) {
+                batch.add(x, 1, 5, Solid.FULL);
+            }
+
+            //the last update to a position wins
+            batch.add(3, 1, 5, partial).add(4, 1, 5, null).add(4, 1, 5, Solid.EMPTY);
+
+            //empties an existing chunk, which should be removed
+            batch.add(40, 0, 40, null);
+
+            //removing from a chunk that doesn't exist shouldn't create it
+            batch.add(100, 0, 100, null);
+
+            //creates a new chunk, then removes the only solid in it
+            batch.add(200, 0, 200, Solid.FULL).add(200, 0, 200, null);
+
+            space.updateSolids(batch);
+            assertEquals(47, batch.size());
+
+            for (int x = -20; x < 20; x++) {
+                Solid expected = x == 3 ? partial : x == 4 ? Solid.EMPTY : Solid.FULL;
+                assertEquals(expected, space.solidAt(x, 1, 5));
+            }
+
+            assertEquals(Solid.FULL, space.solidAt(0, 0, 0));
+
+            //removed positions are reloaded
+            assertEquals(Solid.EMPTY, space.solidAt(40, 0, 40));
+            assertEquals(Solid.EMPTY, space.solidAt(200, 0, 200));
+
+            assertTrue(space.validCacheState());
+
+            batch.clear();
+            assertTrue(batch.isEmpty());
+            space.updateSolids(batch);
+            assertThrows(IllegalArgumentException.class, () -> new SolidBatch(-1));
+        }
+
+        @Test
+        void unloadedChunks() throws InterruptedException {
+            AtomicInteger loads = new AtomicInteger();
+            AtomicBoolean available = new AtomicBoolean();
+
+            //only chunk x = 0 is loaded, until available is set
+            Space world = (x, y, z) -> x < 16 || available.get() ? Solid.FULL : null;
+            ConcurrentCachingSpace space = new ConcurrentCachingSpace(-32, 1, TimeUnit.HOURS) {
+                @Override
+                public @Nullable Solid loadSolid(int x, int y, int z) {
+                    loads.incrementAndGet();
+                    return world.solidAt(x, y, z);
+                }
+            };
+
+            assertNull(space.solidAt(20, 0, 0));
+            assertNull(space.solidAt(20, 0, 0));
+            assertNull(space.solidAt(31, 5, 15));
+            assertEquals(0, space.occupancy(16, 0, 0, Direction.SOUTH, 16, Space.FULL));
+            assertEquals(1, loads.get());
+
+            //other chunks are unaffected
+            assertEquals(Solid.FULL, space.solidAt(0, 0, 0));
+            assertNull(space.solidAt(40, 0, 0));
+            assertEquals(3, loads.get());
+
+            available.set(true);
+            assertNull(space.solidAt(20, 0, 0));
+
+            space.chunkLoaded(1, 0);
+            assertEquals(Solid.FULL, space.solidAt(20, 0, 0));
+
+            //still considered unloaded, only chunk x = 1 was reported
+            assertNull(space.solidAt(40, 0, 0));
+            assertEquals(4, loads.get());
+
+            space.clearCache();
+            assertEquals(Solid.FULL, space.solidAt(40, 0, 0));
+            assertTrue(space.validCacheState());
+
+            //unloaded chunks are forgotten once their lifetime elapses
+            available.set(false);
+            ConcurrentCachingSpace shortLived = new ConcurrentCachingSpace(-32, 1, TimeUnit.MILLISECONDS) {
+                @Override
+                public @Nullable Solid loadSolid(int x, int y, int z) {
+                    loads.incrementAndGet();
+                    return world.solidAt(x, y, z);
+                }
+            };
+
+            //enough chunks to require expired ones to be removed
+            loads.set(0);
+            for (int i = 0; i < 100; i++) {
+                assertNull(shortLived.solidAt(16 * (i + 1), 0, 0));
+            }
+
+            Thread.sleep(5);
+            assertNull(shortLived.solidAt(16, 0, 0));
+            assertEquals(101, loads.get());
+
+            //without a lifetime, unloaded chunks aren't remembered
+            ConcurrentCachingSpace uncached = backed(world);
+            assertNull(uncached.solidAt(20, 0, 0));
+            uncached.chunkLoaded(1, 0);
+
+            assertThrows(IllegalArgumentException.class, () -> new ConcurrentCachingSpace(0, -1, TimeUnit.SECONDS) {
+                @Override
+                public @Nullable Solid loadSolid(int x, int y, int z) {
+                    return null;
+                }
+            });
+        }
+
+        @Test
+        void versions() {
+            ConcurrentCachingSpace space = same(Solid.EMPTY);
+            List<String> events = new ArrayList<>();
+            ChunkListener listener = new ChunkListener() {
+                @Override
+                public void chunkChanged(int x, int z) {
+                    events.add(x + ", " + z);
+                }
+
+                @Override
+                public void allChanged() {
+                    events.add("all");
+                }
+            };
+
+            space.addListener(listener);
+
+            //loading solids doesn't change the version
+            long version = space.version(0, 0);
+            space.solidAt(1, 1, 1);
+            assertEquals(version, space.version(0, 0));
+
+            long other = space.version(1, 0);
+            space.updateSolid(1, 1, 1, Solid.FULL);
+            assertTrue(space.version(0, 0) > version);
+            assertEquals(other, space.version(1, 0));
+            version = space.version(0, 0);
+
+            //empties the chunk, removing it
+            space.updateSolid(1, 1, 1, null);
+            assertTrue(space.version(0, 0) > version);
+            version = space.version(0, 0);
+
+            space.solidAt(1, 1, 1);
+            assertEquals(version, space.version(0, 0));
+
+            SolidBatch batch = new SolidBatch().add(2, 0, 2, Solid.FULL).add(-1, 0, 40, Solid.FULL);
+            space.updateSolids(batch);
+            assertTrue(space.version(0, 0) > version);
+            assertTrue(space.version(-1, 2) > other);
+            version = space.version(0, 0);
+
+            //updates that don't change anything leave versions alone, and aren't reported to listeners
+            space.updateSolid(2, 0, 2, Solid.FULL);
+            space.updateSolid(3, 0, 3, null);
+            space.updateSolids(new SolidBatch().add(2, 0, 2, Solid.FULL).add(3, 0, 3, null));
+            space.updateSolids(new SolidBatch().add(200, 0, 200, null));
+            assertEquals(version, space.version(0, 0));
+            assertEquals(4, events.size());
+
+            //only changed positions in a batch count
+            space.updateSolids(new SolidBatch().add(2, 0, 2, Solid.FULL).add(3, 0, 3, Solid.FULL));
+            assertTrue(space.version(0, 0) > version);
+            version = space.version(0, 0);
+
+            space.clearChunk(0, 0);
+            assertTrue(space.version(0, 0) > version);
+            version = space.version(0, 0);
+
+            //nothing to clear
+            space.clearChunk(0, 0);
+            assertEquals(version, space.version(0, 0));
+
+            long never = space.version(100, 100);
+            space.clearCache();
+            assertTrue(space.version(0, 0) > version);
+            assertTrue(space.version(100, 100) > never);
+
+            assertEquals(List.of("0, 0", "0, 0", "0, 0", "-1, 2", "0, 0", "0, 0", "all"), events);
+
+            assertTrue(space.removeListener(listener));
+            space.updateSolid(0, 0, 0, Solid.FULL);
+            assertEquals(7, events.size());
+            assertFalse(space.removeListener(listener));
+
+            //more removed chunks than are remembered individually
+            int count = 70000;
+            long[] versions = new long[count];
+            for (int i = 0; i < count; i++) {
+                space.updateSolid(i << 4, 0, 0, Solid.FULL);
+                versions[i] = space.version(i, 0);
+                space.clearChunk(i, 0);
+                assertTrue(space.version(i, 0) > versions[i]);
+            }
+
+            for (int i = 0; i < count; i++) {
+                assertTrue(space.version(i, 0) > versions[i]);
+            }
+
+            assertTrue(space.validCacheState());
+        }
+
+        @Test
+        void snapshots() {
+            Solid partial = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1));
+            HashSpace backing = new HashSpace(Bounds3I.immutable(-32, 0, -32, 64, 16, 64));
+            backing.put(1, 1, 1, Solid.FULL);
+
+            ConcurrentCachingSpace space = backed(backing);
+            assertEquals(Solid.FULL, space.solidAt(1, 1, 1));
+            assertEquals(Solid.EMPTY, space.solidAt(2, 1, 1));
+
+            ConcurrentCachingSpace.Snapshot snapshot = space.snapshot();
+            space.updateSolid(1, 1, 1, partial);
+            space.updateSolid(1, 1, 1, Solid.EMPTY);
+            assertEquals(Solid.EMPTY, space.solidAt(1, 1, 1));
+            assertEquals(Solid.FULL, snapshot.solidAt(1, 1, 1));
+
+            //removed solids are reloaded by the live space, but not the snapshot
+            backing.put(2, 1, 1, Solid.FULL);
+            space.updateSolid(2, 1, 1, null);
+            assertEquals(Solid.FULL, space.solidAt(2, 1, 1));
+            assertEquals(Solid.EMPTY, snapshot.solidAt(2, 1, 1));
+
+            //positions that weren't cached are read when first needed, and then stay the same
+            assertEquals(Solid.EMPTY, snapshot.solidAt(3, 1, 1));
+            space.updateSolids(new SolidBatch().add(3, 1, 1, Solid.FULL).add(1, 1, 1, Solid.FULL));
+            assertEquals(Solid.EMPTY, snapshot.solidAt(3, 1, 1));
+            assertEquals(Solid.FULL, snapshot.solidAt(1, 1, 1));
+
+            //removed chunks are kept for the snapshot
+            space.clearChunk(0, 0);
+            backing.remove(1, 1, 1);
+            assertEquals(Solid.EMPTY, space.solidAt(1, 1, 1));
+            assertEquals(Solid.FULL, snapshot.solidAt(1, 1, 1));
+
+            space.updateSolid(1, 1, 1, partial);
+            space.clearCache();
+            assertEquals(Solid.FULL, snapshot.solidAt(1, 1, 1));
+            assertEquals(Solid.EMPTY, snapshot.solidAt(2, 1, 1));
+            assertEquals(Solid.EMPTY, snapshot.solidAt(3, 1, 1));
+
+            //a later snapshot sees later changes
+            space.updateSolid(1, 1, 1, partial);
+            try (ConcurrentCachingSpace.Snapshot later = space.snapshot()) {
+                space.updateSolid(1, 1, 1, Solid.EMPTY);
+                assertEquals(partial, later.solidAt(1, 1, 1));
+                assertEquals(Solid.FULL, snapshot.solidAt(1, 1, 1));
+            }
+
+            //pinned snapshots are read through the space
+            snapshot.pin();
+            assertEquals(Solid.FULL, space.solidAt(1, 1, 1));
+            assertEquals(1L, space.occupancy(1, 1, 1, Direction.SOUTH, 3, Space.FULL));
+            assertEquals(0, space.clearance(2, 1, 2, 0));
+            assertThrows(IllegalStateException.class, snapshot::pin);
+            snapshot.unpin();
+
+            assertEquals(Solid.EMPTY, space.solidAt(1, 1, 1));
+            assertThrows(IllegalStateException.class, snapshot::unpin);
+
+            snapshot.pin();
+            snapshot.close();
+            snapshot.close();
+            assertEquals(Solid.EMPTY, space.solidAt(1, 1, 1));
+            assertThrows(IllegalStateException.class, () -> snapshot.solidAt(1, 1, 1));
+            assertThrows(IllegalStateException.class, snapshot::pin);
+
+            //nothing is remembered once all snapshots are closed
+            space.updateSolid(1, 1, 1, Solid.FULL);
+            assertEquals(Solid.FULL, space.solidAt(1, 1, 1));
+            assertTrue(space.validCacheState());
+        }
+
+        @Test
+        void snapshotClearance() {
+            ConcurrentCachingSpace space = same(Solid.EMPTY);
+            for (int x = 0; x < 32; x++) {
+                for (int y = 0; y < 8; y++) {
+                    space.solidAt(x, y, 1);
+                }
+            }
+
+            int live = space.clearance(2, 0, 1, 0);
+            assertTrue(live > 0);
+
+            SnapshotSpace snapshotSpace = space;
+            try (SpaceSnapshot snapshot = snapshotSpace.snapshot()) {
+                //unchanged chunks keep their headroom while the snapshot is pinned
+                snapshot.pin();
+                assertEquals(live, space.clearance(2, 0, 1, 0));
+                assertEquals(live, space.clearance(18, 0, 1, 0));
+                snapshot.unpin();
+
+                //changed chunks are treated as obstructed, as their headroom describes the live space
+                space.updateSolid(3, 7, 1, Solid.FULL);
+                assertEquals(0, snapshot.clearance(2, 0, 1, 0));
+                assertEquals(live, snapshot.clearance(18, 0, 1, 0));
+
+                snapshot.pin();
+                assertEquals(0, space.clearance(2, 0, 1, 0));
+                snapshot.unpin();
+
+                assertTrue(space.clearance(2, 0, 1, 0) > 0);
+            }
+        }
+
+        @Test
+        void randomSnapshots() {
+            Solid partial = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1));
+            Solid[] solids = new Solid[] {Solid.EMPTY, Solid.FULL, partial, null};
+
+            ConcurrentCachingSpace space = same(Solid.EMPTY);
+            Map<Vec3I, Solid> cached = new HashMap<>();
+            List<ConcurrentCachingSpace.Snapshot> snapshots = new ArrayList<>();
+            List<Map<Vec3I, Solid>> expected = new ArrayList<>();
+            Random random = new Random(0x5AA9);
+
+            for (int i = 0; i < 60; i++) {
+                for (int j = 0; j < 40; j++) {
+                    int x = random.nextInt(-20, 20);
+                    int y = random.nextInt(0, 4);
+                    int z = random.nextInt(-20, 20);
+
+                    Solid solid = solids[random.nextInt(solids.length)];
+                    space.updateSolid(x, y, z, solid);
+                    if (solid == null) {
+                        cached.remove(Vec3I.immutable(x, y, z));
+                    } else {
+                        cached.put(Vec3I.immutable(x, y, z), solid);
+                    }
+                }
+
+                if (random.nextInt(4) == 0) {
+                    int cx = random.nextInt(-2, 2);
+                    int cz = random.nextInt(-2, 2);
+                    space.clearChunk(cx, cz);
+                    cached.keySet().removeIf(vec -> vec.x() >> 4 == cx && vec.z() >> 4 == cz);
+                }
+
+                if (random.nextInt(20) == 0) {
+                    space.clearCache();
+                    cached.clear();
+                }
+
+                if (!snapshots.isEmpty() && random.nextInt(3) == 0) {
+                    int index = random.nextInt(snapshots.size());
+                    snapshots.remove(index).close();
+                    expected.remove(index);
+                }
+
+                snapshots.add(space.snapshot());
+                expected.add(new HashMap<>(cached));
+
+                //solids cached when each snapshot was taken never change
+                for (int k = 0; k < snapshots.size(); k++) {
+                    ConcurrentCachingSpace.Snapshot snapshot = snapshots.get(k);
+                    for (Map.Entry<Vec3I, Solid> entry : expected.get(k).entrySet()) {
+                        Vec3I vec = entry.getKey();
+                        assertEquals(entry.getValue(), snapshot.solidAt(vec.x(), vec.y(), vec.z()), vec + " in " + k);
+                    }
+                }
+
+                for (int x = -20; x < 20; x++) {
+                    for (int y = 0; y < 4; y++) {
+                        for (int z = -20; z < 20; z++) {
+                            Solid solid = cached.get(Vec3I.immutable(x, y, z));
+                            assertEquals(solid == null ? Solid.EMPTY : solid, space.solidAt(x, y, z));
+                            cached.putIfAbsent(Vec3I.immutable(x, y, z), Solid.EMPTY);
+                        }
+                    }
+                }
+            }
+
+            for (ConcurrentCachingSpace.Snapshot snapshot : snapshots) {
+                snapshot.close();
+            }
+
+            assertTrue(space.validCacheState());
+        }
+
+        @Test
+        void occupancy() {
+            Solid partial = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1));
+
+            HashSpace backing = new HashSpace(Bounds3I.immutable(-64, 0, -64, 128, 16, 128));
+            backing.put(0, 1, -3, Solid.FULL);
+            backing.put(0, 1, 0, partial);
+            backing.put(0, 1, 15, Solid.FULL);
+            backing.put(0, 1, 16, partial);
+
+            //positions at z >= 40 can't be loaded
+            ConcurrentCachingSpace space = new ConcurrentCachingSpace() {
+                @Override
+                public @Nullable Solid loadSolid(int x, int y, int z) {
+                    return z >= 40 ? null : backing.solidAt(x, y, z);
+                }
+            };
+
+            //cache a few positions first, so the initial pass sees both cached and uncached positions
+            space.solidAt(0, 1, 0);
+            space.solidAt(0, 1, 5);
+
+            long full = 1L | 1L << 18;
+            long partialBits = 1L << 3 | 1L << 19;
+            long unloaded = -1L << 43;
+
+            for (int i = 0; i < 2; i++) {
+                assertEquals(full, space.occupancy(0, 1, -3, Direction.SOUTH, 64, Space.FULL));
+                assertEquals(partialBits, space.occupancy(0, 1, -3, Direction.SOUTH, 64, Space.PARTIAL));
+                assertEquals(unloaded, space.occupancy(0, 1, -3, Direction.SOUTH, 64, Space.UNLOADED));
+                assertEquals(~(full | partialBits | unloaded), space.occupancy(0, 1, -3, Direction.SOUTH, 64,
+                        Space.EMPTY));
+            }
+
+            //other directions are classified one position at a time
+            assertEquals(1L | 1L << 16, space.occupancy(0, 1, 16, Direction.NORTH, 20, Space.PARTIAL));
+            assertEquals(0, space.occupancy(0, 1, -3, Direction.SOUTH, 0, Space.FULL));
+
+            space.updateSolid(0, 1, 0, Solid.EMPTY);
+            assertEquals(1L << 19, space.occupancy(0, 1, -3, Direction.SOUTH, 64, Space.PARTIAL));
+
+            //removed positions are loaded again
+            space.updateSolid(0, 1, 15, null);
+            assertEquals(full, space.occupancy(0, 1, -3, Direction.SOUTH, 64, Space.FULL));
+
+            space.updateSolid(0, 1, 15, Solid.EMPTY);
+            assertEquals(1L, space.occupancy(0, 1, -3, Direction.SOUTH, 64, Space.FULL));
+
+            assertThrows(IllegalArgumentException.class, () -> space.occupancy(0, 1, 0, Direction.SOUTH, 65,
+                    Space.FULL));
+        }
+
+        @Test
+        void occupancyClasses() {
+            Solid partial = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1));
+            Solid[] solids = new Solid[] {Solid.EMPTY, Solid.EMPTY, Solid.FULL, partial, null};
+
+            Random random = new Random(0x0CC0);
+            ConcurrentCachingSpace space = new ConcurrentCachingSpace() {
+                @Override
+                public @Nullable Solid loadSolid(int x, int y, int z) {
+                    return solids[Math.floorMod(x * 31 + y * 17 + z * 7 + (x ^ z), solids.length)];
+                }
+            };
+
+            for (int i = 0; i < 2000; i++) {
+                int x = random.nextInt(64) - 32;
+                int y = random.nextInt(8);
+                int z = random.nextInt(64) - 32;
+                int length = random.nextInt(33);
+                Direction direction = random.nextInt(4) == 0 ? Direction.EAST : Direction.SOUTH;
+
+                //cache some positions ahead of time so runs see both cached and uncached positions
+                space.solidAt(x, y, z + random.nextInt(16));
+
+                long classes = space.occupancyClasses(x, y, z, direction, length);
+                long full = space.occupancy(x, y, z, direction, length, Space.FULL);
+                long partialBits = space.occupancy(x, y, z, direction, length, Space.PARTIAL);
+                long unloaded = space.occupancy(x, y, z, direction, length, Space.UNLOADED);
+
+                assertEquals(full, Space.full(classes));
+                assertEquals(partialBits, Space.partial(classes));
+                assertEquals(unloaded, Space.unloaded(classes));
+                assertEquals(full | partialBits | unloaded, Space.occupied(classes));
+            }
+
+            assertThrows(IllegalArgumentException.class, () -> space.occupancyClasses(0, 1, 0, Direction.SOUTH,
+                    33));
+        }
+
+        //region used by the clearance test, the same size along each axis
+        private static final int ORIGIN = -24;
+        private static final int SIZE = 40;
+
+        private static int[][][] expectedHeadroom(Map<Vec3I, Solid> cached) {
+            int[][][] headroom = new int[SIZE][SIZE][SIZE];
+            for (int x = 0; x < SIZE; x++) {
+                for (int z = 0; z < SIZE; z++) {
+                    int above = 0;
+                    for (int y = SIZE - 1; y >= 0; y--) {
+                        Solid solid = cached.get(Vec3I.immutable(x + ORIGIN, y + ORIGIN, z + ORIGIN));
+                        above = solid != null && solid.isEmpty() ? Math.min(above + 1, Space.MAX_HEADROOM) : 0;
+                        headroom[x][y][z] = above;
+                    }
+                }
+            }
+
+            return headroom;
+        }
+
+        private static int expectedClearance(int[][][] headroom, int x, int y, int z, int radius) {
+            int min = Space.MAX_HEADROOM;
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    min = Math.min(min, headroom[x + dx - ORIGIN][y - ORIGIN][z + dz - ORIGIN]);
+                }
+            }
+
+            return min;
+        }
+
+        @Test
+        void clearance() {
+            Solid partial = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1));
+            Solid[] solids = new Solid[] {Solid.EMPTY, Solid.EMPTY, Solid.FULL, partial, null};
+
+            ConcurrentCachingSpace space = same(Solid.EMPTY);
+            Map<Vec3I, Solid> cached = new HashMap<>();
+            Random random = new Random(0xC1EA);
+
+            //start with the region mostly open, so that large clearances are common
+            int min = ORIGIN + 2;
+            int max = ORIGIN + SIZE - 2;
+            for (int x = min; x < max; x++) {
+                for (int y = min; y < max; y++) {
+                    for (int z = min; z < max; z++) {
+                        space.updateSolid(x, y, z, Solid.EMPTY);
+                        cached.put(Vec3I.immutable(x, y, z), Solid.EMPTY);
+                    }
+                }
+            }
+
+            for (int i = 0; i < 40; i++) {
+                for (int j = 0; j < 20; j++) {
+                    //crosses chunk and section boundaries
+                    int x = random.nextInt(min, max);
+                    int y = random.nextInt(min, max);
+                    int z = random.nextInt(min, max);
+
+                    Solid solid = solids[random.nextInt(solids.length)];
+                    space.updateSolid(x, y, z, solid);
+                    if (solid == null) {
+                        cached.remove(Vec3I.immutable(x, y, z));
+                    } else {
+                        cached.put(Vec3I.immutable(x, y, z), solid);
+                    }
+                }
+
+                int[][][] headroom = expectedHeadroom(cached);
+                for (int x = min; x < max; x++) {
+                    for (int y = min; y < max; y++) {
+                        for (int z = min; z < max; z++) {
+                            for (int r = 0; r <= 2; r++) {
+                                assertEquals(expectedClearance(headroom, x, y, z, r), space.clearance(x, y, z, r),
+                                        x + ", " + y + ", " + z + " (" + r + ")");
+                            }
+                        }
+                    }
+                }
+            }
+
+            //uncached positions are never assumed to be empty
+            assertEquals(0, space.clearance(100, 0, 100, 0));
+            assertThrows(IllegalArgumentException.class, () -> space.clearance(0, 0, 0, -1));
+        }
+
+        @Test
+        void prefetch() {
+            AtomicInteger loads = new AtomicInteger();
+            ConcurrentCachingSpace space = new ConcurrentCachingSpace(0, 1, TimeUnit.HOURS) {
+                @Override
+                public @Nullable Solid loadSolid(int x, int y, int z) {
+                    loads.incrementAndGet();
+                    return x < 32 ? (y == 0 ? Solid.FULL : Solid.EMPTY) : null;
+                }
+            };
+
+            //positions below the minimum y-coordinate are skipped
+            space.prefetch(-4, -4, 0, 8, 8, 16);
+            assertEquals(8 * 4 * 16, loads.get());
+
+            //already loaded positions are skipped too
+            space.prefetch(-4, 0, 0, 8, 4, 16);
+            assertEquals(8 * 4 * 16, loads.get());
+
+            for (int x = -4; x < 4; x++) {
+                for (int z = 0; z < 16; z++) {
+                    assertSame(Solid.FULL, space.solidAt(x, 0, z));
+                    assertSame(Solid.EMPTY, space.solidAt(x, 3, z));
+                }
+            }
+
+            assertEquals(8 * 4 * 16, loads.get());
+
+            //an unloaded chunk is only asked for once
+            loads.set(0);
+            space.prefetch(32, 0, 0, 16, 16, 16);
+            assertEquals(1, loads.get());
+
+            //prefetching ignores pinned snapshots, so other readers benefit
+            try (SpaceSnapshot snapshot = space.snapshot()) {
+                snapshot.pin();
+                space.prefetch(0, 10, 100, 4, 4, 4);
+                snapshot.unpin();
+            }
+
+            loads.set(0);
+            assertSame(Solid.EMPTY, space.solidAt(0, 10, 100));
+            assertEquals(0, loads.get());
+
+            assertThrows(IllegalArgumentException.class, () -> space.prefetch(0, 0, 0, 1, 0, 1));
+        }
+    }
+
+    @Test
+    void snapshotsDuringWrites() {
+        ConcurrentCachingSpace space = same(Solid.EMPTY);
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                space.solidAt(x, 0, z);
+            }
+        }
+
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            Random random = new Random(0x3217);
+            Solid[] solids = new Solid[] {Solid.EMPTY, Solid.FULL, null};
+            SolidBatch batch = new SolidBatch();
+
+            while (!done.get()) {
+                int x = random.nextInt(32);
+                int z = random.nextInt(32);
+                space.updateSolid(x, 0, z, solids[random.nextInt(solids.length)]);
+
+                batch.clear();
+                for (int i = 0; i < 8; i++) {
+                    batch.add(random.nextInt(32), 0, random.nextInt(32), solids[random.nextInt(solids.length)]);
+                }
+
+                space.updateSolids(batch);
+            }
+        });
+
+        writer.start();
+        try {
+            Solid[] first = new Solid[32 * 32];
+            for (int i = 0; i < 200; i++) {
+                try (ConcurrentCachingSpace.Snapshot snapshot = space.snapshot()) {
+                    for (int x = 0; x < 32; x++) {
+                        for (int z = 0; z < 32; z++) {
+                            first[x * 32 + z] = snapshot.solidAt(x, 0, z);
+                        }
+                    }
+
+                    //every read sees the same solids, even as they change
+                    snapshot.pin();
+                    for (int x = 0; x < 32; x++) {
+                        for (int z = 0; z < 32; z++) {
+                            assertSame(first[x * 32 + z], space.solidAt(x, 0, z));
+                        }
+                    }
+                }
+            }
+        } finally {
+            done.set(true);
+        }
+
+        assertDoesNotThrow(() -> writer.join());
+        assertTrue(space.validCacheState());
     }
 
     @Test
@@ -91,6 +798,47 @@ class ConcurrentCachingSpaceTest {
         assertTrue(space.validCacheState());
     }
 
+    //chunks that are reported as loaded while other threads mark them unloaded must not stay unloaded
+    @Test
+    void unloadedChunksDuringLoads() {
+        AtomicBoolean available = new AtomicBoolean();
+        ConcurrentCachingSpace space = new ConcurrentCachingSpace(0, 1, TimeUnit.HOURS) {
+            @Override
+            public @Nullable Solid loadSolid(int x, int y, int z) {
+                return available.get() ? Solid.FULL : null;
+            }
+        };
+
+        for (int round = 0; round < 50; round++) {
+            available.set(false);
+            space.clearCache();
+
+            for (int i = 0; i < 4; i++) {
+                int offset = i;
+                ForkJoinPool.commonPool().execute(() -> {
+                    for (int chunk = 0; chunk < 64; chunk++) {
+                        space.solidAt((chunk << 4) + offset, 0, 0);
+                    }
+                });
+            }
+
+            available.set(true);
+            for (int chunk = 0; chunk < 64; chunk++) {
+                space.chunkLoaded(chunk, 0);
+            }
+
+            if (!ForkJoinPool.commonPool().awaitQuiescence(100, TimeUnit.HOURS)) {
+                fail("timeout");
+            }
+
+            for (int chunk = 0; chunk < 64; chunk++) {
+                assertEquals(Solid.FULL, space.solidAt((chunk << 4) + 8, 0, 0));
+            }
+        }
+
+        assertTrue(space.validCacheState());
+    }
+
     //many concurrent writes to the same block with many concurrent readers
     @Test
     void writeContention()
@@ -162,6 +910,41 @@ class ConcurrentCachingSpaceTest {
         assertTrue(space.validCacheState());
     }
 
+    //batches that span many chunks, applied concurrently with reads of the same chunks
+    @Test
+    void parallelBatchedWrites() {
+        ConcurrentCachingSpace space = same(Solid.FULL);
+
+        for (int i = 0; i < 100; i++) {
+            int v = i << 2;
+            ForkJoinPool.commonPool().execute(() -> {
+                SolidBatch batch = new SolidBatch();
+                for (int j = 0; j < 100; j++) {
+                    batch.clear();
+                    for (int x = 0; x < 64; x += 4) {
+                        batch.add(x + (v & 3), 16, v, j == 99 ? Solid.EMPTY : null);
+                    }
+
+                    space.updateSolids(batch);
+                    space.solidAt(v & 3, 16, v);
+                }
+            });
+        }
+
+        if (!ForkJoinPool.commonPool().awaitQuiescence(100, TimeUnit.HOURS)) {
+            fail("timeout");
+        }
+
+        for (int i = 0; i < 100; i++) {
+            int v = i << 2;
+            for (int x = 0; x < 64; x += 4) {
+                assertEquals(Solid.EMPTY, space.solidAt(x + (v & 3), 16, v));
+            }
+        }
+
+        assertTrue(space.validCacheState());
+    }
+
     @Test
     void writeRemoveContentionWithReads()
     throws InterruptedException {
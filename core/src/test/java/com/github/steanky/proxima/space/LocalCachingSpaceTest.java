@@ -0,0 +1,125 @@
+package com.github.steanky.proxima.space;
+
+import com.github.steanky.proxima.solid.Solid;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalCachingSpaceTest {
+    //counts reads, positions with negative y can't be loaded
+    private static Space counting(AtomicInteger reads) {
+        return (x, y, z) -> {
+            reads.incrementAndGet();
+            if (y < 0) {
+                return null;
+            }
+
+            return ((x ^ y ^ z) & 1) == 0 ? Solid.FULL : Solid.EMPTY;
+        };
+    }
+
+    @Test
+    void repeatedReadsAreBuffered() {
+        AtomicInteger reads = new AtomicInteger();
+        Space shared = counting(reads);
+        LocalCachingSpace space = new LocalCachingSpace(shared);
+
+        space.begin();
+        for (int i = 0; i < 3; i++) {
+            for (int x = -20; x < 20; x++) {
+                for (int y = -5; y < 20; y++) {
+                    for (int z = -20; z < 20; z++) {
+                        assertSame(shared.solidAt(x, y, z), space.solidAt(x, y, z));
+                    }
+                }
+            }
+        }
+
+        //one read per position from the shared space, one per position from the assertion above
+        assertEquals(40 * 25 * 40 * 4, reads.get());
+        space.end();
+
+        reads.set(0);
+        space.solidAt(0, 0, 0);
+        space.solidAt(0, 0, 0);
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    void positionsAreFixedDuringTasks() {
+        HashSpace shared = new HashSpace(-16, -16, -16, 32, 32, 32);
+        LocalCachingSpace space = new LocalCachingSpace(shared);
+
+        space.begin();
+        assertSame(Solid.EMPTY, space.solidAt(1, 2, 3));
+
+        shared.put(1, 2, 3, Solid.FULL);
+        assertSame(Solid.EMPTY, space.solidAt(1, 2, 3));
+        assertSame(Solid.FULL, shared.solidAt(1, 2, 3));
+
+        //tasks nest, the buffer is kept until the outermost one ends
+        space.begin();
+        space.end();
+        assertSame(Solid.EMPTY, space.solidAt(1, 2, 3));
+
+        space.end();
+        assertSame(Solid.FULL, space.solidAt(1, 2, 3));
+        assertThrows(IllegalStateException.class, space::end);
+
+        //other threads don't see the buffer
+        space.begin();
+        assertSame(Solid.FULL, space.solidAt(1, 2, 3));
+        shared.remove(1, 2, 3);
+
+        Solid[] other = new Solid[1];
+        Thread thread = new Thread(() -> other[0] = space.solidAt(1, 2, 3));
+        thread.start();
+        assertDoesNotThrow(() -> thread.join());
+
+        assertSame(Solid.EMPTY, other[0]);
+        assertSame(Solid.FULL, space.solidAt(1, 2, 3));
+        space.end();
+    }
+
+    @Test
+    void sectionsAreLimited() {
+        AtomicInteger reads = new AtomicInteger();
+        LocalCachingSpace space = new LocalCachingSpace(counting(reads), 2);
+
+        space.begin();
+        for (int i = 0; i < 2; i++) {
+            space.solidAt(0, 0, 0);
+            space.solidAt(16, 0, 0);
+            space.solidAt(32, 0, 0);
+            space.solidAt(-1, 0, 0);
+        }
+
+        //the first two sections are buffered, the others aren't
+        assertEquals(6, reads.get());
+        space.end();
+
+        assertThrows(IllegalArgumentException.class, () -> new LocalCachingSpace(counting(reads), 0));
+    }
+
+    @Test
+    void sectionsDontCollide() {
+        AtomicInteger reads = new AtomicInteger();
+        LocalCachingSpace space = new LocalCachingSpace(counting(reads));
+
+        //sections whose coordinates share bits in any position, each read twice
+        int[][] positions = new int[][] {{-16, 0, 0}, {0, -(1 << 25), 0}, {0, 0, -16}, {0, 16, 0}, {0, 0, 1 << 25},
+                {1 << 25, 0, 0}, {Integer.MIN_VALUE, 0, Integer.MAX_VALUE}, {Integer.MAX_VALUE, 0, Integer.MIN_VALUE}};
+
+        space.begin();
+        for (int i = 0; i < 2; i++) {
+            for (int[] position : positions) {
+                space.solidAt(position[0], position[1], position[2]);
+            }
+        }
+
+        assertEquals(positions.length, reads.get());
+        space.end();
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.steanky.proxima.space;
+
+import com.github.steanky.proxima.solid.Solid;
+import com.github.steanky.vector.Bounds3D;
+import com.github.steanky.vector.Bounds3I;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedSpaceTest {
+    private static final Solid PARTIAL = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1));
+    private static final Solid STAIR = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1),
+            Bounds3D.immutable(0, 0.5, 0, 1, 0.5, 0.5));
+
+    @Test
+    void roundTrip(@TempDir Path directory) throws IOException {
+        Solid[] solids = new Solid[] {Solid.EMPTY, Solid.EMPTY, Solid.EMPTY, Solid.FULL, PARTIAL, STAIR, null};
+        Random random = new Random(0x3A99ED);
+
+        //not aligned to sections, so the written region is expanded
+        Bounds3I bounds = Bounds3I.immutable(-20, -5, 3, 40, 30, 20);
+        Space source = (x, y, z) -> {
+            if (y >= 10) {
+                //uniform sections
+                return Solid.EMPTY;
+            }
+
+            return solids[Math.floorMod(x * 31 + y * 17 + z * 7 + (x ^ z), solids.length)];
+        };
+
+        Path file = directory.resolve("space.bin");
+        MappedSpace.write(source, bounds, file);
+        MappedSpace space = MappedSpace.open(file);
+
+        Bounds3I written = space.bounds();
+        assertEquals(-32, written.originX());
+        assertEquals(-16, written.originY());
+        assertEquals(0, written.originZ());
+        assertEquals(64, written.lengthX());
+        assertEquals(48, written.lengthY());
+        assertEquals(32, written.lengthZ());
+        assertEquals(Set.of(Solid.EMPTY, Solid.FULL, PARTIAL, STAIR), Set.copyOf(space.solids()));
+
+        for (int x = -32; x < 32; x++) {
+            for (int y = -16; y < 32; y++) {
+                for (int z = 0; z < 32; z++) {
+                    assertSame(source.solidAt(x, y, z), space.solidAt(x, y, z));
+                }
+            }
+        }
+
+        //outside the written region
+        assertNull(space.solidAt(-33, 0, 0));
+        assertNull(space.solidAt(32, 0, 0));
+        assertNull(space.solidAt(0, -17, 0));
+        assertNull(space.solidAt(0, 0, 32));
+        assertNull(space.solidAt(Integer.MIN_VALUE, Integer.MAX_VALUE, 0));
+
+        //any number of spaces can map the same file
+        MappedSpace other = MappedSpace.open(file);
+        for (int i = 0; i < 1000; i++) {
+            int x = random.nextInt(64) - 32;
+            int y = random.nextInt(48) - 16;
+            int z = random.nextInt(32);
+            assertSame(space.solidAt(x, y, z), other.solidAt(x, y, z));
+        }
+    }
+
+    @Test
+    void largePalettes(@TempDir Path directory) throws IOException {
+        //more distinct solids in a single section than fit in a byte
+        Solid[] solids = new Solid[300];
+        for (int i = 0; i < solids.length; i++) {
+            solids[i] = Solid.of(Bounds3D.immutable(0, 0, 0, 1, (i + 1) / 301D, 1));
+        }
+
+        Space source = (x, y, z) -> solids[((x << 8) | (y << 4) | z) % solids.length];
+        Path file = directory.resolve("large.bin");
+        MappedSpace.write(source, Bounds3I.immutable(0, 0, 0, 16, 16, 16), file);
+
+        MappedSpace space = MappedSpace.open(file);
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    assertSame(source.solidAt(x, y, z), space.solidAt(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Test
+    void uniformSectionsAreShared(@TempDir Path directory) throws IOException {
+        Path small = directory.resolve("small.bin");
+        Path large = directory.resolve("large.bin");
+
+        MappedSpace.write((x, y, z) -> Solid.EMPTY, Bounds3I.immutable(0, 0, 0, 16, 16, 16), small);
+        MappedSpace.write((x, y, z) -> Solid.EMPTY, Bounds3I.immutable(0, 0, 0, 256, 256, 256), large);
+
+        //only the directory grows
+        assertEquals(Files.size(small) + (4096 - 1) * Integer.BYTES, Files.size(large));
+        assertSame(Solid.EMPTY, MappedSpace.open(large).solidAt(255, 255, 255));
+    }
+
+    @Test
+    void checksums(@TempDir Path directory) throws IOException {
+        Bounds3I bounds = Bounds3I.immutable(0, 0, 0, 32, 32, 32);
+        Space floor = (x, y, z) -> y == 0 ? Solid.FULL : Solid.EMPTY;
+        Space stairs = (x, y, z) -> y == 0 ? STAIR : Solid.EMPTY;
+        Space unloaded = (x, y, z) -> y == 0 ? Solid.FULL : null;
+
+        Path first = directory.resolve("first.bin");
+        Path second = directory.resolve("second.bin");
+        Path third = directory.resolve("third.bin");
+        Path fourth = directory.resolve("fourth.bin");
+        Path fifth = directory.resolve("fifth.bin");
+        MappedSpace.write(floor, bounds, first);
+        MappedSpace.write(floor, bounds, second);
+        MappedSpace.write(stairs, bounds, third);
+        MappedSpace.write(unloaded, bounds, fourth);
+        MappedSpace.write(floor, Bounds3I.immutable(0, 0, 0, 32, 32, 48), fifth);
+
+        long checksum = MappedSpace.open(first).checksum();
+        assertEquals(checksum, MappedSpace.open(second).checksum());
+        assertNotEquals(checksum, MappedSpace.open(third).checksum());
+        assertNotEquals(checksum, MappedSpace.open(fourth).checksum());
+        assertNotEquals(checksum, MappedSpace.open(fifth).checksum());
+    }
+
+    @Test
+    void invalidFiles(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("invalid.bin");
+
+        Files.write(file, new byte[8]);
+        assertThrows(IOException.class, () -> MappedSpace.open(file));
+
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> MappedSpace.open(file));
+
+        MappedSpace.write((x, y, z) -> Solid.FULL, Bounds3I.immutable(0, 0, 0, 16, 16, 16), file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        //unsupported version
+        ByteBuffer.wrap(bytes).putInt(4, 1);
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> MappedSpace.open(file));
+
+        //directory past the end of the file
+        ByteBuffer.wrap(bytes).putInt(4, 2).putInt(36, bytes.length);
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> MappedSpace.open(file));
+
+        assertThrows(IllegalArgumentException.class, () -> MappedSpace.write((x, y, z) -> Solid.FULL,
+                Bounds3I.immutable(0, 0, 0, 0, 16, 16), file));
+    }
+}
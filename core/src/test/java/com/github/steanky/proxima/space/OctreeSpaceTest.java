@@ -0,0 +1,156 @@
+package com.github.steanky.proxima.space;
+
+import com.github.steanky.proxima.Direction;
+import com.github.steanky.proxima.snapper.BasicNodeSnapper;
+import com.github.steanky.proxima.solid.Solid;
+import com.github.steanky.vector.Bounds3D;
+import com.github.steanky.vector.Bounds3I;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OctreeSpaceTest {
+    private static final Solid PARTIAL = Solid.of(Bounds3D.immutable(0, 0, 0, 1, 0.5, 1));
+
+    private static final Bounds3I BOUNDS = Bounds3I.immutable(-10, -20, 5, 37, 24, 30);
+
+    @Test
+    void matchesHashSpace() {
+        Random random = new Random(0x0C7);
+        OctreeSpace octree = new OctreeSpace(BOUNDS);
+        HashSpace reference = new HashSpace(BOUNDS);
+        Solid[] solids = new Solid[] {Solid.FULL, PARTIAL};
+
+        for (int i = 0; i < 20000; i++) {
+            int x = random.nextInt(-10, 27);
+            int y = random.nextInt(-20, 4);
+            int z = random.nextInt(5, 35);
+
+            if (random.nextInt(4) == 0) {
+                octree.remove(x, y, z);
+                reference.remove(x, y, z);
+            } else {
+                Solid solid = solids[random.nextInt(solids.length)];
+                octree.put(x, y, z, solid);
+                reference.put(x, y, z, solid);
+            }
+        }
+
+        for (int x = -10; x < 27; x++) {
+            for (int y = -20; y < 4; y++) {
+                for (int z = 5; z < 35; z++) {
+                    assertSame(reference.solidAt(x, y, z), octree.solidAt(x, y, z));
+                }
+            }
+        }
+
+        assertNull(octree.solidAt(-11, 0, 10));
+        assertNull(octree.solidAt(27, 0, 10));
+        assertNull(octree.solidAt(0, 4, 10));
+        assertNull(octree.solidAt(Integer.MIN_VALUE, Integer.MAX_VALUE, 10));
+        assertThrows(IllegalArgumentException.class, () -> octree.put(0, 4, 10, Solid.FULL));
+    }
+
+    @Test
+    void uniformRegionsCollapse() {
+        OctreeSpace space = new OctreeSpace(0, 0, 0, 64, 64, 64);
+        assertEquals(0, space.nodeCount());
+
+        for (int x = 16; x < 32; x++) {
+            for (int y = 0; y < 16; y++) {
+                for (int z = 32; z < 48; z++) {
+                    space.put(x, y, z, Solid.FULL);
+                }
+            }
+        }
+
+        //an aligned cube is a single leaf, below one node per level
+        assertEquals(2, space.nodeCount());
+
+        space.put(20, 5, 40, PARTIAL);
+        assertEquals(6, space.nodeCount());
+
+        space.put(20, 5, 40, Solid.FULL);
+        assertEquals(2, space.nodeCount());
+
+        for (int x = 16; x < 32; x++) {
+            for (int y = 0; y < 16; y++) {
+                for (int z = 32; z < 48; z++) {
+                    space.remove(x, y, z);
+                }
+            }
+        }
+
+        assertEquals(0, space.nodeCount());
+        assertTrue(space.isEmpty(0, 0, 0, 64, 64, 64));
+    }
+
+    @Test
+    void emptyBoxes() {
+        Random random = new Random(0xB0C5);
+        OctreeSpace space = new OctreeSpace(BOUNDS);
+        for (int i = 0; i < 40; i++) {
+            space.put(random.nextInt(-10, 27), random.nextInt(-20, 4), random.nextInt(5, 35), random.nextBoolean() ?
+                    Solid.FULL : PARTIAL);
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            int x = random.nextInt(-12, 27);
+            int y = random.nextInt(-22, 4);
+            int z = random.nextInt(3, 35);
+            int lx = random.nextInt(1, 12);
+            int ly = random.nextInt(1, 12);
+            int lz = random.nextInt(1, 12);
+
+            boolean expected = true;
+            for (int bx = x; bx < x + lx && expected; bx++) {
+                for (int by = y; by < y + ly && expected; by++) {
+                    for (int bz = z; bz < z + lz && expected; bz++) {
+                        Solid solid = space.solidAt(bx, by, bz);
+                        expected = solid != null && solid.isEmpty();
+                    }
+                }
+            }
+
+            assertEquals(expected, space.isEmpty(x, y, z, lx, ly, lz));
+        }
+
+        assertFalse(space.isEmpty(Integer.MAX_VALUE, 0, 10, 1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> space.isEmpty(0, 0, 10, 0, 1, 1));
+
+        //spaces that don't track empty regions are conservative
+        assertFalse(((Space) (x, y, z) -> Solid.EMPTY).isEmpty(0, 0, 0, 1, 1, 1));
+    }
+
+    @Test
+    void flightSnapsMatch() {
+        Random random = new Random(0xF1);
+        OctreeSpace octree = new OctreeSpace(BOUNDS);
+        HashSpace reference = new HashSpace(BOUNDS);
+        for (int i = 0; i < 400; i++) {
+            int x = random.nextInt(-10, 27);
+            int y = random.nextInt(-20, 4);
+            int z = random.nextInt(5, 35);
+            Solid solid = random.nextBoolean() ? Solid.FULL : PARTIAL;
+
+            octree.put(x, y, z, solid);
+            reference.put(x, y, z, solid);
+        }
+
+        BasicNodeSnapper octreeSnapper = new BasicNodeSnapper(octree, 1, 1.8, 1E-6);
+        BasicNodeSnapper referenceSnapper = new BasicNodeSnapper(reference, 1, 1.8, 1E-6);
+        Direction[] directions = Direction.values();
+        for (int i = 0; i < 20000; i++) {
+            int x = random.nextInt(-8, 25);
+            int y = random.nextInt(-18, 1);
+            int z = random.nextInt(7, 33);
+            float offset = random.nextInt(4) == 0 ? 0.5F : 0;
+            Direction direction = directions[random.nextInt(directions.length)];
+
+            assertEquals(referenceSnapper.snap(direction, x, y, z, offset), octreeSnapper.snap(direction, x, y, z,
+                    offset));
+        }
+    }
+}